@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.spark;
+
+import io.cdap.cdap.api.annotation.Beta;
+
+/**
+ * Spark configuration properties that are recognized by the CDAP Spark runtime.
+ */
+@Beta
+public final class SparkConfigs {
+
+  /**
+   * Property for a JSON array of schemas. Kryo serializes these schemas with their hash only, instead of the
+   * full schema, when records are shuffled or cached.
+   */
+  public static final String KRYO_SCHEMAS = "spark.cdap.kryo.schemas";
+
+  private SparkConfigs() {
+  }
+}
@@ -283,6 +283,54 @@ public class IndexedTable extends AbstractDataset implements Table {
     return new IndexRangeScanner(indexScan, column, startValue, endValue);
   }
 
+  /**
+   * Reads the keys of the data rows within the given secondary index key range, without reading the data rows.
+   * Row keys are returned in the order of the index, that is, sorted by column value first.
+   * <p>
+   * Unlike {@link #scanByIndex(byte[], byte[], byte[])}, this does not verify the returned row keys against the
+   * data table. If any of the indexed columns contains the null byte, the result may contain false positives.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range for which rows must fall within to be returned in the scan.
+   *                   {@code null} means start from first row of the table
+   * @param endValue the exclusive end of the range for which rows must fall within to be returned in the scan
+   *                 {@code null} means end with the last row of the table
+   * @return an iterator over the keys of the data rows whose stored value for the given column is within the
+   *         given range.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public CloseableIterator<byte[]> scanRowKeysByIndex(byte[] column, @Nullable byte[] startValue,
+                                                      @Nullable byte[] endValue) {
+    assertIndexedColumn(column);
+    byte[] startRow = startValue == null ? Bytes.concat(keyPrefix, column, KEY_DELIMITER) :
+      Bytes.concat(keyPrefix, column, KEY_DELIMITER, startValue);
+    byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(keyPrefix, column, KEY_DELIMITER)) :
+      Bytes.concat(keyPrefix, column, KEY_DELIMITER, endValue);
+    return new IndexRowKeyIterator(index.scan(startRow, stopRow), column, startValue, endValue);
+  }
+
+  /**
+   * Reads the keys of the data rows by the given secondary index key, without reading the data rows.
+   * <p>
+   * Unlike {@link #readByIndex(byte[], byte[])}, this does not verify the returned row keys against the
+   * data table. If any of the indexed columns contains the null byte, the result may contain false positives.
+   *
+   * @param column the column to use for the index lookup
+   * @param value the value of the column that the data rows must have
+   * @return an iterator over the keys of the data rows whose stored value for the given column matches the
+   *         given value.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public CloseableIterator<byte[]> readRowKeysByIndex(byte[] column, byte[] value) {
+    assertIndexedColumn(column);
+    byte[] rowKeyPrefix = Bytes.concat(keyPrefix, column, KEY_DELIMITER, value, KEY_DELIMITER);
+    byte[] stopRow = Bytes.stopKeyForPrefix(rowKeyPrefix);
+    // appending the delimiter makes the exclusive end match exactly the value itself
+    return new IndexRowKeyIterator(index.scan(rowKeyPrefix, stopRow), column, value, Bytes.add(value, KEY_DELIMITER));
+  }
+
   private void assertIndexedColumn(byte[] column) {
     if (!indexedColumns.contains(column)) {
       throw new IllegalArgumentException("Column " + Bytes.toStringBinary(column) + " is not configured for indexing");
@@ -729,6 +777,45 @@ public class IndexedTable extends AbstractDataset implements Table {
     }
   }
 
+  // iterator over the data row keys of index entries that fall within a range
+  private class IndexRowKeyIterator extends AbstractCloseableIterator<byte[]> {
+    private final Scanner baseScanner;
+    private final byte[] column;
+    private final byte[] start;
+    private final byte[] end;
+
+    IndexRowKeyIterator(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end) {
+      this.baseScanner = baseScanner;
+      this.column = column;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected byte[] computeNext() {
+      for (Row indexRow = baseScanner.next(); indexRow != null; indexRow = baseScanner.next()) {
+        byte[] rowkey = indexRow.get(IDX_COL);
+        if (rowkey == null) {
+          LOG.warn("Row of Indexed table '{}' is missing index column. Row key: {}", getName(), indexRow.getRow());
+          continue;
+        }
+        byte[] columnValue = Arrays.copyOfRange(indexRow.getRow(),
+                                                keyPrefix.length + column.length + 1,
+                                                indexRow.getRow().length - rowkey.length - 1);
+        if ((start == null || Bytes.compareTo(columnValue, start) >= 0)
+          && (end == null || Bytes.compareTo(columnValue, end) < 0)) {
+          return rowkey;
+        }
+      }
+      return endOfData();
+    }
+
+    @Override
+    public void close() {
+      baseScanner.close();
+    }
+  }
+
   // scanner that matches column values based upon range
   private class IndexRangeScanner extends AbstractIndexScanner {
     private final byte[] start;
@@ -19,7 +19,10 @@ package io.cdap.cdap.api.dataset.lib;
 import io.cdap.cdap.api.annotation.Beta;
 import io.cdap.cdap.api.dataset.table.TableProperties;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -38,6 +41,11 @@ public class PartitionedFileSetProperties extends FileSetProperties {
    */
   public static final String PARTITIONING_FIELD_PREFIX = "partitioning.field.";
 
+  /**
+   * The property name for the list of partitioning field names that have a secondary index.
+   */
+  public static final String PARTITIONING_INDEXED_FIELDS = "partitioning.indexed.fields";
+
   /**
    * Read the partitioning for a PartitionedFileSet from its properties.
    *
@@ -71,6 +79,28 @@ public class PartitionedFileSetProperties extends FileSetProperties {
     return builder.build();
   }
 
+  /**
+   * Read the names of the partitioning fields that have a secondary index from the properties
+   * of a PartitionedFileSet.
+   *
+   * @param properties the dataset properties
+   * @return the names of the indexed fields, or an empty set if no field is indexed
+   */
+  public static Set<String> getIndexedFields(Map<String, String> properties) {
+    String fieldList = properties.get(PARTITIONING_INDEXED_FIELDS);
+    if (fieldList == null) {
+      return Collections.emptySet();
+    }
+    Set<String> fields = new LinkedHashSet<>();
+    for (String fieldName : fieldList.split(",")) {
+      fieldName = fieldName.trim();
+      if (!fieldName.isEmpty()) {
+        fields.add(fieldName);
+      }
+    }
+    return fields;
+  }
+
   /**
    * @return a properties builder
    */
@@ -105,6 +135,22 @@ public class PartitionedFileSetProperties extends FileSetProperties {
       return this;
     }
 
+    /**
+     * Sets the partitioning fields that have a secondary index. An index speeds up reading partitions with a
+     * filter on a field that is not a leading field of the partitioning. The indexed fields cannot be changed
+     * once the dataset is created.
+     */
+    public Builder setIndexedFields(String... fieldNames) {
+      StringBuilder builder = new StringBuilder();
+      String sep = "";
+      for (String fieldName : fieldNames) {
+        builder.append(sep).append(fieldName);
+        sep = ",";
+      }
+      add(PARTITIONING_INDEXED_FIELDS, builder.toString());
+      return this;
+    }
+
     /**
      * Set the table permissions as a map from user name to a permission string.
      */
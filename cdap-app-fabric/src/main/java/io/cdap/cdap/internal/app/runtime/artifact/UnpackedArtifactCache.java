@@ -0,0 +1,448 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.Striped;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.lang.jar.BundleJarUtil;
+import io.cdap.cdap.common.utils.DirUtils;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of unpacked artifact jars that is shared by all plugin and artifact ClassLoaders on a node, so that the
+ * same artifact is not expanded again for every program start, preview or validation request.
+ * <p>
+ * Unpacked directories are keyed by the SHA-256 checksum of the artifact content. A directory is unpacked into a
+ * temporary directory first and then published with an atomic rename, hence a directory under its checksum name is
+ * always complete. Each {@link Handle} holds a reference to a directory. Within a process, references are counted;
+ * across processes sharing the same cache directory, a referenced directory is protected by a shared file lock.
+ * Once the total size of the cached directories exceeds the limit, unreferenced directories are removed in least
+ * recently used order.
+ * <p>
+ * The directories returned must be treated as read-only.
+ */
+public final class UnpackedArtifactCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UnpackedArtifactCache.class);
+
+  private static final String CACHE_DIR = "artifact.unpack.cache";
+  private static final String TMP_PREFIX = ".";
+  private static final String LOCK_SUFFIX = ".lock";
+  // temporary directories older than this are considered left behind by a process that died while unpacking
+  private static final long STALE_TMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private static final ConcurrentMap<File, UnpackedArtifactCache> INSTANCES = new ConcurrentHashMap<>();
+
+  private final File cacheDir;
+  private final long maxSize;
+  // serializes acquire, release and eviction of the same checksum
+  private final Striped<Lock> locks;
+  // checksums of artifacts, keyed by location URI; the entry is only used if the artifact is unchanged
+  private final Cache<URI, Checksum> checksums;
+  // entries in least recently used order, guarded by this
+  private final LinkedHashMap<String, Entry> entries;
+  private long totalSize;
+
+  /**
+   * Returns the cache for the local data directory configured in the given {@link CConfiguration}. All callers
+   * in the same process share the same instance.
+   */
+  public static UnpackedArtifactCache get(CConfiguration cConf) {
+    File cacheDir = new File(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                                      cConf.get(Constants.AppFabric.TEMP_DIR)), CACHE_DIR).getAbsoluteFile();
+    UnpackedArtifactCache cache = INSTANCES.get(cacheDir);
+    if (cache != null) {
+      return cache;
+    }
+    long maxSize = cConf.getLong(Constants.AppFabric.ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB) * 1024 * 1024;
+    cache = new UnpackedArtifactCache(cacheDir, maxSize);
+    UnpackedArtifactCache existing = INSTANCES.putIfAbsent(cacheDir, cache);
+    return existing == null ? cache : existing;
+  }
+
+  @VisibleForTesting
+  UnpackedArtifactCache(File cacheDir, long maxSize) {
+    this.cacheDir = cacheDir;
+    this.maxSize = maxSize;
+    this.locks = Striped.lock(64);
+    this.checksums = CacheBuilder.newBuilder().maximumSize(1000).build();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    if (!DirUtils.mkdirs(cacheDir)) {
+      throw new IllegalStateException("Failed to create directory " + cacheDir);
+    }
+    loadExisting();
+  }
+
+  /**
+   * Returns a {@link Handle} to the unpacked content of the given artifact, unpacking it if it is not in the
+   * cache yet. The directory is kept until the handle is closed.
+   *
+   * @param artifactLocation location of the artifact jar
+   * @throws IOException if failed to read or unpack the artifact
+   */
+  public Handle acquire(Location artifactLocation) throws IOException {
+    String checksum = getChecksum(artifactLocation);
+    Lock lock = locks.get(checksum);
+    Entry entry;
+    lock.lock();
+    try {
+      synchronized (this) {
+        entry = entries.get(checksum);
+        if (entry != null && entry.refCount > 0) {
+          entry.refCount++;
+          return new Handle(entry);
+        }
+      }
+
+      // first reference in this process: take the shared lock before looking at the directory,
+      // so that no other process can evict it from now on
+      File dir = new File(cacheDir, checksum);
+      FileChannel channel = new RandomAccessFile(new File(cacheDir, checksum + LOCK_SUFFIX), "rw").getChannel();
+      try {
+        FileLock fileLock = channel.lock(0L, Long.MAX_VALUE, true);
+        if (!dir.isDirectory()) {
+          publish(artifactLocation, dir);
+        }
+        synchronized (this) {
+          if (entry == null) {
+            entry = new Entry(checksum, dir, getSize(dir));
+            entries.put(checksum, entry);
+            totalSize += entry.size;
+          }
+          entry.refCount = 1;
+          entry.fileLock = fileLock;
+        }
+      } catch (IOException | RuntimeException e) {
+        Closeables.closeQuietly(channel);
+        throw e;
+      }
+    } finally {
+      lock.unlock();
+    }
+    evict();
+    return new Handle(entry);
+  }
+
+  /**
+   * Unpacks the artifact into a temporary directory and renames it to the given directory.
+   */
+  private void publish(Location artifactLocation, File dir) throws IOException {
+    File tmpDir = new File(cacheDir, TMP_PREFIX + UUID.randomUUID());
+    if (!DirUtils.mkdirs(tmpDir)) {
+      throw new IOException("Failed to create directory " + tmpDir);
+    }
+    try {
+      BundleJarUtil.unJar(artifactLocation, tmpDir);
+      Files.move(tmpDir.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      LOG.debug("Unpacked artifact {} to {}", artifactLocation, dir);
+    } catch (IOException e) {
+      deleteQuietly(tmpDir);
+      // another process may have published the same artifact concurrently
+      if (!dir.isDirectory()) {
+        throw e;
+      }
+    }
+  }
+
+  private void release(Entry entry) {
+    Lock lock = locks.get(entry.checksum);
+    lock.lock();
+    try {
+      synchronized (this) {
+        if (--entry.refCount == 0) {
+          FileLock fileLock = entry.fileLock;
+          entry.fileLock = null;
+          try {
+            fileLock.release();
+          } catch (IOException e) {
+            LOG.warn("Failed to release lock on {}", entry.dir, e);
+          }
+          Closeables.closeQuietly(fileLock.channel());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    evict();
+  }
+
+  /**
+   * Removes unreferenced directories in least recently used order until the total size is within the limit.
+   */
+  private void evict() {
+    List<Entry> candidates = new ArrayList<>();
+    synchronized (this) {
+      if (totalSize <= maxSize) {
+        return;
+      }
+      for (Entry entry : entries.values()) {
+        if (entry.refCount == 0) {
+          candidates.add(entry);
+        }
+      }
+    }
+
+    for (Entry entry : candidates) {
+      synchronized (this) {
+        if (totalSize <= maxSize) {
+          return;
+        }
+      }
+      Lock lock = locks.get(entry.checksum);
+      // skip the entry if it is being acquired or released right now
+      if (!lock.tryLock()) {
+        continue;
+      }
+      try {
+        synchronized (this) {
+          if (entry.refCount > 0 || entry.evicted) {
+            continue;
+          }
+        }
+        File evictedDir = removeIfUnused(entry);
+        if (evictedDir == null) {
+          continue;
+        }
+        synchronized (this) {
+          entry.evicted = true;
+          entries.remove(entry.checksum);
+          totalSize -= entry.size;
+        }
+        deleteQuietly(evictedDir);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Moves the directory of the given entry out of place, unless another process holds a reference to it.
+   *
+   * @return the directory that the entry was moved to, or {@code null} if the entry is still in use
+   */
+  @Nullable
+  private File removeIfUnused(Entry entry) {
+    File lockFile = new File(cacheDir, entry.checksum + LOCK_SUFFIX);
+    try (FileChannel channel = new RandomAccessFile(lockFile, "rw").getChannel()) {
+      FileLock fileLock = channel.tryLock(0L, Long.MAX_VALUE, false);
+      if (fileLock == null) {
+        return null;
+      }
+      try {
+        if (!entry.dir.isDirectory()) {
+          // already removed by another process
+          return entry.dir;
+        }
+        File evictedDir = new File(cacheDir, TMP_PREFIX + UUID.randomUUID());
+        Files.move(entry.dir.toPath(), evictedDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Evicted unpacked artifact {}", entry.dir);
+        return evictedDir;
+      } finally {
+        fileLock.release();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to evict unpacked artifact {}", entry.dir, e);
+      return null;
+    }
+  }
+
+  /**
+   * Registers the directories left by earlier processes and removes stale temporary directories.
+   */
+  private void loadExisting() {
+    File[] files = cacheDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    // register in the order of last modification, to approximate the least recently used order
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2) {
+        return Long.compare(f1.lastModified(), f2.lastModified());
+      }
+    });
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      for (File file : files) {
+        if (!file.isDirectory()) {
+          continue;
+        }
+        String name = file.getName();
+        if (name.startsWith(TMP_PREFIX)) {
+          if (now - file.lastModified() > STALE_TMP_MILLIS) {
+            deleteQuietly(file);
+          }
+          continue;
+        }
+        try {
+          Entry entry = new Entry(name, file, getSize(file));
+          entries.put(name, entry);
+          totalSize += entry.size;
+        } catch (IOException e) {
+          LOG.warn("Failed to determine the size of {}", file, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the checksum of the artifact content. The checksum is remembered for as long as the artifact
+   * is not modified, so that the artifact is not read again on subsequent calls.
+   */
+  private String getChecksum(Location artifactLocation) throws IOException {
+    URI uri = artifactLocation.toURI();
+    long lastModified = artifactLocation.lastModified();
+    long length = artifactLocation.length();
+    Checksum checksum = checksums.getIfPresent(uri);
+    if (checksum != null && checksum.lastModified == lastModified && checksum.length == length) {
+      return checksum.value;
+    }
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream is = artifactLocation.getInputStream()) {
+      int len = is.read(buffer);
+      while (len >= 0) {
+        hasher.putBytes(buffer, 0, len);
+        len = is.read(buffer);
+      }
+    }
+    String value = hasher.hash().toString();
+    checksums.put(uri, new Checksum(lastModified, length, value));
+    return value;
+  }
+
+  private static long getSize(File dir) throws IOException {
+    final long[] size = { 0L };
+    Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        size[0] += attrs.size();
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return size[0];
+  }
+
+  private static void deleteQuietly(File dir) {
+    try {
+      if (dir.exists()) {
+        DirUtils.deleteDirectoryContents(dir);
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to delete directory {}", dir, e);
+    }
+  }
+
+  /**
+   * A reference to an unpacked artifact directory. The directory may be removed after the handle is closed.
+   */
+  public final class Handle implements Closeable {
+
+    private final Entry entry;
+    private final AtomicBoolean closed;
+
+    private Handle(Entry entry) {
+      this.entry = entry;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory that contains the unpacked artifact.
+     */
+    public File getDirectory() {
+      return entry.dir;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+  }
+
+  /**
+   * An unpacked artifact directory.
+   */
+  private static final class Entry {
+    private final String checksum;
+    private final File dir;
+    private final long size;
+    // guarded by the cache
+    private int refCount;
+    private FileLock fileLock;
+    private boolean evicted;
+
+    private Entry(String checksum, File dir, long size) {
+      this.checksum = checksum;
+      this.dir = dir;
+      this.size = size;
+    }
+  }
+
+  /**
+   * The checksum of an artifact at a given modification time and length.
+   */
+  private static final class Checksum {
+    private final long lastModified;
+    private final long length;
+    private final String value;
+
+    private Checksum(long lastModified, long length, String value) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.value = value;
+    }
+  }
+}
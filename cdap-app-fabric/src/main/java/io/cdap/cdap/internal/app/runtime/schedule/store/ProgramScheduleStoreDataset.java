@@ -150,11 +150,13 @@ public class ProgramScheduleStoreDataset {
     scheduleStore.upsert(scheduleFields);
 
     int count = 0;
+    List<Collection<Field<?>>> multiTriggerFields = new ArrayList<>();
     for (String triggerKey : extractTriggerKeys(schedule)) {
       Collection<Field<?>> triggerFields = getTriggerKeys(scheduleKeys, count++);
       triggerFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
-      triggerStore.upsert(triggerFields);
+      multiTriggerFields.add(triggerFields);
     }
+    triggerStore.upsertAll(multiTriggerFields);
   }
 
   /**
@@ -229,12 +231,21 @@ public class ProgramScheduleStoreDataset {
     markScheduleAsDeleted(getScheduleKeys(scheduleId), deleteTime);
   }
 
-  private void markScheduleAsDeleted(Collection<Field<?>> deleteFields, long deleteTime) throws IOException {
-    // set all fields to null except for the update time
+  private void markScheduleAsDeleted(Collection<Field<?>> scheduleKeys, long deleteTime) throws IOException {
+    scheduleStore.upsert(getDeletedScheduleFields(scheduleKeys, deleteTime));
+  }
+
+  /**
+   * Returns the fields for marking a schedule as deleted, which set all fields to null except for the update time.
+   *
+   * @param deleteFields the primary keys of the schedule, which the fields will be added to
+   * @param deleteTime the timestamp for this deletion
+   */
+  private Collection<Field<?>> getDeletedScheduleFields(Collection<Field<?>> deleteFields, long deleteTime) {
     deleteFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.SCHEDULE, null));
     deleteFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.STATUS, null));
     deleteFields.add(Fields.longField(StoreDefinition.ProgramScheduleStore.UPDATE_TIME, deleteTime));
-    scheduleStore.upsert(deleteFields);
+    return deleteFields;
   }
 
   /**
@@ -265,6 +276,7 @@ public class ProgramScheduleStoreDataset {
   // TODO: fix the bug that this method will return fake schedule id https://issues.cask.co/browse/CDAP-13626
   public List<ScheduleId> deleteSchedules(ApplicationId appId, long deleteTime) throws IOException {
     List<ScheduleId> deleted = new ArrayList<>();
+    List<Collection<Field<?>>> deleteFields = new ArrayList<>();
     Collection<Field<?>> scanKeys = getScheduleKeysForApplicationScan(appId);
     Range range = Range.singleton(scanKeys);
     // First collect all the schedules that are going to be deleted
@@ -272,11 +284,12 @@ public class ProgramScheduleStoreDataset {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         if (row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE) != null) {
-          markScheduleAsDeleted(row, deleteTime);
+          deleteFields.add(getDeletedScheduleFields(getScheduleKeys(row), deleteTime));
           deleted.add(rowToScheduleId(row));
         }
       }
     }
+    scheduleStore.upsertAll(deleteFields);
     // Then delete all triggers for the app
     triggerStore.deleteAll(range);
     return deleted;
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import io.cdap.cdap.common.io.Locations;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Unit tests for {@link UnpackedArtifactCache}.
+ */
+public class UnpackedArtifactCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSharedUnpack() throws Exception {
+    File cacheDir = TMP_FOLDER.newFolder();
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(cacheDir, Long.MAX_VALUE);
+
+    // artifacts with the same content share the unpacked directory
+    Location artifact1 = createJar("a.jar", "content");
+    Location artifact2 = createJar("b.jar", "content");
+    Location artifact3 = createJar("c.jar", "other");
+
+    try (UnpackedArtifactCache.Handle handle1 = cache.acquire(artifact1);
+         UnpackedArtifactCache.Handle handle2 = cache.acquire(artifact2);
+         UnpackedArtifactCache.Handle handle3 = cache.acquire(artifact3)) {
+      Assert.assertEquals(handle1.getDirectory(), handle2.getDirectory());
+      Assert.assertNotEquals(handle1.getDirectory(), handle3.getDirectory());
+      Assert.assertTrue(new File(handle1.getDirectory(), "file.txt").isFile());
+    }
+
+    // a new cache instance on the same directory reuses the published directories
+    UnpackedArtifactCache newCache = new UnpackedArtifactCache(cacheDir, Long.MAX_VALUE);
+    File marker;
+    try (UnpackedArtifactCache.Handle handle = cache.acquire(artifact1)) {
+      marker = new File(handle.getDirectory(), "marker");
+      Assert.assertTrue(marker.createNewFile());
+    }
+    try (UnpackedArtifactCache.Handle handle = newCache.acquire(artifact2)) {
+      Assert.assertTrue(new File(handle.getDirectory(), "marker").exists());
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(TMP_FOLDER.newFolder(), 0L);
+
+    Location artifact = createJar("evict.jar", "content");
+    UnpackedArtifactCache.Handle handle1 = cache.acquire(artifact);
+    UnpackedArtifactCache.Handle handle2 = cache.acquire(artifact);
+    File dir = handle1.getDirectory();
+
+    // directories are not removed while they are referenced
+    handle1.close();
+    Assert.assertTrue(dir.isDirectory());
+    handle2.close();
+    Assert.assertFalse(dir.exists());
+
+    // closing a handle again has no effect
+    handle2.close();
+
+    // acquiring again unpacks the artifact again
+    try (UnpackedArtifactCache.Handle handle = cache.acquire(artifact)) {
+      Assert.assertTrue(new File(handle.getDirectory(), "file.txt").isFile());
+    }
+  }
+
+  private Location createJar(String name, String content) throws IOException {
+    File file = new File(TMP_FOLDER.getRoot(), name);
+    try (JarOutputStream jarOutput = new JarOutputStream(new FileOutputStream(file))) {
+      JarEntry entry = new JarEntry("file.txt");
+      // fixed time, so that jars with the same content have the same checksum
+      entry.setTime(0L);
+      jarOutput.putNextEntry(entry);
+      jarOutput.write(content.getBytes(StandardCharsets.UTF_8));
+      jarOutput.closeEntry();
+    }
+    return Locations.toLocation(file);
+  }
+}
@@ -16,11 +16,17 @@
 
 package io.cdap.cdap.etl.api;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
 /**
  * Join configuration to hold information about join to be performed
  */
 public class JoinConfig {
   private Iterable<String> requiredInputs;
+  private Map<String, Long> inputSizes;
 
   /**
    * Creates new instance of {@link JoinConfig}
@@ -30,7 +36,19 @@ public class JoinConfig {
    * meet join criteria.
    */
   public JoinConfig(Iterable<String> requiredInputs) {
+    this(requiredInputs, Collections.emptyMap());
+  }
+
+  /**
+   * Creates new instance of {@link JoinConfig} with the declared sizes of the inputs.
+   * @param requiredInputs iterable of input stage names. This will be used to find out type of the join.
+   * @param inputSizes map from input stage name to the estimated number of records of that input. The sizes are
+   * used to choose how the join is executed. For example, small inputs may be broadcast to all workers instead of
+   * being shuffled. Inputs without a declared size are treated as large.
+   */
+  public JoinConfig(Iterable<String> requiredInputs, Map<String, Long> inputSizes) {
     this.requiredInputs = requiredInputs;
+    this.inputSizes = Collections.unmodifiableMap(new HashMap<>(inputSizes));
   }
 
   /**
@@ -40,4 +58,14 @@ public class JoinConfig {
   public Iterable<String> getRequiredInputs() {
     return requiredInputs;
   }
+
+  /**
+   * Returns the declared size of an input.
+   * @param inputStage name of the input stage
+   * @return the estimated number of records of the input, or {@code null} if the size is not declared
+   */
+  @Nullable
+  public Long getInputSize(String inputStage) {
+    return inputSizes == null ? null : inputSizes.get(inputStage);
+  }
 }
@@ -29,4 +29,20 @@ public interface LookupProvider {
    * @return a {@link Lookup} instance
    */
   <T> Lookup<T> provide(String table, Map<String, String> arguments);
+
+  /**
+   * Provides a {@link Lookup} that is configured by the given {@link LookupTableConfig}. If caching is enabled
+   * in the config, implementations may cache lookup results based on the {@link CacheConfig}.
+   * By default, the config is ignored and the {@link Lookup} is the same as the one returned by
+   * {@link #provide(String, Map)}.
+   *
+   * @param table the name of the {@link Lookup} table
+   * @param arguments arguments for initializing the {@link Lookup} table
+   * @param tableConfig configuration of the {@link Lookup} table
+   * @param <T> the type of value returned by the {@link Lookup}
+   * @return a {@link Lookup} instance
+   */
+  default <T> Lookup<T> provide(String table, Map<String, String> arguments, LookupTableConfig tableConfig) {
+    return provide(table, arguments);
+  }
 }
@@ -18,11 +18,14 @@ package io.cdap.cdap.etl.api.lookup;
 
 import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Get;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.Lookup;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,9 +52,15 @@ public class TableLookup implements Lookup<Row> {
 
   @Override
   public Map<String, Row> lookup(Set<String> keys) {
-    Map<String, Row> results = new HashMap<>();
+    List<Get> gets = new ArrayList<>(keys.size());
     for (String key : keys) {
-      results.put(key, lookup(key));
+      gets.add(new Get(key));
+    }
+
+    // Use a single multi-get instead of one get per key
+    Map<String, Row> results = new HashMap<>();
+    for (Row row : table.get(gets)) {
+      results.put(Bytes.toString(row.getRow()), row);
     }
     return results;
   }
@@ -16,30 +16,76 @@
 
 package io.cdap.cdap.etl.batch;
 
-import io.cdap.cdap.api.common.Bytes;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.cdap.etl.common.record.StructuredRecordComparator;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.cdap.api.data.schema.SchemaHash;
+import io.cdap.cdap.common.io.Encoder;
+import io.cdap.cdap.format.io.StructuredRecordDatumReader;
+import io.cdap.cdap.format.io.StructuredRecordDatumWriter;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.Comparator;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Wrapper around a {@link StructuredRecord} so that it can be used as the output key and/or value of a mapper.
- * This is not very performant and must be improved soon (CDAP-5347).
+ * <p>
+ * A record is serialized as a marker byte and the {@link SchemaHash} of the record schema, followed by the record
+ * fields in binary. If the schema was registered with {@link #registerSchemas(Configuration, Collection)} in the
+ * configuration given to {@link #setConf(Configuration)}, only the hash is written. Otherwise the schema JSON is
+ * written after the hash, so that records with schemas only known at runtime can still be read.
+ * <p>
+ * Equal records are always serialized to the same bytes, hence the {@link Comparator} registered for this class
+ * compares records by comparing their serialized bytes, without deserializing them.
  */
-public class StructuredRecordWritable implements WritableComparable<StructuredRecordWritable> {
-  // schema cache so that we do not parse schema string for each incoming record
-  private static final Map<byte[], Schema> schemaCache = new TreeMap<>(Bytes.BYTES_COMPARATOR);
-  private static final Comparator<StructuredRecord> COMPARATOR = new StructuredRecordComparator();
+public class StructuredRecordWritable implements WritableComparable<StructuredRecordWritable>, Configurable {
+
+  static final String SCHEMAS_KEY = "cdap.etl.record.writable.schemas";
+
+  private static final byte SCHEMA_REF = 0;
+  private static final byte SCHEMA_INLINE = 1;
+  private static final int HASH_SIZE = 16;
+  private static final Gson GSON = new Gson();
+  private static final Type SCHEMAS_TYPE = new TypeToken<List<String>>() { }.getType();
+  private static final StructuredRecordDatumReader DATUM_READER = new StructuredRecordDatumReader();
+
+  // schema cache so that we do not parse the schema string for each incoming record
+  private static final ConcurrentMap<SchemaHash, Schema> schemaCache = new ConcurrentHashMap<>();
+  // the schemas registered in the last configuration given to setConf, so that they are only parsed once per task
+  private static volatile RegisteredSchemas lastRegisteredSchemas;
+
+  static {
+    WritableComparator.define(StructuredRecordWritable.class, new Comparator());
+  }
+
   private StructuredRecord record;
+  private Configuration conf;
+  private Map<SchemaHash, Schema> registeredSchemas = Collections.emptyMap();
 
   // required by Hadoop
   @SuppressWarnings("unused")
@@ -50,6 +96,50 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
     this.record = record;
   }
 
+  /**
+   * Registers the given schemas in the job configuration, so that records of those schemas are serialized with
+   * the schema hash only by writables configured with it. The schemas must be registered before the configuration
+   * is given to any writable.
+   *
+   * @param conf the job configuration
+   * @param schemas the schemas to register. {@code null} schemas are ignored.
+   */
+  public static void registerSchemas(Configuration conf, Collection<Schema> schemas) {
+    Set<String> schemaStrings = new LinkedHashSet<>();
+    String existing = conf.get(SCHEMAS_KEY);
+    if (existing != null) {
+      schemaStrings.addAll(GSON.<List<String>>fromJson(existing, SCHEMAS_TYPE));
+    }
+    for (Schema schema : schemas) {
+      if (schema != null) {
+        schemaStrings.add(schema.toString());
+      }
+    }
+    conf.set(SCHEMAS_KEY, GSON.toJson(new ArrayList<>(schemaStrings)));
+  }
+
+  /**
+   * Returns the schemas registered in the given configuration with
+   * {@link #registerSchemas(Configuration, Collection)}, keyed by their hash.
+   */
+  private static Map<SchemaHash, Schema> getRegisteredSchemas(Configuration conf) throws IOException {
+    RegisteredSchemas registered = lastRegisteredSchemas;
+    if (registered != null && registered.conf == conf) {
+      return registered.schemas;
+    }
+    String schemaStrings = conf.get(SCHEMAS_KEY);
+    if (schemaStrings == null) {
+      return Collections.emptyMap();
+    }
+    Map<SchemaHash, Schema> schemas = new HashMap<>();
+    for (String schemaStr : GSON.<List<String>>fromJson(schemaStrings, SCHEMAS_TYPE)) {
+      Schema schema = Schema.parseJson(schemaStr);
+      schemas.put(schema.getSchemaHash(), schema);
+    }
+    lastRegisteredSchemas = new RegisteredSchemas(conf, schemas);
+    return schemas;
+  }
+
   public void set(StructuredRecord record) {
     this.record = record;
   }
@@ -61,40 +151,55 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
   @SuppressWarnings("ConstantConditions")
   @Override
   public void write(DataOutput out) throws IOException {
-    byte[] schemaBytes = Bytes.toBytes(record.getSchema().toString());
-    out.writeInt(schemaBytes.length);
-    out.write(schemaBytes);
-
-    byte[] recordBytes = Bytes.toBytes(StructuredRecordStringConverter.toJsonString(record));
-    out.writeInt(recordBytes.length);
-    out.write(recordBytes);
+    Schema schema = record.getSchema();
+    SchemaHash schemaHash = schema.getSchemaHash();
+    if (registeredSchemas.containsKey(schemaHash)) {
+      out.writeByte(SCHEMA_REF);
+      out.write(schemaHash.toByteArray());
+    } else {
+      out.writeByte(SCHEMA_INLINE);
+      out.write(schemaHash.toByteArray());
+      Text.writeString(out, schema.toString());
+    }
+    new CanonicalDatumWriter().encode(record, new DataOutputEncoder(out));
   }
 
   @Override
   public void readFields(DataInput in) throws IOException {
-    int schemaLen = in.readInt();
-    byte[] schemaBytes = new byte[schemaLen];
-    in.readFully(schemaBytes, 0, schemaLen);
+    byte marker = in.readByte();
+    byte[] hashBytes = new byte[HASH_SIZE];
+    in.readFully(hashBytes);
+    SchemaHash schemaHash = new SchemaHash(ByteBuffer.wrap(hashBytes));
 
     Schema schema;
-    if (schemaCache.containsKey(schemaBytes)) {
-      schema = schemaCache.get(schemaBytes);
+    if (marker == SCHEMA_REF) {
+      schema = registeredSchemas.get(schemaHash);
+      if (schema == null) {
+        throw new IOException("Schema with hash " + schemaHash + " is not registered in the job configuration");
+      }
     } else {
-      String schemaStr = Bytes.toString(schemaBytes);
-      schema = Schema.parseJson(schemaStr);
-      schemaCache.put(schemaBytes, schema);
+      schema = schemaCache.get(schemaHash);
+      if (schema == null) {
+        schema = Schema.parseJson(Text.readString(in));
+        schemaCache.put(schemaHash, schema);
+      } else {
+        WritableUtils.skipFully(in, WritableUtils.readVInt(in));
+      }
     }
 
-    int recordLen = in.readInt();
-    byte[] recordBytes = new byte[recordLen];
-    in.readFully(recordBytes, 0, recordLen);
-    String recordStr = Bytes.toString(recordBytes);
-    this.record = StructuredRecordStringConverter.fromJsonString(recordStr, schema);
+    this.record = DATUM_READER.read(new DataInputDecoder(in), schema);
   }
 
+  /**
+   * Compares the serialized bytes of the records. The ordering is consistent with equals, but is not the natural
+   * ordering of the field values.
+   */
   @Override
   public int compareTo(StructuredRecordWritable o) {
-    return COMPARATOR.compare(record, o.record);
+    DataOutputBuffer buffer = toBuffer();
+    DataOutputBuffer otherBuffer = o.toBuffer();
+    return new Comparator().compare(buffer.getData(), 0, buffer.getLength(),
+                                    otherBuffer.getData(), 0, otherBuffer.getLength());
   }
 
   @Override
@@ -115,4 +220,128 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
   public int hashCode() {
     return record != null ? record.hashCode() : 0;
   }
+
+  @Override
+  public void setConf(Configuration conf) {
+    this.conf = conf;
+    try {
+      this.registeredSchemas = getRegisteredSchemas(conf);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to parse the schemas in " + SCHEMAS_KEY, e);
+    }
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
+  private DataOutputBuffer toBuffer() {
+    DataOutputBuffer buffer = new DataOutputBuffer();
+    try {
+      write(buffer);
+    } catch (IOException e) {
+      // Shouldn't happen, since the buffer is in memory
+      throw new IllegalStateException("Failed to serialize record", e);
+    }
+    return buffer;
+  }
+
+  /**
+   * The schemas registered in a configuration.
+   */
+  private static final class RegisteredSchemas {
+    private final Configuration conf;
+    private final Map<SchemaHash, Schema> schemas;
+
+    RegisteredSchemas(Configuration conf, Map<SchemaHash, Schema> schemas) {
+      this.conf = conf;
+      this.schemas = schemas;
+    }
+  }
+
+  /**
+   * A {@link WritableComparator} that compares serialized {@link StructuredRecordWritable} without deserializing.
+   * It compares the schema hash and then the record bytes, skipping the schema JSON if it is present.
+   */
+  public static final class Comparator extends WritableComparator {
+
+    public Comparator() {
+      super(StructuredRecordWritable.class);
+    }
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      int cmp = compareBytes(b1, s1 + 1, HASH_SIZE, b2, s2 + 1, HASH_SIZE);
+      if (cmp != 0) {
+        return cmp;
+      }
+      int recordStart1 = getRecordStart(b1, s1);
+      int recordStart2 = getRecordStart(b2, s2);
+      return compareBytes(b1, recordStart1, l1 - (recordStart1 - s1), b2, recordStart2, l2 - (recordStart2 - s2));
+    }
+
+    private int getRecordStart(byte[] bytes, int start) {
+      int offset = start + 1 + HASH_SIZE;
+      if (bytes[start] == SCHEMA_REF) {
+        return offset;
+      }
+      try {
+        return offset + WritableUtils.decodeVIntSize(bytes[offset]) + readVInt(bytes, offset);
+      } catch (IOException e) {
+        // Shouldn't happen, since it is reading from a byte array
+        throw new IllegalArgumentException("Failed to read schema length", e);
+      }
+    }
+  }
+
+  /**
+   * A {@link StructuredRecordDatumWriter} that writes map entries in the order of their serialized bytes, so that
+   * equal records are always serialized to the same bytes, regardless of the map iteration order.
+   * The end marker of empty arrays and maps is omitted, since the size {@code 0} already ends them for
+   * the {@link StructuredRecordDatumReader}.
+   */
+  private static final class CanonicalDatumWriter extends StructuredRecordDatumWriter {
+
+    // Serialized entries of the maps being written. It is a stack to support nested maps.
+    private Deque<List<byte[]>> mapEntries;
+
+    @Override
+    protected void encodeArrayEnd(Encoder encoder, Schema elementSchema, int size) throws IOException {
+      if (size > 0) {
+        super.encodeArrayEnd(encoder, elementSchema, size);
+      }
+    }
+
+    @Override
+    protected void encodeMapBegin(Encoder encoder, Schema keySchema, Schema valueSchema, int size) throws IOException {
+      super.encodeMapBegin(encoder, keySchema, valueSchema, size);
+      if (mapEntries == null) {
+        mapEntries = new ArrayDeque<>();
+      }
+      mapEntries.push(new ArrayList<>(size));
+    }
+
+    @Override
+    protected void encodeMapEntry(Encoder encoder, Schema keySchema,
+                                  Schema valueSchema, Map.Entry<?, ?> entry) throws IOException {
+      DataOutputBuffer buffer = new DataOutputBuffer();
+      DataOutputEncoder entryEncoder = new DataOutputEncoder(buffer);
+      encode(entryEncoder, keySchema, entry.getKey());
+      encode(entryEncoder, valueSchema, entry.getValue());
+      mapEntries.peek().add(Arrays.copyOf(buffer.getData(), buffer.getLength()));
+    }
+
+    @Override
+    protected void encodeMapEnd(Encoder encoder, Schema keySchema, Schema valueSchema, int size) throws IOException {
+      List<byte[]> entries = mapEntries.pop();
+      entries.sort((e1, e2) -> WritableComparator.compareBytes(e1, 0, e1.length, e2, 0, e2.length));
+      for (byte[] entry : entries) {
+        ((DataOutputEncoder) encoder).writeRaw(entry);
+      }
+      if (size > 0) {
+        super.encodeMapEnd(encoder, keySchema, valueSchema, size);
+      }
+    }
+  }
 }
@@ -33,6 +33,7 @@ import io.cdap.cdap.etl.batch.BatchPhaseSpec;
 import io.cdap.cdap.etl.batch.DefaultAggregatorContext;
 import io.cdap.cdap.etl.batch.DefaultJoinerContext;
 import io.cdap.cdap.etl.batch.PipelinePluginInstantiator;
+import io.cdap.cdap.etl.batch.StructuredRecordWritable;
 import io.cdap.cdap.etl.batch.conversion.WritableConversion;
 import io.cdap.cdap.etl.batch.conversion.WritableConversions;
 import io.cdap.cdap.etl.common.Constants;
@@ -183,6 +184,8 @@ public class MapReducePreparer extends PipelinePhasePreparer {
       hConf.set(ETLMapReduce.MAP_VAL_CLASS, outputValClass.getName());
       job.setMapOutputKeyClass(getOutputKeyClass(stageName, outputKeyClass));
       job.setMapOutputValueClass(getOutputValClass(stageName, outputValClass));
+      // group values are usually the input records, whose schemas are known before the run
+      StructuredRecordWritable.registerSchemas(hConf, stageSpec.getInputSchemas().values());
       stageOperations.put(stageName, aggregatorContext.getFieldOperations());
     });
   }
@@ -211,6 +214,7 @@ public class MapReducePreparer extends PipelinePhasePreparer {
       getOutputValClass(stageName, inputRecordClass);
       // for joiner plugin map output is tagged with stageName
       job.setMapOutputValueClass(TaggedWritable.class);
+      StructuredRecordWritable.registerSchemas(hConf, stageSpec.getInputSchemas().values());
       stageOperations.put(stageName, joinerContext.getFieldOperations());
     });
   }
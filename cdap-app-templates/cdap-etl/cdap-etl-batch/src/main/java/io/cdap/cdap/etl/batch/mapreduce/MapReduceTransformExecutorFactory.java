@@ -50,6 +50,7 @@ import io.cdap.cdap.etl.batch.UnwrapPipeStage;
 import io.cdap.cdap.etl.batch.conversion.WritableConversion;
 import io.cdap.cdap.etl.batch.conversion.WritableConversions;
 import io.cdap.cdap.etl.batch.join.Join;
+import io.cdap.cdap.etl.batch.join.JoinRecordSerializer;
 import io.cdap.cdap.etl.common.BasicArguments;
 import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.DefaultMacroEvaluator;
@@ -64,13 +65,18 @@ import io.cdap.cdap.etl.common.TrackedMultiOutputTransform;
 import io.cdap.cdap.etl.common.TrackedTransform;
 import io.cdap.cdap.etl.common.TransformExecutor;
 import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -92,6 +98,7 @@ public class MapReduceTransformExecutorFactory<T> {
   private final MapReduceTaskContext taskContext;
   private final String mapOutputKeyClassName;
   private final String mapOutputValClassName;
+  private final Configuration hConf;
   private final BasicArguments arguments;
   private final boolean isPipelineContainsCondition;
   private boolean isMapPhase;
@@ -109,7 +116,7 @@ public class MapReduceTransformExecutorFactory<T> {
     this.macroEvaluator =
       new DefaultMacroEvaluator(arguments, taskContext.getLogicalStartTime(), taskContext, taskContext.getNamespace());
     JobContext hadoopContext = (JobContext) taskContext.getHadoopContext();
-    Configuration hConf = hadoopContext.getConfiguration();
+    this.hConf = hadoopContext.getConfiguration();
     this.mapOutputKeyClassName = hConf.get(ETLMapReduce.MAP_KEY_CLASS);
     this.mapOutputValClassName = hConf.get(ETLMapReduce.MAP_VAL_CLASS);
     this.isMapPhase = hadoopContext instanceof Mapper.Context;
@@ -157,7 +164,7 @@ public class MapReduceTransformExecutorFactory<T> {
       batchAggregator.initialize(runtimeContext);
       if (isMapPhase) {
         return getTrackedEmitKeyStep(new MapperAggregatorTransformation(batchAggregator, mapOutputKeyClassName,
-                                                                        mapOutputValClassName),
+                                                                        mapOutputValClassName, hConf),
                                      stageMetrics, taskContext.getDataTracer(stageName), collector);
       } else {
         return getTrackedAggregateStep(new ReducerAggregatorTransformation(batchAggregator,
@@ -171,13 +178,13 @@ public class MapReduceTransformExecutorFactory<T> {
       batchJoiner.initialize(runtimeContext);
       if (isMapPhase) {
         return getTrackedEmitKeyStep(
-          new MapperJoinerTransformation(batchJoiner, mapOutputKeyClassName, mapOutputValClassName), stageMetrics,
-          taskContext.getDataTracer(stageName), collector);
+          new MapperJoinerTransformation(batchJoiner, mapOutputKeyClassName, mapOutputValClassName, hConf),
+          stageMetrics, taskContext.getDataTracer(stageName), collector);
       } else {
         return getTrackedMergeStep(
           new ReducerJoinerTransformation(batchJoiner, mapOutputKeyClassName, mapOutputValClassName,
-                                          runtimeContext.getInputSchemas().size()), stageMetrics,
-          taskContext.getDataTracer(stageName), collector);
+                                          runtimeContext.getInputSchemas().size(), hConf, getSpillThreshold()),
+          stageMetrics, taskContext.getDataTracer(stageName), collector);
       }
     }
 
@@ -189,6 +196,11 @@ public class MapReduceTransformExecutorFactory<T> {
                                   taskContext.getDataTracer(stageName), collector);
   }
 
+  private int getSpillThreshold() {
+    String spillThreshold = arguments.get(Constants.Join.SPILL_THRESHOLD);
+    return spillThreshold == null ? Constants.Join.DEFAULT_SPILL_THRESHOLD : Integer.parseInt(spillThreshold);
+  }
+
   /**
    * Create a transform executor for the specified pipeline. Will instantiate and initialize all sources,
    * transforms, and sinks in the pipeline.
@@ -353,13 +365,15 @@ public class MapReduceTransformExecutorFactory<T> {
     private final WritableConversion<INPUT_RECORD, OUT_VALUE> inputConversion;
 
     MapperJoinerTransformation(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, String joinKeyClassName,
-                               String joinInputClassName) {
+                               String joinInputClassName, Configuration hConf) {
       this.joiner = joiner;
       WritableConversion<JOIN_KEY, OUT_KEY> keyConversion = WritableConversions.getConversion(joinKeyClassName);
       WritableConversion<INPUT_RECORD, OUT_VALUE> inputConversion =
         WritableConversions.getConversion(joinInputClassName);
-      this.keyConversion = keyConversion == null ? new CastConversion<>() : keyConversion;
-      this.inputConversion = inputConversion == null ? new CastConversion<>() : inputConversion;
+      this.keyConversion = keyConversion == null ? new CastConversion<>()
+        : new ConfiguredConversion<>(keyConversion, hConf);
+      this.inputConversion = inputConversion == null ? new CastConversion<>()
+        : new ConfiguredConversion<>(inputConversion, hConf);
     }
 
     @Override
@@ -388,9 +402,12 @@ public class MapReduceTransformExecutorFactory<T> {
     private final WritableConversion<JOIN_KEY, REDUCE_KEY> keyConversion;
     private final WritableConversion<INPUT_RECORD, REDUCE_VALUE> inputConversion;
     private final int numOfInputs;
+    private final JoinRecordSerializer<INPUT_RECORD> serializer;
+    private final int spillThreshold;
 
     ReducerJoinerTransformation(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, String joinKeyClassName,
-                                String joinInputClassName, int numOfInputs) {
+                                String joinInputClassName, int numOfInputs, Configuration hConf,
+                                int spillThreshold) {
       this.joiner = joiner;
       WritableConversion<JOIN_KEY, REDUCE_KEY> keyConversion = WritableConversions.getConversion(joinKeyClassName);
       WritableConversion<INPUT_RECORD, REDUCE_VALUE> inputConversion =
@@ -398,6 +415,8 @@ public class MapReduceTransformExecutorFactory<T> {
       this.keyConversion = keyConversion == null ? new CastConversion<>() : keyConversion;
       this.inputConversion = inputConversion == null ? new CastConversion<>() : inputConversion;
       this.numOfInputs = numOfInputs;
+      this.serializer = new WritableJoinRecordSerializer<>(this.inputConversion, hConf);
+      this.spillThreshold = spillThreshold;
     }
 
     @Override
@@ -413,7 +432,7 @@ public class MapReduceTransformExecutorFactory<T> {
           }
         });
 
-      Join join = new Join<>(joiner, joinKey, inputIterator, numOfInputs, emitter);
+      Join join = new Join<>(joiner, joinKey, inputIterator, numOfInputs, emitter, serializer, spillThreshold);
       join.joinRecords();
     }
   }
@@ -440,15 +459,18 @@ public class MapReduceTransformExecutorFactory<T> {
 
     MapperAggregatorTransformation(Aggregator<GROUP_KEY, GROUP_VAL, ?> aggregator,
                                    String groupKeyClassName,
-                                   String groupValClassName) {
+                                   String groupValClassName,
+                                   Configuration hConf) {
       this.aggregator = aggregator;
       this.groupKeyEmitter =
         new NoErrorEmitter<>("Errors and Alerts cannot be emitted from the groupBy method of an aggregator");
       WritableConversion<GROUP_KEY, OUT_KEY> keyConversion = WritableConversions.getConversion(groupKeyClassName);
       WritableConversion<GROUP_VAL, OUT_VAL> valConversion = WritableConversions.getConversion(groupValClassName);
       // if the conversion is null, it means the user is using a Writable already
-      this.keyConversion = keyConversion == null ? new CastConversion<>() : keyConversion;
-      this.valConversion = valConversion == null ? new CastConversion<>() : valConversion;
+      this.keyConversion = keyConversion == null ? new CastConversion<>()
+        : new ConfiguredConversion<>(keyConversion, hConf);
+      this.valConversion = valConversion == null ? new CastConversion<>()
+        : new ConfiguredConversion<>(valConversion, hConf);
     }
 
     @Override
@@ -504,6 +526,45 @@ public class MapReduceTransformExecutorFactory<T> {
     }
   }
 
+  /**
+   * A {@link JoinRecordSerializer} that serializes records using their {@link Writable} form.
+   *
+   * @param <INPUT_RECORD> type of input record
+   * @param <VALUE> type of the writable form of the input record
+   */
+  private static class WritableJoinRecordSerializer<INPUT_RECORD, VALUE extends Writable>
+    implements JoinRecordSerializer<INPUT_RECORD> {
+    private final WritableConversion<INPUT_RECORD, VALUE> conversion;
+    private final Configuration hConf;
+    private Class<? extends Writable> writableClass;
+
+    WritableJoinRecordSerializer(WritableConversion<INPUT_RECORD, VALUE> conversion, Configuration hConf) {
+      this.conversion = conversion;
+      this.hConf = hConf;
+    }
+
+    @Override
+    public void serialize(INPUT_RECORD record, DataOutput out) throws IOException {
+      VALUE value = conversion.toWritable(record);
+      if (value instanceof Configurable) {
+        ((Configurable) value).setConf(hConf);
+      }
+      // All records of a join input are converted to the same writable class
+      if (writableClass == null) {
+        writableClass = value.getClass();
+      }
+      value.write(out);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public INPUT_RECORD deserialize(DataInput in) throws IOException {
+      VALUE value = (VALUE) ReflectionUtils.newInstance(writableClass, hConf);
+      value.readFields(in);
+      return conversion.fromWritable(value);
+    }
+  }
+
   /**
    * Conversion that doesn't do anything but cast types to each other.
    * This is used in the MapperAggregatorTransformation and ReducerAggregatorTransformation when the user is already
@@ -525,4 +586,36 @@ public class MapReduceTransformExecutorFactory<T> {
       return (T) val;
     }
   }
+
+  /**
+   * Conversion that gives the job configuration to the Writables it creates, the same way Hadoop does for the
+   * Writables it creates when reading the map output. For example, a StructuredRecordWritable needs it to serialize
+   * the records of schemas registered in the job configuration with the schema hash only.
+   *
+   * @param <T> type of object to convert to a Writable
+   * @param <W> the Writable type to convert to
+   */
+  private static class ConfiguredConversion<T, W extends Writable> extends WritableConversion<T, W> {
+    private final WritableConversion<T, W> delegate;
+    private final Configuration hConf;
+
+    ConfiguredConversion(WritableConversion<T, W> delegate, Configuration hConf) {
+      this.delegate = delegate;
+      this.hConf = hConf;
+    }
+
+    @Override
+    public W toWritable(T val) {
+      W writable = delegate.toWritable(val);
+      if (writable instanceof Configurable) {
+        ((Configurable) writable).setConf(hConf);
+      }
+      return writable;
+    }
+
+    @Override
+    public T fromWritable(W val) {
+      return delegate.fromWritable(val);
+    }
+  }
 }
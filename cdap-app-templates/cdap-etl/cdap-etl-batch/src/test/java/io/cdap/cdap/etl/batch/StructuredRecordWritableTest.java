@@ -16,9 +16,17 @@
 
 package io.cdap.cdap.etl.batch;
 
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.common.record.StructuredRecordComparator;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparator;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -28,11 +36,33 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
 public class StructuredRecordWritableTest {
 
+  private static final Schema COMPLEX_SCHEMA = Schema.recordOf(
+    "complex",
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("d", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("b", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("a", Schema.arrayOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("m", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+    Schema.Field.of("r", Schema.nullableOf(Schema.recordOf("inner",
+                                                           Schema.Field.of("x", Schema.of(Schema.Type.STRING)))))
+  );
+
   @Test
   public void testNonAsciiString() throws IOException {
     Schema schema = Schema.recordOf("rec", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
@@ -62,4 +92,193 @@ public class StructuredRecordWritableTest {
     Assert.assertNotEquals(0, writable1.compareTo(writable2));
     Assert.assertNotEquals(writable1, writable2);
   }
+
+  @Test
+  public void testComplexRecord() throws IOException {
+    StructuredRecord record = createComplexRecord(1, new HashMap<>());
+    Assert.assertEquals(record, deserialize(serialize(record)));
+
+    // empty collections and null values
+    StructuredRecord emptyRecord = StructuredRecord.builder(COMPLEX_SCHEMA)
+      .set("i", 0)
+      .set("d", 0d)
+      .set("b", ByteBuffer.wrap(new byte[0]))
+      .set("a", Collections.emptyList())
+      .set("m", Collections.emptyMap())
+      .build();
+    StructuredRecord copy = deserialize(serialize(emptyRecord));
+    Assert.assertNull(copy.get("s"));
+    Assert.assertNull(copy.get("r"));
+    Assert.assertEquals(Collections.emptyList(), copy.get("a"));
+    Assert.assertEquals(Collections.emptyMap(), copy.get("m"));
+  }
+
+  @Test
+  public void testRawComparator() throws IOException {
+    RawComparator<StructuredRecordWritable> comparator = WritableComparator.get(StructuredRecordWritable.class);
+    Assert.assertTrue(comparator instanceof StructuredRecordWritable.Comparator);
+
+    // maps with different iteration orders are serialized to the same bytes
+    StructuredRecord record1 = createComplexRecord(1, new HashMap<>());
+    StructuredRecord record2 = createComplexRecord(1, new LinkedHashMap<>());
+    StructuredRecord record3 = createComplexRecord(2, new HashMap<>());
+    Assert.assertEquals(record1, record2);
+
+    byte[] bytes1 = serialize(record1);
+    byte[] bytes2 = serialize(record2);
+    byte[] bytes3 = serialize(record3);
+    Assert.assertArrayEquals(bytes1, bytes2);
+    Assert.assertEquals(0, comparator.compare(bytes1, 0, bytes1.length, bytes2, 0, bytes2.length));
+
+    int cmp = comparator.compare(bytes1, 0, bytes1.length, bytes3, 0, bytes3.length);
+    Assert.assertNotEquals(0, cmp);
+    Assert.assertEquals(-cmp, comparator.compare(bytes3, 0, bytes3.length, bytes1, 0, bytes1.length));
+    Assert.assertEquals(cmp, new StructuredRecordWritable(record1).compareTo(new StructuredRecordWritable(record3)));
+  }
+
+  @Test
+  public void testRegisteredSchema() throws IOException {
+    Schema schema = Schema.recordOf("registered", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
+    StructuredRecord record = StructuredRecord.builder(schema).set("x", "value").build();
+    byte[] inlineBytes = serialize(record);
+
+    Configuration conf = new Configuration();
+    StructuredRecordWritable.registerSchemas(conf, Collections.singletonList(schema));
+    byte[] refBytes = serialize(record, conf);
+
+    // a registered schema is not written with the record
+    Assert.assertTrue(refBytes.length < inlineBytes.length);
+    Assert.assertEquals(record, deserialize(refBytes, conf));
+    Assert.assertEquals(record, deserialize(inlineBytes, conf));
+
+    // only writables configured with the configuration use the registered schemas
+    Assert.assertArrayEquals(inlineBytes, serialize(record));
+    Assert.assertArrayEquals(inlineBytes, serialize(record, new Configuration()));
+    Assert.assertEquals(record, deserialize(inlineBytes, new Configuration()));
+    try {
+      deserialize(refBytes, new Configuration());
+      Assert.fail("Expected failure for a schema not registered in the configuration");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // both forms compare equal
+    RawComparator<StructuredRecordWritable> comparator = WritableComparator.get(StructuredRecordWritable.class);
+    Assert.assertEquals(0, comparator.compare(inlineBytes, 0, inlineBytes.length, refBytes, 0, refBytes.length));
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws IOException {
+    int count = 100000;
+    List<StructuredRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      records.add(createComplexRecord(i % 1000, new HashMap<>()));
+    }
+
+    // JSON serialization, as done before
+    long startTime = System.nanoTime();
+    List<byte[]> jsonBytes = new ArrayList<>(count);
+    long jsonSize = 0;
+    for (StructuredRecord record : records) {
+      byte[] bytes = serializeJson(record);
+      jsonSize += bytes.length;
+      jsonBytes.add(bytes);
+    }
+    System.out.println("JSON write time: " + getElapsedMillis(startTime) + " ms, bytes: " + jsonSize);
+
+    startTime = System.nanoTime();
+    List<byte[]> binaryBytes = new ArrayList<>(count);
+    long binarySize = 0;
+    for (StructuredRecord record : records) {
+      byte[] bytes = serialize(record);
+      binarySize += bytes.length;
+      binaryBytes.add(bytes);
+    }
+    System.out.println("Binary write time: " + getElapsedMillis(startTime) + " ms, bytes: " + binarySize);
+
+    Comparator<StructuredRecord> recordComparator = new StructuredRecordComparator();
+    startTime = System.nanoTime();
+    jsonBytes.sort((b1, b2) -> {
+      try {
+        return recordComparator.compare(deserializeJson(b1), deserializeJson(b2));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    System.out.println("JSON sort time: " + getElapsedMillis(startTime) + " ms");
+
+    RawComparator<StructuredRecordWritable> comparator = WritableComparator.get(StructuredRecordWritable.class);
+    startTime = System.nanoTime();
+    binaryBytes.sort((b1, b2) -> comparator.compare(b1, 0, b1.length, b2, 0, b2.length));
+    System.out.println("Binary sort time: " + getElapsedMillis(startTime) + " ms");
+  }
+
+  private StructuredRecord createComplexRecord(int id, Map<String, Integer> map) {
+    for (int i = 0; i < 10; i++) {
+      map.put("key" + i, i * id);
+    }
+    return StructuredRecord.builder(COMPLEX_SCHEMA)
+      .set("s", "string" + id)
+      .set("i", id)
+      .set("d", id / 3d)
+      .set("b", ByteBuffer.wrap(Bytes.toBytes(id)))
+      .set("a", Arrays.asList((long) id, -1L, Long.MAX_VALUE))
+      .set("m", map)
+      .set("r", StructuredRecord.builder(COMPLEX_SCHEMA.getField("r").getSchema().getNonNullable())
+        .set("x", "inner" + id).build())
+      .build();
+  }
+
+  private byte[] serialize(StructuredRecord record) throws IOException {
+    DataOutputBuffer output = new DataOutputBuffer();
+    new StructuredRecordWritable(record).write(output);
+    return Arrays.copyOf(output.getData(), output.getLength());
+  }
+
+  private byte[] serialize(StructuredRecord record, Configuration conf) throws IOException {
+    StructuredRecordWritable writable = new StructuredRecordWritable(record);
+    writable.setConf(conf);
+    DataOutputBuffer output = new DataOutputBuffer();
+    writable.write(output);
+    return Arrays.copyOf(output.getData(), output.getLength());
+  }
+
+  private StructuredRecord deserialize(byte[] bytes) throws IOException {
+    StructuredRecordWritable writable = new StructuredRecordWritable();
+    writable.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+    return writable.get();
+  }
+
+  private StructuredRecord deserialize(byte[] bytes, Configuration conf) throws IOException {
+    StructuredRecordWritable writable = new StructuredRecordWritable();
+    writable.setConf(conf);
+    writable.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+    return writable.get();
+  }
+
+  private byte[] serializeJson(StructuredRecord record) throws IOException {
+    DataOutputBuffer output = new DataOutputBuffer();
+    byte[] schemaBytes = Bytes.toBytes(record.getSchema().toString());
+    output.writeInt(schemaBytes.length);
+    output.write(schemaBytes);
+    byte[] recordBytes = Bytes.toBytes(StructuredRecordStringConverter.toJsonString(record));
+    output.writeInt(recordBytes.length);
+    output.write(recordBytes);
+    return Arrays.copyOf(output.getData(), output.getLength());
+  }
+
+  private StructuredRecord deserializeJson(byte[] bytes) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    byte[] schemaBytes = new byte[input.readInt()];
+    input.readFully(schemaBytes);
+    byte[] recordBytes = new byte[input.readInt()];
+    input.readFully(recordBytes);
+    return StructuredRecordStringConverter.fromJsonString(Bytes.toString(recordBytes),
+                                                         Schema.parseJson(Bytes.toString(schemaBytes)));
+  }
+
+  private long getElapsedMillis(long startTime) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.Sets;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.Joiner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Performs a hash join of the records of a streamed input against the in-memory records of the broadcast inputs,
+ * as chosen by a {@link JoinPlan} with the {@link JoinPlan.Strategy#BROADCAST_HASH} strategy.
+ * The streamed input must be a required input of the join.
+ *
+ * @param <JOIN_KEY> type of join key
+ * @param <INPUT_RECORD> type of input record
+ * @param <OUT> type of output
+ */
+public class BroadcastHashJoin<JOIN_KEY, INPUT_RECORD, OUT> {
+
+  private final Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner;
+  private final String streamedInput;
+  private final Map<String, Map<JOIN_KEY, List<INPUT_RECORD>>> broadcastInputs;
+  private final Set<String> requiredInputs;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param joiner the {@link Joiner} for computing join keys and merging records
+   * @param streamedInput name of the streamed input
+   * @param broadcastInputs map from the name of each broadcast input to its records, grouped by join key
+   */
+  public BroadcastHashJoin(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, String streamedInput,
+                           Map<String, Map<JOIN_KEY, List<INPUT_RECORD>>> broadcastInputs) throws Exception {
+    this.joiner = joiner;
+    this.streamedInput = streamedInput;
+    this.broadcastInputs = broadcastInputs;
+    this.requiredInputs = Sets.newHashSet(joiner.getJoinConfig().getRequiredInputs());
+  }
+
+  /**
+   * Joins a record of the streamed input with the matching records of the broadcast inputs.
+   *
+   * @param record record of the streamed input
+   * @param emitter the {@link Emitter} for the merged results
+   */
+  public void join(INPUT_RECORD record, Emitter<OUT> emitter) throws Exception {
+    JOIN_KEY joinKey = joiner.joinOn(streamedInput, record);
+
+    List<String> stageNames = new ArrayList<>(broadcastInputs.size() + 1);
+    List<Iterable<INPUT_RECORD>> inputs = new ArrayList<>(broadcastInputs.size() + 1);
+    stageNames.add(streamedInput);
+    inputs.add(Collections.singletonList(record));
+
+    for (Map.Entry<String, Map<JOIN_KEY, List<INPUT_RECORD>>> entry : broadcastInputs.entrySet()) {
+      List<INPUT_RECORD> records = entry.getValue().get(joinKey);
+      if (records == null || records.isEmpty()) {
+        if (requiredInputs.contains(entry.getKey())) {
+          return;
+        }
+        continue;
+      }
+      stageNames.add(entry.getKey());
+      inputs.add(records);
+    }
+
+    Join.emitCombinations(joiner, joinKey, stageNames, inputs, emitter);
+  }
+}
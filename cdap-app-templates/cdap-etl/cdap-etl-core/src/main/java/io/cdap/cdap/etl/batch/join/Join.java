@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2016-2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.Sets;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.JoinElement;
+import io.cdap.cdap.etl.api.Joiner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Performs join operation on all the records of a single join key, which are sorted together by the shuffle
+ * of a sort-merge join. Records are grouped by input stage, and the merged result of every combination of
+ * records, one from each input, is emitted as soon as it is computed. If a {@link JoinRecordSerializer} is given,
+ * inputs with more records than the spill threshold are spilled to local disk, so that skewed keys don't need
+ * to keep all of their records in memory.
+ *
+ * @param <JOIN_KEY> type of join key
+ * @param <INPUT_RECORD> type of input record
+ * @param <OUT> type of output of mapreduce
+ */
+
+public class Join<JOIN_KEY, INPUT_RECORD, OUT> {
+  private final Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner;
+  private final JOIN_KEY joinKey;
+  private final Iterator<JoinElement<INPUT_RECORD>> iterator;
+  private final Emitter<OUT> emitter;
+  private final int numOfInputs;
+  private final JoinRecordSerializer<INPUT_RECORD> serializer;
+  private final int spillThreshold;
+
+  public Join(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, JOIN_KEY joinKey,
+              Iterator<JoinElement<INPUT_RECORD>> iterator, int numOfInputs, Emitter<OUT> emitter) throws Exception {
+    this(joiner, joinKey, iterator, numOfInputs, emitter, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a join that spills records to disk.
+   *
+   * @param serializer serializer for spilling records, or {@code null} to keep all records in memory
+   * @param spillThreshold number of records of an input to keep in memory before spilling
+   */
+  public Join(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, JOIN_KEY joinKey,
+              Iterator<JoinElement<INPUT_RECORD>> iterator, int numOfInputs, Emitter<OUT> emitter,
+              @Nullable JoinRecordSerializer<INPUT_RECORD> serializer, int spillThreshold) throws Exception {
+    this.joiner = joiner;
+    this.joinKey = joinKey;
+    this.iterator = iterator;
+    this.numOfInputs = numOfInputs;
+    this.emitter = emitter;
+    this.serializer = serializer;
+    this.spillThreshold = spillThreshold;
+  }
+
+  public void joinRecords() throws Exception {
+    Set<String> requiredInputs = Sets.newHashSet(joiner.getJoinConfig().getRequiredInputs());
+    Map<String, SpillableJoinBuffer<INPUT_RECORD>> perStageRecords = new HashMap<>(numOfInputs);
+    try {
+      while (iterator.hasNext()) {
+        JoinElement<INPUT_RECORD> joinElement = iterator.next();
+        SpillableJoinBuffer<INPUT_RECORD> buffer = perStageRecords.get(joinElement.getStageName());
+        if (buffer == null) {
+          buffer = new SpillableJoinBuffer<>(serializer, spillThreshold);
+          perStageRecords.put(joinElement.getStageName(), buffer);
+        }
+        buffer.add(joinElement.getInputRecord());
+      }
+
+      if (!perStageRecords.keySet().containsAll(requiredInputs)) {
+        return;
+      }
+
+      // Iterate the largest input in the outermost loop, so that it is only read once
+      List<Map.Entry<String, SpillableJoinBuffer<INPUT_RECORD>>> entries = new ArrayList<>(perStageRecords.entrySet());
+      entries.sort((e1, e2) -> Integer.compare(e2.getValue().size(), e1.getValue().size()));
+      List<String> stageNames = new ArrayList<>(entries.size());
+      List<Iterable<INPUT_RECORD>> inputs = new ArrayList<>(entries.size());
+      for (Map.Entry<String, SpillableJoinBuffer<INPUT_RECORD>> entry : entries) {
+        stageNames.add(entry.getKey());
+        inputs.add(entry.getValue());
+      }
+      emitCombinations(joiner, joinKey, stageNames, inputs, emitter);
+    } finally {
+      for (SpillableJoinBuffer<INPUT_RECORD> buffer : perStageRecords.values()) {
+        buffer.close();
+      }
+    }
+  }
+
+  /**
+   * Emits the merged result of every combination of records, one from each input. The first input is iterated
+   * once, while the other inputs are iterated once for each combination of records from the inputs before them.
+   * Only inputs that have records for the join key should be given, and the caller is responsible for checking
+   * that all the required inputs are present.
+   *
+   * @param joiner the {@link Joiner} for merging records
+   * @param joinKey the join key
+   * @param stageNames name of the stage of each input
+   * @param inputs records of each input
+   * @param emitter the {@link Emitter} for the merged results
+   */
+  static <JOIN_KEY, INPUT_RECORD, OUT> void emitCombinations(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner,
+                                                             JOIN_KEY joinKey, List<String> stageNames,
+                                                             List<? extends Iterable<INPUT_RECORD>> inputs,
+                                                             Emitter<OUT> emitter) throws Exception {
+    int numInputs = inputs.size();
+    if (numInputs == 0) {
+      return;
+    }
+
+    List<JoinElement<INPUT_RECORD>> joinRow = new ArrayList<>(Collections.nCopies(numInputs, null));
+    List<Iterator<INPUT_RECORD>> iterators = new ArrayList<>(Collections.nCopies(numInputs, null));
+    iterators.set(0, inputs.get(0).iterator());
+    int index = 0;
+
+    while (index >= 0) {
+      Iterator<INPUT_RECORD> inputIterator = iterators.get(index);
+      if (!inputIterator.hasNext()) {
+        index--;
+        continue;
+      }
+      joinRow.set(index, new JoinElement<>(stageNames.get(index), inputIterator.next()));
+      if (index == numInputs - 1) {
+        emitter.emit(joiner.merge(joinKey, joinRow));
+      } else {
+        index++;
+        iterators.set(index, inputs.get(index).iterator());
+      }
+    }
+  }
+}
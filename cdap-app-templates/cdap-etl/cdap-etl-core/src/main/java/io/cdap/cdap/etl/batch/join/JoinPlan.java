@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Describes how a join is executed. Created by the {@link JoinPlanner}.
+ */
+public final class JoinPlan {
+
+  /**
+   * Strategy for executing a join.
+   */
+  public enum Strategy {
+    /**
+     * All inputs except one are small enough to be loaded in memory and sent to every worker. Records of the
+     * remaining input are joined as they are read, without shuffling any input.
+     */
+    BROADCAST_HASH,
+
+    /**
+     * All inputs are shuffled and sorted by join key, then the records of each key are joined.
+     */
+    SORT_MERGE
+  }
+
+  private static final JoinPlan SORT_MERGE = new JoinPlan(Strategy.SORT_MERGE, null, Collections.emptySet());
+
+  private final Strategy strategy;
+  private final String streamedInput;
+  private final Set<String> broadcastInputs;
+
+  static JoinPlan sortMerge() {
+    return SORT_MERGE;
+  }
+
+  static JoinPlan broadcastHash(String streamedInput, Set<String> broadcastInputs) {
+    return new JoinPlan(Strategy.BROADCAST_HASH, streamedInput, Collections.unmodifiableSet(broadcastInputs));
+  }
+
+  private JoinPlan(Strategy strategy, @Nullable String streamedInput, Set<String> broadcastInputs) {
+    this.strategy = strategy;
+    this.streamedInput = streamedInput;
+    this.broadcastInputs = broadcastInputs;
+  }
+
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * @return the input whose records are joined as they are read, or {@code null} for a sort-merge join
+   */
+  @Nullable
+  public String getStreamedInput() {
+    return streamedInput;
+  }
+
+  /**
+   * @return the inputs that are loaded in memory for a broadcast hash join, or an empty set for a sort-merge join
+   */
+  public Set<String> getBroadcastInputs() {
+    return broadcastInputs;
+  }
+
+  @Override
+  public String toString() {
+    return "JoinPlan{" +
+      "strategy=" + strategy +
+      ", streamedInput='" + streamedInput + '\'' +
+      ", broadcastInputs=" + broadcastInputs +
+      '}';
+  }
+}
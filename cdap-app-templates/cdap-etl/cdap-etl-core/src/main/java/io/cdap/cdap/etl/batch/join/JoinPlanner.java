@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.Sets;
+import io.cdap.cdap.etl.api.JoinConfig;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Chooses the {@link JoinPlan} for a join based on the input sizes declared in the {@link JoinConfig}.
+ *
+ * A broadcast hash join is chosen if there is a required input, such that the total declared size of all the
+ * other inputs is within the broadcast threshold. The input is required so that every join result contains one of
+ * its records, which means the join results can be computed from the records of that input alone. If there are
+ * multiple such inputs, the largest one is streamed. Otherwise, a sort-merge join is used.
+ */
+public final class JoinPlanner {
+
+  private JoinPlanner() {
+    // no-op
+  }
+
+  /**
+   * Chooses the plan for a join.
+   *
+   * @param joinConfig the config of the join
+   * @param inputs names of all the inputs of the join
+   * @param broadcastThreshold maximum total number of records of the broadcast inputs.
+   *                           A value that is not positive disables broadcast joins.
+   * @return the {@link JoinPlan}
+   */
+  public static JoinPlan plan(JoinConfig joinConfig, Set<String> inputs, long broadcastThreshold) {
+    if (broadcastThreshold <= 0 || inputs.size() < 2) {
+      return JoinPlan.sortMerge();
+    }
+
+    // Find the largest required input. Inputs without a declared size are treated as infinitely large.
+    String streamedInput = null;
+    long streamedSize = -1L;
+    for (String input : Sets.newHashSet(joinConfig.getRequiredInputs())) {
+      long size = getInputSize(joinConfig, input);
+      if (inputs.contains(input) && size > streamedSize) {
+        streamedInput = input;
+        streamedSize = size;
+      }
+    }
+    if (streamedInput == null) {
+      // Outer joins need to emit the keys of all inputs, which requires a shuffle
+      return JoinPlan.sortMerge();
+    }
+
+    Set<String> broadcastInputs = new HashSet<>(inputs);
+    broadcastInputs.remove(streamedInput);
+    long broadcastSize = 0L;
+    for (String input : broadcastInputs) {
+      broadcastSize += getInputSize(joinConfig, input);
+      if (broadcastSize > broadcastThreshold || broadcastSize < 0) {
+        return JoinPlan.sortMerge();
+      }
+    }
+    return JoinPlan.broadcastHash(streamedInput, broadcastInputs);
+  }
+
+  private static long getInputSize(JoinConfig joinConfig, String input) {
+    Long size = joinConfig.getInputSize(input);
+    return size == null ? Long.MAX_VALUE : size;
+  }
+}
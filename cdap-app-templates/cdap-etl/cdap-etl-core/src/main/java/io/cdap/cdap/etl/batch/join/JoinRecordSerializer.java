@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes join input records so that they can be spilled to disk by a {@link Join}.
+ *
+ * @param <INPUT_RECORD> type of input record
+ */
+public interface JoinRecordSerializer<INPUT_RECORD> {
+
+  /**
+   * Writes a record to the given output.
+   */
+  void serialize(INPUT_RECORD record, DataOutput out) throws IOException;
+
+  /**
+   * Reads a record written by {@link #serialize(Object, DataOutput)} from the given input.
+   */
+  INPUT_RECORD deserialize(DataInput in) throws IOException;
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Buffers the records of one input for a single join key. Records are kept in memory until the spill threshold
+ * is reached, after which all records are written to a local temporary file. The buffer can be iterated
+ * multiple times once all records are added.
+ *
+ * @param <T> type of record
+ */
+final class SpillableJoinBuffer<T> implements Iterable<T>, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpillableJoinBuffer.class);
+
+  private final JoinRecordSerializer<T> serializer;
+  private final int spillThreshold;
+  private final List<T> records;
+  private final List<Closeable> openedInputs;
+  private File spillFile;
+  private DataOutputStream spillOutput;
+  private int size;
+
+  /**
+   * Creates a new buffer.
+   *
+   * @param serializer serializer for spilling records, or {@code null} to always keep records in memory
+   * @param spillThreshold number of records to keep in memory before spilling
+   */
+  SpillableJoinBuffer(@Nullable JoinRecordSerializer<T> serializer, int spillThreshold) {
+    this.serializer = serializer;
+    this.spillThreshold = spillThreshold;
+    this.records = new ArrayList<>();
+    this.openedInputs = new ArrayList<>();
+  }
+
+  void add(T record) throws IOException {
+    size++;
+    if (spillOutput != null) {
+      serializer.serialize(record, spillOutput);
+      return;
+    }
+    records.add(record);
+    if (serializer != null && records.size() >= spillThreshold) {
+      spill();
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isSpilled() {
+    return spillFile != null;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (spillFile == null) {
+      return records.iterator();
+    }
+
+    try {
+      if (spillOutput != null) {
+        spillOutput.close();
+        spillOutput = null;
+      }
+      DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+      openedInputs.add(input);
+      return new AbstractIterator<T>() {
+        private int remaining = size;
+
+        @Override
+        protected T computeNext() {
+          try {
+            if (remaining == 0) {
+              input.close();
+              openedInputs.remove(input);
+              return endOfData();
+            }
+            remaining--;
+            return serializer.deserialize(input);
+          } catch (IOException e) {
+            throw new RuntimeException("Failed to read join records from spill file " + spillFile, e);
+          }
+        }
+      };
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open spill file " + spillFile, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Closeable input : openedInputs) {
+      Closeables.closeQuietly(input);
+    }
+    openedInputs.clear();
+    if (spillOutput != null) {
+      Closeables.closeQuietly(spillOutput);
+      spillOutput = null;
+    }
+    if (spillFile != null && !spillFile.delete()) {
+      LOG.warn("Failed to delete join spill file {}", spillFile);
+    }
+    spillFile = null;
+    records.clear();
+  }
+
+  private void spill() throws IOException {
+    spillFile = File.createTempFile("join", ".spill");
+    LOG.debug("Spilling {} join records to {}", records.size(), spillFile);
+    spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+    for (T record : records) {
+      serializer.serialize(record, spillOutput);
+    }
+    records.clear();
+  }
+}
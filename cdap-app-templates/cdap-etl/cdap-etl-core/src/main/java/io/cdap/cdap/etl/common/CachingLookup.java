@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.CacheConfig;
+import io.cdap.cdap.etl.api.Lookup;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Lookup} that caches the results of another {@link Lookup} based on a {@link CacheConfig}.
+ * Keys without a value are cached as well, so that repeated lookups of missing keys don't hit the underlying table.
+ * Such keys are omitted from the results of batch lookups.
+ * Batch lookups only go to the underlying {@link Lookup} for the keys that are not in the cache, using a single
+ * batch lookup.
+ *
+ * Cache hits, misses and evictions are emitted as metrics through the given {@link StageMetrics}.
+ *
+ * @param <T> the type of object that will be returned for a lookup
+ */
+public class CachingLookup<T> implements Lookup<T> {
+
+  private final Lookup<T> delegate;
+  private final StageMetrics metrics;
+  private final Cache<String, Optional<T>> cache;
+
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig, StageMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    if (cacheConfig.getExpirySeconds() > 0) {
+      builder.expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS);
+    }
+    if (cacheConfig.getMaxSize() > 0) {
+      builder.maximumSize(cacheConfig.getMaxSize());
+    }
+    this.cache = builder.<String, Optional<T>>removalListener(notification -> {
+      if (notification.wasEvicted()) {
+        metrics.count(Constants.Metrics.LOOKUP_CACHE_EVICTIONS, 1);
+      }
+    }).build();
+  }
+
+  @Override
+  public T lookup(String key) {
+    Optional<T> value = cache.getIfPresent(key);
+    if (value != null) {
+      metrics.count(Constants.Metrics.LOOKUP_CACHE_HITS, 1);
+      return value.orElse(null);
+    }
+
+    metrics.count(Constants.Metrics.LOOKUP_CACHE_MISSES, 1);
+    value = Optional.ofNullable(delegate.lookup(key));
+    cache.put(key, value);
+    return value.orElse(null);
+  }
+
+  @Override
+  public Map<String, T> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, T> lookup(Set<String> keys) {
+    Map<String, T> result = new HashMap<>();
+    Set<String> missingKeys = new LinkedHashSet<>();
+    int hits = 0;
+    for (String key : keys) {
+      Optional<T> value = cache.getIfPresent(key);
+      if (value == null) {
+        missingKeys.add(key);
+      } else {
+        hits++;
+        value.ifPresent(v -> result.put(key, v));
+      }
+    }
+
+    if (hits > 0) {
+      metrics.count(Constants.Metrics.LOOKUP_CACHE_HITS, hits);
+    }
+    if (missingKeys.isEmpty()) {
+      return result;
+    }
+
+    metrics.count(Constants.Metrics.LOOKUP_CACHE_MISSES, missingKeys.size());
+    Map<String, T> values = delegate.lookup(missingKeys);
+    for (String key : missingKeys) {
+      T value = values.get(key);
+      cache.put(key, Optional.ofNullable(value));
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+}
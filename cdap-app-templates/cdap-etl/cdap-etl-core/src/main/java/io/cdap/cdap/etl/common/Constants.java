@@ -65,6 +65,21 @@ public final class Constants {
     public static final String RECORDS_ALERT = "records.alert";
     public static final String AGG_GROUPS = "aggregator.groups";
     public static final String JOIN_KEYS = "joiner.keys";
+    public static final String LOOKUP_CACHE_HITS = "lookup.cache.hits";
+    public static final String LOOKUP_CACHE_MISSES = "lookup.cache.misses";
+    public static final String LOOKUP_CACHE_EVICTIONS = "lookup.cache.evictions";
+  }
+
+  /**
+   * Constants related to the execution of joins.
+   */
+  public static final class Join {
+    // maximum total number of records of the inputs that can be broadcast for a hash join
+    public static final String BROADCAST_THRESHOLD = "pipeline.join.broadcast.threshold";
+    public static final long DEFAULT_BROADCAST_THRESHOLD = 100000L;
+    // number of records of an input for a single join key that are kept in memory before spilling to disk
+    public static final String SPILL_THRESHOLD = "pipeline.join.spill.threshold";
+    public static final int DEFAULT_SPILL_THRESHOLD = 100000;
   }
 
   /**
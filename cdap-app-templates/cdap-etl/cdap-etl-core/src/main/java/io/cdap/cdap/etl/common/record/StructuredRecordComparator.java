@@ -96,10 +96,13 @@ public class StructuredRecordComparator implements Comparator<StructuredRecord>
     }
 
     // both records must have the same fields, otherwise their schemas would be different
+    // hence the field values can be compared by position
     //noinspection ConstantConditions
-    for (Schema.Field field : r1.getSchema().getFields()) {
+    List<Schema.Field> fields = r1.getSchema().getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
       Comparator<Object> comparator = getComparator(field.getName(), field.getSchema());
-      comp = comparator.compare(r1.get(field.getName()), r2.get(field.getName()));
+      comp = comparator.compare(r1.get(i), r2.get(i));
       if (comp != 0) {
         return comp;
       }
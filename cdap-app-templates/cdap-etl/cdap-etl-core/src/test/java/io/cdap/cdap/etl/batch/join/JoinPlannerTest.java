@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.JoinConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link JoinPlanner}.
+ */
+public class JoinPlannerTest {
+
+  private static final Set<String> INPUTS = ImmutableSet.of("a", "b", "c");
+
+  @Test
+  public void testBroadcastHash() {
+    // 'a' has no declared size, so it is streamed
+    JoinConfig joinConfig = new JoinConfig(ImmutableSet.of("a"), ImmutableMap.of("b", 100L, "c", 200L));
+    JoinPlan plan = JoinPlanner.plan(joinConfig, INPUTS, 1000L);
+    Assert.assertEquals(JoinPlan.Strategy.BROADCAST_HASH, plan.getStrategy());
+    Assert.assertEquals("a", plan.getStreamedInput());
+    Assert.assertEquals(ImmutableSet.of("b", "c"), plan.getBroadcastInputs());
+
+    // the largest required input is streamed
+    joinConfig = new JoinConfig(ImmutableSet.of("a", "b"), ImmutableMap.of("a", 100L, "b", 500L, "c", 200L));
+    plan = JoinPlanner.plan(joinConfig, INPUTS, 1000L);
+    Assert.assertEquals(JoinPlan.Strategy.BROADCAST_HASH, plan.getStrategy());
+    Assert.assertEquals("b", plan.getStreamedInput());
+    Assert.assertEquals(ImmutableSet.of("a", "c"), plan.getBroadcastInputs());
+  }
+
+  @Test
+  public void testSortMerge() {
+    // no declared sizes
+    JoinConfig joinConfig = new JoinConfig(ImmutableSet.of("a"));
+    Assert.assertEquals(JoinPlan.Strategy.SORT_MERGE, JoinPlanner.plan(joinConfig, INPUTS, 1000L).getStrategy());
+
+    // broadcast inputs are too large in total
+    joinConfig = new JoinConfig(ImmutableSet.of("a"), ImmutableMap.of("b", 600L, "c", 600L));
+    Assert.assertEquals(JoinPlan.Strategy.SORT_MERGE, JoinPlanner.plan(joinConfig, INPUTS, 1000L).getStrategy());
+
+    // full outer join
+    joinConfig = new JoinConfig(Collections.emptySet(), ImmutableMap.of("a", 1L, "b", 1L, "c", 1L));
+    Assert.assertEquals(JoinPlan.Strategy.SORT_MERGE, JoinPlanner.plan(joinConfig, INPUTS, 1000L).getStrategy());
+
+    // broadcast joins disabled
+    joinConfig = new JoinConfig(ImmutableSet.of("a"), ImmutableMap.of("b", 1L, "c", 1L));
+    Assert.assertEquals(JoinPlan.Strategy.SORT_MERGE, JoinPlanner.plan(joinConfig, INPUTS, 0L).getStrategy());
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.batch.join;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
+import io.cdap.cdap.etl.api.JoinConfig;
+import io.cdap.cdap.etl.api.JoinElement;
+import io.cdap.cdap.etl.api.Joiner;
+import io.cdap.cdap.etl.common.DefaultEmitter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link Join} and {@link BroadcastHashJoin}.
+ */
+public class JoinTest {
+
+  @Test
+  public void testInnerJoin() throws Exception {
+    List<JoinElement<String>> elements = ImmutableList.of(
+      new JoinElement<>("a", "k:a1"), new JoinElement<>("b", "k:b1"),
+      new JoinElement<>("a", "k:a2"), new JoinElement<>("b", "k:b2"), new JoinElement<>("c", "k:c1"));
+
+    // all combinations of records from each input
+    Assert.assertEquals(
+      HashMultiset.create(ImmutableList.of("a1,b1,c1", "a1,b2,c1", "a2,b1,c1", "a2,b2,c1")),
+      join(new StringJoiner(ImmutableSet.of("a", "b")), elements, null, Integer.MAX_VALUE));
+
+    // no results if a required input is missing
+    Assert.assertTrue(join(new StringJoiner(ImmutableSet.of("a", "d")), elements, null, Integer.MAX_VALUE).isEmpty());
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    List<JoinElement<String>> elements = new ArrayList<>();
+    Multiset<String> expected = HashMultiset.create();
+    for (int i = 0; i < 10; i++) {
+      elements.add(new JoinElement<>("a", "k:a" + i));
+      for (int j = 0; j < 5; j++) {
+        expected.add("a" + i + ",b" + j);
+      }
+    }
+    for (int j = 0; j < 5; j++) {
+      elements.add(new JoinElement<>("b", "k:b" + j));
+    }
+
+    // both inputs spill with a threshold of 3, and the results should be the same as without spilling
+    Assert.assertEquals(expected, join(new StringJoiner(ImmutableSet.of("a")), elements, new StringSerializer(), 3));
+    Assert.assertEquals(expected, join(new StringJoiner(ImmutableSet.of("a")), elements, null, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testSpillableBuffer() throws Exception {
+    try (SpillableJoinBuffer<String> buffer = new SpillableJoinBuffer<>(new StringSerializer(), 2)) {
+      buffer.add("r1");
+      Assert.assertFalse(buffer.isSpilled());
+      buffer.add("r2");
+      buffer.add("r3");
+      Assert.assertTrue(buffer.isSpilled());
+      Assert.assertEquals(3, buffer.size());
+
+      // the buffer can be iterated multiple times
+      Assert.assertEquals(ImmutableList.of("r1", "r2", "r3"), ImmutableList.copyOf(buffer));
+      Assert.assertEquals(ImmutableList.of("r1", "r2", "r3"), ImmutableList.copyOf(buffer));
+    }
+  }
+
+  @Test
+  public void testBroadcastHashJoin() throws Exception {
+    Map<String, Map<String, List<String>>> broadcastInputs = ImmutableMap.of(
+      "b", ImmutableMap.of("k1", ImmutableList.of("k1:b1", "k1:b2"), "k2", ImmutableList.of("k2:b3")),
+      "c", ImmutableMap.of("k1", ImmutableList.of("k1:c1")));
+
+    // 'c' is not required, hence it is only included in the results for the keys that it has
+    BroadcastHashJoin<String, String, String> hashJoin =
+      new BroadcastHashJoin<>(new StringJoiner(ImmutableSet.of("a", "b")), "a", broadcastInputs);
+    DefaultEmitter<String> emitter = new DefaultEmitter<>();
+    hashJoin.join("k1:a1", emitter);
+    hashJoin.join("k2:a2", emitter);
+    hashJoin.join("k3:a3", emitter);
+    Assert.assertEquals(HashMultiset.create(ImmutableList.of("a1,b1,c1", "a1,b2,c1", "a2,b3")),
+                        HashMultiset.create(emitter.getEntries()));
+
+    // results are the same as a sort-merge join of the same records
+    List<JoinElement<String>> elements = ImmutableList.of(
+      new JoinElement<>("a", "k1:a1"), new JoinElement<>("b", "k1:b1"),
+      new JoinElement<>("b", "k1:b2"), new JoinElement<>("c", "k1:c1"));
+    Assert.assertEquals(HashMultiset.create(ImmutableList.of("a1,b1,c1", "a1,b2,c1")),
+                        join(new StringJoiner(ImmutableSet.of("a", "b")), elements, null, Integer.MAX_VALUE));
+  }
+
+  private Multiset<String> join(Joiner<String, String, String> joiner, List<JoinElement<String>> elements,
+                                JoinRecordSerializer<String> serializer, int spillThreshold) throws Exception {
+    DefaultEmitter<String> emitter = new DefaultEmitter<>();
+    new Join<>(joiner, "k", elements.iterator(), 3, emitter, serializer, spillThreshold).joinRecords();
+    return HashMultiset.create(emitter.getEntries());
+  }
+
+  /**
+   * A {@link Joiner} for records of the form 'key:value', which merges the values of a join result
+   * in the order of the input stage names.
+   */
+  private static final class StringJoiner implements Joiner<String, String, String> {
+
+    private final Set<String> requiredInputs;
+
+    StringJoiner(Set<String> requiredInputs) {
+      this.requiredInputs = requiredInputs;
+    }
+
+    @Override
+    public String joinOn(String stageName, String inputRecord) {
+      return inputRecord.substring(0, inputRecord.indexOf(':'));
+    }
+
+    @Override
+    public JoinConfig getJoinConfig() {
+      return new JoinConfig(requiredInputs);
+    }
+
+    @Override
+    public String merge(String joinKey, Iterable<JoinElement<String>> joinResult) {
+      Map<String, String> values = new HashMap<>();
+      for (JoinElement<String> element : joinResult) {
+        String record = element.getInputRecord();
+        values.put(element.getStageName(), record.substring(record.indexOf(':') + 1));
+      }
+      List<String> stages = new ArrayList<>(values.keySet());
+      Collections.sort(stages);
+      List<String> merged = new ArrayList<>();
+      for (String stage : stages) {
+        merged.add(values.get(stage));
+      }
+      return String.join(",", merged);
+    }
+  }
+
+  /**
+   * A {@link JoinRecordSerializer} for strings.
+   */
+  private static final class StringSerializer implements JoinRecordSerializer<String> {
+
+    @Override
+    public void serialize(String record, DataOutput out) throws IOException {
+      out.writeUTF(record);
+    }
+
+    @Override
+    public String deserialize(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  }
+}
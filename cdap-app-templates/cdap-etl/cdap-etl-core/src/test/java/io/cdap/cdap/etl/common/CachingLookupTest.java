@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.CacheConfig;
+import io.cdap.cdap.etl.api.Lookup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link CachingLookup}.
+ */
+public class CachingLookupTest {
+
+  @Test
+  public void testCacheHitsAndMisses() {
+    MockMetrics metrics = new MockMetrics();
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(delegate, new CacheConfig(), new DefaultStageMetrics(metrics, "s"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    // Missing keys are cached as well
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertEquals(2, delegate.lookups.size());
+    Assert.assertEquals(2, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_HITS));
+    Assert.assertEquals(2, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_MISSES));
+
+    // Only the keys not in the cache should be looked up, in a single batch
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k3", "k4"));
+    Assert.assertEquals(3, delegate.lookups.size());
+    Assert.assertEquals(ImmutableSet.of("k2", "k4"), delegate.lookups.get(2));
+    Assert.assertEquals(4, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_HITS));
+    Assert.assertEquals(4, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_MISSES));
+
+    // Everything is cached now
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k3", "k4"));
+    Assert.assertEquals(3, delegate.lookups.size());
+    Assert.assertEquals(8, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_HITS));
+  }
+
+  @Test
+  public void testMaxSize() {
+    MockMetrics metrics = new MockMetrics();
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(delegate, new CacheConfig(0, 1), new DefaultStageMetrics(metrics, "s"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v2", lookup.lookup("k2"));
+    Assert.assertEquals(1, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_EVICTIONS));
+
+    // k1 was evicted, hence it should be looked up again
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(3, delegate.lookups.size());
+    Assert.assertEquals(3, metrics.getCount("s." + Constants.Metrics.LOOKUP_CACHE_MISSES));
+  }
+
+  /**
+   * A {@link Lookup} backed by a map that records the keys of each lookup call.
+   */
+  private static final class CountingLookup implements Lookup<String> {
+
+    private final Map<String, String> data;
+    private final List<Set<String>> lookups = new ArrayList<>();
+
+    CountingLookup(Map<String, String> data) {
+      this.data = data;
+    }
+
+    @Override
+    public String lookup(String key) {
+      lookups.add(ImmutableSet.of(key));
+      return data.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      lookups.add(ImmutableSet.copyOf(keys));
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        if (data.containsKey(key)) {
+          result.put(key, data.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -35,6 +35,8 @@ import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.SparkCompute;
 import io.cdap.cdap.etl.api.batch.SparkSink;
 import io.cdap.cdap.etl.api.streaming.Windower;
+import io.cdap.cdap.etl.batch.join.JoinPlan;
+import io.cdap.cdap.etl.batch.join.JoinPlanner;
 import io.cdap.cdap.etl.common.BasicArguments;
 import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.DefaultMacroEvaluator;
@@ -68,6 +70,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 
 /**
  * Base Spark program to run a Hydrator pipeline.
@@ -93,8 +96,12 @@ public abstract class SparkPipelineRunner {
                           PluginContext pluginContext,
                           Map<String, StageStatisticsCollector> collectors) throws Exception {
 
+    BasicArguments arguments = new BasicArguments(sec);
+    String broadcastThresholdStr = arguments.get(Constants.Join.BROADCAST_THRESHOLD);
+    long broadcastThreshold = broadcastThresholdStr == null ?
+      Constants.Join.DEFAULT_BROADCAST_THRESHOLD : Long.parseLong(broadcastThresholdStr);
     MacroEvaluator macroEvaluator =
-      new DefaultMacroEvaluator(new BasicArguments(sec),
+      new DefaultMacroEvaluator(arguments,
                                 sec.getLogicalStartTime(), sec,
                                 sec.getNamespace());
     Map<String, EmittedRecords> emittedRecords = new HashMap<>();
@@ -251,64 +258,17 @@ public abstract class SparkPipelineRunner {
         BatchJoinerRuntimeContext joinerRuntimeContext = pluginFunctionContext.createBatchRuntimeContext();
         joiner.initialize(joinerRuntimeContext);
 
-        Map<String, SparkPairCollection<Object, Object>> preJoinStreams = new HashMap<>();
-        for (Map.Entry<String, SparkCollection<Object>> inputStreamEntry : inputDataCollections.entrySet()) {
-          String inputStage = inputStreamEntry.getKey();
-          SparkCollection<Object> inputStream = inputStreamEntry.getValue();
-          preJoinStreams.put(inputStage, addJoinKey(stageSpec, inputStage, inputStream, collector));
+        JoinPlan joinPlan = JoinPlanner.plan(joiner.getJoinConfig(), inputDataCollections.keySet(),
+                                             broadcastThreshold);
+        LOG.debug("Executing join stage {} with {}", stageName, joinPlan);
+        SparkCollection<Object> joined = null;
+        if (joinPlan.getStrategy() == JoinPlan.Strategy.BROADCAST_HASH) {
+          joined = broadcastJoin(stageSpec, joinPlan, inputDataCollections, collector);
         }
-
-        Set<String> remainingInputs = new HashSet<>();
-        remainingInputs.addAll(inputDataCollections.keySet());
-
-        Integer numPartitions = stagePartitions.get(stageName);
-
-        SparkPairCollection<Object, List<JoinElement<Object>>> joinedInputs = null;
-        // inner join on required inputs
-        for (final String inputStageName : joiner.getJoinConfig().getRequiredInputs()) {
-          SparkPairCollection<Object, Object> preJoinCollection = preJoinStreams.get(inputStageName);
-
-          if (joinedInputs == null) {
-            joinedInputs = preJoinCollection.mapValues(new InitialJoinFunction<>(inputStageName));
-          } else {
-            JoinFlattenFunction<Object> joinFlattenFunction = new JoinFlattenFunction<>(inputStageName);
-            joinedInputs = numPartitions == null ?
-              joinedInputs.join(preJoinCollection).mapValues(joinFlattenFunction) :
-              joinedInputs.join(preJoinCollection, numPartitions).mapValues(joinFlattenFunction);
-          }
-          remainingInputs.remove(inputStageName);
-        }
-
-        // outer join on non-required inputs
-        boolean isFullOuter = joinedInputs == null;
-        for (final String inputStageName : remainingInputs) {
-          SparkPairCollection<Object, Object> preJoinStream = preJoinStreams.get(inputStageName);
-
-          if (joinedInputs == null) {
-            joinedInputs = preJoinStream.mapValues(new InitialJoinFunction<>(inputStageName));
-          } else {
-            if (isFullOuter) {
-              OuterJoinFlattenFunction<Object> flattenFunction = new OuterJoinFlattenFunction<>(inputStageName);
-
-              joinedInputs = numPartitions == null ?
-                joinedInputs.fullOuterJoin(preJoinStream).mapValues(flattenFunction) :
-                joinedInputs.fullOuterJoin(preJoinStream, numPartitions).mapValues(flattenFunction);
-            } else {
-              LeftJoinFlattenFunction<Object> flattenFunction = new LeftJoinFlattenFunction<>(inputStageName);
-
-              joinedInputs = numPartitions == null ?
-                joinedInputs.leftOuterJoin(preJoinStream).mapValues(flattenFunction) :
-                joinedInputs.leftOuterJoin(preJoinStream, numPartitions).mapValues(flattenFunction);
-            }
-          }
-        }
-
-        // should never happen, but removes warnings
-        if (joinedInputs == null) {
-          throw new IllegalStateException("There are no inputs into join stage " + stageName);
+        if (joined == null) {
+          joined = sortMergeJoin(stageSpec, joiner, inputDataCollections, stagePartitions.get(stageName), collector);
         }
-
-        emittedBuilder = emittedBuilder.setOutput(mergeJoinResults(stageSpec, joinedInputs, collector).cache());
+        emittedBuilder = emittedBuilder.setOutput(joined.cache());
 
       } else if (Windower.PLUGIN_TYPE.equals(pluginType)) {
 
@@ -378,6 +338,82 @@ public abstract class SparkPipelineRunner {
     }
   }
 
+  /**
+   * Performs a broadcast hash join, where the records of the broadcast inputs in the given {@link JoinPlan}
+   * are loaded in memory and joined with the records of the streamed input without a shuffle.
+   *
+   * @return the join results, or {@code null} if broadcast joins are not supported, in which case
+   *         a sort-merge join is performed
+   */
+  @Nullable
+  protected SparkCollection<Object> broadcastJoin(StageSpec stageSpec, JoinPlan joinPlan,
+                                                  Map<String, SparkCollection<Object>> inputDataCollections,
+                                                  StageStatisticsCollector collector) throws Exception {
+    return null;
+  }
+
+  private SparkCollection<Object> sortMergeJoin(StageSpec stageSpec, BatchJoiner<Object, Object, Object> joiner,
+                                                Map<String, SparkCollection<Object>> inputDataCollections,
+                                                @Nullable Integer numPartitions,
+                                                StageStatisticsCollector collector) throws Exception {
+    Map<String, SparkPairCollection<Object, Object>> preJoinStreams = new HashMap<>();
+    for (Map.Entry<String, SparkCollection<Object>> inputStreamEntry : inputDataCollections.entrySet()) {
+      String inputStage = inputStreamEntry.getKey();
+      SparkCollection<Object> inputStream = inputStreamEntry.getValue();
+      preJoinStreams.put(inputStage, addJoinKey(stageSpec, inputStage, inputStream, collector));
+    }
+
+    Set<String> remainingInputs = new HashSet<>();
+    remainingInputs.addAll(inputDataCollections.keySet());
+
+    SparkPairCollection<Object, List<JoinElement<Object>>> joinedInputs = null;
+    // inner join on required inputs
+    for (final String inputStageName : joiner.getJoinConfig().getRequiredInputs()) {
+      SparkPairCollection<Object, Object> preJoinCollection = preJoinStreams.get(inputStageName);
+
+      if (joinedInputs == null) {
+        joinedInputs = preJoinCollection.mapValues(new InitialJoinFunction<>(inputStageName));
+      } else {
+        JoinFlattenFunction<Object> joinFlattenFunction = new JoinFlattenFunction<>(inputStageName);
+        joinedInputs = numPartitions == null ?
+          joinedInputs.join(preJoinCollection).mapValues(joinFlattenFunction) :
+          joinedInputs.join(preJoinCollection, numPartitions).mapValues(joinFlattenFunction);
+      }
+      remainingInputs.remove(inputStageName);
+    }
+
+    // outer join on non-required inputs
+    boolean isFullOuter = joinedInputs == null;
+    for (final String inputStageName : remainingInputs) {
+      SparkPairCollection<Object, Object> preJoinStream = preJoinStreams.get(inputStageName);
+
+      if (joinedInputs == null) {
+        joinedInputs = preJoinStream.mapValues(new InitialJoinFunction<>(inputStageName));
+      } else {
+        if (isFullOuter) {
+          OuterJoinFlattenFunction<Object> flattenFunction = new OuterJoinFlattenFunction<>(inputStageName);
+
+          joinedInputs = numPartitions == null ?
+            joinedInputs.fullOuterJoin(preJoinStream).mapValues(flattenFunction) :
+            joinedInputs.fullOuterJoin(preJoinStream, numPartitions).mapValues(flattenFunction);
+        } else {
+          LeftJoinFlattenFunction<Object> flattenFunction = new LeftJoinFlattenFunction<>(inputStageName);
+
+          joinedInputs = numPartitions == null ?
+            joinedInputs.leftOuterJoin(preJoinStream).mapValues(flattenFunction) :
+            joinedInputs.leftOuterJoin(preJoinStream, numPartitions).mapValues(flattenFunction);
+        }
+      }
+    }
+
+    // should never happen, but removes warnings
+    if (joinedInputs == null) {
+      throw new IllegalStateException("There are no inputs into join stage " + stageSpec.getName());
+    }
+
+    return mergeJoinResults(stageSpec, joinedInputs, collector);
+  }
+
   // return whether this stage should be cached to avoid recomputation
   private boolean shouldCache(PipelinePhase pipelinePhase, StageSpec stageSpec) {
 
@@ -33,6 +33,7 @@ import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.batch.BatchPhaseSpec;
 import io.cdap.cdap.etl.batch.PipelinePluginInstantiator;
 import io.cdap.cdap.etl.batch.connector.SingleConnectorFactory;
+import io.cdap.cdap.etl.batch.join.JoinPlan;
 import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.RecordInfo;
 import io.cdap.cdap.etl.common.SetMultimapCodec;
@@ -45,16 +46,20 @@ import io.cdap.cdap.etl.spark.SparkPairCollection;
 import io.cdap.cdap.etl.spark.SparkPipelineRunner;
 import io.cdap.cdap.etl.spark.SparkStageStatisticsCollector;
 import io.cdap.cdap.etl.spark.function.BatchSourceFunction;
+import io.cdap.cdap.etl.spark.function.BroadcastJoinFunction;
 import io.cdap.cdap.etl.spark.function.JoinMergeFunction;
 import io.cdap.cdap.etl.spark.function.JoinOnFunction;
 import io.cdap.cdap.etl.spark.function.PluginFunctionContext;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import scala.Tuple2;
 
 import java.io.BufferedReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -105,6 +110,30 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner implements Jav
     return joinedInputs.flatMap(Compat.convert(new JoinMergeFunction<>(pluginFunctionContext)));
   }
 
+  @Override
+  protected SparkCollection<Object> broadcastJoin(StageSpec stageSpec, JoinPlan joinPlan,
+                                                  Map<String, SparkCollection<Object>> inputDataCollections,
+                                                  StageStatisticsCollector collector) throws Exception {
+    // Collect the records of the broadcast inputs, grouped by join key
+    Map<String, Map<Object, List<Object>>> broadcastInputs = new HashMap<>();
+    for (String inputStageName : joinPlan.getBroadcastInputs()) {
+      SparkPairCollection<Object, Object> keyedInput =
+        addJoinKey(stageSpec, inputStageName, inputDataCollections.get(inputStageName), collector);
+      JavaPairRDD<Object, Object> keyedRDD = keyedInput.getUnderlying();
+      Map<Object, List<Object>> records = new HashMap<>();
+      for (Tuple2<Object, Object> record : keyedRDD.collect()) {
+        records.computeIfAbsent(record._1(), k -> new ArrayList<>()).add(record._2());
+      }
+      broadcastInputs.put(inputStageName, records);
+    }
+
+    String streamedInput = joinPlan.getStreamedInput();
+    PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
+    return inputDataCollections.get(streamedInput).flatMap(
+      stageSpec, Compat.convert(new BroadcastJoinFunction<>(pluginFunctionContext, streamedInput,
+                                                            jsc.broadcast(broadcastInputs))));
+  }
+
   @Override
   public void run(JavaSparkExecutionContext sec) throws Exception {
     this.jsc = new JavaSparkContext();
@@ -28,6 +28,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.macro.MacroEvaluator;
 import io.cdap.cdap.api.spark.AbstractSpark;
 import io.cdap.cdap.api.spark.SparkClientContext;
+import io.cdap.cdap.api.spark.SparkConfigs;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.batch.BatchPhaseSpec;
 import io.cdap.cdap.etl.common.Constants;
@@ -37,14 +38,18 @@ import io.cdap.cdap.etl.common.PipelineRuntime;
 import io.cdap.cdap.etl.common.SetMultimapCodec;
 import io.cdap.cdap.etl.common.submit.CompositeFinisher;
 import io.cdap.cdap.etl.common.submit.Finisher;
+import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
 import org.apache.spark.SparkConf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Configures and sets up runs of {@link BatchSparkPipelineDriver}.
@@ -103,6 +108,8 @@ public class ETLSpark extends AbstractSpark {
     for (Map.Entry<String, String> pipelineProperty : phaseSpec.getPipelineProperties().entrySet()) {
       sparkConf.set(pipelineProperty.getKey(), pipelineProperty.getValue());
     }
+    // records with the stage schemas are shuffled and cached with the schema hash instead of the full schema
+    sparkConf.set(SparkConfigs.KRYO_SCHEMAS, GSON.toJson(getStageSchemas(phaseSpec)));
 
     PipelineRuntime pipelineRuntime = new PipelineRuntime(context);
     MacroEvaluator evaluator = new DefaultMacroEvaluator(pipelineRuntime.getArguments(),
@@ -120,4 +127,23 @@ public class ETLSpark extends AbstractSpark {
       finisher.onFinish(getContext().getState().getStatus() == ProgramStatus.COMPLETED);
     }
   }
+
+  private Set<String> getStageSchemas(BatchPhaseSpec phaseSpec) {
+    Set<Schema> schemas = new HashSet<>();
+    for (StageSpec stageSpec : phaseSpec.getPhase()) {
+      schemas.addAll(stageSpec.getInputSchemas().values());
+      schemas.add(stageSpec.getOutputSchema());
+      schemas.add(stageSpec.getErrorSchema());
+      for (StageSpec.Port port : stageSpec.getOutputPorts().values()) {
+        schemas.add(port.getSchema());
+      }
+    }
+    Set<String> schemaStrings = new LinkedHashSet<>();
+    for (Schema schema : schemas) {
+      if (schema != null && schema.getType() == Schema.Type.RECORD) {
+        schemaStrings.add(schema.toString());
+      }
+    }
+    return schemaStrings;
+  }
 }
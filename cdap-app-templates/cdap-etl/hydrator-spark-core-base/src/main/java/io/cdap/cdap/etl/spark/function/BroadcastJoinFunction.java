@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.Transformation;
+import io.cdap.cdap.etl.api.batch.BatchJoiner;
+import io.cdap.cdap.etl.api.batch.BatchJoinerRuntimeContext;
+import io.cdap.cdap.etl.batch.join.BroadcastHashJoin;
+import io.cdap.cdap.etl.common.Constants;
+import io.cdap.cdap.etl.common.DefaultEmitter;
+import io.cdap.cdap.etl.common.TrackedTransform;
+import org.apache.spark.broadcast.Broadcast;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Function that uses a BatchJoiner to join the records of the streamed input of a broadcast hash join
+ * with the broadcast inputs.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <JOIN_KEY> the type of join key
+ * @param <INPUT_RECORD> the type of input record
+ * @param <OUT> the type of output object
+ */
+public class BroadcastJoinFunction<JOIN_KEY, INPUT_RECORD, OUT> implements FlatMapFunc<INPUT_RECORD, OUT> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private final String streamedInput;
+  private final Broadcast<Map<String, Map<JOIN_KEY, List<INPUT_RECORD>>>> broadcastInputs;
+  private transient TrackedTransform<INPUT_RECORD, OUT> joinFunction;
+  private transient DefaultEmitter<OUT> emitter;
+
+  public BroadcastJoinFunction(PluginFunctionContext pluginFunctionContext, String streamedInput,
+                               Broadcast<Map<String, Map<JOIN_KEY, List<INPUT_RECORD>>>> broadcastInputs) {
+    this.pluginFunctionContext = pluginFunctionContext;
+    this.streamedInput = streamedInput;
+    this.broadcastInputs = broadcastInputs;
+  }
+
+  @Override
+  public Iterable<OUT> call(INPUT_RECORD input) throws Exception {
+    if (joinFunction == null) {
+      BatchJoiner<JOIN_KEY, INPUT_RECORD, OUT> joiner = pluginFunctionContext.createPlugin();
+      BatchJoinerRuntimeContext context = pluginFunctionContext.createBatchRuntimeContext();
+      joiner.initialize(context);
+      BroadcastHashJoin<JOIN_KEY, INPUT_RECORD, OUT> hashJoin =
+        new BroadcastHashJoin<>(joiner, streamedInput, broadcastInputs.value());
+      joinFunction = new TrackedTransform<>(new BroadcastJoinTransform<>(hashJoin),
+                                            pluginFunctionContext.createStageMetrics(),
+                                            Constants.Metrics.RECORDS_IN,
+                                            Constants.Metrics.RECORDS_OUT, pluginFunctionContext.getDataTracer(),
+                                            pluginFunctionContext.getStageStatisticsCollector());
+      emitter = new DefaultEmitter<>();
+    }
+    emitter.reset();
+    joinFunction.transform(input, emitter);
+    return emitter.getEntries();
+  }
+
+  private static class BroadcastJoinTransform<JOIN_KEY, INPUT, OUT> implements Transformation<INPUT, OUT> {
+    private final BroadcastHashJoin<JOIN_KEY, INPUT, OUT> hashJoin;
+
+    BroadcastJoinTransform(BroadcastHashJoin<JOIN_KEY, INPUT, OUT> hashJoin) {
+      this.hashJoin = hashJoin;
+    }
+
+    @Override
+    public void transform(INPUT input, Emitter<OUT> emitter) throws Exception {
+      hashJoin.join(input, emitter);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.lang.InstantiatorFactory;
+import io.cdap.cdap.internal.asm.ByteCodeClassLoader;
+import io.cdap.cdap.internal.asm.ClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.inject.Inject;
+
+/**
+ * A factory class for creating {@link DatumReader} instance for different data type and schema.
+ * It serves as an in memory cache for generated {@link DatumReader} {@link Class} using ASM.
+ * Since the schema of the data being read is only known when reading, the {@link DatumReader} returned
+ * generates a class for each source schema it encounters. If a class cannot be generated for the data type,
+ * it falls back to use {@link ReflectionDatumReader}.
+ */
+public final class ASMDatumReaderFactory implements DatumReaderFactory {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ASMDatumReaderFactory.class);
+
+  private final LoadingCache<CacheKey, Class<DatumReader<?>>> datumReaderClasses;
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+
+  @Inject
+  public ASMDatumReaderFactory(FieldAccessorFactory fieldAccessorFactory) {
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    this.instantiatorFactory = new InstantiatorFactory(true);
+    this.datumReaderClasses = CacheBuilder.newBuilder().build(new ASMCacheLoader());
+  }
+
+  /**
+   * Creates a {@link DatumReader} that is able to decode given data type with the given {@link Schema}.
+   * The instance created is thread safe and reusable.
+   *
+   * @param type Type information of the data type to be decoded.
+   * @param schema Schema of the data type.
+   * @param <T> Type of the data type.
+   * @return A {@link DatumReader} instance.
+   */
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return new SourceSchemaDatumReader<>(type, schema);
+  }
+
+  /**
+   * Creates a {@link DatumReader} for reading data encoded with the given source schema.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> DatumReader<T> create(TypeToken<T> type, Schema schema, Schema sourceSchema) {
+    try {
+      Class<DatumReader<?>> readerClass = datumReaderClasses.getUnchecked(new CacheKey(schema, sourceSchema, type));
+      return (DatumReader<T>) readerClass.getConstructor(Schema.class, Schema.class,
+                                                         FieldAccessorFactory.class, InstantiatorFactory.class)
+        .newInstance(schema, sourceSchema, fieldAccessorFactory, instantiatorFactory);
+    } catch (Exception e) {
+      LOG.debug("Failed to generate DatumReader for type {} with schema {} and source schema {}. " +
+                  "Using reflection based DatumReader instead.", type, schema, sourceSchema, e);
+      return new ReflectionDatumReader<>(schema, type);
+    }
+  }
+
+  /**
+   * A {@link DatumReader} that delegates to the generated {@link DatumReader} of the source schema.
+   *
+   * @param <T> Type of the data type.
+   */
+  private final class SourceSchemaDatumReader<T> implements DatumReader<T> {
+
+    private final TypeToken<T> type;
+    private final Schema schema;
+    private final ConcurrentMap<Schema, DatumReader<T>> readers;
+
+    private SourceSchemaDatumReader(TypeToken<T> type, Schema schema) {
+      this.type = type;
+      this.schema = schema;
+      this.readers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+      DatumReader<T> reader = readers.get(sourceSchema);
+      if (reader == null) {
+        reader = create(type, schema, sourceSchema);
+        DatumReader<T> existing = readers.putIfAbsent(sourceSchema, reader);
+        if (existing != null) {
+          reader = existing;
+        }
+      }
+      return reader.read(decoder, sourceSchema);
+    }
+  }
+
+  /**
+   * A private {@link CacheLoader} for generating different {@link DatumReader} {@link Class}.
+   */
+  private static final class ASMCacheLoader extends CacheLoader<CacheKey, Class<DatumReader<?>>> {
+
+    private final Map<TypeToken<?>, ByteCodeClassLoader> classloaders = Maps.newIdentityHashMap();
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Class<DatumReader<?>> load(CacheKey key) throws Exception {
+      ClassDefinition classDef = new DatumReaderGenerator().generate(key.getType(), key.getSchema(),
+                                                                     key.getSourceSchema());
+
+      ByteCodeClassLoader classloader;
+      synchronized (classloaders) {
+        classloader = classloaders.get(key.getType());
+        if (classloader == null) {
+          // The ClassLoader of the generated DatumReader has CDAP system ClassLoader as parent.
+          // The ClassDefinition contains list of classes that should not be loaded by the generated class ClassLoader
+          classloader = new ByteCodeClassLoader(ASMDatumReaderFactory.class.getClassLoader());
+          classloaders.put(key.getType(), classloader);
+        }
+      }
+
+      return (Class<DatumReader<?>>) classloader.addClass(classDef).loadClass(classDef.getClassName());
+    }
+  }
+
+  private static final class CacheKey {
+    private final Schema schema;
+    private final Schema sourceSchema;
+    private final TypeToken<?> type;
+
+    private CacheKey(Schema schema, Schema sourceSchema, TypeToken<?> type) {
+      this.schema = schema;
+      this.sourceSchema = sourceSchema;
+      this.type = type;
+    }
+
+    public Schema getSchema() {
+      return schema;
+    }
+
+    public Schema getSourceSchema() {
+      return sourceSchema;
+    }
+
+    public TypeToken<?> getType() {
+      return type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return schema.equals(cacheKey.schema) && sourceSchema.equals(cacheKey.sourceSchema)
+        && type.equals(cacheKey.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(schema, sourceSchema, type);
+    }
+  }
+}
@@ -0,0 +1,1150 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.SchemaHash;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.lang.Instantiator;
+import io.cdap.cdap.common.lang.InstantiatorFactory;
+import io.cdap.cdap.internal.asm.ClassDefinition;
+import io.cdap.cdap.internal.asm.Methods;
+import io.cdap.cdap.internal.asm.Signatures;
+import io.cdap.cdap.internal.lang.Fields;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.commons.TableSwitchGenerator;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Class for generating {@link DatumReader} bytecodes using ASM. A class is generated for each combination of
+ * data type, target schema and source schema, so that the schema resolution done by {@link ReflectionDatumReader}
+ * for every value is done once while generating the class. The class generated will have a skeleton looks like
+ * the following:
+ * <pre>
+ * {@code
+ *
+ *  public final class generatedClassName implements DatumReader<InputType> {
+ *    private static final String SCHEMA_HASH = "schema_hash_as_hex_string";
+ *    private static final String SOURCE_SCHEMA_HASH = "source_schema_hash_as_hex_string";
+ *    private final Schema schema;
+ *    private final Schema sourceSchema;
+ *
+ *    public generatedClassName(Schema schema, Schema sourceSchema,
+ *                              FieldAccessorFactory accessorFactory, InstantiatorFactory instantiatorFactory) {
+ *      if (!SCHEMA_HASH.equals(schema.getSchemaHash().toString())) {
+ *        throw new IllegalArgumentException("Schema not match.");
+ *      }
+ *      if (!SOURCE_SCHEMA_HASH.equals(sourceSchema.getSchemaHash().toString())) {
+ *        throw new IllegalArgumentException("Source schema not match.");
+ *      }
+ *      this.schema = schema;
+ *      this.sourceSchema = sourceSchema;
+ *      // Initialize the FieldAccessor, Instantiator and Class fields used by the read methods
+ *    }
+ *
+ *    @Override
+ *    public Object read(Decoder decoder, Schema sourceSchema) throws IOException {
+ *      return generatedReadMethod(decoder, this.sourceSchema, this.schema);
+ *    }
+ *
+ *    private Object generatedReadMethod(Decoder decoder, Schema sourceSchema, Schema targetSchema) {
+ *      // Do actual decoding by calling methods on decoder based on the source schema,
+ *      // and convert the value to the target schema and type.
+ *    }
+ *
+ *    // Could have more generatedReadMethods...
+ *  }
+ * }
+ * </pre>
+ *
+ * For example, to read type int[] with the same source and target schema, a generated {@link DatumReader}
+ * will looks like this after decompile.
+ * <pre>
+ * {@code
+ *
+ *   public final class intArrayDatumReader07D4F780E3528DB8C539EE5C21FDDEAE07D4F780E3528DB8C539EE5C21FDDEAE
+ *     implements DatumReader<int[]> {
+ *
+ *     ...
+ *
+ *     public Object read(Decoder paramDecoder, Schema paramSchema) throws IOException {
+ *       return readArray1int07D4...07D4...(paramDecoder, this.sourceSchema, this.schema);
+ *     }
+ *
+ *     private Object readArray1int07D4...07D4...(Decoder paramDecoder, Schema paramSchema1,
+ *                                               Schema paramSchema2) throws IOException {
+ *       Schema localSchema1 = paramSchema1.getComponentSchema();
+ *       Schema localSchema2 = paramSchema2.getComponentSchema();
+ *       Collection localCollection = new ArrayList();
+ *       int i = paramDecoder.readInt();
+ *       while (i != 0) {
+ *         for (int j = 0; j < i; j++) {
+ *           localCollection.add(Integer.valueOf(readint9E68...9E68...(paramDecoder, localSchema1, localSchema2)));
+ *         }
+ *         i = paramDecoder.readInt();
+ *       }
+ *       return DatumReaders.toArray(localCollection, Integer.TYPE);
+ *     }
+ *
+ *     private int readint9E68...9E68...(Decoder paramDecoder, Schema paramSchema1,
+ *                                       Schema paramSchema2) throws IOException {
+ *       return paramDecoder.readInt();
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * Fields that are only in the source schema are skipped, and fields that are only in the target schema are left
+ * with the value assigned by the {@link Instantiator}. A source union branch that cannot be resolved to the target
+ * schema fails with {@link IOException} when it is read, same as {@link ReflectionDatumReader}.
+ */
+@NotThreadSafe
+final class DatumReaderGenerator {
+
+  private final Map<String, Method> readMethods = Maps.newHashMap();
+  private final Multimap<TypeToken<?>, String> fieldAccessorRequests = HashMultimap.create();
+  private final Set<Class<?>> instantiatorRequests = Sets.newHashSet();
+  private final Set<Class<?>> classRequests = Sets.newHashSet();
+  private ClassWriter classWriter;
+  private Type classType;
+  private List<Class<?>> preservedClasses;
+
+  /**
+   * Generates a {@link DatumReader} class for decoding data of the given input type with the given schema
+   * from data encoded with the given source schema.
+   *
+   * @param inputType Type information of the input data type.
+   * @param schema Schema of the input data type.
+   * @param sourceSchema Schema that the data was encoded with.
+   * @return A {@link ClassDefinition} that contains generated class information.
+   */
+  ClassDefinition generate(TypeToken<?> inputType, Schema schema, Schema sourceSchema) {
+    classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    preservedClasses = Lists.newArrayList();
+
+    TypeToken<?> interfaceType = getInterfaceType(inputType);
+
+    // Generate the class
+    String className = getClassName(interfaceType, schema, sourceSchema);
+    classType = Type.getObjectType(className);
+    classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL,
+                      className, Signatures.getClassSignature(interfaceType),
+                      Type.getInternalName(Object.class),
+                      new String[]{Type.getInternalName(interfaceType.getRawType())});
+
+    // Static schema hash fields, for verification
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_FINAL, "SCHEMA_HASH",
+                           Type.getDescriptor(String.class), null, schema.getSchemaHash().toString()).visitEnd();
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_FINAL, "SOURCE_SCHEMA_HASH",
+                           Type.getDescriptor(String.class), null,
+                           sourceSchema.getSchemaHash().toString()).visitEnd();
+
+    // Schema fields
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL, "schema",
+                           Type.getDescriptor(Schema.class), null, null).visitEnd();
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL, "sourceSchema",
+                           Type.getDescriptor(Schema.class), null, null).visitEnd();
+
+    // Read method
+    generateRead(inputType, schema, sourceSchema);
+
+    // Constructor
+    generateConstructor();
+
+    ClassDefinition classDefinition = new ClassDefinition(classWriter.toByteArray(), className, preservedClasses);
+    // DEBUG block. Uncomment for debug
+//    io.cdap.cdap.internal.asm.Debugs.debugByteCode(classDefinition, new java.io.PrintWriter(System.out));
+    // End DEBUG block
+    return classDefinition;
+  }
+
+  /**
+   * Generates the constructor. The constructor generated has signature
+   * {@code (Schema, Schema, FieldAccessorFactory, InstantiatorFactory)}.
+   */
+  private void generateConstructor() {
+    Method constructor = getMethod(void.class, "<init>", Schema.class, Schema.class,
+                                   FieldAccessorFactory.class, InstantiatorFactory.class);
+
+    // Constructor(Schema schema, Schema sourceSchema,
+    //             FieldAccessorFactory accessorFactory, InstantiatorFactory instantiatorFactory)
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, constructor, null, null, classWriter);
+
+    // super(); // Calling Object constructor
+    mg.loadThis();
+    mg.invokeConstructor(Type.getType(Object.class), getMethod(void.class, "<init>"));
+
+    // if (!SCHEMA_HASH.equals(schema.getSchemaHash().toString())) { throw IllegalArgumentException }
+    verifySchemaHash(mg, "SCHEMA_HASH", 0, "Schema not match.");
+    verifySchemaHash(mg, "SOURCE_SCHEMA_HASH", 1, "Source schema not match.");
+
+    // this.schema = schema;
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.putField(classType, "schema", Type.getType(Schema.class));
+
+    // this.sourceSchema = sourceSchema;
+    mg.loadThis();
+    mg.loadArg(1);
+    mg.putField(classType, "sourceSchema", Type.getType(Schema.class));
+
+    // For each record field that needs an accessor, get the accessor and store it in field.
+    for (Map.Entry<TypeToken<?>, String> entry : fieldAccessorRequests.entries()) {
+      String fieldAccessorName = getFieldAccessorName(entry.getKey(), entry.getValue());
+
+      classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL,
+                             fieldAccessorName,
+                             Type.getDescriptor(FieldAccessor.class), null, null);
+      // this.fieldAccessorName
+      //  = accessorFactory.getFieldAccessor(TypeToken.of(Class.forName("className")), "fieldName");
+      mg.loadThis();
+      mg.loadArg(2);
+      loadClassForName(mg, entry.getKey().getRawType());
+      mg.invokeStatic(Type.getType(TypeToken.class), getMethod(TypeToken.class, "of", Class.class));
+      mg.push(entry.getValue());
+      mg.invokeInterface(Type.getType(FieldAccessorFactory.class),
+                         getMethod(FieldAccessor.class, "getFieldAccessor", TypeToken.class, String.class));
+      mg.putField(classType, fieldAccessorName, Type.getType(FieldAccessor.class));
+    }
+
+    // For each type that needs to be instantiated, get the instantiator and store it in field.
+    for (Class<?> type : instantiatorRequests) {
+      String instantiatorName = getInstantiatorName(type);
+
+      classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL,
+                             instantiatorName,
+                             Type.getDescriptor(Instantiator.class), null, null);
+      // this.instantiatorName = instantiatorFactory.get(TypeToken.of(Class.forName("className")));
+      mg.loadThis();
+      mg.loadArg(3);
+      loadClassForName(mg, type);
+      mg.invokeStatic(Type.getType(TypeToken.class), getMethod(TypeToken.class, "of", Class.class));
+      mg.invokeVirtual(Type.getType(InstantiatorFactory.class),
+                       getMethod(Instantiator.class, "get", TypeToken.class));
+      mg.putField(classType, instantiatorName, Type.getType(Instantiator.class));
+    }
+
+    // For each enum or array component type, store the Class in field.
+    for (Class<?> type : classRequests) {
+      String classFieldName = getClassFieldName(type);
+
+      classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL,
+                             classFieldName,
+                             Type.getDescriptor(Class.class), null, null);
+      // this.classFieldName = Class.forName("className");
+      mg.loadThis();
+      loadClassForName(mg, type);
+      mg.putField(classType, classFieldName, Type.getType(Class.class));
+    }
+
+    mg.returnValue();
+    mg.endMethod();
+  }
+
+  /**
+   * Generates code for verifying the hash of the schema given in the constructor argument.
+   */
+  private void verifySchemaHash(GeneratorAdapter mg, String hashField, int schemaArg, String message) {
+    mg.getStatic(classType, hashField, Type.getType(String.class));
+    mg.loadArg(schemaArg);
+    mg.invokeVirtual(Type.getType(Schema.class), getMethod(SchemaHash.class, "getSchemaHash"));
+    mg.invokeVirtual(Type.getType(SchemaHash.class), getMethod(String.class, "toString"));
+    mg.invokeVirtual(Type.getType(String.class), getMethod(boolean.class, "equals", Object.class));
+    Label hashEquals = mg.newLabel();
+    mg.ifZCmp(GeneratorAdapter.NE, hashEquals);
+    mg.throwException(Type.getType(IllegalArgumentException.class), message);
+    mg.mark(hashEquals);
+  }
+
+  /**
+   * Generates the {@link DatumReader#read(Decoder, Schema)} method.
+   *
+   * @param inputType Type information of the data type for input
+   * @param schema Schema to use for input.
+   * @param sourceSchema Schema that the data was encoded with.
+   */
+  private void generateRead(TypeToken<?> inputType, Schema schema, Schema sourceSchema) {
+    Method readMethod = getMethod(Object.class, "read", Decoder.class, Schema.class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, readMethod, null,
+                                               new Type[] {Type.getType(IOException.class)}, classWriter);
+
+    // Delegate to the actual read method(decoder, this.sourceSchema, this.schema);
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.loadThis();
+    mg.getField(classType, "sourceSchema", Type.getType(Schema.class));
+    mg.loadThis();
+    mg.getField(classType, "schema", Type.getType(Schema.class));
+    mg.invokeVirtual(classType, getReadMethod(inputType, sourceSchema, schema));
+    doBox(mg, inputType);
+    mg.returnValue();
+    mg.endMethod();
+  }
+
+  /**
+   * Returns the read method for the given type, source schema and target schema. The same method will be returned
+   * if the same type and schemas has been passed to the method before.
+   *
+   * @param inputType Type information of the data type for input
+   * @param sourceSchema Schema that the data was encoded with.
+   * @param targetSchema Schema to use for input.
+   * @return A method for reading the given input type and schemas.
+   */
+  private Method getReadMethod(TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema) {
+    String key = String.format("%s%s%s", normalizeTypeName(inputType),
+                               sourceSchema.getSchemaHash(), targetSchema.getSchemaHash());
+
+    Method method = readMethods.get(key);
+    if (method != null) {
+      return method;
+    }
+
+    // Generate the read method (decoder, sourceSchema, targetSchema)
+    String methodName = String.format("read%s", key);
+    method = getMethod(getCallType(inputType), methodName, Decoder.class, Schema.class, Schema.class);
+
+    // Put the method into map first before generating the body in order to support recursive data type.
+    readMethods.put(key, method);
+
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PRIVATE, method, null,
+                                               new Type[]{Type.getType(IOException.class)}, classWriter);
+
+    generateReadBody(mg, inputType, sourceSchema, targetSchema, 0, 1, 2);
+    mg.returnValue();
+    mg.endMethod();
+
+    return method;
+  }
+
+  /**
+   * Generates the read method body, which leaves the value read on the stack.
+   *
+   * @param mg Method generator for generating method code body
+   * @param inputType Type information of the data type for input
+   * @param sourceSchema Schema that the data was encoded with.
+   * @param targetSchema Schema to use for input.
+   * @param decoder Method argument index of the decoder
+   * @param sourceLocal Method argument index of the source schema
+   * @param targetLocal Method argument index of the target schema
+   */
+  private void generateReadBody(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                                int decoder, int sourceLocal, int targetLocal) {
+    Schema.Type sourceType = sourceSchema.getType();
+
+    if (sourceType == Schema.Type.UNION) {
+      readUnion(mg, inputType, sourceSchema, targetSchema, decoder, sourceLocal, targetLocal);
+      return;
+    }
+    if (targetSchema.getType() == Schema.Type.UNION) {
+      readIntoUnion(mg, inputType, sourceSchema, targetSchema, decoder, sourceLocal, targetLocal);
+      return;
+    }
+    if (!canResolve(sourceSchema, targetSchema)) {
+      throwResolveException(mg, sourceSchema, targetSchema);
+      return;
+    }
+
+    Preconditions.checkArgument(!inputType.getRawType().isPrimitive() || sourceType.isSimpleType(),
+                                "Type %s cannot be read from schema %s", inputType, sourceSchema);
+
+    switch (sourceType) {
+      case NULL:
+        if (inputType.getRawType().isPrimitive()) {
+          mg.throwException(Type.getType(IOException.class),
+                            "Cannot read null value as " + inputType.getRawType().getName());
+        } else {
+          mg.loadArg(decoder);
+          mg.invokeInterface(Type.getType(Decoder.class), getMethod(Object.class, "readNull"));
+        }
+        break;
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+        readSimple(mg, inputType, sourceType, targetSchema.getType(), decoder);
+        break;
+      case BYTES:
+        readBytes(mg, inputType, decoder);
+        break;
+      case ENUM:
+        readEnum(mg, inputType, decoder, sourceLocal);
+        break;
+      case ARRAY:
+        readArray(mg, inputType, sourceSchema, targetSchema, decoder, sourceLocal, targetLocal);
+        break;
+      case MAP:
+        readMap(mg, inputType, sourceSchema, targetSchema, decoder, sourceLocal, targetLocal);
+        break;
+      case RECORD:
+        readRecord(mg, inputType, sourceSchema, targetSchema, decoder, sourceLocal, targetLocal);
+        break;
+    }
+  }
+
+  /**
+   * Generates method body for reading simple schema type by calling corresponding read method in Decoder.
+   * The value is promoted to the target schema type, and then converted to the input type.
+   *
+   * @param mg Method body generator
+   * @param inputType Data type to read
+   * @param sourceType Schema type of the encoded value
+   * @param targetType Schema type to promote the value to
+   * @param decoder Method argument index of the decoder
+   */
+  private void readSimple(GeneratorAdapter mg, TypeToken<?> inputType,
+                          Schema.Type sourceType, Schema.Type targetType, int decoder) {
+    // value = decoder.readXXX();
+    Class<?> valueType = getValueType(sourceType);
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(valueType, getDecodeMethodName(sourceType)));
+
+    // Promote the value to the target schema type
+    if (targetType == Schema.Type.STRING && sourceType != Schema.Type.STRING) {
+      mg.invokeStatic(Type.getType(String.class), getMethod(String.class, "valueOf", valueType));
+      valueType = String.class;
+    } else if (targetType != sourceType) {
+      Class<?> targetValueType = getValueType(targetType);
+      mg.cast(Type.getType(valueType), Type.getType(targetValueType));
+      valueType = targetValueType;
+    }
+
+    Class<?> rawType = inputType.getRawType();
+    if (valueType == String.class) {
+      Preconditions.checkArgument(!rawType.isPrimitive(), "Type %s cannot be read from string", inputType);
+      if (URI.class.equals(rawType)) {
+        mg.invokeStatic(Type.getType(URI.class), getMethod(URI.class, "create", String.class));
+      } else if (URL.class.equals(rawType)) {
+        // new URL(value)
+        int value = mg.newLocal(Type.getType(String.class));
+        mg.storeLocal(value);
+        mg.newInstance(Type.getType(URL.class));
+        mg.dup();
+        mg.loadLocal(value);
+        mg.invokeConstructor(Type.getType(URL.class), getMethod(void.class, "<init>", String.class));
+      }
+      return;
+    }
+
+    // A special case since INT type represents (byte, char, short and int).
+    Class<?> primitiveType = Primitives.unwrap(rawType);
+    if (valueType == int.class
+      && (primitiveType == byte.class || primitiveType == char.class || primitiveType == short.class)) {
+      mg.cast(Type.INT_TYPE, Type.getType(primitiveType));
+      valueType = primitiveType;
+    }
+
+    if (rawType.isPrimitive()) {
+      if (!rawType.equals(valueType)) {
+        Preconditions.checkArgument(rawType != boolean.class && valueType != boolean.class,
+                                    "Type %s cannot be read from schema type %s", inputType, targetType);
+        mg.cast(Type.getType(valueType), Type.getType(rawType));
+      }
+    } else {
+      mg.valueOf(Type.getType(valueType));
+    }
+  }
+
+  /**
+   * Generates method body for reading bytes value as {@link ByteBuffer}, byte[] or {@link UUID}.
+   */
+  private void readBytes(GeneratorAdapter mg, TypeToken<?> inputType, int decoder) {
+    Class<?> rawType = inputType.getRawType();
+    Preconditions.checkArgument(!rawType.isPrimitive(), "Type %s cannot be read from bytes", inputType);
+
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(ByteBuffer.class, "readBytes"));
+
+    if (byte[].class.equals(rawType)) {
+      mg.invokeStatic(Type.getType(DatumReaders.class), getMethod(byte[].class, "toByteArray", ByteBuffer.class));
+    } else if (UUID.class.equals(rawType)) {
+      mg.invokeStatic(Type.getType(DatumReaders.class), getMethod(Object.class, "toUUID", ByteBuffer.class));
+    }
+  }
+
+  /**
+   * Generates method body for reading enum value. The enum index is resolved with the source schema, and
+   * the enum constant is looked up by name.
+   *
+   * <pre>
+   * {@code
+   *
+   * return DatumReaders.toEnum(this.enumClass, sourceSchema.getEnumValue(decoder.readInt()));
+   * }
+   * </pre>
+   */
+  private void readEnum(GeneratorAdapter mg, TypeToken<?> inputType, int decoder, int sourceLocal) {
+    Class<?> rawType = inputType.getRawType();
+    Preconditions.checkArgument(rawType.isEnum(), "Only enum type is supported for enum value, got %s", inputType);
+
+    loadClass(mg, rawType);
+    mg.loadArg(sourceLocal);
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(int.class, "readInt"));
+    mg.invokeVirtual(Type.getType(Schema.class), getMethod(String.class, "getEnumValue", int.class));
+    mg.invokeStatic(Type.getType(DatumReaders.class), getMethod(Object.class, "toEnum", Class.class, String.class));
+  }
+
+  /**
+   * Generates method body for reading array value into an array or a collection. The logic is like this:
+   *
+   * <pre>
+   * {@code
+   *
+   * Schema sourceComponentSchema = sourceSchema.getComponentSchema();
+   * Schema targetComponentSchema = targetSchema.getComponentSchema();
+   * Collection collection = new ArrayList(); // or this.instantiator.create() for collection type
+   * int len = decoder.readInt();
+   * while (len != 0) {
+   *   for (int i = 0; i < len; i++) {
+   *     collection.add(readComponent(decoder, sourceComponentSchema, targetComponentSchema));
+   *   }
+   *   len = decoder.readInt();
+   * }
+   * return collection; // or DatumReaders.toArray(collection, componentClass) for array type
+   * }
+   * </pre>
+   */
+  private void readArray(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                         int decoder, int sourceLocal, int targetLocal) {
+    TypeToken<?> componentType;
+    boolean isArray = inputType.isArray();
+    if (isArray) {
+      componentType = inputType.getComponentType();
+    } else {
+      Preconditions.checkArgument(Collection.class.isAssignableFrom(inputType.getRawType()),
+                                  "Only array or collection type is supported for array value.");
+      Preconditions.checkArgument(inputType.getType() instanceof ParameterizedType,
+                                  "Only support parameterized collection type.");
+      componentType = TypeToken.of(((ParameterizedType) inputType.getType()).getActualTypeArguments()[0]);
+    }
+
+    // Store the component schemas
+    int sourceComponentLocal = storeSchema(mg, sourceLocal, "getComponentSchema");
+    int targetComponentLocal = storeSchema(mg, targetLocal, "getComponentSchema");
+
+    // Create the collection
+    int collection = mg.newLocal(Type.getType(Collection.class));
+    if (isArray) {
+      mg.newInstance(Type.getType(ArrayList.class));
+      mg.dup();
+      mg.invokeConstructor(Type.getType(ArrayList.class), getMethod(void.class, "<init>"));
+    } else {
+      createInstance(mg, inputType.getRawType());
+      mg.checkCast(Type.getType(Collection.class));
+    }
+    mg.storeLocal(collection);
+
+    Method componentReadMethod = getReadMethod(componentType, sourceSchema.getComponentSchema(),
+                                               targetSchema.getComponentSchema());
+    readBlocks(mg, decoder, () -> {
+      // collection.add(readComponent(decoder, sourceComponentSchema, targetComponentSchema));
+      mg.loadLocal(collection);
+      mg.loadThis();
+      mg.loadArg(decoder);
+      mg.loadLocal(sourceComponentLocal);
+      mg.loadLocal(targetComponentLocal);
+      mg.invokeVirtual(classType, componentReadMethod);
+      doBox(mg, componentType);
+      mg.invokeInterface(Type.getType(Collection.class), getMethod(boolean.class, "add", Object.class));
+      mg.pop();
+    });
+
+    mg.loadLocal(collection);
+    if (isArray) {
+      loadClass(mg, componentType.getRawType());
+      mg.invokeStatic(Type.getType(DatumReaders.class),
+                      getMethod(Object.class, "toArray", Collection.class, Class.class));
+    }
+  }
+
+  /**
+   * Generates method body for reading map value. The logic is like this:
+   *
+   * <pre>
+   * {@code
+   *
+   * Map map = this.instantiator.create();
+   * int len = decoder.readInt();
+   * while (len != 0) {
+   *   for (int i = 0; i < len; i++) {
+   *     map.put(readKey(decoder, sourceKeySchema, targetKeySchema),
+   *             readValue(decoder, sourceValueSchema, targetValueSchema));
+   *   }
+   *   len = decoder.readInt();
+   * }
+   * return map;
+   * }
+   * </pre>
+   */
+  private void readMap(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                       int decoder, int sourceLocal, int targetLocal) {
+    Preconditions.checkArgument(Map.class.isAssignableFrom(inputType.getRawType()),
+                                "Only %s type is supported.", Map.class.getName());
+    Preconditions.checkArgument(inputType.getType() instanceof ParameterizedType,
+                                "Only support parameterized map type.");
+    java.lang.reflect.Type[] mapArgs = ((ParameterizedType) inputType.getType()).getActualTypeArguments();
+    TypeToken<?> keyType = TypeToken.of(mapArgs[0]);
+    TypeToken<?> valueType = TypeToken.of(mapArgs[1]);
+
+    // Stores the key and value schemas
+    int sourceKeyLocal = storeSchema(mg, sourceLocal, "getMapSchema", "getKey");
+    int sourceValueLocal = storeSchema(mg, sourceLocal, "getMapSchema", "getValue");
+    int targetKeyLocal = storeSchema(mg, targetLocal, "getMapSchema", "getKey");
+    int targetValueLocal = storeSchema(mg, targetLocal, "getMapSchema", "getValue");
+
+    int map = mg.newLocal(Type.getType(Map.class));
+    createInstance(mg, inputType.getRawType());
+    mg.checkCast(Type.getType(Map.class));
+    mg.storeLocal(map);
+
+    Map.Entry<Schema, Schema> sourceMapSchema = sourceSchema.getMapSchema();
+    Map.Entry<Schema, Schema> targetMapSchema = targetSchema.getMapSchema();
+    Method keyReadMethod = getReadMethod(keyType, sourceMapSchema.getKey(), targetMapSchema.getKey());
+    Method valueReadMethod = getReadMethod(valueType, sourceMapSchema.getValue(), targetMapSchema.getValue());
+
+    readBlocks(mg, decoder, () -> {
+      mg.loadLocal(map);
+
+      // read key
+      mg.loadThis();
+      mg.loadArg(decoder);
+      mg.loadLocal(sourceKeyLocal);
+      mg.loadLocal(targetKeyLocal);
+      mg.invokeVirtual(classType, keyReadMethod);
+      doBox(mg, keyType);
+
+      // read value
+      mg.loadThis();
+      mg.loadArg(decoder);
+      mg.loadLocal(sourceValueLocal);
+      mg.loadLocal(targetValueLocal);
+      mg.invokeVirtual(classType, valueReadMethod);
+      doBox(mg, valueType);
+
+      mg.invokeInterface(Type.getType(Map.class), getMethod(Object.class, "put", Object.class, Object.class));
+      mg.pop();
+    });
+
+    mg.loadLocal(map);
+  }
+
+  /**
+   * Generates the loop for reading the blocks of an array or map value.
+   *
+   * @param mg Method body generator
+   * @param decoder Method argument index of the decoder
+   * @param readElement Generates the code for reading one element
+   */
+  private void readBlocks(GeneratorAdapter mg, int decoder, Runnable readElement) {
+    // int len = decoder.readInt();
+    int len = mg.newLocal(Type.INT_TYPE);
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(int.class, "readInt"));
+    mg.storeLocal(len);
+
+    // while (len != 0)
+    Label beginWhile = mg.mark();
+    Label endWhile = mg.newLabel();
+    mg.loadLocal(len);
+    mg.ifZCmp(GeneratorAdapter.EQ, endWhile);
+
+    // for (int idx = 0; idx < len; idx++)
+    int idx = mg.newLocal(Type.INT_TYPE);
+    mg.push(0);
+    mg.storeLocal(idx);
+    Label beginFor = mg.mark();
+    Label endFor = mg.newLabel();
+    mg.loadLocal(idx);
+    mg.loadLocal(len);
+    mg.ifICmp(GeneratorAdapter.GE, endFor);
+
+    readElement.run();
+
+    mg.iinc(idx, 1);
+    mg.goTo(beginFor);
+    mg.mark(endFor);
+
+    // len = decoder.readInt();
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(int.class, "readInt"));
+    mg.storeLocal(len);
+    mg.goTo(beginWhile);
+    mg.mark(endWhile);
+  }
+
+  /**
+   * Generates method body for reading record value. Fields are set with {@link FieldAccessor} in the order of
+   * the source schema, and source fields that are not in the target schema are skipped.
+   *
+   * <pre>
+   * {@code
+   *
+   * Object record = this.instantiator.create();
+   * List sourceFields = sourceSchema.getFields();
+   * List targetFields = targetSchema.getFields();
+   * this.fieldAccessor.set(record, readField(decoder, sourceFields.get(i).getSchema(),
+   *                                          targetFields.get(j).getSchema()));
+   * DatumReaders.skip(decoder, sourceFields.get(k).getSchema());
+   * ...
+   * return record;
+   * }
+   * </pre>
+   */
+  private void readRecord(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                          int decoder, int sourceLocal, int targetLocal) {
+    try {
+      Class<?> rawType = inputType.getRawType();
+      Preconditions.checkArgument(!rawType.isInterface() && !rawType.isPrimitive(),
+                                  "Type %s cannot be read from record", inputType);
+
+      int record = mg.newLocal(Type.getType(Object.class));
+      createInstance(mg, rawType);
+      mg.storeLocal(record);
+
+      // Store the list of schema fields.
+      int sourceFields = storeFields(mg, sourceLocal);
+      int targetFields = storeFields(mg, targetLocal);
+
+      List<Schema.Field> targetFieldList = targetSchema.getFields();
+      List<Schema.Field> sourceFieldList = sourceSchema.getFields();
+      for (int i = 0; i < sourceFieldList.size(); i++) {
+        Schema.Field sourceField = sourceFieldList.get(i);
+        Schema.Field targetField = targetSchema.getField(sourceField.getName());
+
+        if (targetField == null) {
+          // DatumReaders.skip(decoder, sourceFields.get(i).getSchema());
+          mg.loadArg(decoder);
+          loadFieldSchema(mg, sourceFields, i);
+          mg.invokeStatic(Type.getType(DatumReaders.class),
+                          getMethod(void.class, "skip", Decoder.class, Schema.class));
+          continue;
+        }
+
+        TypeToken<?> fieldType = inputType.resolveType(Fields.findField(inputType.getType(),
+                                                                        sourceField.getName()).getGenericType());
+        fieldAccessorRequests.put(inputType, sourceField.getName());
+
+        // this.fieldAccessor.setXXX(record, readField(decoder, sourceFieldSchema, targetFieldSchema));
+        mg.loadThis();
+        mg.getField(classType, getFieldAccessorName(inputType, sourceField.getName()),
+                    Type.getType(FieldAccessor.class));
+        mg.loadLocal(record);
+        mg.loadThis();
+        mg.loadArg(decoder);
+        loadFieldSchema(mg, sourceFields, i);
+        loadFieldSchema(mg, targetFields, targetFieldList.indexOf(targetField));
+        mg.invokeVirtual(classType, getReadMethod(fieldType, sourceField.getSchema(), targetField.getSchema()));
+        mg.invokeInterface(Type.getType(FieldAccessor.class), getAccessorMethod(fieldType));
+      }
+
+      mg.loadLocal(record);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Generates method body for reading value encoded with union schema. Each branch of the source union is
+   * resolved to the target schema, preferring the target union branch at the same index.
+   *
+   * <pre>
+   * {@code
+   *
+   * switch (decoder.readInt()) {
+   *   case 0:
+   *     return readBranch0(decoder, sourceSchema.getUnionSchema(0), targetSchema.getUnionSchema(0));
+   *   case 1:
+   *     return readBranch1(decoder, sourceSchema.getUnionSchema(1), targetSchema.getUnionSchema(1));
+   *   default:
+   *     throw new IOException("Invalid union index.");
+   * }
+   * }
+   * </pre>
+   */
+  private void readUnion(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                         int decoder, int sourceLocal, int targetLocal) {
+    List<Schema> sourceBranches = sourceSchema.getUnionSchemas();
+    int[] keys = new int[sourceBranches.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i;
+    }
+
+    mg.loadArg(decoder);
+    mg.invokeInterface(Type.getType(Decoder.class), getMethod(int.class, "readInt"));
+    mg.tableSwitch(keys, new TableSwitchGenerator() {
+      @Override
+      public void generateCase(int key, Label end) {
+        Schema sourceBranch = sourceBranches.get(key);
+        int targetIdx = -1;
+        Schema targetBranch = targetSchema;
+        if (targetSchema.getType() == Schema.Type.UNION) {
+          targetIdx = findUnionBranch(sourceBranch, targetSchema, key);
+          if (targetIdx < 0) {
+            throwResolveException(mg, sourceBranch, targetSchema);
+            return;
+          }
+          targetBranch = targetSchema.getUnionSchema(targetIdx);
+        } else if (!canResolve(sourceBranch, targetSchema)) {
+          throwResolveException(mg, sourceBranch, targetSchema);
+          return;
+        }
+
+        mg.loadThis();
+        mg.loadArg(decoder);
+        mg.loadArg(sourceLocal);
+        mg.push(key);
+        mg.invokeVirtual(Type.getType(Schema.class), getMethod(Schema.class, "getUnionSchema", int.class));
+        mg.loadArg(targetLocal);
+        if (targetIdx >= 0) {
+          mg.push(targetIdx);
+          mg.invokeVirtual(Type.getType(Schema.class), getMethod(Schema.class, "getUnionSchema", int.class));
+        }
+        mg.invokeVirtual(classType, getReadMethod(inputType, sourceBranch, targetBranch));
+        mg.goTo(end);
+      }
+
+      @Override
+      public void generateDefault() {
+        mg.throwException(Type.getType(IOException.class), "Invalid union index.");
+      }
+    });
+  }
+
+  /**
+   * Generates method body for reading non-union value with union target schema. The first target union branch
+   * that the source schema can be resolved to is used.
+   */
+  private void readIntoUnion(GeneratorAdapter mg, TypeToken<?> inputType, Schema sourceSchema, Schema targetSchema,
+                             int decoder, int sourceLocal, int targetLocal) {
+    int targetIdx = findUnionBranch(sourceSchema, targetSchema, -1);
+    if (targetIdx < 0) {
+      throwResolveException(mg, sourceSchema, targetSchema);
+      return;
+    }
+
+    // return readBranch(decoder, sourceSchema, targetSchema.getUnionSchema(targetIdx));
+    mg.loadThis();
+    mg.loadArg(decoder);
+    mg.loadArg(sourceLocal);
+    mg.loadArg(targetLocal);
+    mg.push(targetIdx);
+    mg.invokeVirtual(Type.getType(Schema.class), getMethod(Schema.class, "getUnionSchema", int.class));
+    mg.invokeVirtual(classType, getReadMethod(inputType, sourceSchema, targetSchema.getUnionSchema(targetIdx)));
+  }
+
+  /**
+   * Finds the branch of the target union schema that the source schema resolves to.
+   *
+   * @param sourceSchema Schema of the source value, which is not a union.
+   * @param targetSchema Target union schema.
+   * @param preferredIdx Index of the branch to try first, if it has the same type as the source schema.
+   * @return Index of the target branch, or {@code -1} if the source schema cannot be resolved to any branch.
+   */
+  private int findUnionBranch(Schema sourceSchema, Schema targetSchema, int preferredIdx) {
+    List<Schema> targetBranches = targetSchema.getUnionSchemas();
+    if (preferredIdx >= 0 && preferredIdx < targetBranches.size()
+      && targetBranches.get(preferredIdx).getType() == sourceSchema.getType()) {
+      return preferredIdx;
+    }
+    for (int i = 0; i < targetBranches.size(); i++) {
+      if (canResolve(sourceSchema, targetBranches.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns whether a value of the source schema can be resolved to the target schema, with the same rules as
+   * {@link ReflectionReader}. Only the schema types are compared for complex schemas, the nested schemas are
+   * resolved when reading the nested values.
+   */
+  private boolean canResolve(Schema sourceSchema, Schema targetSchema) {
+    if (sourceSchema.getType() == Schema.Type.UNION) {
+      for (Schema schema : sourceSchema.getUnionSchemas()) {
+        if (canResolve(schema, targetSchema)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (targetSchema.getType() == Schema.Type.UNION) {
+      return findUnionBranch(sourceSchema, targetSchema, -1) >= 0;
+    }
+
+    Schema.Type targetType = targetSchema.getType();
+    switch (sourceSchema.getType()) {
+      case BOOLEAN:
+        return targetType == Schema.Type.BOOLEAN || targetType == Schema.Type.STRING;
+      case INT:
+        return targetType == Schema.Type.INT || targetType == Schema.Type.LONG || targetType == Schema.Type.FLOAT
+          || targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      case LONG:
+        return targetType == Schema.Type.LONG || targetType == Schema.Type.FLOAT
+          || targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      case FLOAT:
+        return targetType == Schema.Type.FLOAT || targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      case DOUBLE:
+        return targetType == Schema.Type.DOUBLE || targetType == Schema.Type.STRING;
+      default:
+        return sourceSchema.getType() == targetType;
+    }
+  }
+
+  private void throwResolveException(GeneratorAdapter mg, Schema sourceSchema, Schema targetSchema) {
+    // Only include the schema types to keep the constant small
+    mg.throwException(Type.getType(IOException.class),
+                      String.format("Fail to resolve %s to %s", sourceSchema.getType(), targetSchema.getType()));
+  }
+
+  /**
+   * Stores the schema returned by calling the given getter methods on the schema argument in a new local.
+   * Getters after the first one are called on {@link Map.Entry}, for getting the map key and value schema.
+   */
+  private int storeSchema(GeneratorAdapter mg, int schemaArg, String getter, String... entryGetters) {
+    mg.loadArg(schemaArg);
+    if (entryGetters.length == 0) {
+      mg.invokeVirtual(Type.getType(Schema.class), getMethod(Schema.class, getter));
+    } else {
+      mg.invokeVirtual(Type.getType(Schema.class), getMethod(Map.Entry.class, getter));
+      for (String entryGetter : entryGetters) {
+        mg.invokeInterface(Type.getType(Map.Entry.class), getMethod(Object.class, entryGetter));
+        mg.checkCast(Type.getType(Schema.class));
+      }
+    }
+    int local = mg.newLocal(Type.getType(Schema.class));
+    mg.storeLocal(local);
+    return local;
+  }
+
+  private int storeFields(GeneratorAdapter mg, int schemaArg) {
+    mg.loadArg(schemaArg);
+    mg.invokeVirtual(Type.getType(Schema.class), getMethod(List.class, "getFields"));
+    int local = mg.newLocal(Type.getType(List.class));
+    mg.storeLocal(local);
+    return local;
+  }
+
+  /**
+   * Generates code for loading {@code fields.get(idx).getSchema()}.
+   */
+  private void loadFieldSchema(GeneratorAdapter mg, int fields, int idx) {
+    mg.loadLocal(fields);
+    mg.push(idx);
+    mg.invokeInterface(Type.getType(List.class), getMethod(Object.class, "get", int.class));
+    mg.checkCast(Type.getType(Schema.Field.class));
+    mg.invokeVirtual(Type.getType(Schema.Field.class), getMethod(Schema.class, "getSchema"));
+  }
+
+  /**
+   * Generates code for creating a new instance of the given type with the {@link Instantiator} of the type.
+   */
+  private void createInstance(GeneratorAdapter mg, Class<?> type) {
+    instantiatorRequests.add(type);
+    mg.loadThis();
+    mg.getField(classType, getInstantiatorName(type), Type.getType(Instantiator.class));
+    mg.invokeInterface(Type.getType(Instantiator.class), getMethod(Object.class, "create"));
+  }
+
+  /**
+   * Generates code for loading the {@link Class} of the given type.
+   */
+  private void loadClass(GeneratorAdapter mg, Class<?> type) {
+    if (type.isPrimitive()) {
+      mg.getStatic(Type.getType(Primitives.wrap(type)), "TYPE", Type.getType(Class.class));
+      return;
+    }
+    classRequests.add(type);
+    mg.loadThis();
+    mg.getField(classType, getClassFieldName(type), Type.getType(Class.class));
+  }
+
+  /**
+   * Generates code for calling {@link Class#forName(String)} for the given type.
+   */
+  private void loadClassForName(GeneratorAdapter mg, Class<?> type) {
+    // Type might be defined by the user, hence need to preserve class loading of it
+    Class<?> elementType = type;
+    while (elementType.isArray()) {
+      elementType = elementType.getComponentType();
+    }
+    if (!elementType.isPrimitive()) {
+      preservedClasses.add(elementType);
+    }
+    mg.push(type.getName());
+    mg.invokeStatic(Type.getType(Class.class), getMethod(Class.class, "forName", String.class));
+  }
+
+  /**
+   * Boxes the value on the stack if the call type of the given type is primitive.
+   */
+  private void doBox(GeneratorAdapter mg, TypeToken<?> inputType) {
+    Class<?> callType = getCallType(inputType);
+    if (callType.isPrimitive()) {
+      mg.valueOf(Type.getType(callType));
+    }
+  }
+
+  private <T> TypeToken<DatumReader<T>> getInterfaceType(TypeToken<T> type) {
+    return new TypeToken<DatumReader<T>>() {
+    }.where(new TypeParameter<T>() {
+    }, type);
+  }
+
+  private String getClassName(TypeToken<?> interfaceType, Schema schema, Schema sourceSchema) {
+    return String.format("%s/%s%s%s%s",
+                         interfaceType.getRawType().getPackage().getName().replace('.', '/'),
+                         normalizeTypeName(TypeToken.of(((ParameterizedType) interfaceType.getType())
+                                                          .getActualTypeArguments()[0])),
+                         interfaceType.getRawType().getSimpleName(), schema.getSchemaHash(),
+                         sourceSchema.getSchemaHash());
+  }
+
+  private String normalizeTypeName(TypeToken<?> type) {
+    String typeName = type.toString();
+    int dimension = 0;
+    while (type.isArray()) {
+      type = type.getComponentType();
+      typeName = type.toString();
+      dimension++;
+    }
+
+    typeName = typeName.replace(".", "")
+                        .replace("<", "Of")
+                        .replace(">", "")
+                        .replace(",", "To")
+                        .replace(" ", "")
+                        .replace("$", "");
+    if (dimension > 0) {
+      typeName = "Array" + dimension + typeName;
+    }
+    return typeName;
+  }
+
+  private Method getMethod(Class<?> returnType, String name, Class<?>...args) {
+    return Methods.getMethod(returnType, name, args);
+  }
+
+  /**
+   * Returns the return type of the read method. Primitive values are returned as is, all other values are returned
+   * as {@link Object}, so that the generated class doesn't need access to private classes.
+   */
+  private Class<?> getCallType(TypeToken<?> inputType) {
+    Class<?> rawType = inputType.getRawType();
+    return rawType.isPrimitive() ? rawType : Object.class;
+  }
+
+  /**
+   * Returns the Java type returned by the {@link Decoder} for the given simple schema type.
+   */
+  private Class<?> getValueType(Schema.Type schemaType) {
+    switch (schemaType) {
+      case BOOLEAN:
+        return boolean.class;
+      case INT:
+        return int.class;
+      case LONG:
+        return long.class;
+      case FLOAT:
+        return float.class;
+      case DOUBLE:
+        return double.class;
+      case STRING:
+        return String.class;
+    }
+    throw new IllegalArgumentException("Not a simple schema type " + schemaType);
+  }
+
+  private String getDecodeMethodName(Schema.Type schemaType) {
+    if (schemaType == Schema.Type.BOOLEAN) {
+      return "readBool";
+    }
+    return "read" + schemaType.name().charAt(0) + schemaType.name().substring(1).toLowerCase();
+  }
+
+  /**
+   * Returns the method for setting value with {@link FieldAccessor} based on the data type.
+   * @param type Data type.
+   * @return A {@link Method} for calling {@link FieldAccessor}.
+   */
+  private Method getAccessorMethod(TypeToken<?> type) {
+    Class<?> rawType = type.getRawType();
+    if (rawType.isPrimitive()) {
+      return getMethod(void.class,
+                       String.format("set%c%s",
+                                     Character.toUpperCase(rawType.getName().charAt(0)),
+                                     rawType.getName().substring(1)),
+                       Object.class, rawType);
+    } else {
+      return getMethod(void.class, "set", Object.class, Object.class);
+    }
+  }
+
+  /**
+   * Generates the name of the class field for storing {@link FieldAccessor} for the given record field.
+   * @param recordType Type of the record.
+   * @param fieldName name of the field.
+   * @return name of the class field.
+   */
+  private String getFieldAccessorName(TypeToken<?> recordType, String fieldName) {
+    return String.format("%s$%s", normalizeTypeName(recordType), fieldName);
+  }
+
+  /**
+   * Generates the name of the class field for storing {@link Instantiator} for the given type.
+   */
+  private String getInstantiatorName(Class<?> type) {
+    return String.format("instantiator$%s", normalizeTypeName(TypeToken.of(type)));
+  }
+
+  /**
+   * Generates the name of the class field for storing the {@link Class} of the given type.
+   */
+  private String getClassFieldName(Class<?> type) {
+    return String.format("class$%s", normalizeTypeName(TypeToken.of(type)));
+  }
+}
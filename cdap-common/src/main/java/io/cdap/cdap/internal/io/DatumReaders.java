@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.io;
+
+import com.google.common.primitives.Longs;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.common.io.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Helper methods called by the {@link DatumReader} classes generated by {@link DatumReaderGenerator}.
+ * The methods are public because the generated classes are defined in a different package.
+ */
+public final class DatumReaders {
+
+  /**
+   * Returns the remaining bytes of the given buffer as a byte array.
+   */
+  public static byte[] toByteArray(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      byte[] array = buffer.array();
+      if (buffer.remaining() == array.length) {
+        return array;
+      }
+      byte[] bytes = new byte[buffer.remaining()];
+      System.arraycopy(array, buffer.arrayOffset() + buffer.position(), bytes, 0, buffer.remaining());
+      return bytes;
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Returns a {@link UUID} created from the given buffer, or the buffer itself if it doesn't contain a {@link UUID}.
+   */
+  public static Object toUUID(ByteBuffer buffer) {
+    if (buffer.remaining() == Longs.BYTES * 2) {
+      return new UUID(buffer.getLong(), buffer.getLong());
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the constant of the given enum type with the given name.
+   *
+   * @throws IOException if there is no such constant in the enum type
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public static Object toEnum(Class<?> enumType, @Nullable String value) throws IOException {
+    if (value == null) {
+      throw new IOException("Invalid enum index for " + enumType.getName());
+    }
+    try {
+      return Enum.valueOf((Class) enumType, value);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(String.format("Enum value '%s' missing in target.", value), e);
+    }
+  }
+
+  /**
+   * Copies the elements of the given collection into a new array of the given component type.
+   */
+  public static Object toArray(Collection<?> collection, Class<?> componentType) {
+    Object array = Array.newInstance(componentType, collection.size());
+    int idx = 0;
+    for (Object obj : collection) {
+      Array.set(array, idx++, obj);
+    }
+    return array;
+  }
+
+  /**
+   * Skips a value of the given schema in the decoder.
+   */
+  public static void skip(Decoder decoder, Schema schema) throws IOException {
+    switch (schema.getType()) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        decoder.readBool();
+        break;
+      case INT:
+      case ENUM:
+        decoder.readInt();
+        break;
+      case LONG:
+        decoder.readLong();
+        break;
+      case FLOAT:
+        decoder.skipFloat();
+        break;
+      case DOUBLE:
+        decoder.skipDouble();
+        break;
+      case BYTES:
+        decoder.skipBytes();
+        break;
+      case STRING:
+        decoder.skipString();
+        break;
+      case ARRAY:
+        skipArray(decoder, schema.getComponentSchema());
+        break;
+      case MAP:
+        skipMap(decoder, schema.getMapSchema());
+        break;
+      case RECORD:
+        for (Schema.Field field : schema.getFields()) {
+          skip(decoder, field.getSchema());
+        }
+        break;
+      case UNION:
+        skip(decoder, schema.getUnionSchema(decoder.readInt()));
+        break;
+    }
+  }
+
+  private static void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
+    int len = decoder.readInt();
+    while (len != 0) {
+      for (int i = 0; i < len; i++) {
+        skip(decoder, componentSchema);
+      }
+      len = decoder.readInt();
+    }
+  }
+
+  private static void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
+    int len = decoder.readInt();
+    while (len != 0) {
+      for (int i = 0; i < len; i++) {
+        skip(decoder, mapSchema.getKey());
+        skip(decoder, mapSchema.getValue());
+      }
+      len = decoder.readInt();
+    }
+  }
+
+  private DatumReaders() {}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.io;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.DatumReader;
+import io.cdap.cdap.internal.io.ASMDatumReaderFactory;
+import io.cdap.cdap.internal.io.ASMDatumWriterFactory;
+import io.cdap.cdap.internal.io.ASMFieldAccessorFactory;
+import io.cdap.cdap.internal.io.ReflectionDatumReader;
+import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ASMDatumReaderFactory}.
+ */
+public class ASMDatumReaderFactoryTest {
+
+  private static final ASMDatumWriterFactory DATUM_WRITER_FACTORY
+    = new ASMDatumWriterFactory(new ASMFieldAccessorFactory());
+  private static final ASMDatumReaderFactory DATUM_READER_FACTORY
+    = new ASMDatumReaderFactory(new ASMFieldAccessorFactory());
+
+  /**
+   *
+   */
+  public enum TestEnum {
+    VALUE1, VALUE2, VALUE3, VALUE4
+  }
+
+  @Test
+  public void testSimpleTypes() throws IOException, UnsupportedTypeException {
+    Assert.assertEquals((short) 3000, (short) readWrite(new TypeToken<Short>() { }, (short) 3000));
+    Assert.assertEquals(12345, (int) readWrite(new TypeToken<Integer>() { }, 12345));
+    Assert.assertEquals(Long.MIN_VALUE, (long) readWrite(new TypeToken<Long>() { }, Long.MIN_VALUE));
+    Assert.assertEquals(3.14d, readWrite(new TypeToken<Double>() { }, 3.14d), 0.0001d);
+    Assert.assertEquals("Testing message", readWrite(new TypeToken<String>() { }, "Testing message"));
+    Assert.assertEquals('c', (char) readWrite(new TypeToken<Character>() { }, 'c'));
+    Assert.assertTrue(readWrite(new TypeToken<Boolean>() { }, true));
+
+    UUID uuid = UUID.randomUUID();
+    Assert.assertEquals(uuid, readWrite(new TypeToken<UUID>() { }, uuid));
+    Assert.assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3}),
+                        readWrite(new TypeToken<ByteBuffer>() { }, ByteBuffer.wrap(new byte[] {1, 2, 3})));
+    Assert.assertEquals(TestEnum.VALUE3, readWrite(new TypeToken<TestEnum>() { }, TestEnum.VALUE3));
+    Assert.assertEquals(URI.create("http://www.abc.com"),
+                        readWrite(new TypeToken<URI>() { }, URI.create("http://www.abc.com")));
+  }
+
+  @Test
+  public void testArrays() throws IOException, UnsupportedTypeException {
+    int[] intArray = {1, 2, 3, 4, -5, -6, -7, -8};
+    Assert.assertArrayEquals(intArray, readWrite(new TypeToken<int[]>() { }, intArray));
+    Assert.assertArrayEquals(new int[0], readWrite(new TypeToken<int[]>() { }, new int[0]));
+
+    byte[] bytes = {1, 2, 3};
+    Assert.assertArrayEquals(bytes, readWrite(new TypeToken<byte[]>() { }, bytes));
+
+    String[] stringArray = {"1", "2", null, "3"};
+    Assert.assertArrayEquals(stringArray, readWrite(new TypeToken<String[]>() { }, stringArray));
+
+    Record[][] recordArray = {{new Record(10, "testing", ImmutableList.of("a", "b", "c"), TestEnum.VALUE2)}};
+    Assert.assertArrayEquals(recordArray, readWrite(new TypeToken<Record[][]>() { }, recordArray));
+  }
+
+  @Test
+  public void testCollections() throws IOException, UnsupportedTypeException {
+    List<Long> list = ImmutableList.of(1L, 10L, 100L, 1000L);
+    Assert.assertEquals(list, readWrite(new TypeToken<List<Long>>() { }, list));
+
+    Map<String, List<String>> map = ImmutableMap.<String, List<String>>of("k1", Lists.newArrayList("v1"),
+                                                                          "k2", Lists.newArrayList("v2", null));
+    Assert.assertEquals(map, readWrite(new TypeToken<Map<String, List<String>>>() { }, map));
+
+    List<URI> uris = ImmutableList.of(URI.create("http://www.abc.com"));
+    Assert.assertEquals(uris, readWrite(new TypeToken<List<URI>>() { }, uris));
+  }
+
+  @Test
+  public void testRecords() throws IOException, UnsupportedTypeException {
+    Record record = new Record(10, "testing", ImmutableList.of("a", "b", "c"), TestEnum.VALUE2);
+    Assert.assertEquals(record, readWrite(new TypeToken<Record>() { }, record));
+
+    List<Record> records = ImmutableList.of(record, new Record(20, "testing2", ImmutableList.of(), TestEnum.VALUE4));
+    Assert.assertEquals(records, readWrite(new TypeToken<List<Record>>() { }, records));
+
+    Node root = createTree();
+    Assert.assertEquals(root, readWrite(new TypeToken<Node>() { }, root));
+  }
+
+  @Test
+  public void testSchemaEvolution() throws IOException, UnsupportedTypeException {
+    TypeToken<RecordV1> sourceType = new TypeToken<RecordV1>() { };
+    Schema sourceSchema = getSchema(sourceType);
+    TypeToken<RecordV2> targetType = new TypeToken<RecordV2>() { };
+    Schema targetSchema = getSchema(targetType);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(os);
+    DATUM_WRITER_FACTORY.create(sourceType, sourceSchema)
+      .encode(new RecordV1(1, 2.5f, 3L, ImmutableList.of("x", "y"), "name", TestEnum.VALUE2), encoder);
+    DATUM_WRITER_FACTORY.create(sourceType, sourceSchema)
+      .encode(new RecordV1(4, 5.5f, 6L, ImmutableList.of(), null, TestEnum.VALUE4), encoder);
+
+    DatumReader<RecordV2> reader = DATUM_READER_FACTORY.create(targetType, targetSchema);
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(os.toByteArray()));
+
+    // Fields are promoted to the target types, and the removed field is skipped
+    RecordV2 record = reader.read(decoder, sourceSchema);
+    Assert.assertEquals(1L, record.i);
+    Assert.assertEquals(2.5d, record.f, 0.0001d);
+    Assert.assertEquals("3", record.l);
+    Assert.assertEquals("name", record.name);
+    Assert.assertEquals(TestEnum.VALUE2, record.e);
+    Assert.assertNull(record.added);
+
+    record = reader.read(decoder, sourceSchema);
+    Assert.assertEquals(4L, record.i);
+    Assert.assertEquals(5.5d, record.f, 0.0001d);
+    Assert.assertEquals("6", record.l);
+    Assert.assertNull(record.name);
+    Assert.assertEquals(TestEnum.VALUE4, record.e);
+
+    // The same reader can read data encoded with the target schema
+    RecordV2 value = new RecordV2();
+    value.i = 7L;
+    value.f = 8.5d;
+    value.l = "9";
+    value.added = "added";
+    os.reset();
+    DATUM_WRITER_FACTORY.create(targetType, targetSchema).encode(value, new BinaryEncoder(os));
+    record = reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), targetSchema);
+    Assert.assertEquals(7L, record.i);
+    Assert.assertEquals("added", record.added);
+  }
+
+  @Test (expected = IOException.class)
+  public void testUnresolvableSchema() throws IOException, UnsupportedTypeException {
+    TypeToken<String> sourceType = new TypeToken<String>() { };
+    Schema sourceSchema = getSchema(sourceType);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    DATUM_WRITER_FACTORY.create(sourceType, sourceSchema).encode("string", new BinaryEncoder(os));
+
+    TypeToken<Integer> targetType = new TypeToken<Integer>() { };
+    DATUM_READER_FACTORY.create(targetType, getSchema(targetType))
+      .read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())), sourceSchema);
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws UnsupportedTypeException, IOException {
+    TypeToken<Node> type = new TypeToken<Node>() { };
+    Schema schema = getSchema(type);
+    ByteArrayOutputStream os = new ByteArrayOutputStream(1024);
+    DATUM_WRITER_FACTORY.create(type, schema).encode(createTree(), new BinaryEncoder(os));
+    byte[] bytes = os.toByteArray();
+
+    // Run each reader twice to warm up
+    for (int i = 0; i < 2; i++) {
+      DatumReader<Node> reader = DATUM_READER_FACTORY.create(type, schema);
+      long startTime = System.nanoTime();
+      for (int j = 0; j < 100000; j++) {
+        reader.read(new BinaryDecoder(new ByteArrayInputStream(bytes)), schema);
+      }
+      long endTime = System.nanoTime();
+      System.out.println("ASM time spent: " + TimeUnit.NANOSECONDS.toMillis(endTime - startTime));
+
+      reader = new ReflectionDatumReader<>(schema, type);
+      startTime = System.nanoTime();
+      for (int j = 0; j < 100000; j++) {
+        reader.read(new BinaryDecoder(new ByteArrayInputStream(bytes)), schema);
+      }
+      endTime = System.nanoTime();
+      System.out.println("Reflection time spent: " + TimeUnit.NANOSECONDS.toMillis(endTime - startTime));
+    }
+  }
+
+  private <T> Schema getSchema(TypeToken<T> type) throws UnsupportedTypeException {
+    return new ReflectionSchemaGenerator().generate(type.getType());
+  }
+
+  private <T> T readWrite(TypeToken<T> type, T value) throws IOException, UnsupportedTypeException {
+    Schema schema = getSchema(type);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    DATUM_WRITER_FACTORY.create(type, schema).encode(value, new BinaryEncoder(os));
+    return DATUM_READER_FACTORY.create(type, schema).read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())),
+                                                          schema);
+  }
+
+  private Node createTree() {
+    return new Node((short) 1,
+                    new Node((short) 2, null, new Node((short) 3, null, null)),
+                    new Node((short) 4, new Node((short) 5, null, null), null));
+  }
+
+  private static class Record {
+    private int i;
+    private String s;
+    private List<String> list;
+    private TestEnum e;
+
+    Record(int i, String s, List<String> list, TestEnum e) {
+      this.i = i;
+      this.s = s;
+      this.list = list;
+      this.e = e;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Record record = (Record) o;
+
+      return i == record.i && e == record.e && list.equals(record.list) && s.equals(record.s);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(i, s, list, e);
+    }
+  }
+
+  private static final class RecordV1 {
+    private int i;
+    private float f;
+    private long l;
+    private List<String> removed;
+    private String name;
+    private TestEnum e;
+
+    RecordV1(int i, float f, long l, List<String> removed, String name, TestEnum e) {
+      this.i = i;
+      this.f = f;
+      this.l = l;
+      this.removed = removed;
+      this.name = name;
+      this.e = e;
+    }
+  }
+
+  private static final class RecordV2 {
+    private TestEnum e;
+    private String name;
+    private long i;
+    private double f;
+    private String l;
+    private String added;
+  }
+
+  /**
+   *
+   */
+  public static final class Node {
+    public short data;
+    public Short boxedData;
+    public Node left;
+    public Node right;
+
+    // Used by the readers, so that creating instances through Unsafe doesn't dominate testSpeed
+    public Node() {
+    }
+
+    public Node(short data, Node left, Node right) {
+      this.data = data;
+      this.boxedData = data;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Node node = (Node) o;
+
+      return data == node.data && Objects.equal(boxedData, node.boxedData)
+               && Objects.equal(left, node.left) && Objects.equal(right, node.right);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(data, left, right);
+    }
+  }
+}
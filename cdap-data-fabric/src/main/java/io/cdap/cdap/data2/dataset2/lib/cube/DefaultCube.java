@@ -16,7 +16,9 @@
 
 package io.cdap.cdap.data2.dataset2.lib.cube;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
@@ -24,7 +26,6 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
 import io.cdap.cdap.api.dataset.lib.cube.AggregationOption;
@@ -58,17 +59,30 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
  * Default implementation of {@link io.cdap.cdap.api.dataset.lib.cube.Cube}.
+ *
+ * A query is executed as scans over consecutive time ranges aligned to the fact table roll time. The scans
+ * can run in parallel, and the results of time ranges that are old enough can be cached, so that repeated
+ * queries don't need to scan them again. Since facts can be added by other processes, cached results are
+ * keyed by the modification version stored in the fact table, which is changed whenever facts are added to or
+ * deleted from cacheable time ranges.
  */
 public class DefaultCube implements Cube, MeteredDataset {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultCube.class);
@@ -78,11 +92,21 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
   private static final EnumSet<AggregationOption> PARTITION_AGG_OPTIONS = EnumSet.of(AggregationOption.LATEST,
                                                                                      AggregationOption.SUM);
+  // maximum number of time ranges a query is split into
+  private static final int MAX_SUB_SCANS = 32;
 
   private final Map<Integer, FactTable> resolutionToFactTable;
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
   private final ExecutorService executorService;
+  private final FactTableSupplier factTableSupplier;
+  // shared executor for running sub-scans of a query in parallel, null if queries are not executed in parallel
+  @Nullable
+  private final ExecutorService queryExecutor;
+  // FactTable instances for sub-scans running in the query executor, since FactTable is not thread safe
+  private final Map<Integer, Queue<FactTable>> queryFactTables;
+  // cache of sub-scan results per resolution, empty if caching is disabled
+  private final Map<Integer, Cache<SubScanKey, SubScanResult>> queryCaches;
 
   @Nullable
   private MetricsCollector metrics;
@@ -90,15 +114,49 @@ public class DefaultCube implements Cube, MeteredDataset {
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, null, 0);
+  }
+
+  /**
+   * Creates a {@link DefaultCube} that can execute queries in parallel and cache query results.
+   *
+   * @param resolutions resolutions of the cube
+   * @param factTableSupplier the {@link FactTableSupplier} for creating {@link FactTable}. If queryExecutor is
+   *                          provided, it must return a new {@link FactTable} instance on every call
+   * @param aggregations the aggregations of the cube
+   * @param aggregationAliasMap aliases of the aggregations
+   * @param queryExecutor executor for running the scans of queries in parallel, or {@code null} to run them in the
+   *                      calling thread. It can be shared and is not shut down when this cube is closed
+   * @param queryCacheSize maximum number of scan results to cache for each resolution, or 0 to disable caching.
+   *                       Caching has to be enabled on all cubes adding facts to the same tables, since facts added
+   *                       by a cube without caching don't change the modification version of the tables
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     Map<String, AggregationAlias> aggregationAliasMap,
+                     @Nullable ExecutorService queryExecutor, int queryCacheSize) {
     this.aggregations = aggregations;
+    this.factTableSupplier = factTableSupplier;
     this.resolutionToFactTable = Maps.newHashMap();
+    this.queryFactTables = new ConcurrentHashMap<>();
+    this.queryCaches = new HashMap<>();
     for (int resolution : resolutions) {
-      resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
+      FactTable factTable = factTableSupplier.get(resolution, 3600);
+      resolutionToFactTable.put(resolution, factTable);
+      queryFactTables.put(resolution, new ConcurrentLinkedQueue<>());
+      if (queryCacheSize > 0 && resolution != Integer.MAX_VALUE) {
+        // Results cached with an old modification version are never used, hence expire them after one roll time
+        queryCaches.put(resolution, CacheBuilder.newBuilder()
+          .maximumSize(queryCacheSize)
+          .expireAfterWrite(factTable.getRollTime(), TimeUnit.SECONDS)
+          .build());
+      }
     }
     this.aggregationAliasMap = aggregationAliasMap;
     this.executorService = new ThreadPoolExecutor(0, resolutions.length, 30, TimeUnit.SECONDS,
                                                   new LinkedBlockingQueue<>(),
                                                   Threads.createDaemonThreadFactory("metrics-table-%d"));
+    this.queryExecutor = queryExecutor;
   }
 
   @Override
@@ -162,6 +220,21 @@ public class DefaultCube implements Cube, MeteredDataset {
       throw new RuntimeException(failedMessage.append(".").toString(), failedException);
     }
 
+    // Facts written to time ranges that may be cached, by this or other processes, change the modification version.
+    // The time range of one more interval is included to tolerate clock differences between processes.
+    long minTs = Long.MAX_VALUE;
+    for (Fact fact : toWrite) {
+      minTs = Math.min(minTs, fact.getTimestamp());
+    }
+    for (int resolution : queryCaches.keySet()) {
+      FactTable factTable = resolutionToFactTable.get(resolution);
+      long interval = Math.max(factTable.getRollTime(), resolution);
+      // facts are stored with the timestamp rounded down to the resolution
+      if (minTs / resolution * resolution <= getMaxCacheableTs(factTable, resolution) + interval) {
+        factTable.updateModificationVersion();
+      }
+    }
+
     incrementMetric("cube.cubeFact.add.request.count", 1);
     incrementMetric("cube.cubeFact.added.count", facts.size());
     incrementMetric("cube.tsFact.created.count", toWrite.size());
@@ -252,10 +325,8 @@ public class DefaultCube implements Cube, MeteredDataset {
     FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(),
                                  query.getMeasurements().keySet(), dimensionValues);
 
-    // 3) execute scan query
-    FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    // 3) execute scans over the time ranges of the query
+    Map<SeriesKey, List<TimeBlock>> resultMap = getTimeSeries(query, aggName, scan);
 
     incrementMetric("cube.query.request.success.count", 1);
     incrementMetric("cube.query.result.size", resultMap.size());
@@ -283,6 +354,9 @@ public class DefaultCube implements Cube, MeteredDataset {
         factTable.delete(scan);
       }
     }
+    if (queryCaches.containsKey(query.getResolution())) {
+      resolutionToFactTable.get(query.getResolution()).updateModificationVersion();
+    }
   }
 
   @Override
@@ -346,6 +420,11 @@ public class DefaultCube implements Cube, MeteredDataset {
     for (FactTable factTable : resolutionToFactTable.values()) {
       factTable.setMetricsCollector(metrics);
     }
+    for (Queue<FactTable> factTables : queryFactTables.values()) {
+      for (FactTable factTable : factTables) {
+        factTable.setMetricsCollector(metrics);
+      }
+    }
   }
 
   private void incrementMetric(String metricName, long value) {
@@ -374,131 +453,277 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
-    // {dimension values, measure} -> {time -> value}s
-    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
-
-    int count = 0;
-    while (scanner.hasNext()) {
-      FactScanResult next = scanner.next();
-      incrementMetric("cube.query.scan.records.count", 1);
-
-      boolean skip = false;
-      // using tree map, as we are using it as a key for a map
-      Map<String, String> seriesDimensions = Maps.newTreeMap();
-      for (String dimensionName : query.getGroupByDimensions()) {
-        // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
-        for (DimensionValue dimensionValue : next.getDimensionValues()) {
-          if (dimensionName.equals(dimensionValue.getName())) {
-            if (dimensionValue.getValue() == null) {
-              // Currently, we do NOT return null as grouped by value.
-              // Depending on whether dimension is required or not the records with null value in it may or may not be
-              // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
-              // potentially null may or may not be included in results, depending on the aggregation selected
-              // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
-              // so don't return nulls in any of those cases.
-              skip = true;
-              continue;
-            }
-            seriesDimensions.put(dimensionName, dimensionValue.getValue());
-            break;
+  /**
+   * Executes the given scan for the query and returns the aggregated time values of each time series.
+   */
+  private Map<SeriesKey, List<TimeBlock>> getTimeSeries(CubeQuery query, String aggName, FactScan scan) {
+    int resolution = query.getResolution();
+    FactTable table = resolutionToFactTable.get(resolution);
+    Cache<SubScanKey, SubScanResult> cache = queryCaches.get(resolution);
+    // The version is read before scanning, so that results of scans concurrent to modifications won't be used later
+    long version = cache == null ? 0L : table.getModificationVersion();
+    List<SubScan> subScans = splitScan(query, aggName, scan, table, cache, version);
+    // the limit of records to scan is shared by all sub-scans of the query
+    AtomicInteger remaining = new AtomicInteger(MAX_RECORDS_TO_SCAN);
+
+    List<SubScanResult> results = new ArrayList<>(subScans.size());
+    if (queryExecutor == null || subScans.size() == 1) {
+      for (SubScan subScan : subScans) {
+        results.add(scan(table, query, subScan, cache, remaining));
+      }
+    } else {
+      List<Future<SubScanResult>> futures = new ArrayList<>(subScans.size());
+      for (SubScan subScan : subScans) {
+        futures.add(queryExecutor.submit(() -> {
+          Queue<FactTable> factTables = queryFactTables.get(resolution);
+          FactTable factTable = factTables.poll();
+          if (factTable == null) {
+            factTable = factTableSupplier.get(resolution, 3600);
+            factTable.setMetricsCollector(metrics);
           }
+          try {
+            return scan(factTable, query, subScan, cache, remaining);
+          } finally {
+            factTables.offer(factTable);
+          }
+        }));
+      }
+      try {
+        for (Future<SubScanResult> future : futures) {
+          results.add(Uninterruptibles.getUninterruptibly(future));
+        }
+      } catch (ExecutionException e) {
+        for (Future<SubScanResult> future : futures) {
+          future.cancel(false);
         }
+        Throwables.propagateIfPossible(e.getCause());
+        throw new RuntimeException("Failed to execute query " + query, e.getCause());
       }
+    }
 
-      if (skip) {
-        incrementMetric("cube.query.scan.skipped.count", 1);
-        continue;
+    // Sub-scans are in time order and don't overlap, hence the blocks of each series are sorted by time
+    Map<SeriesKey, List<TimeBlock>> result = new HashMap<>();
+    for (SubScanResult subScanResult : results) {
+      for (Map.Entry<SeriesKey, NavigableMap<Long, TimeBlock>> entry : subScanResult.series.entrySet()) {
+        result.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue().values());
       }
+    }
+    return result;
+  }
+
+  /**
+   * Splits the given scan into scans over consecutive time ranges. The time ranges are aligned to multiples of the
+   * fact table roll time, so that the same time range will be used by queries of different start and end time.
+   */
+  private List<SubScan> splitScan(CubeQuery query, String aggName, FactScan scan, FactTable table,
+                                  @Nullable Cache<SubScanKey, SubScanResult> cache, long version) {
+    long startTs = scan.getStartTs();
+    long endTs = scan.getEndTs();
+    if ((queryExecutor == null && cache == null) || startTs < 0 || endTs < startTs) {
+      return Collections.singletonList(new SubScan(scan, null));
+    }
 
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
-        if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
+    long rollTime = table.getRollTime();
+    long rollTimes = endTs / rollTime - startTs / rollTime + 1;
+    long rangeSize = rollTime * ((rollTimes + MAX_SUB_SCANS - 1) / MAX_SUB_SCANS);
+    long maxCacheableTs = cache == null ? -1L : getMaxCacheableTs(table, query.getResolution());
+
+    List<SubScan> subScans = new ArrayList<>();
+    long rangeStart = startTs / rangeSize * rangeSize;
+    while (true) {
+      long rangeEnd = rangeStart > Long.MAX_VALUE - rangeSize ? Long.MAX_VALUE : rangeStart + rangeSize - 1;
+      if (rangeEnd <= maxCacheableTs) {
+        // Scan the whole range so that the result can be used by queries with different start and end time
+        subScans.add(new SubScan(new FactScan(rangeStart, rangeEnd, scan.getMeasureNames(),
+                                              scan.getDimensionValues()),
+                                 new SubScanKey(aggName, query, scan.getDimensionValues(), rangeStart, rangeEnd,
+                                                version)));
+      } else {
+        subScans.add(new SubScan(new FactScan(Math.max(startTs, rangeStart), Math.min(endTs, rangeEnd),
+                                              scan.getMeasureNames(), scan.getDimensionValues()), null));
+      }
+      if (rangeEnd >= endTs) {
+        return subScans;
+      }
+      rangeStart = rangeEnd + 1;
+    }
+  }
+
+  /**
+   * Returns the maximum timestamp of the time ranges that can be cached. Since facts are mostly added with time
+   * close to the current time, only time ranges that end one roll time before the current row are cached. If the
+   * resolution is larger than the roll time, facts of the current time are stored at the start of the current
+   * resolution interval, hence only time ranges that end before the previous resolution interval are cached.
+   */
+  private long getMaxCacheableTs(FactTable table, int resolution) {
+    long interval = Math.max(table.getRollTime(), resolution);
+    long currentTs = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    return (currentTs / interval - 1) * interval - 1;
+  }
+
+  private SubScanResult scan(FactTable table, CubeQuery query, SubScan subScan,
+                             @Nullable Cache<SubScanKey, SubScanResult> cache, AtomicInteger remaining) {
+    if (cache == null || subScan.key == null) {
+      return scan(table, query, subScan.scan, remaining);
+    }
+
+    SubScanResult result = cache.getIfPresent(subScan.key);
+    if (result != null) {
+      incrementMetric("cube.query.cache.hit.count", 1);
+      return result;
+    }
+    incrementMetric("cube.query.cache.miss.count", 1);
+    result = scan(table, query, subScan.scan, remaining);
+    // Don't cache partial result
+    if (!result.truncated) {
+      cache.put(subScan.key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Scans the fact table and aggregates the time values of each time series. The scan stops once the given
+   * number of remaining records to scan is exhausted.
+   */
+  private SubScanResult scan(FactTable table, CubeQuery query, FactScan scan, AtomicInteger remaining) {
+    int resolution = query.getResolution();
+    long rollTime = table.getRollTime();
+
+    // {dimension values, measure} -> {timebase -> values}
+    Map<SeriesKey, NavigableMap<Long, TimeBlock>> result = new HashMap<>();
+
+    int scanned = 0;
+    boolean truncated = false;
+    FactScanner scanner = table.scan(scan);
+    try {
+      while (scanner.hasNext()) {
+        FactScanResult next = scanner.next();
+        scanned++;
+
+        Map<String, String> seriesDimensions = getSeriesDimensions(query, next);
+        if (seriesDimensions == null) {
+          incrementMetric("cube.query.scan.skipped.count", 1);
+          continue;
+        }
+        if (remaining.getAndDecrement() <= 0) {
+          truncated = true;
+          break;
         }
 
         AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
+        NavigableMap<Long, TimeBlock> blocks = result.computeIfAbsent(
+          new SeriesKey(seriesDimensions, next.getMeasureName()), k -> new TreeMap<>());
+
+        // All values of a scan result are in the same row, hence most likely in the same block
+        TimeBlock block = null;
+        for (TimeValue timeValue : next) {
+          long timeBase = timeValue.getTimestamp() / rollTime * rollTime;
+          if (block == null || block.timeBase != timeBase) {
+            block = blocks.computeIfAbsent(timeBase, ts -> createTimeBlock(ts, rollTime, resolution, scan));
+          }
+          block.add(timeValue.getTimestamp(), resolution, timeValue.getValue(), function);
         }
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
-        break;
+    } finally {
+      scanner.close();
+      incrementMetric("cube.query.scan.records.count", scanned);
+    }
+    return new SubScanResult(result, truncated);
+  }
+
+  /**
+   * Creates a {@link TimeBlock} for the time values of the given timebase that are within the time range of the scan.
+   */
+  private TimeBlock createTimeBlock(long timeBase, long rollTime, int resolution, FactScan scan) {
+    long startTs = Math.max(timeBase, scan.getStartTs());
+    long blockEndTs = timeBase > Long.MAX_VALUE - rollTime ? Long.MAX_VALUE : timeBase + rollTime - 1;
+    long endTs = Math.min(blockEndTs, scan.getEndTs());
+    int offset = (int) ((startTs - timeBase) / resolution);
+    int size = (int) ((endTs - timeBase) / resolution) - offset + 1;
+    return new TimeBlock(timeBase, offset, size);
+  }
+
+  /**
+   * Returns the group by dimension values of the given scan result, or {@code null} if the scan result should be
+   * skipped.
+   */
+  @Nullable
+  private Map<String, String> getSeriesDimensions(CubeQuery query, FactScanResult scanResult) {
+    // using tree map, as we are using it as a key for a map
+    Map<String, String> seriesDimensions = Maps.newTreeMap();
+    for (String dimensionName : query.getGroupByDimensions()) {
+      // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
+      for (DimensionValue dimensionValue : scanResult.getDimensionValues()) {
+        if (dimensionName.equals(dimensionValue.getName())) {
+          if (dimensionValue.getValue() == null) {
+            // Currently, we do NOT return null as grouped by value.
+            // Depending on whether dimension is required or not the records with null value in it may or may not be
+            // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
+            // potentially null may or may not be included in results, depending on the aggregation selected
+            // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
+            // so don't return nulls in any of those cases.
+            return null;
+          }
+          seriesDimensions.put(dimensionName, dimensionValue.getValue());
+          break;
+        }
       }
     }
-    return result;
+    return seriesDimensions;
   }
 
-  private Collection<TimeSeries> convertToQueryResult(
-    CubeQuery query, Table<Map<String, String>, String, Map<Long, Long>> resultTable) {
+  private Collection<TimeSeries> convertToQueryResult(CubeQuery query, Map<SeriesKey, List<TimeBlock>> resultMap) {
     List<TimeSeries> result = new ArrayList<>();
-    // iterating each groupValue dimensions
-    for (Map.Entry<Map<String, String>, Map<String, Map<Long, Long>>> row : resultTable.rowMap().entrySet()) {
-      // iterating each measure
-      for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
-        // generating time series for a grouping and a measure
-        int count = 0;
-        List<TimeValue> timeValues = new ArrayList<>();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
-        }
-        Collections.sort(timeValues);
-        List<TimeValue> resultTimeValues = new ArrayList<>();
+    int resolution = query.getResolution();
+    // iterating each groupValue dimensions and measure
+    for (Map.Entry<SeriesKey, List<TimeBlock>> seriesEntry : resultMap.entrySet()) {
+      // generating time series for a grouping and a measure
+      int count = 0;
+      // blocks are sorted by time, hence the time values are sorted
+      List<TimeValue> timeValues = new ArrayList<>();
+      for (TimeBlock block : seriesEntry.getValue()) {
+        block.addTimeValues(timeValues, resolution, query.getStartTs(), query.getEndTs());
+      }
+      List<TimeValue> resultTimeValues = new ArrayList<>();
 
-        AggregationOption aggregationOption = query.getAggregationOption();
-        // this should not happen in production, since the check has been made in the handler
-        if (query.getLimit() <= 0) {
-          throw new IllegalArgumentException("The query limit cannot be less than 0");
-        }
-        // only partition the data points if the data points are larger than the required limit and only do it for
-        // option LATEST and SUM.
-        if (query.getLimit() < timeValues.size() && PARTITION_AGG_OPTIONS.contains(aggregationOption)) {
-          int partitionSize = timeValues.size() / query.getLimit();
-          int remainder = timeValues.size() % query.getLimit();
-          // ignore the first reminderth data points
-          for (List<TimeValue> interval : Iterables.partition(timeValues.subList(remainder,
-                                                                                 timeValues.size()), partitionSize)) {
-            // for LATEST we only need to get the last data point in the interval
-            if (aggregationOption.equals(AggregationOption.LATEST)) {
-              resultTimeValues.add(interval.get(interval.size() - 1));
-              continue;
-            }
-            // for SUM we want to sum up all the values in the interval
-            if (aggregationOption.equals(AggregationOption.SUM)) {
-              long sum = interval.stream().mapToLong(TimeValue::getValue).sum();
-              resultTimeValues.add(new TimeValue(interval.get(interval.size() - 1).getTimestamp(), sum));
-            }
+      AggregationOption aggregationOption = query.getAggregationOption();
+      // this should not happen in production, since the check has been made in the handler
+      if (query.getLimit() <= 0) {
+        throw new IllegalArgumentException("The query limit cannot be less than 0");
+      }
+      // only partition the data points if the data points are larger than the required limit and only do it for
+      // option LATEST and SUM.
+      if (query.getLimit() < timeValues.size() && PARTITION_AGG_OPTIONS.contains(aggregationOption)) {
+        int partitionSize = timeValues.size() / query.getLimit();
+        int remainder = timeValues.size() % query.getLimit();
+        // ignore the first reminderth data points
+        for (List<TimeValue> interval : Iterables.partition(timeValues.subList(remainder,
+                                                                               timeValues.size()), partitionSize)) {
+          // for LATEST we only need to get the last data point in the interval
+          if (aggregationOption.equals(AggregationOption.LATEST)) {
+            resultTimeValues.add(interval.get(interval.size() - 1));
+            continue;
           }
-        } else {
-          // TODO: CDAP-15565 remove the interpolation logic since it is never maintained and adds huge complexity
-          PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
-            new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
-          while (timeValueItor.hasNext()) {
-            TimeValue timeValue = timeValueItor.next();
-            resultTimeValues.add(new TimeValue(timeValue.getTimestamp(), timeValue.getValue()));
-            if (++count >= query.getLimit()) {
-              break;
-            }
+          // for SUM we want to sum up all the values in the interval
+          if (aggregationOption.equals(AggregationOption.SUM)) {
+            long sum = interval.stream().mapToLong(TimeValue::getValue).sum();
+            resultTimeValues.add(new TimeValue(interval.get(interval.size() - 1).getTimestamp(), sum));
+          }
+        }
+      } else {
+        // TODO: CDAP-15565 remove the interpolation logic since it is never maintained and adds huge complexity
+        PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
+          new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
+        while (timeValueItor.hasNext()) {
+          TimeValue timeValue = timeValueItor.next();
+          resultTimeValues.add(new TimeValue(timeValue.getTimestamp(), timeValue.getValue()));
+          if (++count >= query.getLimit()) {
+            break;
           }
         }
-        result.add(new TimeSeries(measureEntry.getKey(), row.getKey(), resultTimeValues));
       }
+      result.add(new TimeSeries(seriesEntry.getKey().measureName, seriesEntry.getKey().dimensions,
+                                resultTimeValues));
     }
     return result;
   }
@@ -514,6 +739,12 @@ public class DefaultCube implements Cube, MeteredDataset {
       for (FactTable factTable : resolutionToFactTable.values()) {
         factTable.close();
       }
+      for (Queue<FactTable> factTables : queryFactTables.values()) {
+        FactTable factTable;
+        while ((factTable = factTables.poll()) != null) {
+          factTable.close();
+        }
+      }
     } finally {
       executorService.shutdown();
     }
@@ -540,4 +771,172 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
 
   }
+
+  /**
+   * A scan over a time range of a query.
+   */
+  private static final class SubScan {
+    private final FactScan scan;
+    // key for caching the scan result, null if the result shouldn't be cached
+    @Nullable
+    private final SubScanKey key;
+
+    private SubScan(FactScan scan, @Nullable SubScanKey key) {
+      this.scan = scan;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Key for caching {@link SubScanResult}.
+   */
+  private static final class SubScanKey {
+    private final String aggregation;
+    private final Map<String, AggregationFunction> measurements;
+    private final List<DimensionValue> dimensionValues;
+    private final List<String> groupByDimensions;
+    private final long startTs;
+    private final long endTs;
+    // modification version of the fact table
+    private final long version;
+    private final int hashCode;
+
+    private SubScanKey(String aggregation, CubeQuery query, List<DimensionValue> dimensionValues,
+                       long startTs, long endTs, long version) {
+      this.aggregation = aggregation;
+      this.measurements = query.getMeasurements();
+      this.dimensionValues = dimensionValues;
+      this.groupByDimensions = query.getGroupByDimensions();
+      this.startTs = startTs;
+      this.endTs = endTs;
+      this.version = version;
+      this.hashCode = Objects.hash(aggregation, measurements, dimensionValues, groupByDimensions,
+                                   startTs, endTs, version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SubScanKey other = (SubScanKey) o;
+      return startTs == other.startTs && endTs == other.endTs && version == other.version
+        && aggregation.equals(other.aggregation)
+        && measurements.equals(other.measurements)
+        && dimensionValues.equals(other.dimensionValues)
+        && groupByDimensions.equals(other.groupByDimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Result of a {@link SubScan}. It is not modified once created, hence can be cached and shared.
+   */
+  private static final class SubScanResult {
+    private final Map<SeriesKey, NavigableMap<Long, TimeBlock>> series;
+    // true if the scan stopped before reaching the end
+    private final boolean truncated;
+
+    private SubScanResult(Map<SeriesKey, NavigableMap<Long, TimeBlock>> series, boolean truncated) {
+      this.series = series;
+      this.truncated = truncated;
+    }
+  }
+
+  /**
+   * Identifies a time series in a query result by the group by dimension values and the measure name.
+   */
+  private static final class SeriesKey {
+    private final Map<String, String> dimensions;
+    private final String measureName;
+
+    private SeriesKey(Map<String, String> dimensions, String measureName) {
+      this.dimensions = dimensions;
+      this.measureName = measureName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey) o;
+      return measureName.equals(other.measureName) && dimensions.equals(other.dimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(dimensions, measureName);
+    }
+  }
+
+  /**
+   * Aggregated values of a time series in one roll time, stored in primitive arrays indexed by the
+   * time offset from the timebase in resolution. The arrays only cover the part of the roll time that is scanned.
+   */
+  private static final class TimeBlock {
+    private final long timeBase;
+    // offset in resolution from the timebase of the first value
+    private final int offset;
+    private final long[] values;
+    private final boolean[] present;
+
+    private TimeBlock(long timeBase, int offset, int size) {
+      this.timeBase = timeBase;
+      this.offset = offset;
+      this.values = new long[size];
+      this.present = new boolean[size];
+    }
+
+    void add(long ts, int resolution, long value, @Nullable AggregationFunction function) {
+      int idx = (int) ((ts - timeBase) / resolution) - offset;
+      if (!present[idx]) {
+        if (function == null) {
+          // should never happen: developer error
+          throw new RuntimeException("Unknown MeasureType: " + function);
+        }
+        values[idx] = value;
+        present[idx] = true;
+        return;
+      }
+
+      if (AggregationFunction.SUM == function) {
+        values[idx] += value;
+      } else if (AggregationFunction.MAX == function) {
+        values[idx] = Math.max(values[idx], value);
+      } else if (AggregationFunction.MIN == function) {
+        values[idx] = Math.min(values[idx], value);
+      } else if (AggregationFunction.LATEST == function) {
+        values[idx] = value;
+      } else {
+        // should never happen: developer error
+        throw new RuntimeException("Unknown MeasureType: " + function);
+      }
+    }
+
+    /**
+     * Adds {@link TimeValue} of this block within the given time range to the given list.
+     */
+    void addTimeValues(List<TimeValue> timeValues, int resolution, long startTs, long endTs) {
+      for (int i = 0; i < values.length; i++) {
+        if (!present[i]) {
+          continue;
+        }
+        long ts = timeBase + (long) (i + offset) * resolution;
+        if (ts >= startTs && ts <= endTs) {
+          timeValues.add(new TimeValue(ts, values[i]));
+        }
+      }
+    }
+  }
 }
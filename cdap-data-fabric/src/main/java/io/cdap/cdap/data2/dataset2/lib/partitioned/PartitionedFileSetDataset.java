@@ -42,6 +42,7 @@ import io.cdap.cdap.api.dataset.DatasetContext;
 import io.cdap.cdap.api.dataset.DatasetSpecification;
 import io.cdap.cdap.api.dataset.PartitionNotFoundException;
 import io.cdap.cdap.api.dataset.lib.AbstractDataset;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.dataset.lib.DynamicPartitioner;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.lib.FileSetArguments;
@@ -57,9 +58,11 @@ import io.cdap.cdap.api.dataset.lib.PartitionMetadata;
 import io.cdap.cdap.api.dataset.lib.PartitionOutput;
 import io.cdap.cdap.api.dataset.lib.PartitionedFileSet;
 import io.cdap.cdap.api.dataset.lib.PartitionedFileSetArguments;
+import io.cdap.cdap.api.dataset.lib.PartitionedFileSetProperties;
 import io.cdap.cdap.api.dataset.lib.Partitioning;
 import io.cdap.cdap.api.dataset.lib.Partitioning.FieldType;
 import io.cdap.cdap.api.dataset.lib.partitioned.PartitionKeyCodec;
+import io.cdap.cdap.api.dataset.table.Get;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
@@ -88,8 +91,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -129,6 +134,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private static final byte[] LAST_MODIFICATION_TIME_COL = { 'm' };
   private static final byte[] RELATIVE_PATH = { 'p' };
   private static final byte[] METADATA_PREFIX = { 'm', '.' };
+  // prefix of the columns that hold the values of indexed partitioning fields
+  private static final byte[] FIELD_INDEX_PREFIX = { 'f', '.' };
 
   protected final FileSet files;
   protected final DatasetSpecification spec;
@@ -138,6 +145,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected final Partitioning partitioning;
   private final IndexedTable partitionsTable;
   private final Provider<ExploreFacade> exploreFacadeProvider;
+  // the partitioning fields that have a secondary index in the partitions table
+  private final Set<String> indexedFields;
 
   private final DatasetId datasetInstanceId;
 
@@ -166,6 +175,7 @@ public class PartitionedFileSetDataset extends AbstractDataset
     this.partitioning = partitioning;
     this.exploreFacadeProvider = exploreFacadeProvider;
     this.datasetInstanceId = new DatasetId(datasetContext.getNamespaceId(), name);
+    this.indexedFields = PartitionedFileSetProperties.getIndexedFields(spec.getProperties());
   }
 
   @Override
@@ -356,6 +366,11 @@ public class PartitionedFileSetDataset extends AbstractDataset
     if (!appending) {
       put.add(RELATIVE_PATH, Bytes.toBytes(path));
       put.add(CREATION_TIME_COL, nowInMillis);
+      // the partitions table maintains a secondary index on these columns
+      for (String indexedField : indexedFields) {
+        put.add(getFieldIndexColumn(indexedField),
+                FieldTypes.toBytes(key.getField(indexedField), partitioning.getFieldType(indexedField)));
+      }
     }
     put.add(LAST_MODIFICATION_TIME_COL, nowInMillis);
 
@@ -759,9 +774,142 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata) {
     byte[] startKey = generateStartKey(filter);
     byte[] endKey = generateStopKey(filter);
+    List<String> indexFields = getIndexFieldsForFilter(filter);
+    if (!indexFields.isEmpty()) {
+      getPartitionsByIndex(filter, indexFields, consumer, decodeMetadata, startKey, endKey);
+      return;
+    }
     getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
   }
 
+  /**
+   * Returns the indexed fields that have a condition in the given filter which is not already covered by the
+   * start and stop key of a scan. These are all indexed fields with a condition, except for the leading fields
+   * of the partitioning that have a single-value condition, and the field after them if it has a bounded range.
+   */
+  private List<String> getIndexFieldsForFilter(@Nullable PartitionFilter filter) {
+    if (filter == null || indexedFields.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Set<String> coveredFields = new HashSet<>();
+    for (String fieldName : partitioning.getFields().keySet()) {
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+      if (condition == null) {
+        break;
+      }
+      if (condition.isSingleValue()) {
+        coveredFields.add(fieldName);
+        continue;
+      }
+      if (condition.getLower() != null && condition.getUpper() != null) {
+        coveredFields.add(fieldName);
+      }
+      break;
+    }
+    List<String> result = new ArrayList<>();
+    for (String indexedField : indexedFields) {
+      if (filter.getCondition(indexedField) != null && !coveredFields.contains(indexedField)) {
+        result.add(indexedField);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the partitions matching a filter by intersecting the row keys found in the indexes of the given fields.
+   * Only rows whose key matches the filter are read from the partitions table.
+   */
+  private void getPartitionsByIndex(PartitionFilter filter, List<String> indexFields, PartitionConsumer consumer,
+                                    boolean decodeMetadata, @Nullable byte[] startKey, @Nullable byte[] endKey) {
+    NavigableSet<byte[]> rowKeys = null;
+    for (String fieldName : indexFields) {
+      NavigableSet<byte[]> matching = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+      try (CloseableIterator<byte[]> iterator = scanFieldIndex(fieldName, filter.getCondition(fieldName))) {
+        while (iterator.hasNext()) {
+          byte[] rowKey = iterator.next();
+          if ((startKey == null || Bytes.compareTo(rowKey, startKey) >= 0)
+            && (endKey == null || Bytes.compareTo(rowKey, endKey) < 0)
+            && (rowKeys == null || rowKeys.contains(rowKey))) {
+            matching.add(rowKey);
+          }
+        }
+      }
+      rowKeys = matching;
+      if (rowKeys.isEmpty()) {
+        break;
+      }
+    }
+
+    // match the remaining conditions against the partition keys before reading any rows
+    List<PartitionKey> keys = new ArrayList<>();
+    List<Get> gets = new ArrayList<>();
+    for (byte[] rowKey : rowKeys) {
+      PartitionKey key;
+      try {
+        key = parseRowKey(rowKey, partitioning);
+      } catch (IllegalArgumentException e) {
+        LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
+                                getName(), Bytes.toStringBinary(rowKey)));
+        continue;
+      }
+      if (!filter.match(key)) {
+        continue;
+      }
+      keys.add(key);
+      gets.add(decodeMetadata ? new Get(rowKey) : new Get(rowKey, RELATIVE_PATH));
+    }
+
+    int count = 0;
+    if (!gets.isEmpty()) {
+      List<Row> rows = partitionsTable.get(gets);
+      for (int i = 0; i < rows.size(); i++) {
+        Row row = rows.get(i);
+        byte[] pathBytes = row.get(RELATIVE_PATH);
+        if (pathBytes != null) {
+          consumer.consume(keys.get(i), Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
+          count++;
+        }
+      }
+    }
+    if (count == 0) {
+      warnIfInvalidPartitionFilter(filter, partitioning);
+    }
+  }
+
+  /**
+   * Returns the keys of the rows whose value for the given field satisfies the given condition, using the
+   * secondary index of the field.
+   */
+  private CloseableIterator<byte[]> scanFieldIndex(String fieldName,
+                                                   PartitionFilter.Condition<? extends Comparable> condition) {
+    FieldType fieldType = partitioning.getFieldType(fieldName);
+    byte[] column = getFieldIndexColumn(fieldName);
+    if (condition.isSingleValue()) {
+      return partitionsTable.readRowKeysByIndex(column, toFilterBytes(fieldName, fieldType, condition.getValue()));
+    }
+    byte[] startValue = condition.getLower() == null ? null : toFilterBytes(fieldName, fieldType, condition.getLower());
+    byte[] endValue = condition.getUpper() == null ? null : toFilterBytes(fieldName, fieldType, condition.getUpper());
+    return partitionsTable.scanRowKeysByIndex(column, startValue, endValue);
+  }
+
+  private static byte[] toFilterBytes(String fieldName, FieldType fieldType, Comparable value) {
+    try {
+      fieldType.validate(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+        "Invalid partition filter: Value for field '%s' is incompatible with the partitioning: %s",
+        fieldName, e.getMessage()));
+    }
+    return FieldTypes.toBytes(value, fieldType);
+  }
+
+  /**
+   * Returns the column of the partitions table that holds the value of an indexed partitioning field.
+   */
+  static byte[] getFieldIndexColumn(String fieldName) {
+    return Bytes.add(FIELD_INDEX_PREFIX, Bytes.toBytes(fieldName));
+  }
+
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
                              @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
     long count = 0L;
@@ -1268,7 +1416,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
       if (condition == null) {
         break; // this field is not present; we can't include any more fields in the stop key
       }
-      Comparable upperValue = condition.getUpper();
+      // a single-value condition bounds the field from above by its value
+      Comparable upperValue = condition.isSingleValue() ? condition.getValue() : condition.getUpper();
       if (upperValue == null) {
         break; // this field is not present; we can't include any more fields in the stop key
       }
@@ -27,6 +27,8 @@ import io.cdap.cdap.api.annotation.WriteOnly;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.batch.Split;
 import io.cdap.cdap.api.dataset.DataSetException;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.dataset.metrics.MeteredDataset;
 import io.cdap.cdap.api.dataset.table.ConflictDetection;
 import io.cdap.cdap.api.dataset.table.Filter;
@@ -39,11 +41,13 @@ import io.cdap.cdap.api.dataset.table.TableProperties;
 import io.cdap.cdap.api.dataset.table.TableSplit;
 import io.cdap.cdap.api.metrics.MetricsCollector;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryScanner;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -69,12 +73,15 @@ import javax.annotation.Nullable;
  * <p>
  * This implementation assumes that the table has name and conflicts are resolved on row level.
  * <p>
- * NOTE: this implementation doesn't cache any data in-memory besides changes. I.e. if you do get of same data that is
- *       not in in-memory buffer twice, two times it will try to fetch it from persistent store.
- *       Given the snapshot isolation tx model, this can be improved in future implementations.
+ * NOTE: by default this implementation doesn't cache any data in-memory besides changes. I.e. if you do get of same
+ *       data that is not in in-memory buffer twice, two times it will try to fetch it from persistent store.
+ *       Setting the {@link Constants.Dataset#TABLE_READ_CACHE_SIZE} property enables a cache of the data read from
+ *       the persistent store, which is valid for the duration of a transaction given the snapshot isolation tx model.
  * <p>
- * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. There should be better
- *       implementation for MapReduce case (YMMV though, for counters/aggregations this implementation looks sweet)
+ * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. Setting the
+ *       {@link Constants.Dataset#TABLE_BUFFER_SPILL_THRESHOLD} property makes the in-memory buffer spill to local
+ *       files once it grows over the threshold, which keeps memory use of large transactions bounded, at the cost of
+ *       slower reads of buffered changes.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it always hits the
  *       persisted store even if all needed data is in-memory buffer. See more info at method javadoc
@@ -86,6 +93,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  // rough estimate of the memory used by the objects holding a buffered cell, besides the bytes of the cell
+  private static final int CELL_OVERHEAD = 64;
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -102,6 +112,18 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // Keeps track of what was persisted so far
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Size in bytes of the in-memory buffer above which it is spilled to local files, 0 if spilling is disabled
+  private final long spillThreshold;
+  // Estimated size in bytes of the in-memory buffer
+  private long buffSize;
+  // Changes spilled from the in-memory buffer, older than the ones in the buffer. null if nothing was spilled
+  private SpilledChanges spilled;
+  // Keeps track of what was persisted so far from spilled changes
+  private SpilledChanges spilledToUndo;
+
+  // Cache of data read from persistent store in the current transaction, null if disabled
+  private final TransactionReadCache readCache;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -151,6 +173,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    this.spillThreshold = Long.parseLong(properties.getOrDefault(Constants.Dataset.TABLE_BUFFER_SPILL_THRESHOLD, "0"));
+    long readCacheSize = Long.parseLong(properties.getOrDefault(Constants.Dataset.TABLE_READ_CACHE_SIZE, "0"));
+    this.readCache = readCacheSize > 0 ? new TransactionReadCache(readCacheSize) : null;
   }
 
   /**
@@ -262,6 +287,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // releasing resources
     buff = null;
     toUndo = null;
+    closeSpilled();
+    clearReadCache();
   }
 
   @Override
@@ -273,7 +300,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
     // starting with fresh buffer when tx starts
     buff.clear();
+    buffSize = 0L;
     toUndo = null;
+    closeSpilled();
+    clearReadCache();
     this.tx = tx;
   }
 
@@ -309,8 +339,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Collection<byte[]> getRowChanges() {
     // we resolve conflicts on row level of individual table
     List<byte[]> changes = new ArrayList<>(buff.size());
-    for (byte[] changedRow : buff.keySet()) {
-      changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+    try (CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rowChanges =
+           getBufferIterator(buff, null, null)) {
+      while (rowChanges.hasNext()) {
+        changes.add(Bytes.add(getNameAsTxChangePrefix(), rowChanges.next().getKey()));
+      }
     }
     return changes;
   }
@@ -318,27 +351,41 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Collection<byte[]> getColumnChanges() {
     // we resolve conflicts on row level of individual table
     List<byte[]> changes = new ArrayList<>(buff.size());
-    for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
-      if (rowChange.getValue() == null) {
-        // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
-        //       this is not a big problem as of now, as row deletion is now act as deletion of every column, but this
-        //       will change in future, so we will have to address the issue.
-        continue;
+    try (CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rowChanges =
+           getBufferIterator(buff, null, null)) {
+      while (rowChanges.hasNext()) {
+        addColumnChanges(changes, rowChanges.next());
       }
+    }
+    return changes;
+  }
+
+  private void addColumnChanges(List<byte[]> changes, Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange) {
+    if (rowChange.getValue() == null) {
+      // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
+      //       this is not a big problem as of now, as row deletion is now act as deletion of every column, but this
+      //       will change in future, so we will have to address the issue.
+      return;
+    }
 
-      // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
-      byte[] rowTxChange = Bytes.add(Bytes.toBytes(rowChange.getKey().length), rowChange.getKey());
+    // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
+    byte[] rowTxChange = Bytes.add(Bytes.toBytes(rowChange.getKey().length), rowChange.getKey());
 
-      for (byte[] column : rowChange.getValue().keySet()) {
-        changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, column));
-      }
+    for (byte[] column : rowChange.getValue().keySet()) {
+      changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, column));
     }
-    return changes;
   }
 
   @Override
   public boolean commitTx() throws Exception {
-    if (!buff.isEmpty()) {
+    if (spilled != null) {
+      // spill what is left in memory too, and persist all changes from the spilled runs in chunks that are
+      // not larger than the in-memory buffer
+      spillBuffer();
+      spilledToUndo = spilled;
+      spilled = null;
+      applySpilled(spilledToUndo, false);
+    } else if (!buff.isEmpty()) {
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
       toUndo = buff;
@@ -346,6 +393,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
       // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
       buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+      buffSize = 0L;
       // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
       //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
       persist(toUndo);
@@ -357,21 +405,145 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public void postTxCommit() {
     // don't need buffer anymore: tx has been committed
     buff.clear();
+    buffSize = 0L;
     toUndo = null;
+    closeSpilled();
+    clearReadCache();
     tx = null;
   }
 
   @Override
   public boolean rollbackTx() throws Exception {
     buff.clear();
+    buffSize = 0L;
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
     }
+    if (spilledToUndo != null) {
+      applySpilled(spilledToUndo, true);
+    }
+    closeSpilled();
+    clearReadCache();
     tx = null;
     return true;
   }
 
+  /**
+   * Persists or undoes spilled changes, in chunks of rows that are about the size of the spill threshold.
+   */
+  private void applySpilled(SpilledChanges changes, boolean undo) throws Exception {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> chunk = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    long chunkSize = 0L;
+    try (CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator =
+           changes.iterator(null, null, Collections.emptyNavigableMap())) {
+      while (iterator.hasNext()) {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange = iterator.next();
+        chunk.put(rowChange.getKey(), rowChange.getValue());
+        for (Map.Entry<byte[], Update> columnChange : rowChange.getValue().entrySet()) {
+          chunkSize += getSize(rowChange.getKey(), columnChange.getKey(), columnChange.getValue());
+        }
+        if (chunkSize >= spillThreshold) {
+          applyChunk(chunk, undo);
+          chunk = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+          chunkSize = 0L;
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      applyChunk(chunk, undo);
+    }
+  }
+
+  private void applyChunk(NavigableMap<byte[], NavigableMap<byte[], Update>> chunk, boolean undo) throws Exception {
+    if (undo) {
+      undo(chunk);
+    } else {
+      persist(chunk);
+    }
+  }
+
+  /**
+   * Spills the in-memory buffer to local files if it has grown over the spill threshold.
+   */
+  private void spillIfNeeded() {
+    if (spillThreshold <= 0 || buffSize < spillThreshold) {
+      return;
+    }
+    try {
+      if (spilled == null) {
+        spilled = new SpilledChanges(new File(System.getProperty("java.io.tmpdir")));
+      }
+      spillBuffer();
+    } catch (IOException e) {
+      throw new DataSetException("Failed to spill buffered changes of " + getTransactionAwareName(), e);
+    }
+  }
+
+  private void spillBuffer() throws IOException {
+    if (!buff.isEmpty()) {
+      spilled.spill(buff);
+      // NOTE: we create a new map instead of clearing, since scanners opened before may still iterate the old one
+      buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    }
+    buffSize = 0L;
+  }
+
+  private void closeSpilled() {
+    if (spilled != null) {
+      spilled.close();
+      spilled = null;
+    }
+    if (spilledToUndo != null) {
+      spilledToUndo.close();
+      spilledToUndo = null;
+    }
+  }
+
+  /**
+   * Returns the buffered changes of a row, including the ones that were spilled, or {@code null} if there is none.
+   */
+  @Nullable
+  private NavigableMap<byte[], Update> getBuffered(byte[] row) {
+    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    if (spilled == null) {
+      return buffCols;
+    }
+    try {
+      return spilled.getRow(row, buffCols);
+    } catch (IOException e) {
+      throw new DataSetException("Failed to read spilled changes of " + getTransactionAwareName(), e);
+    }
+  }
+
+  /**
+   * Returns an iterator over the buffered changes in a range of rows, including the ones that were spilled.
+   *
+   * @param bufferMap the in-memory buffer, limited to the range of rows
+   */
+  private CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> getBufferIterator(
+    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap, @Nullable byte[] startRow, @Nullable byte[] stopRow) {
+    if (spilled != null) {
+      try {
+        return spilled.iterator(startRow, stopRow, bufferMap);
+      } catch (IOException e) {
+        throw new DataSetException("Failed to read spilled changes of " + getTransactionAwareName(), e);
+      }
+    }
+    final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator = bufferMap.entrySet().iterator();
+    return new AbstractCloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+      @Override
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+        return iterator.hasNext() ? iterator.next() : endOfData();
+      }
+
+      @Override
+      public void close() {
+        // no-op
+      }
+    };
+  }
+
   protected void ensureTransactionIsStarted() {
     if (tx == null) {
       throw new DataSetException("Attempt to perform a data operation without a transaction");
@@ -415,12 +587,12 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
     try {
-      Map<byte[], byte[]> persistedCols = getPersisted(row, startColumn, stopColumn, limit);
+      Map<byte[], byte[]> persistedCols = getPersistedCached(row, startColumn, stopColumn, limit);
 
       // adding server cols, and then overriding with buffered values
       NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -448,7 +620,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     try {
       // get persisted, then overwrite with whats buffered
-      List<Map<byte[], byte[]>> persistedRows = getPersisted(gets);
+      List<Map<byte[], byte[]>> persistedRows = getPersistedCached(gets);
       // gets and rows lists are always of the same size
       Preconditions.checkArgument(gets.size() == persistedRows.size(),
         "Invalid number of rows fetched when performing multi-get. There must be one row for each get.");
@@ -467,7 +639,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         rowColumns.putAll(persistedRow);
 
         byte[] row = get.getRow();
-        NavigableMap<byte[], Update> buffCols = buff.get(row);
+        NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
         // merge what was in the buffer and what was persisted
         if (buffCols != null) {
@@ -512,12 +684,15 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       if (values[i] != null && values[i].length == 0) {
         warnAboutEmptyValue(columns[i]);
       }
-      colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
+      Update previous = colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
+      // only the value changes if the cell is already buffered
+      buffSize += previous == null ? getSize(row, columns[i], values[i]) : getSize(values[i]) - getSize(previous);
     }
     if (newRow) {
       // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
       buff.put(copy(row), colVals);
     }
+    spillIfNeeded();
   }
 
   /**
@@ -626,8 +801,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         buff.put(row, colVals);
       }
       for (int i = 0; i < columns.length; i++) {
-        colVals.put(columns[i], Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
+        Update previous = colVals.get(columns[i]);
+        Update merged = Updates.mergeUpdates(previous, new IncrementValue(amounts[i]));
+        colVals.put(columns[i], merged);
+        // only the value changes if the cell is already buffered
+        buffSize += previous == null ? getSize(row, columns[i], merged) : getSize(merged) - getSize(previous);
       }
+      spillIfNeeded();
       reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
     } else {
       internalIncrementAndGet(row, columns, amounts);
@@ -695,17 +875,18 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public Scanner scan(Scan scan) {
     ensureTransactionIsStarted();
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap = scanBuffer(scan);
+    CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferIterator = scanBuffer(scan);
     try {
-      return new BufferingScanner(bufferMap, scanPersisted(scan));
+      return new BufferingScanner(bufferIterator, scanPersistedCached(scan));
     } catch (Exception e) {
+      bufferIterator.close();
       LOG.debug("scan failed for table: " + getTransactionAwareName() +
           ", scan: " + scan.toString(), e);
       throw new DataSetException("scan failed", e);
     }
   }
 
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> scanBuffer(Scan scan) {
+  private CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> scanBuffer(Scan scan) {
     NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
@@ -718,27 +899,37 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     } else {
       bufferMap = buff.subMap(startRow, true, stopRow, false);
     }
-    bufferMap = applyFilter(bufferMap, scan.getFilter());
-    return bufferMap;
+    return applyFilter(getBufferIterator(bufferMap, startRow, stopRow), scan.getFilter());
   }
 
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> applyFilter(
-                                                        NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap,
-                                                        @Nullable Filter filter) {
+  private CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> applyFilter(
+    final CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferIterator, @Nullable Filter filter) {
     if (filter == null) {
-      return bufferMap;
+      return bufferIterator;
     }
 
     // todo: currently we support only FuzzyRowFilter as an experimental feature
     if (filter instanceof FuzzyRowFilter) {
-      NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : bufferMap.entrySet()) {
-        if (FuzzyRowFilter.ReturnCode.INCLUDE == ((FuzzyRowFilter) filter).filterRow(entry.getKey())) {
-          result.put(entry.getKey(), entry.getValue());
+      final FuzzyRowFilter fuzzyRowFilter = (FuzzyRowFilter) filter;
+      return new AbstractCloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+        @Override
+        protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+          while (bufferIterator.hasNext()) {
+            Map.Entry<byte[], NavigableMap<byte[], Update>> entry = bufferIterator.next();
+            if (FuzzyRowFilter.ReturnCode.INCLUDE == fuzzyRowFilter.filterRow(entry.getKey())) {
+              return entry;
+            }
+          }
+          return endOfData();
         }
-      }
-      return result;
+
+        @Override
+        public void close() {
+          bufferIterator.close();
+        }
+      };
     } else {
+      bufferIterator.close();
       throw new DataSetException("Unknown filter type: " + filter);
     }
   }
@@ -746,13 +937,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
     boolean rowDeleted = buffCols == null && buff.containsKey(row);
     if (rowDeleted) {
       return Collections.emptyMap();
     }
 
-    Map<byte[], byte[]> persisted = getPersisted(row, null);
+    Map<byte[], byte[]> persisted = getPersistedCached(row, null);
 
 
     result.putAll(persisted);
@@ -767,11 +958,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
-      return getPersisted(row, columns);
+      return getPersistedCached(row, columns);
     }
 
     // otherwise try to fetch data from in-memory buffer. If not all present - fetch leftover from persisted
@@ -793,7 +984,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // fetching from server those that were not found in in-mem buffer
     if (colsToFetchFromPersisted.size() > 0) {
       Map<byte[], byte[]> persistedCols =
-        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
+        getPersistedCached(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
       if (persistedCols != null) {
         result.putAll(persistedCols);
       }
@@ -805,6 +996,119 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return unwrapDeletes(result);
   }
 
+  /**
+   * Fetches columns of a row from persistent store, serving them from the read cache if it has them.
+   */
+  private NavigableMap<byte[], byte[]> getPersistedCached(byte[] row, @Nullable byte[][] columns) throws Exception {
+    if (readCache == null) {
+      return getPersisted(row, columns);
+    }
+    NavigableMap<byte[], byte[]> cached = columns == null ? readCache.getRow(row) : readCache.getColumns(row, columns);
+    if (cached != null) {
+      reportReadCache(1, 0);
+      return cached;
+    }
+    reportReadCache(0, 1);
+    NavigableMap<byte[], byte[]> persisted = getPersisted(row, columns);
+    if (columns == null) {
+      readCache.putRow(row, persisted);
+    } else {
+      readCache.putColumns(row, columns, persisted);
+    }
+    return persisted;
+  }
+
+  /**
+   * Fetches a range of columns of a row from persistent store. If the whole row is in the read cache, the range
+   * is served from the cache.
+   */
+  private NavigableMap<byte[], byte[]> getPersistedCached(byte[] row, byte[] startColumn, byte[] stopColumn,
+                                                          int limit) throws Exception {
+    if (readCache == null) {
+      return getPersisted(row, startColumn, stopColumn, limit);
+    }
+    NavigableMap<byte[], byte[]> cached = readCache.getRow(row);
+    if (cached != null) {
+      reportReadCache(1, 0);
+      return getRange(cached, startColumn, stopColumn, limit);
+    }
+    // a range of columns does not tell which columns don't exist, hence it is not added to the cache
+    reportReadCache(0, 1);
+    return getPersisted(row, startColumn, stopColumn, limit);
+  }
+
+  /**
+   * Fetches a list of rows from persistent store, serving the ones in the read cache from the cache and
+   * fetching the others in one batch.
+   */
+  private List<Map<byte[], byte[]>> getPersistedCached(List<Get> gets) throws Exception {
+    if (readCache == null) {
+      return getPersisted(gets);
+    }
+    List<Map<byte[], byte[]>> results = new ArrayList<>(gets.size());
+    List<Get> misses = new ArrayList<>();
+    for (Get get : gets) {
+      byte[][] columns = toArray(get.getColumns());
+      Map<byte[], byte[]> cached = columns == null
+        ? readCache.getRow(get.getRow()) : readCache.getColumns(get.getRow(), columns);
+      results.add(cached);
+      if (cached == null) {
+        misses.add(get);
+      }
+    }
+    reportReadCache(gets.size() - misses.size(), misses.size());
+    if (misses.isEmpty()) {
+      return results;
+    }
+
+    List<Map<byte[], byte[]>> persistedRows = getPersisted(misses);
+    Preconditions.checkArgument(misses.size() == persistedRows.size(),
+      "Invalid number of rows fetched when performing multi-get. There must be one row for each get.");
+    Iterator<Map<byte[], byte[]>> persistedIter = persistedRows.iterator();
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) != null) {
+        continue;
+      }
+      Get get = gets.get(i);
+      Map<byte[], byte[]> persisted = persistedIter.next();
+      byte[][] columns = toArray(get.getColumns());
+      if (columns == null) {
+        readCache.putRow(get.getRow(), persisted);
+      } else {
+        readCache.putColumns(get.getRow(), columns, persisted);
+      }
+      results.set(i, persisted);
+    }
+    return results;
+  }
+
+  /**
+   * Scans persistent store. A scan that was fully read before in the same transaction is served from the read cache.
+   */
+  private Scanner scanPersistedCached(Scan scan) throws Exception {
+    if (readCache == null) {
+      return scanPersisted(scan);
+    }
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> cached = readCache.getScan(scan);
+    if (cached != null) {
+      reportReadCache(1, 0);
+      return new InMemoryScanner(cached.entrySet().iterator());
+    }
+    reportReadCache(0, 1);
+    return new ReadCachingScanner(scan, scanPersisted(scan));
+  }
+
+  private void clearReadCache() {
+    if (readCache != null) {
+      readCache.clear();
+    }
+  }
+
+  @Nullable
+  private static byte[][] toArray(@Nullable List<byte[]> columns) {
+    return columns == null ? null : columns.toArray(new byte[columns.size()][]);
+  }
+
   /**
    * Applies the buffered updates on top of the map of persisted values.  The persisted map is modified in place
    * with the updated values.
@@ -937,6 +1241,17 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  private void reportReadCache(int hits, int misses) {
+    if (metricsCollector != null) {
+      if (hits > 0) {
+        metricsCollector.increment(Constants.Metrics.Name.Dataset.READ_CACHE_HITS, hits);
+      }
+      if (misses > 0) {
+        metricsCollector.increment(Constants.Metrics.Name.Dataset.READ_CACHE_MISSES, misses);
+      }
+    }
+  }
+
   private int getSize(long[] values) {
     return Bytes.SIZEOF_LONG * values.length;
   }
@@ -954,6 +1269,24 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return item == null ? 0 : item.length;
   }
 
+  /**
+   * Estimates the memory used by a buffered cell, including the overhead of the objects holding it.
+   */
+  private static long getSize(byte[] row, byte[] column, @Nullable byte[] value) {
+    return CELL_OVERHEAD + getSize(row) + getSize(column) + getSize(value);
+  }
+
+  private static long getSize(byte[] row, byte[] column, Update update) {
+    return getSize(row, column, (byte[]) null) + getSize(update);
+  }
+
+  /**
+   * Estimates the memory used by the value of a buffered cell.
+   */
+  private static int getSize(Update update) {
+    return update instanceof IncrementValue ? Bytes.SIZEOF_LONG : getSize(update.getBytes());
+  }
+
   private static byte[] copy(byte[] bytes) {
     return bytes == null ? null : Arrays.copyOf(bytes, bytes.length);
   }
@@ -962,11 +1295,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // they get annotated
 
   @ReadOnly
-  private Iterator<byte[]> getBufferKeyIterator(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer) {
-    final Iterator<byte[]> iterator = buffer.keySet().iterator();
-    return new AbstractIterator<byte[]>() {
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> getBufferEntryIterator(
+    final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator) {
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
       @Override
-      protected byte[] computeNext() {
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
         return BufferingTable.this.hasNext(iterator) ? BufferingTable.this.next(iterator) : endOfData();
       }
     };
@@ -982,27 +1315,22 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return iterator.next();
   }
 
-  @ReadOnly
-  private NavigableMap<byte[], Update> getFromBuffer(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer,
-                                                     byte[] key) {
-    return buffer.get(key);
-  }
-
   /**
    * Scanner implementation that overlays buffered data on top of already persisted data.
    */
   private class BufferingScanner implements Scanner {
-    private final NavigableMap<byte[], NavigableMap<byte[], Update>> buffer;
+    private final CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> buffer;
     private final Scanner persistedScanner;
-    private final Iterator<byte[]> keyIter;
-    private byte[] currentKey;
+    private final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> entryIter;
+    private Map.Entry<byte[], NavigableMap<byte[], Update>> currentEntry;
     private Row currentRow;
 
-    private BufferingScanner(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer, Scanner persistedScanner) {
+    private BufferingScanner(CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> buffer,
+                             Scanner persistedScanner) {
       this.buffer = buffer;
-      this.keyIter = getBufferKeyIterator(buffer);
-      if (this.keyIter.hasNext()) {
-        currentKey = keyIter.next();
+      this.entryIter = getBufferEntryIterator(buffer);
+      if (this.entryIter.hasNext()) {
+        currentEntry = entryIter.next();
       }
       this.persistedScanner = persistedScanner;
       this.currentRow = this.persistedScanner.next();
@@ -1011,20 +1339,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     @Nullable
     @Override
     public Row next() {
-      if (currentKey == null && currentRow == null) {
+      if (currentEntry == null && currentRow == null) {
         // out of rows
         return null;
       }
       reportRead(1);
       int order;
-      if (currentKey == null) {
+      if (currentEntry == null) {
         // exhausted buffer is the same as persisted scan row coming first
         order = 1;
       } else if (currentRow == null) {
         // exhausted persisted scanner is the same as buffer row coming first
         order = -1;
       } else {
-        order = Bytes.compareTo(currentKey, currentRow.getRow());
+        order = Bytes.compareTo(currentEntry.getKey(), currentRow.getRow());
       }
 
       Row result;
@@ -1035,18 +1363,18 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       } else if (order < 0) {
         // buffer row comes first or persisted scanner is empty
         Map<byte[], byte[]> persistedRow = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        mergeToPersisted(persistedRow, getFromBuffer(buffer, currentKey), null);
-        result = new Result(copy(currentKey), persistedRow);
+        mergeToPersisted(persistedRow, currentEntry.getValue(), null);
+        result = new Result(copy(currentEntry.getKey()), persistedRow);
 
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        currentEntry = entryIter.hasNext() ? entryIter.next() : null;
       } else {
         // if currentKey and currentRow are equal, merge and advance both
         Map<byte[], byte[]> persisted = currentRow.getColumns();
-        mergeToPersisted(persisted, getFromBuffer(buffer, currentKey), null);
+        mergeToPersisted(persisted, currentEntry.getValue(), null);
         result = new Result(currentRow.getRow(), persisted);
 
         currentRow = persistedScanner.next();
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        currentEntry = entryIter.hasNext() ? entryIter.next() : null;
       }
       return result;
     }
@@ -1054,6 +1382,55 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     @Override
     public void close() {
       this.persistedScanner.close();
+      this.buffer.close();
+    }
+  }
+
+  /**
+   * Scanner that adds the rows read from persistent store to the read cache. If the scan is read till the end and
+   * all rows fit in the cache, the scan is recorded in the cache so that it can be repeated without persistent store.
+   */
+  private final class ReadCachingScanner implements Scanner {
+    private final Scan scan;
+    private final Scanner persistedScanner;
+    private final Transaction scanTx;
+    private final List<byte[]> rows;
+    private boolean cacheScan;
+
+    private ReadCachingScanner(Scan scan, Scanner persistedScanner) {
+      this.scan = scan;
+      this.persistedScanner = persistedScanner;
+      this.scanTx = tx;
+      this.rows = new ArrayList<>();
+      this.cacheScan = true;
+    }
+
+    @Nullable
+    @Override
+    public Row next() {
+      Row row = persistedScanner.next();
+      // the cache is only valid for the transaction that the scanner was created in
+      if (tx != scanTx) {
+        return row;
+      }
+      if (row == null) {
+        if (cacheScan) {
+          readCache.putScan(scan, rows);
+          cacheScan = false;
+        }
+        return null;
+      }
+      if (readCache.putRow(row.getRow(), row.getColumns())) {
+        rows.add(copy(row.getRow()));
+      } else {
+        cacheScan = false;
+      }
+      return row;
+    }
+
+    @Override
+    public void close() {
+      persistedScanner.close();
     }
   }
 
@@ -0,0 +1,428 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.CountingOutputStream;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Changes of a {@link BufferingTable} that were spilled from the in-memory buffer to local files. Each spill writes
+ * the in-memory buffer, which is sorted by row, as one run file. Runs are ordered from oldest to newest, and when the
+ * same cell is changed in multiple runs, the updates are merged in that order with
+ * {@link Updates#mergeUpdates(Update, Update)}.
+ * <p>
+ * Only a sparse index of every {@link #INDEX_INTERVAL}-th row of a run is kept in memory, which is used to look up
+ * a single row and to start scans without reading the whole run.
+ */
+final class SpilledChanges implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpilledChanges.class);
+
+  private static final int INDEX_INTERVAL = 64;
+
+  private static final byte DELETE = 0;
+  private static final byte PUT = 1;
+  private static final byte INCREMENT = 2;
+
+  private final File dir;
+  private final List<Run> runs;
+
+  SpilledChanges(File dir) {
+    this.dir = dir;
+    this.runs = new ArrayList<>();
+  }
+
+  /**
+   * Writes the given changes as a new run.
+   */
+  void spill(NavigableMap<byte[], NavigableMap<byte[], Update>> changes) throws IOException {
+    File file = File.createTempFile("buffer", ".run", dir);
+    Run run = new Run(file);
+    runs.add(run);
+
+    CountingOutputStream os = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try (DataOutputStream output = new DataOutputStream(os)) {
+      int count = 0;
+      for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : changes.entrySet()) {
+        if (count++ % INDEX_INTERVAL == 0) {
+          run.index.put(entry.getKey(), os.getCount());
+        }
+        writeRow(output, entry.getKey(), entry.getValue());
+      }
+      // end of run marker
+      output.writeInt(-1);
+    }
+  }
+
+  /**
+   * Returns the changes of the given row, with the given newer changes applied on top, or {@code null} if the row
+   * has no changes at all. The returned map is never one of the maps passed in.
+   */
+  @Nullable
+  NavigableMap<byte[], Update> getRow(byte[] row, @Nullable NavigableMap<byte[], Update> newer) throws IOException {
+    NavigableMap<byte[], Update> result = null;
+    for (Run run : runs) {
+      Map.Entry<byte[], Long> indexEntry = run.index.floorEntry(row);
+      if (indexEntry == null) {
+        continue;
+      }
+      try (RunReader reader = new RunReader(run, indexEntry.getValue())) {
+        for (int i = 0; i < INDEX_INTERVAL && reader.next(); i++) {
+          int cmp = Bytes.compareTo(reader.row, row);
+          if (cmp == 0) {
+            result = merge(result, reader.columns);
+          }
+          if (cmp >= 0) {
+            break;
+          }
+        }
+      }
+    }
+    return newer == null ? result : merge(result, newer);
+  }
+
+  /**
+   * Returns an iterator over the changes of all rows in the given range, with the given newer changes applied on top.
+   * The newer changes must be limited to the same range already.
+   */
+  CloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator(
+    @Nullable byte[] startRow, @Nullable byte[] stopRow, NavigableMap<byte[], NavigableMap<byte[], Update>> newer)
+    throws IOException {
+
+    List<Source> sources = new ArrayList<>(runs.size() + 1);
+    try {
+      for (Run run : runs) {
+        Map.Entry<byte[], Long> indexEntry = startRow == null ? run.index.firstEntry() : run.index.floorEntry(startRow);
+        if (indexEntry == null) {
+          indexEntry = run.index.firstEntry();
+        }
+        if (indexEntry != null) {
+          sources.add(new RunSource(sources.size(), new RunReader(run, indexEntry.getValue()), startRow, stopRow));
+        }
+      }
+      sources.add(new MapSource(sources.size(), newer.entrySet().iterator()));
+    } catch (IOException e) {
+      for (Source source : sources) {
+        source.close();
+      }
+      throw e;
+    }
+    return new MergingIterator(sources);
+  }
+
+  /**
+   * Deletes all run files.
+   */
+  @Override
+  public void close() {
+    for (Run run : runs) {
+      if (!run.file.delete() && run.file.exists()) {
+        LOG.warn("Failed to delete spilled buffer file {}", run.file);
+      }
+    }
+    runs.clear();
+  }
+
+  /**
+   * Merges the changes of a row on top of the changes in a base map, which is modified in place if it is not null.
+   */
+  private static NavigableMap<byte[], Update> merge(@Nullable NavigableMap<byte[], Update> base,
+                                                    NavigableMap<byte[], Update> changes) {
+    if (base == null) {
+      return new TreeMap<>(changes);
+    }
+    for (Map.Entry<byte[], Update> change : changes.entrySet()) {
+      base.put(change.getKey(), Updates.mergeUpdates(base.get(change.getKey()), change.getValue()));
+    }
+    return base;
+  }
+
+  private static void writeRow(DataOutputStream output, byte[] row,
+                               NavigableMap<byte[], Update> columns) throws IOException {
+    writeBytes(output, row);
+    output.writeInt(columns.size());
+    for (Map.Entry<byte[], Update> column : columns.entrySet()) {
+      writeBytes(output, column.getKey());
+      Update update = column.getValue();
+      if (update instanceof IncrementValue) {
+        output.writeByte(INCREMENT);
+        output.writeLong(((IncrementValue) update).getValue());
+      } else if (update.getBytes() == null) {
+        output.writeByte(DELETE);
+      } else {
+        output.writeByte(PUT);
+        writeBytes(output, update.getBytes());
+      }
+    }
+  }
+
+  private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream input, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * A run file and its sparse index from row to file position.
+   */
+  private static final class Run {
+    private final File file;
+    private final NavigableMap<byte[], Long> index;
+
+    private Run(File file) {
+      this.file = file;
+      this.index = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    }
+  }
+
+  /**
+   * Sequential reader of the rows of a run, starting from a position in the run file.
+   */
+  private static final class RunReader implements Closeable {
+    private final DataInputStream input;
+    private byte[] row;
+    private NavigableMap<byte[], Update> columns;
+
+    private RunReader(Run run, long position) throws IOException {
+      FileInputStream is = new FileInputStream(run.file);
+      try {
+        is.getChannel().position(position);
+      } catch (IOException e) {
+        is.close();
+        throw e;
+      }
+      this.input = new DataInputStream(new BufferedInputStream(is));
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return {@code false} if there are no more rows in the run
+     */
+    private boolean next() throws IOException {
+      int rowLength = input.readInt();
+      if (rowLength < 0) {
+        row = null;
+        columns = null;
+        return false;
+      }
+      row = readBytes(input, rowLength);
+      columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+        byte[] column = readBytes(input, input.readInt());
+        byte type = input.readByte();
+        switch (type) {
+          case DELETE:
+            columns.put(column, new PutValue(null));
+            break;
+          case PUT:
+            columns.put(column, new PutValue(readBytes(input, input.readInt())));
+            break;
+          case INCREMENT:
+            columns.put(column, new IncrementValue(input.readLong()));
+            break;
+          default:
+            throw new IOException("Unknown update type " + type + " in spilled buffer file");
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+
+  /**
+   * A sorted source of row changes to be merged. Sources with smaller ids hold older changes.
+   */
+  private abstract static class Source implements Closeable {
+    private final int id;
+    byte[] row;
+    NavigableMap<byte[], Update> columns;
+
+    Source(int id) {
+      this.id = id;
+    }
+
+    /**
+     * Advances to the next row.
+     *
+     * @return {@code false} if there are no more rows
+     */
+    abstract boolean advance() throws IOException;
+
+    @Override
+    public void close() {
+      // no-op by default
+    }
+  }
+
+  /**
+   * A {@link Source} reading from a run, limited to a range of rows.
+   */
+  private static final class RunSource extends Source {
+    private final RunReader reader;
+    private final byte[] startRow;
+    private final byte[] stopRow;
+
+    private RunSource(int id, RunReader reader, @Nullable byte[] startRow, @Nullable byte[] stopRow) {
+      super(id);
+      this.reader = reader;
+      this.startRow = startRow;
+      this.stopRow = stopRow;
+    }
+
+    @Override
+    boolean advance() throws IOException {
+      while (reader.next()) {
+        if (startRow != null && Bytes.compareTo(reader.row, startRow) < 0) {
+          continue;
+        }
+        if (stopRow != null && Bytes.compareTo(reader.row, stopRow) >= 0) {
+          return false;
+        }
+        row = reader.row;
+        columns = reader.columns;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void close() {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close spilled buffer file reader", e);
+      }
+    }
+  }
+
+  /**
+   * A {@link Source} reading from an in-memory map.
+   */
+  private static final class MapSource extends Source {
+    private final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator;
+
+    private MapSource(int id, Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator) {
+      super(id);
+      this.iterator = iterator;
+    }
+
+    @Override
+    boolean advance() {
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      Map.Entry<byte[], NavigableMap<byte[], Update>> entry = iterator.next();
+      row = entry.getKey();
+      columns = entry.getValue();
+      return true;
+    }
+  }
+
+  /**
+   * Merges multiple sorted sources through a priority queue ordered by row, and then by the age of the source,
+   * so that changes of the same row are merged from oldest to newest.
+   */
+  private static final class MergingIterator
+    extends AbstractCloseableIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> {
+
+    private final List<Source> sources;
+    private final PriorityQueue<Source> queue;
+    private boolean initialized;
+
+    private MergingIterator(List<Source> sources) {
+      this.sources = sources;
+      this.queue = new PriorityQueue<>(Math.max(1, sources.size()), (s1, s2) -> {
+        int cmp = Bytes.compareTo(s1.row, s2.row);
+        return cmp == 0 ? Integer.compare(s1.id, s2.id) : cmp;
+      });
+    }
+
+    @Override
+    protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+      try {
+        if (!initialized) {
+          initialized = true;
+          for (Source source : sources) {
+            if (source.advance()) {
+              queue.add(source);
+            }
+          }
+        }
+        if (queue.isEmpty()) {
+          return endOfData();
+        }
+        Source source = queue.poll();
+        byte[] row = source.row;
+        NavigableMap<byte[], Update> columns = merge(null, source.columns);
+        if (source.advance()) {
+          queue.add(source);
+        }
+        while (!queue.isEmpty() && Bytes.equals(queue.peek().row, row)) {
+          source = queue.poll();
+          merge(columns, source.columns);
+          if (source.advance()) {
+            queue.add(source);
+          }
+        }
+        return Maps.immutableEntry(row, columns);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to read spilled buffer file", e);
+      }
+    }
+
+    @Override
+    public void close() {
+      for (Source source : sources) {
+        source.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * A size-bounded cache of data read from the persistent store of a {@link BufferingTable} in the current transaction.
+ * Under snapshot isolation the persisted data visible to a transaction does not change while the transaction is
+ * running, hence data that was already fetched can be served again without going to the persistent store.
+ * <p>
+ * The cache only holds persisted values. It is up to the table to apply its in-memory buffer on top of them.
+ * The cache never evicts: once the total size of the cached data reaches the limit, no more data is added to it
+ * until it is cleared at the end of the transaction.
+ * <p>
+ * All maps passed in and returned are copied, so that callers can modify them freely.
+ */
+final class TransactionReadCache {
+
+  private final long maxSize;
+  private final NavigableMap<byte[], CachedRow> rows;
+  private final List<CachedScan> scans;
+  private long size;
+
+  TransactionReadCache(long maxSize) {
+    this.maxSize = maxSize;
+    this.rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    this.scans = new ArrayList<>();
+  }
+
+  /**
+   * Returns all persisted columns of the given row, or {@code null} if the row is not fully cached.
+   */
+  @Nullable
+  NavigableMap<byte[], byte[]> getRow(byte[] row) {
+    CachedRow cachedRow = rows.get(row);
+    if (cachedRow == null || !cachedRow.complete) {
+      return null;
+    }
+    return cachedRow.copyColumns();
+  }
+
+  /**
+   * Returns the persisted values of the given columns of a row, or {@code null} if not all of the columns are cached.
+   * Columns that are known to not exist are omitted from the result.
+   */
+  @Nullable
+  NavigableMap<byte[], byte[]> getColumns(byte[] row, byte[][] columns) {
+    CachedRow cachedRow = rows.get(row);
+    if (cachedRow == null) {
+      return null;
+    }
+    NavigableMap<byte[], byte[]> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (byte[] column : columns) {
+      byte[] value = cachedRow.columns.get(column);
+      if (value == null && !cachedRow.complete && !cachedRow.columns.containsKey(column)) {
+        return null;
+      }
+      if (value != null) {
+        result.put(copy(column), copy(value));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the persisted rows of a previous scan with the same start row and stop row, or {@code null} if no such
+   * scan is cached. Scans with a filter are never cached.
+   */
+  @Nullable
+  NavigableMap<byte[], NavigableMap<byte[], byte[]>> getScan(Scan scan) {
+    if (scan.getFilter() != null) {
+      return null;
+    }
+    for (CachedScan cachedScan : scans) {
+      if (Arrays.equals(cachedScan.startRow, scan.getStartRow()) && Arrays.equals(cachedScan.stopRow,
+                                                                                 scan.getStopRow())) {
+        NavigableMap<byte[], NavigableMap<byte[], byte[]>> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        for (byte[] row : cachedScan.rows) {
+          result.put(copy(row), rows.get(row).copyColumns());
+        }
+        return result;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds all persisted columns of a row to the cache.
+   *
+   * @return {@code true} if the row is in the cache after this call
+   */
+  boolean putRow(byte[] row, Map<byte[], byte[]> columns) {
+    CachedRow cachedRow = rows.get(row);
+    if (cachedRow != null && cachedRow.complete) {
+      return true;
+    }
+    long rowSize = getSize(row);
+    for (Map.Entry<byte[], byte[]> entry : columns.entrySet()) {
+      rowSize += getSize(entry.getKey()) + getSize(entry.getValue());
+    }
+    long existingSize = cachedRow == null ? 0L : cachedRow.size;
+    if (size - existingSize + rowSize > maxSize) {
+      return false;
+    }
+    cachedRow = new CachedRow(true, rowSize);
+    for (Map.Entry<byte[], byte[]> entry : columns.entrySet()) {
+      cachedRow.columns.put(copy(entry.getKey()), copy(entry.getValue()));
+    }
+    rows.put(copy(row), cachedRow);
+    size += rowSize - existingSize;
+    return true;
+  }
+
+  /**
+   * Adds the persisted values of the given columns of a row to the cache. Requested columns that are not in the given
+   * values are recorded as non-existing.
+   */
+  void putColumns(byte[] row, byte[][] columns, Map<byte[], byte[]> persisted) {
+    CachedRow cachedRow = rows.get(row);
+    if (cachedRow != null && cachedRow.complete) {
+      return;
+    }
+    // persisted values may come in a map that is not sorted by byte[] content
+    NavigableMap<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    values.putAll(persisted);
+    long addedSize = cachedRow == null ? getSize(row) : 0L;
+    for (byte[] column : columns) {
+      if (cachedRow == null || !cachedRow.columns.containsKey(column)) {
+        addedSize += getSize(column) + getSize(values.get(column));
+      }
+    }
+    if (size + addedSize > maxSize) {
+      return;
+    }
+    if (cachedRow == null) {
+      cachedRow = new CachedRow(false, 0L);
+      rows.put(copy(row), cachedRow);
+    }
+    for (byte[] column : columns) {
+      if (!cachedRow.columns.containsKey(column)) {
+        cachedRow.columns.put(copy(column), copy(values.get(column)));
+      }
+    }
+    cachedRow.size += addedSize;
+    size += addedSize;
+  }
+
+  /**
+   * Records the rows returned by a complete scan without filter. All of the rows must have been added with
+   * {@link #putRow(byte[], Map)} before.
+   */
+  void putScan(Scan scan, List<byte[]> scannedRows) {
+    if (scan.getFilter() != null) {
+      return;
+    }
+    long scanSize = getSize(scan.getStartRow()) + getSize(scan.getStopRow());
+    for (byte[] row : scannedRows) {
+      scanSize += getSize(row);
+    }
+    if (size + scanSize > maxSize) {
+      return;
+    }
+    scans.add(new CachedScan(copy(scan.getStartRow()), copy(scan.getStopRow()), scannedRows));
+    size += scanSize;
+  }
+
+  void clear() {
+    rows.clear();
+    scans.clear();
+    size = 0L;
+  }
+
+  private static long getSize(@Nullable byte[] bytes) {
+    return bytes == null ? 0L : bytes.length;
+  }
+
+  @Nullable
+  private static byte[] copy(@Nullable byte[] bytes) {
+    return bytes == null ? null : Arrays.copyOf(bytes, bytes.length);
+  }
+
+  /**
+   * Persisted columns of a row. A {@code null} value means that the column is known to not exist.
+   */
+  private static final class CachedRow {
+    private final NavigableMap<byte[], byte[]> columns;
+    private final boolean complete;
+    private long size;
+
+    private CachedRow(boolean complete, long size) {
+      this.columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      this.complete = complete;
+      this.size = size;
+    }
+
+    private NavigableMap<byte[], byte[]> copyColumns() {
+      NavigableMap<byte[], byte[]> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], byte[]> entry : columns.entrySet()) {
+        if (entry.getValue() != null) {
+          result.put(copy(entry.getKey()), copy(entry.getValue()));
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Row keys returned by a complete scan.
+   */
+  private static final class CachedScan {
+    private final byte[] startRow;
+    private final byte[] stopRow;
+    private final List<byte[]> rows;
+
+    private CachedScan(@Nullable byte[] startRow, @Nullable byte[] stopRow, List<byte[]> rows) {
+      this.startRow = startRow;
+      this.stopRow = stopRow;
+      this.rows = rows;
+    }
+  }
+}
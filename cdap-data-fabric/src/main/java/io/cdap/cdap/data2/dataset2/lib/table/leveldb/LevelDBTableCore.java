@@ -17,6 +17,8 @@
 package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.table.Result;
 import io.cdap.cdap.api.dataset.table.Row;
@@ -34,13 +36,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -84,67 +90,107 @@ public class LevelDBTableCore {
     return service.getWriteOptions();
   }
 
+  /**
+   * Returns the locks for read-modify-write operations, shared by all cores of the same table. Only read-modify-write
+   * operations take the locks, hence they are atomic with each other, but not with other writes.
+   */
+  private Striped<Lock> getRowLocks() {
+    return service.getRowLocks(tableName);
+  }
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
-    byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
-    }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
-    }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
+
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = getRowLocks().get(ByteBuffer.wrap(row));
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
     Map<byte[], Long> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
-    DB db = getDB();
-    WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
-      for (Map.Entry<byte[], Long> entry : increments.entrySet()) {
-        byte[] rowKey = createPutKey(row, entry.getKey(), Long.MAX_VALUE);
-        byte[] existingValue = db.get(rowKey, readOptions);
-        long newValue = incrementValue(entry.getValue(), existingValue, row, entry.getKey());
-        result.put(entry.getKey(), newValue);
-        writeBatch.put(rowKey, Bytes.toBytes(newValue));
+    Lock lock = getRowLocks().get(ByteBuffer.wrap(row));
+    lock.lock();
+    try {
+      DB db = getDB();
+      WriteBatch writeBatch = db.createWriteBatch();
+      // the row lock doesn't block other writes, hence read from a snapshot to see all columns at the same point
+      try (Snapshot snapshot = db.getSnapshot()) {
+        ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
+
+        for (Map.Entry<byte[], Long> entry : increments.entrySet()) {
+          byte[] rowKey = createPutKey(row, entry.getKey(), Long.MAX_VALUE);
+          byte[] existingValue = db.get(rowKey, readOptions);
+          long newValue = incrementValue(entry.getValue(), existingValue, row, entry.getKey());
+          result.put(entry.getKey(), newValue);
+          writeBatch.put(rowKey, Bytes.toBytes(newValue));
+        }
+        db.write(writeBatch, service.getWriteOptions());
       }
-      db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      lock.unlock();
     }
 
     return result;
   }
 
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
     if (updates.isEmpty()) {
       return;
     }
 
-    DB db = getDB();
-    WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
+    List<ByteBuffer> rows = new ArrayList<>(updates.size());
+    for (byte[] row : updates.keySet()) {
+      rows.add(ByteBuffer.wrap(row));
+    }
+    // bulkGet returns the locks in a consistent order, so that concurrent batches cannot deadlock
+    List<Lock> locks = ImmutableList.copyOf(getRowLocks().bulkGet(rows));
+    int locked = 0;
+    try {
+      for (Lock lock : locks) {
+        lock.lock();
+        locked++;
+      }
 
-      for (Map.Entry<byte[], NavigableMap<byte[], Long>> updateEntry : updates.entrySet()) {
-        for (Map.Entry<byte[], Long> entry : updateEntry.getValue().entrySet()) {
-          byte[] rowKey = createPutKey(updateEntry.getKey(), entry.getKey(), Long.MAX_VALUE);
-          byte[] existingValue = db.get(rowKey, readOptions);
-          long newValue = incrementValue(entry.getValue(), existingValue, updateEntry.getKey(), entry.getKey());
-          writeBatch.put(rowKey, Bytes.toBytes(newValue));
+      DB db = getDB();
+      WriteBatch writeBatch = db.createWriteBatch();
+      // the row locks don't block other writes, hence read from a snapshot to see all rows at the same point
+      try (Snapshot snapshot = db.getSnapshot()) {
+        ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
+
+        for (Map.Entry<byte[], NavigableMap<byte[], Long>> updateEntry : updates.entrySet()) {
+          for (Map.Entry<byte[], Long> entry : updateEntry.getValue().entrySet()) {
+            byte[] rowKey = createPutKey(updateEntry.getKey(), entry.getKey(), Long.MAX_VALUE);
+            byte[] existingValue = db.get(rowKey, readOptions);
+            long newValue = incrementValue(entry.getValue(), existingValue, updateEntry.getKey(), entry.getKey());
+            writeBatch.put(rowKey, Bytes.toBytes(newValue));
+          }
         }
+        db.write(writeBatch, service.getWriteOptions());
+      }
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        locks.get(i).unlock();
       }
-      db.write(writeBatch, service.getWriteOptions());
     }
   }
 
@@ -66,6 +66,10 @@ public final class FactTable implements Closeable {
   private static final int MAX_RECORDS_TO_SCAN_DURING_SEARCH = 10 * 1000 * 1000;
   private static final int MAX_SCANS_DURING_SEARCH = 10 * 1000;
 
+  // row for storing the modification version. It never matches fact rows, since they all start with the codec version.
+  private static final byte[] MODIFICATION_VERSION_ROW = Bytes.toBytes("modification.version");
+  private static final byte[] MODIFICATION_VERSION_COLUMN = Bytes.toBytes("v");
+
   private final MetricsTable timeSeriesTable;
   private final EntityTable entityTable;
   private final FactCodec codec;
@@ -113,6 +117,30 @@ public final class FactTable implements Closeable {
     this.metrics = metrics;
   }
 
+  /**
+   * Returns the number of seconds covered by each row, which is the interval between the timebase of two
+   * consecutive rows.
+   */
+  public int getRollTime() {
+    return rollTime;
+  }
+
+  /**
+   * Returns the modification version of this table, which is changed by {@link #updateModificationVersion()}.
+   * Since it is stored in the table, it can be used for detecting modifications made by other processes.
+   */
+  public long getModificationVersion() {
+    byte[] value = timeSeriesTable.get(MODIFICATION_VERSION_ROW, MODIFICATION_VERSION_COLUMN);
+    return value == null ? 0L : Bytes.toLong(value);
+  }
+
+  /**
+   * Changes the modification version of this table.
+   */
+  public void updateModificationVersion() {
+    timeSeriesTable.increment(MODIFICATION_VERSION_ROW, Collections.singletonMap(MODIFICATION_VERSION_COLUMN, 1L));
+  }
+
   public void add(List<Fact> facts) {
     // Simply collecting all rows/cols/values that need to be put to the underlying table.
     NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -94,6 +95,12 @@ public class FieldLineageInfo {
   // outgoing operation map. stores the operation name as key and set of operations which uses it as input
   private transient Map<String, Set<Operation>> operationOutgoingConnections;
 
+  // Source fields of the incoming summary computed by this instance, with the position in the list as the field id
+  private transient List<EndPointField> summarySourceFields;
+
+  // Incoming summary computed by this instance, with the source fields represented by their ids
+  private transient Map<EndPointField, BitSet> incomingSummaryIds;
+
   private long checksum;
 
   /**
@@ -329,112 +336,147 @@ public class FieldLineageInfo {
       computeAndValidateFieldLineageInfo(this.operations);
     }
 
-    Map<String, Set<EndPointField>> operationEndPointMap = new HashMap<>();
-    Map<EndPointField, Set<EndPointField>> summary = new HashMap<>();
+    // Each source field is identified by its position in this list, so that the set of source fields
+    // related to an operation can be represented as a BitSet
+    List<EndPointField> sourceFields = new ArrayList<>();
+    Map<EndPointField, Integer> sourceFieldIds = new HashMap<>();
+
+    // Computes the related sources of each transform in topological order, so that the related sources of the
+    // operations a transform takes inputs from are always computed before, and are computed only once.
+    Map<String, BitSet> transformSources = new HashMap<>();
+    for (Operation operation : getTopologicallySortedOperations(operations)) {
+      if (operation.getType() == OperationType.TRANSFORM) {
+        TransformOperation transform = (TransformOperation) operation;
+        BitSet relatedSources = new BitSet();
+        for (InputField input : transform.getInputs()) {
+          relatedSources.or(getRelatedSources(input, transformSources, sourceFields, sourceFieldIds));
+        }
+        transformSources.put(transform.getName(), relatedSources);
+      }
+    }
+
+    // For a field written from a read operation, the related sources are all the fields the write operation
+    // takes from that read operation
+    Map<EndPointField, BitSet> summary = new HashMap<>();
     for (WriteOperation write : writeOperations) {
-      List<InputField> inputs = write.getInputs();
-      for (InputField input : inputs) {
+      Map<String, BitSet> readSources = new HashMap<>();
+      for (InputField input : write.getInputs()) {
+        if (operationsMap.get(input.getOrigin()).getType() == OperationType.READ) {
+          readSources.computeIfAbsent(input.getOrigin(), k -> new BitSet())
+            .or(getRelatedSources(input, transformSources, sourceFields, sourceFieldIds));
+        }
+      }
+
+      for (InputField input : write.getInputs()) {
         EndPointField dest = new EndPointField(write.getDestination(), input.getName());
-        Set<EndPointField> fields = summary.computeIfAbsent(dest, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          fields.addAll(operationEndPointMap.get(input.getOrigin()));
-        } else {
-          fields.addAll(computeIncomingSummaryHelper(operationsMap.get(input.getOrigin()), write,
-                                                     operationEndPointMap));
+        BitSet relatedSources = readSources.containsKey(input.getOrigin())
+          ? readSources.get(input.getOrigin()) : transformSources.get(input.getOrigin());
+        BitSet fields = summary.computeIfAbsent(dest, k -> new BitSet());
+        if (relatedSources != null) {
+          fields.or(relatedSources);
         }
       }
     }
+
     for (TransformOperation transform : dropTransforms) {
-      for (InputField input : transform.getInputs()) {
-        Operation previous = operationsMap.get(input.getOrigin());
+      if (!transform.getInputs().isEmpty()) {
         // drop transforms uses a common NULL endpoint as key
-        Set<EndPointField> endPointFields = summary.computeIfAbsent(NULL_EPF, k -> new HashSet<>());
-        if (operationEndPointMap.containsKey(input.getOrigin())) {
-          endPointFields.addAll(new HashSet<>(operationEndPointMap.get(input.getOrigin())));
-          continue;
-        }
-        endPointFields.addAll(computeIncomingSummaryHelper(previous, transform, operationEndPointMap));
+        summary.computeIfAbsent(NULL_EPF, k -> new BitSet()).or(transformSources.get(transform.getName()));
       }
     }
-    return summary;
+
+    this.summarySourceFields = sourceFields;
+    this.incomingSummaryIds = summary;
+    return toEndPointFields(summary, sourceFields);
   }
 
   /**
-   * Helper method to compute the incoming summary
+   * Helper method to compute the incoming summary. Returns the source fields related to the given input field.
    *
-   * @param currentOperation the operation being processed. Since we are processing incoming this operation is on the
-   * left side if graph is imagined in horizontal orientation or this operation is the input to the to
-   * previousOperation
-   * @param previousOperation the previous operation which is processed and reside on right to the current operation if
-   * the graph is imagined to be in horizontal orientation.
-   * @param operationEndPointMap a map that contains the operation name to the final endpoint field it will generate,
-   * this is used to track the path we already computed to ensure we do not do the same computation again
+   * @param input the input field of an operation
+   * @param transformSources the related sources of the transforms already processed in topological order
+   * @param sourceFields list of source fields, with the position in the list as the id of the field
+   * @param sourceFieldIds a map from source field to its id
+   * @return a {@link BitSet} of source field ids
    */
-  private Set<EndPointField> computeIncomingSummaryHelper(Operation currentOperation,
-                                                          Operation previousOperation,
-                                                          Map<String, Set<EndPointField>> operationEndPointMap) {
-    if (currentOperation.getType() == OperationType.READ) {
-      // if current operation is of type READ, previous operation must be of type TRANSFORM or WRITE
-      // get only the input fields from the previous operations for which the origin is current READ operation
-      Set<InputField> inputFields = new HashSet<>();
-      if (OperationType.WRITE == previousOperation.getType()) {
-        WriteOperation previousWrite = (WriteOperation) previousOperation;
-        inputFields = new HashSet<>(previousWrite.getInputs());
-      } else if (OperationType.TRANSFORM == previousOperation.getType()) {
-        TransformOperation previousTransform = (TransformOperation) previousOperation;
-        inputFields = new HashSet<>(previousTransform.getInputs());
-      }
+  private BitSet getRelatedSources(InputField input, Map<String, BitSet> transformSources,
+                                   List<EndPointField> sourceFields, Map<EndPointField, Integer> sourceFieldIds) {
+    Operation origin = operationsMap.get(input.getOrigin());
+    if (origin.getType() != OperationType.READ) {
+      BitSet relatedSources = transformSources.get(origin.getName());
+      return relatedSources == null ? new BitSet() : relatedSources;
+    }
+
+    EndPointField sourceField = new EndPointField(((ReadOperation) origin).getSource(), input.getName());
+    Integer id = sourceFieldIds.get(sourceField);
+    if (id == null) {
+      id = sourceFields.size();
+      sourceFields.add(sourceField);
+      sourceFieldIds.put(sourceField, id);
+    }
+    BitSet relatedSources = new BitSet();
+    relatedSources.set(id);
+    return relatedSources;
+  }
 
-      Set<EndPointField> sourceEndPointFields = new HashSet<>();
+  private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
+    if (incomingSummary == null) {
+      incomingSummary = computeIncomingSummary();
+    }
 
-      // for all the input fields of the previous operation if the origin was current operation (remember we are
-      // traversing backward)
-      ReadOperation read = (ReadOperation) currentOperation;
-      EndPoint source = read.getSource();
-      for (InputField inputField : inputFields) {
-        if (inputField.getOrigin().equals(currentOperation.getName())) {
-          sourceEndPointFields.add(new EndPointField(source, inputField.getName()));
+    if (incomingSummaryIds == null) {
+      // the incoming summary was not computed by this instance
+      Map<EndPointField, Set<EndPointField>> outgoingSummary = new HashMap<>();
+      for (Map.Entry<EndPointField, Set<EndPointField>> entry : incomingSummary.entrySet()) {
+        Set<EndPointField> values = entry.getValue();
+        for (EndPointField value : values) {
+          Set<EndPointField> outgoingEndPointFields = outgoingSummary.computeIfAbsent(value, k -> new HashSet<>());
+          outgoingEndPointFields.add(entry.getKey());
         }
       }
-      // reached the end of graph unwind the recursive calls
-      return sourceEndPointFields;
-    }
-
-    Set<EndPointField> relatedSources = new HashSet<>();
-    // for transform we traverse backward in graph further through the inputs of the transform
-    if (currentOperation.getType() == OperationType.TRANSFORM) {
-      TransformOperation transform = (TransformOperation) currentOperation;
-      // optimization to avoid repeating work if there are input fields with the same origin
-      Set<String> transformOrigins = transform.getInputs().stream()
-        .map(InputField::getOrigin)
-        .collect(Collectors.toSet());
-      for (String transformOrigin : transformOrigins) {
-        if (operationEndPointMap.containsKey(transformOrigin)) {
-          relatedSources.addAll(operationEndPointMap.get(transformOrigin));
-        } else {
-          relatedSources.addAll(
-            computeIncomingSummaryHelper(operationsMap.get(transformOrigin), currentOperation, operationEndPointMap));
+      return outgoingSummary;
+    }
+
+    // Invert the source field ids of the incoming summary, with the position in destFields as the destination id
+    List<EndPointField> destFields = new ArrayList<>(incomingSummaryIds.size());
+    BitSet[] outgoingIds = new BitSet[summarySourceFields.size()];
+    for (Map.Entry<EndPointField, BitSet> entry : incomingSummaryIds.entrySet()) {
+      int destId = destFields.size();
+      destFields.add(entry.getKey());
+      BitSet sourceIds = entry.getValue();
+      for (int id = sourceIds.nextSetBit(0); id >= 0; id = sourceIds.nextSetBit(id + 1)) {
+        if (outgoingIds[id] == null) {
+          outgoingIds[id] = new BitSet();
         }
+        outgoingIds[id].set(destId);
       }
-      operationEndPointMap.put(currentOperation.getName(), relatedSources);
     }
-    return relatedSources;
-  }
 
-  private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
-    if (incomingSummary == null) {
-      incomingSummary = computeIncomingSummary();
+    Map<EndPointField, BitSet> outgoingSummary = new HashMap<>();
+    for (int id = 0; id < outgoingIds.length; id++) {
+      if (outgoingIds[id] != null) {
+        outgoingSummary.put(summarySourceFields.get(id), outgoingIds[id]);
+      }
     }
+    return toEndPointFields(outgoingSummary, destFields);
+  }
 
-    Map<EndPointField, Set<EndPointField>> outgoingSummary = new HashMap<>();
-    for (Map.Entry<EndPointField, Set<EndPointField>> entry : incomingSummary.entrySet()) {
-      Set<EndPointField> values = entry.getValue();
-      for (EndPointField value : values) {
-        Set<EndPointField> outgoingEndPointFields = outgoingSummary.computeIfAbsent(value, k -> new HashSet<>());
-        outgoingEndPointFields.add(entry.getKey());
+  /**
+   * Converts the field ids in the given summary to {@link EndPointField}s.
+   *
+   * @param summary map from {@link EndPointField} to the ids of the related fields
+   * @param fields list of related fields, with the position in the list as the id of the field
+   */
+  private static Map<EndPointField, Set<EndPointField>> toEndPointFields(Map<EndPointField, BitSet> summary,
+                                                                       List<EndPointField> fields) {
+    return summary.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+      BitSet ids = entry.getValue();
+      Set<EndPointField> result = new HashSet<>(ids.cardinality() * 2);
+      for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+        result.add(fields.get(id));
       }
-    }
-    return outgoingSummary;
+      return result;
+    }, (s1, s2) -> s1, HashMap::new));
   }
 
   /**
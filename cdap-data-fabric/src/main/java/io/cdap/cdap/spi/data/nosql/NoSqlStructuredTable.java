@@ -74,6 +74,17 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.put(convertFieldsToBytes(fields));
   }
 
+  @Override
+  public void upsertAll(Collection<? extends Collection<Field<?>>> multiFields) throws InvalidFieldException {
+    LOG.trace("Table {}: Write multiple fields {}", schema.getTableId(), multiFields);
+    // Convert all rows first so that nothing is written if any of the rows is invalid.
+    // The puts are buffered in the transaction and persisted together on commit.
+    List<Put> puts = multiFields.stream().map(this::convertFieldsToBytes).collect(Collectors.toList());
+    for (Put put : puts) {
+      table.put(put);
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException {
     LOG.trace("Table {}: Read with keys {}", schema.getTableId(), keys);
@@ -96,6 +107,7 @@ public final class NoSqlStructuredTable implements StructuredTable {
   @Override
   public Collection<StructuredRow> multiRead(Collection<? extends Collection<Field<?>>> multiKeys)
     throws InvalidFieldException {
+    LOG.trace("Table {}: Read with multiple keys {}", schema.getTableId(), multiKeys);
     List<Get> gets = multiKeys.stream()
       .map(k -> convertKeyToBytes(k, false))
       .map(Get::new)
@@ -212,6 +224,15 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.delete(convertKeyToBytes(keys, false));
   }
 
+  @Override
+  public void deleteAll(Collection<? extends Collection<Field<?>>> multiKeys) throws InvalidFieldException {
+    LOG.trace("Table {}: Delete with multiple keys {}", schema.getTableId(), multiKeys);
+    List<byte[]> rows = multiKeys.stream().map(k -> convertKeyToBytes(k, false)).collect(Collectors.toList());
+    for (byte[] row : rows) {
+      table.delete(row);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", schema.getTableId(), keyRange);
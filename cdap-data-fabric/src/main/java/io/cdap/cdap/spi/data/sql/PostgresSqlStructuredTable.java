@@ -17,6 +17,7 @@
 package io.cdap.cdap.spi.data.sql;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.spi.data.InvalidFieldException;
@@ -51,6 +52,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
@@ -61,6 +63,8 @@ import javax.annotation.Nullable;
 public class PostgresSqlStructuredTable implements StructuredTable {
   private static final Logger LOG = LoggerFactory.getLogger(PostgresSqlStructuredTable.class);
   private static final int SCAN_FETCH_SIZE = 100;
+  // maximum number of rows to read in one query or to write in one batch
+  private static final int MAX_BATCH_SIZE = 1000;
 
   private final Connection connection;
   private final StructuredTableSchema tableSchema;
@@ -84,6 +88,26 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     upsertInternal(fields);
   }
 
+  @Override
+  public void upsertAll(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple fields {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+      if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+        throw new InvalidFieldException(tableSchema.getTableId(), fields,
+                                        String.format("Given fields %s do not contain all the " +
+                                                        "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+      }
+    }
+    try {
+      executeBatches(multiFields, fields -> getWriteSqlQuery(fields, null));
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to write to table %s with multiple fields %s",
+                                          tableSchema.getTableId().getName(), multiFields), e);
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     return readRow(keys, null);
@@ -115,55 +139,53 @@ public class PostgresSqlStructuredTable implements StructuredTable {
       fieldValidator.validatePrimaryKeys(keys, false);
     }
 
-    // Collapse values of each key
-    Map<String, Set<Field<?>>> keyFields = new LinkedHashMap<>();
-    multiKeys.stream()
-      .flatMap(Collection::stream)
-      .forEach(field -> keyFields.computeIfAbsent(field.getName(), k -> new LinkedHashSet<>()).add(field));
-
-    try (PreparedStatement statement = prepareMultiReadQuery(keyFields)) {
-      LOG.trace("SQL statement: {}", statement);
-      Collection<StructuredRow> result = new ArrayList<>();
-      try (ResultSet resultSet = statement.executeQuery()) {
-        while (resultSet.next()) {
-          result.add(resultSetToRow(resultSet));
+    // Read in batches to limit the size of each query
+    Collection<StructuredRow> result = new ArrayList<>();
+    for (List<? extends Collection<Field<?>>> batch : Iterables.partition(multiKeys, MAX_BATCH_SIZE)) {
+      try (PreparedStatement statement = prepareMultiReadQuery(batch)) {
+        LOG.trace("SQL statement: {}", statement);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            result.add(resultSetToRow(resultSet));
+          }
         }
-        return result;
+      } catch (SQLException e) {
+        throw new IOException(String.format("Failed to read from table %s with multi keys %s",
+                                            tableSchema.getTableId().getName(), multiKeys), e);
       }
-    } catch (SQLException e) {
-      throw new IOException(String.format("Failed to read from table %s with multi keys %s",
-                                          tableSchema.getTableId().getName(), multiKeys), e);
     }
+    return result;
   }
 
   /**
-   * Creates a SELECT query that fetches rows from a given set of keys.
+   * Creates a SELECT query that fetches rows from a given set of keys. The keys are matched as a whole using row
+   * value comparison, for example:
    *
-   * @param keyFields a map from field name to set of field values to query
+   * SELECT * FROM table WHERE (key1,key2) IN ((?,?),(?,?));
+   *
+   * @param multiKeys the collection of primary keys to query
    * @return a SELECT query ready to be used for creating prepared statement
    */
-  private PreparedStatement prepareMultiReadQuery(Map<String, Set<Field<?>>> keyFields) throws SQLException {
-    StringBuilder queryString =
-      new StringBuilder("SELECT ")
-        .append("*")
-        .append(" FROM ")
-        .append(tableSchema.getTableId().getName())
-        .append(" WHERE ");
-
-    Joiner.on(" AND ").appendTo(
-      queryString, keyFields.entrySet().stream()
-        .map(e -> {
-          StringBuilder fieldBuilder = new StringBuilder(e.getKey()).append(" IN (");
-          Joiner.on(',').appendTo(fieldBuilder, IntStream.range(0, e.getValue().size()).mapToObj(i -> "?").iterator());
-          return fieldBuilder.append(")").toString();
-        }).iterator()
-    );
-    queryString.append(";");
-
-    PreparedStatement preparedStatement = connection.prepareStatement(queryString.toString());
-
-    // Set fields to the statement
-    setFields(preparedStatement, keyFields.values().stream().flatMap(Collection::stream)::iterator, 1);
+  private PreparedStatement prepareMultiReadQuery(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws SQLException {
+    List<String> primaryKeys = tableSchema.getPrimaryKeys();
+    String rowValue = primaryKeys.stream().map(k -> "?").collect(Collectors.joining(",", "(", ")"));
+
+    String queryString = "SELECT * FROM " + tableSchema.getTableId().getName()
+      + " WHERE " + primaryKeys.stream().collect(Collectors.joining(",", "(", ")"))
+      + " IN " + multiKeys.stream().map(k -> rowValue).collect(Collectors.joining(",", "(", ")"))
+      + ";";
+
+    PreparedStatement preparedStatement = connection.prepareStatement(queryString);
+
+    // Set fields to the statement in the primary keys order
+    int index = 1;
+    for (Collection<Field<?>> keys : multiKeys) {
+      Map<String, Field<?>> keyFields = keys.stream().collect(Collectors.toMap(Field::getName, f -> f));
+      for (String primaryKey : primaryKeys) {
+        setField(preparedStatement, keyFields.get(primaryKey), index++);
+      }
+    }
     return preparedStatement;
   }
 
@@ -441,6 +463,21 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void deleteAll(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+    try {
+      executeBatches(multiKeys, this::getDeleteQuery);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to delete the rows from table %s with multiple keys %s",
+                                          tableSchema.getTableId().getName(), multiKeys), e);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -483,6 +520,54 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Executes statements for the given collections of fields using JDBC batches. Consecutive collections of fields
+   * that generate the same SQL are executed in the same batch, hence the statements are executed in the order of
+   * the given collection.
+   *
+   * @param multiFields the collections of fields to set to the statements
+   * @param queryFunction a function to generate the SQL for a collection of fields
+   * @throws SQLException if failed to execute the statements
+   */
+  private void executeBatches(Collection<? extends Collection<Field<?>>> multiFields,
+                              Function<Collection<Field<?>>, String> queryFunction) throws SQLException {
+    String currentQuery = null;
+    PreparedStatement statement = null;
+    int batchSize = 0;
+    try {
+      for (Collection<Field<?>> fields : multiFields) {
+        String query = queryFunction.apply(fields);
+        if (!query.equals(currentQuery)) {
+          if (statement != null) {
+            executeBatch(statement, batchSize);
+            statement.close();
+          }
+          statement = connection.prepareStatement(query);
+          currentQuery = query;
+          batchSize = 0;
+        } else if (batchSize >= MAX_BATCH_SIZE) {
+          executeBatch(statement, batchSize);
+          batchSize = 0;
+        }
+        setFields(statement, fields, 1);
+        statement.addBatch();
+        batchSize++;
+      }
+      if (statement != null) {
+        executeBatch(statement, batchSize);
+      }
+    } finally {
+      if (statement != null) {
+        statement.close();
+      }
+    }
+  }
+
+  private void executeBatch(PreparedStatement statement, int batchSize) throws SQLException {
+    LOG.trace("SQL statement: {} with batch size {}", statement, batchSize);
+    statement.executeBatch();
+  }
+
   /**
    * Read a row from the table. Null columns mean read from all columns.
    *
@@ -338,6 +338,62 @@ public class IndexedTableTest {
     }
   }
 
+  @Test
+  public void testIndexedRowKeyLookups() throws Exception {
+    DatasetId rowKeyLookupDs = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("rowKeyLookup");
+    dsFrameworkUtil.createInstance("indexedTable", rowKeyLookupDs, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .build());
+    final IndexedTable iTable = dsFrameworkUtil.getInstance(rowKeyLookupDs);
+    TransactionExecutor txnl = dsFrameworkUtil.newTransactionExecutor(iTable);
+
+    try {
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // valA is a prefix of valAA and valAB
+          iTable.put(new Put(keyA).add(idxCol, valA).add(valCol, valA));
+          iTable.put(new Put(keyB).add(idxCol, valAA).add(valCol, valB));
+          iTable.put(new Put(keyC).add(idxCol, valA).add(valCol, valC));
+          iTable.put(new Put(keyD).add(idxCol, valAB).add(valCol, valD));
+          iTable.put(new Put(keyE).add(idxCol, valB).add(valCol, valE));
+        }
+      });
+
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // exact match must not include the rows with values that have the given value as prefix
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, valA), keyA, keyC);
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, valAA), keyB);
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, valB), keyE);
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, valC));
+
+          // range [valAA, valB) contains valAA and valAB
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, valAA, valB), keyB, keyD);
+          // range [null, valAA) contains valA
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, null, valAA), keyA, keyC);
+          // range [valAB, null) contains valAB and valB
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, valAB, null), keyD, keyE);
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(rowKeyLookupDs);
+    }
+  }
+
+  private void assertRowKeys(CloseableIterator<byte[]> iterator, byte[]... expected) {
+    try {
+      for (byte[] key : expected) {
+        Assert.assertTrue(iterator.hasNext());
+        assertArrayEquals(key, iterator.next());
+      }
+      Assert.assertFalse(iterator.hasNext());
+    } finally {
+      iterator.close();
+    }
+  }
+
   @Test
   public void testIndexKeyDelimiterAmbiguity() throws Exception {
     final byte[] a = { 'a' };
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.cube;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.Cube;
+import io.cdap.cdap.api.dataset.lib.cube.CubeDeleteQuery;
+import io.cdap.cdap.api.dataset.lib.cube.TimeSeries;
+import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import io.cdap.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import io.cdap.cdap.data2.dataset2.lib.timeseries.FactTable;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DefaultCube} with parallel query execution and query result caching.
+ */
+public class DefaultCubeParallelQueryTest extends AbstractCubeTest {
+
+  private static ExecutorService queryExecutor;
+
+  @BeforeClass
+  public static void init() {
+    queryExecutor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void finish() {
+    queryExecutor.shutdownNow();
+  }
+
+  @Override
+  protected Cube getCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
+    FactTableSupplier supplier = (resolution, rollTime) -> {
+      String entityTableName = "ParallelEntityTable-" + name;
+      InMemoryTableService.create(entityTableName);
+      String dataTableName = "ParallelDataTable-" + name + "-" + resolution;
+      InMemoryTableService.create(dataTableName);
+      return new FactTable(new InMemoryMetricsTable(dataTableName),
+                           new EntityTable(new InMemoryMetricsTable(entityTableName)),
+                           resolution, rollTime);
+
+    };
+
+    return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.of(), queryExecutor, 100);
+  }
+
+  @Test
+  public void testQueryAcrossRollTimes() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1"));
+    Cube cube = getCube("rollTimesCube", new int[] {60}, ImmutableMap.of("agg", agg));
+
+    // write facts in 10 different hours, which are in different rows of the fact table
+    long[] expected = new long[20];
+    for (int i = 0; i < 10; i++) {
+      long ts = i * 3600L + 60;
+      writeInc(cube, "metric1", ts, i + 1, "1");
+      writeInc(cube, "metric1", ts, i + 1, "2");
+      expected[i * 2] = ts;
+      expected[i * 2 + 1] = (i + 1) * 2;
+    }
+
+    // Query twice, with the second query served from the cache
+    for (int i = 0; i < 2; i++) {
+      verifyCountQuery(cube, 0, 36000, 60, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                       new ArrayList<>(),
+                       ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(), timeValues(expected))));
+    }
+
+    // Query with a time range that is not aligned to the roll time
+    verifyCountQuery(cube, 3660, 7260, 60, "metric1", AggregationFunction.SUM, ImmutableMap.of("dim1", "1"),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(),
+                                                     timeValues(3660, 2, 7260, 3))));
+
+    // Adding facts to old time range should invalidate the cache
+    writeInc(cube, "metric1", 60, 10, "1");
+    expected[1] += 10;
+    verifyCountQuery(cube, 0, 36000, 60, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(), timeValues(expected))));
+  }
+
+  @Test
+  public void testResolutionLargerThanRollTime() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1"));
+    int resolution = 86400;
+    Cube cube = getCube("largeResolutionCube", new int[] {resolution}, ImmutableMap.of("agg", agg));
+
+    // facts are stored at the start of the day, which is before the current row of the fact table
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    long today = now / resolution * resolution;
+    long startTs = today - 10L * resolution;
+    writeInc(cube, "metric1", startTs + 60, 1, "1");
+    writeInc(cube, "metric1", now, 2, "1");
+
+    for (int i = 0; i < 2; i++) {
+      verifyCountQuery(cube, startTs, now, resolution, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                       new ArrayList<>(),
+                       ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(),
+                                                       timeValues(startTs, 1, today, 2))));
+    }
+
+    // Adding facts to the current day should be reflected, since the day is not cached
+    writeInc(cube, "metric1", now, 3, "1");
+    verifyCountQuery(cube, startTs, now, resolution, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(),
+                                                     timeValues(startTs, 1, today, 5))));
+
+    // Adding facts to an old day should invalidate the cache
+    writeInc(cube, "metric1", startTs + 7200, 4, "1");
+    verifyCountQuery(cube, startTs, now, resolution, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(),
+                                                     timeValues(startTs, 5, today, 5))));
+  }
+
+  @Test
+  public void testModificationsFromOtherCube() throws Exception {
+    // Two cubes of the same tables, like cubes of different processes
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1"));
+    Cube writer = getCube("sharedCube", new int[] {60}, ImmutableMap.of("agg", agg));
+    Cube reader = getCube("sharedCube", new int[] {60}, ImmutableMap.of("agg", agg));
+
+    writeInc(writer, "metric1", 60, 1, "1");
+    for (int i = 0; i < 2; i++) {
+      verifyCountQuery(reader, 0, 3600, 60, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                       new ArrayList<>(),
+                       ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(), timeValues(60, 1))));
+    }
+
+    // Facts added by the other cube should be reflected
+    writeInc(writer, "metric1", 120, 2, "1");
+    verifyCountQuery(reader, 0, 3600, 60, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(), timeValues(60, 1, 120, 2))));
+
+    // Facts deleted by the other cube should be reflected
+    writer.delete(new CubeDeleteQuery(0, 60, 60, Collections.singletonMap("dim1", "1"),
+                                      Collections.singletonList("metric1"), aggregates -> true));
+    verifyCountQuery(reader, 0, 3600, 60, "metric1", AggregationFunction.SUM, Collections.emptyMap(),
+                     new ArrayList<>(),
+                     ImmutableList.of(new TimeSeries("metric1", Collections.emptyMap(), timeValues(120, 2))));
+  }
+}
@@ -1038,6 +1038,64 @@ public class PartitionedFileSetTest {
 
   }
 
+  @Test
+  @Category(SlowTests.class)
+  public void testIndexedFields() throws Exception {
+    DatasetId indexedInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("indexed");
+    dsFrameworkUtil.createInstance("partitionedFileSet", indexedInstance, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setIndexedFields("i", "l")
+      .build());
+    try {
+      final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(indexedInstance);
+      final Set<BasicPartition> allPartitionDetails = Sets.newHashSet();
+
+      // add all partitions in a single transaction
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          for (int s = 0; s < 4; s++) {
+            for (int i = 0; i < 4; i++) {
+              for (int l = 0; l < 4; l++) {
+                PartitionKey key = PartitionKey.builder()
+                  .addField("s", String.format("%c-%d", 'a' + s, s))
+                  .addField("i", i * 100)
+                  .addField("l", 15L - 10 * l)
+                  .build();
+                PartitionOutput p = dataset.getPartitionOutput(key);
+                p.addPartition();
+                allPartitionDetails.add(new BasicPartition((PartitionedFileSetDataset) dataset,
+                                                           p.getRelativePath(), p.getPartitionKey()));
+              }
+            }
+          }
+        }
+      });
+
+      // filters on the indexed fields are evaluated through the index, and must return the same result as a scan
+      List<PartitionFilter> filters = generateFilters();
+      testAllFilters(dataset, allPartitionDetails, filters);
+
+      // dropped partitions must be removed from the index
+      final PartitionKey toDrop = allPartitionDetails.iterator().next().getPartitionKey();
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          dataset.dropPartition(toDrop);
+        }
+      });
+      Iterables.removeIf(allPartitionDetails, new com.google.common.base.Predicate<BasicPartition>() {
+        @Override
+        public boolean apply(BasicPartition partition) {
+          return toDrop.equals(partition.getPartitionKey());
+        }
+      });
+      testAllFilters(dataset, allPartitionDetails, filters);
+    } finally {
+      dsFrameworkUtil.deleteInstance(indexedInstance);
+    }
+  }
+
   private void testAllFilters(PartitionedFileSet dataset,
                               Set<BasicPartition> allPartitionDetails,
                               List<PartitionFilter> filters) throws Exception {
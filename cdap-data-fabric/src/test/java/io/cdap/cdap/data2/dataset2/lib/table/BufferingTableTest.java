@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.data2.dataset2.lib.table;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.common.Bytes;
@@ -27,6 +28,8 @@ import io.cdap.cdap.api.dataset.table.Scan;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.api.dataset.table.TableProperties;
+import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.dataset2.TableAssert;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
@@ -35,6 +38,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -497,6 +501,183 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  @Test
+  public void testReadCache() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, MY_TABLE)) {
+      // persist some data
+      Transaction tx1 = txClient.startShort();
+      table.startTx(tx1);
+      table.put(R1, a(C1, C2), a(V1, V2));
+      table.put(R2, a(C1), a(V1));
+      txClient.canCommitOrThrow(tx1, table.getTxChanges());
+      Assert.assertTrue(table.commitTx());
+      txClient.commitOrThrow(tx1);
+      table.postTxCommit();
+
+      ReadCountingTable cachingTable = new ReadCountingTable(
+        table, ImmutableMap.of(Constants.Dataset.TABLE_READ_CACHE_SIZE, "1024"));
+      Map<String, Long> metrics = new HashMap<>();
+      cachingTable.setMetricsCollector(new MetricsCollector() {
+        @Override
+        public void increment(String metricName, long value) {
+          metrics.merge(metricName, value, Long::sum);
+        }
+
+        @Override
+        public void gauge(String metricName, long value) {
+          metrics.put(metricName, value);
+        }
+      });
+
+      Transaction tx2 = txClient.startShort();
+      cachingTable.startTx(tx2);
+      // repeated reads of the same row only go to the persistent store once
+      TableAssert.assertRow(a(C1, V1, C2, V2), cachingTable.get(R1));
+      TableAssert.assertRow(a(C1, V1, C2, V2), cachingTable.get(R1));
+      TableAssert.assertRow(a(C1, V1), cachingTable.get(R1, a(C1)));
+      TableAssert.assertRow(a(C2, V2), cachingTable.get(R1, C2, null, 0));
+      Assert.assertEquals(1, cachingTable.persistedReads);
+
+      // columns that don't exist are cached too
+      Assert.assertTrue(cachingTable.get(R2, a(C2)).isEmpty());
+      Assert.assertTrue(cachingTable.get(R2, a(C2)).isEmpty());
+      Assert.assertEquals(2, cachingTable.persistedReads);
+
+      // buffered writes are applied on top of cached data
+      cachingTable.put(R1, a(C1), a(V3));
+      cachingTable.delete(R1, a(C2));
+      TableAssert.assertRow(a(C1, V3), cachingTable.get(R1));
+      Assert.assertEquals(2, cachingTable.persistedReads);
+
+      // a complete scan is repeated from the cache
+      cachingTable.put(R3, a(C1), a(V1));
+      for (int i = 0; i < 2; i++) {
+        TableAssert.assertScan(a(R1, R2, R3), aa(a(C1, V3), a(C1, V1), a(C1, V1)), cachingTable.scan(R1, null));
+      }
+      Assert.assertEquals(3, cachingTable.persistedReads);
+      Assert.assertEquals(3L, (long) metrics.get(Constants.Metrics.Name.Dataset.READ_CACHE_MISSES));
+      Assert.assertEquals(6L, (long) metrics.get(Constants.Metrics.Name.Dataset.READ_CACHE_HITS));
+
+      // the cache is cleared when the transaction ends
+      Assert.assertTrue(cachingTable.rollbackTx());
+      txClient.abort(tx2);
+      Transaction tx3 = txClient.startShort();
+      cachingTable.startTx(tx3);
+      TableAssert.assertRow(a(C1, V1, C2, V2), cachingTable.get(R1));
+      Assert.assertEquals(4, cachingTable.persistedReads);
+      txClient.abort(tx3);
+
+      // data that doesn't fit in the cache is always read from the persistent store
+      ReadCountingTable smallCacheTable = new ReadCountingTable(
+        table, ImmutableMap.of(Constants.Dataset.TABLE_READ_CACHE_SIZE, "1"));
+      Transaction tx4 = txClient.startShort();
+      smallCacheTable.startTx(tx4);
+      TableAssert.assertRow(a(C1, V1, C2, V2), smallCacheTable.get(R1));
+      TableAssert.assertRow(a(C1, V1, C2, V2), smallCacheTable.get(R1));
+      Assert.assertEquals(2, smallCacheTable.persistedReads);
+      txClient.abort(tx4);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testSpillBuffer() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, MY_TABLE)) {
+      // spill the buffer after every write
+      BufferingTable spillingTable =
+        new ReadCountingTable(table, ImmutableMap.of(Constants.Dataset.TABLE_BUFFER_SPILL_THRESHOLD, "1"));
+      Transaction tx1 = txClient.startShort();
+      spillingTable.startTx(tx1);
+      spillingTable.put(R1, a(C1), a(V1));
+      spillingTable.put(R2, a(C2), a(V2));
+      spillingTable.put(R1, a(C2), a(V2));
+      spillingTable.put(R1, a(C1), a(V3));
+      spillingTable.incrementAndGet(R3, a(C1), new long[] {5L});
+      spillingTable.increment(R3, a(C1), new long[] {2L});
+
+      // changes from all spills are visible to reads
+      TableAssert.assertRow(a(C1, V3, C2, V2), spillingTable.get(R1));
+      TableAssert.assertRow(a(C2, V2), spillingTable.get(R2));
+      TableAssert.assertColumns(a(C1), lb(7L), spillingTable.get(R3, a(C1)));
+      TableAssert.assertScan(a(R1, R2, R3), aa(a(C1, V3, C2, V2), a(C2, V2), a(C1, Bytes.toBytes(7L))),
+                             spillingTable.scan(null, null));
+      TableAssert.assertScan(a(R2), aa(a(C2, V2)), spillingTable.scan(R2, R3));
+      Assert.assertEquals(3, spillingTable.getTxChanges().size());
+
+      txClient.canCommitOrThrow(tx1, spillingTable.getTxChanges());
+      Assert.assertTrue(spillingTable.commitTx());
+      txClient.commitOrThrow(tx1);
+      spillingTable.postTxCommit();
+
+      // all changes are persisted
+      Transaction tx2 = txClient.startShort();
+      table.startTx(tx2);
+      TableAssert.assertRow(a(C1, V3, C2, V2), table.get(R1));
+      TableAssert.assertRow(a(C2, V2), table.get(R2));
+      TableAssert.assertColumns(a(C1), lb(7L), table.get(R3, a(C1)));
+      txClient.abort(tx2);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testSpillBufferRollback() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, MY_TABLE)) {
+      // persist some data
+      Transaction tx1 = txClient.startShort();
+      table.startTx(tx1);
+      table.put(R1, a(C1), a(V1));
+      txClient.canCommitOrThrow(tx1, table.getTxChanges());
+      Assert.assertTrue(table.commitTx());
+      txClient.commitOrThrow(tx1);
+      table.postTxCommit();
+
+      // spill the buffer after every write
+      BufferingTable spillingTable =
+        new ReadCountingTable(table, ImmutableMap.of(Constants.Dataset.TABLE_BUFFER_SPILL_THRESHOLD, "1"));
+
+      // rollback before the spilled changes are persisted
+      Transaction tx2 = txClient.startShort();
+      spillingTable.startTx(tx2);
+      spillingTable.put(R1, a(C1), a(V2));
+      spillingTable.put(R2, a(C2), a(V2));
+      spillingTable.increment(R3, a(C1), new long[] {5L});
+      TableAssert.assertRow(a(C1, V2), spillingTable.get(R1));
+      Assert.assertTrue(spillingTable.rollbackTx());
+      txClient.abort(tx2);
+
+      // rollback after the spilled changes are persisted, as if there was a conflict when committing
+      Transaction tx3 = txClient.startShort();
+      spillingTable.startTx(tx3);
+      spillingTable.put(R1, a(C1), a(V3));
+      spillingTable.delete(R1, a(C1));
+      spillingTable.put(R2, a(C2), a(V3));
+      spillingTable.increment(R3, a(C1), new long[] {5L});
+      spillingTable.increment(R3, a(C1), new long[] {2L});
+      Assert.assertTrue(spillingTable.commitTx());
+      Assert.assertTrue(spillingTable.rollbackTx());
+      txClient.abort(tx3);
+
+      // none of the changes are visible
+      Transaction tx4 = txClient.startShort();
+      table.startTx(tx4);
+      TableAssert.assertRow(a(C1, V1), table.get(R1));
+      Assert.assertTrue(table.get(R2).isEmpty());
+      Assert.assertTrue(table.get(R3).isEmpty());
+      txClient.abort(tx4);
+    } finally {
+      admin.drop();
+    }
+  }
+
   private void verify123(BufferingTable table) throws Exception {
     byte[] row = new byte[] {1};
     byte[] col = new byte[] {2};
@@ -593,4 +774,52 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  /**
+   * A {@link BufferingTable} with the given properties, which reads and writes through another table and counts the
+   * reads of the persistent store.
+   */
+  private static final class ReadCountingTable extends BufferingTable {
+    private final BufferingTable delegate;
+    private int persistedReads;
+
+    ReadCountingTable(BufferingTable delegate, Map<String, String> properties) {
+      super(delegate.getTableName(), false, properties);
+      this.delegate = delegate;
+    }
+
+    @Override
+    protected void persist(NavigableMap<byte[], NavigableMap<byte[], Update>> buff) throws Exception {
+      delegate.persist(buff);
+    }
+
+    @Override
+    protected void undo(NavigableMap<byte[], NavigableMap<byte[], Update>> persisted) throws Exception {
+      delegate.undo(persisted);
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[][] columns) throws Exception {
+      persistedReads++;
+      return delegate.getPersisted(row, columns);
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn, byte[] stopColumn, int limit)
+      throws Exception {
+      persistedReads++;
+      return delegate.getPersisted(row, startColumn, stopColumn, limit);
+    }
+
+    @Override
+    protected Scanner scanPersisted(Scan scan) throws Exception {
+      persistedReads++;
+      return delegate.scanPersisted(scan);
+    }
+
+    @Override
+    public void startTx(Transaction tx) {
+      super.startTx(tx);
+      delegate.startTx(tx);
+    }
+  }
 }
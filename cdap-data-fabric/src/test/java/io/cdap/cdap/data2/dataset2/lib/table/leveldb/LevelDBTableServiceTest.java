@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
 
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import io.cdap.cdap.api.common.Bytes;
@@ -35,15 +36,31 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 /**
  *
  */
 public class LevelDBTableServiceTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableServiceTest.class);
+
   @ClassRule
   public static TemporaryFolder tmpFolder = new TemporaryFolder();
 
@@ -110,6 +127,79 @@ public class LevelDBTableServiceTest {
     Assert.assertEquals(table2Size, service.getTableStats().get(tableId2).getDiskSizeBytes());
   }
 
+  @Test
+  public void testConcurrentReadModifyWrite() throws Exception {
+    String tableName = "cdap_default.rmw";
+    service.ensureTableExists(tableName);
+
+    int threads = 8;
+    int rows = 8;
+    int iterations = 500;
+    byte[] incrementColumn = Bytes.toBytes("inc");
+    byte[] swapColumn = Bytes.toBytes("swap");
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long startTime = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int threadId = t;
+      futures.add(executor.submit(() -> {
+        // each thread uses its own core instance, as different dataset instances of the same table would do
+        LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+        barrier.await();
+        for (int i = 0; i < iterations; i++) {
+          byte[] row = Bytes.toBytes((threadId + i) % rows);
+          table.increment(row, Collections.singletonMap(incrementColumn, 1L));
+
+          // multi-row increment, touching the rows in a different order in each thread
+          NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+          for (int r = 0; r < rows; r += 2) {
+            NavigableMap<byte[], Long> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+            columns.put(incrementColumn, 1L);
+            updates.put(Bytes.toBytes((threadId + i + r) % rows), columns);
+          }
+          table.increment(updates);
+
+          // compare-and-swap increment
+          boolean swapped;
+          do {
+            byte[] existing = table.getRow(row, new byte[][] { swapColumn }, null, null, -1, null).get(swapColumn);
+            long newValue = existing == null ? 1L : Bytes.toLong(existing) + 1L;
+            swapped = table.swap(row, swapColumn, existing, Bytes.toBytes(newValue));
+          } while (!swapped);
+        }
+        return null;
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    LOG.info("Performed {} read-modify-write operations with {} threads on {} rows in {} ms",
+             threads * iterations * 3, threads, rows, elapsedMs);
+
+    LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+    long incrementTotal = 0L;
+    long swapTotal = 0L;
+    for (int r = 0; r < rows; r++) {
+      Map<byte[], byte[]> result = table.getRow(Bytes.toBytes(r), null, null, null, -1, null);
+      incrementTotal += Bytes.toLong(result.get(incrementColumn));
+      swapTotal += Bytes.toLong(result.get(swapColumn));
+    }
+    Assert.assertEquals(threads * iterations * (1 + rows / 2), incrementTotal);
+    Assert.assertEquals(threads * iterations, swapTotal);
+
+    // dropping the table releases its row locks
+    Striped<Lock> rowLocks = service.getRowLocks(tableName);
+    service.dropTable(tableName);
+    Assert.assertNotSame(rowLocks, service.getRowLocks(tableName));
+  }
+
   private void writeSome(String tableName) throws IOException {
     LevelDBTableCore table = new LevelDBTableCore(tableName, service);
     Random r = new Random();
@@ -31,6 +31,7 @@ import io.cdap.cdap.api.lineage.field.WriteOperation;
 import io.cdap.cdap.internal.guava.reflect.TypeToken;
 import io.cdap.cdap.proto.codec.OperationTypeAdapter;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.lang.reflect.Type;
@@ -43,6 +44,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test for {@link FieldLineageInfo}
@@ -984,6 +986,108 @@ public class FieldLineageInfoTest {
     Assert.assertTrue(aIndex < bIndex);
   }
 
+  @Test
+  public void testWidePipelineSummary() {
+    int numSources = 3;
+    int numFields = 20;
+    int numDestinations = 4;
+    FieldLineageInfo info = new FieldLineageInfo(generateWidePipeline(numSources, numFields, 5, numDestinations));
+
+    Map<EndPointField, Set<EndPointField>> expectedIncoming = new HashMap<>();
+    Map<EndPointField, Set<EndPointField>> expectedOutgoing = new HashMap<>();
+    for (int d = 0; d < numDestinations; d++) {
+      for (int i = 0; i < numFields; i++) {
+        EndPointField dest = new EndPointField(EndPoint.of("ns", "dest" + d), "f" + i);
+        EndPointField source = new EndPointField(EndPoint.of("ns", "source" + ((d + i) % numSources)), "f" + i);
+        expectedIncoming.put(dest, Collections.singleton(source));
+        expectedOutgoing.computeIfAbsent(source, k -> new HashSet<>()).add(dest);
+      }
+    }
+    Assert.assertEquals(expectedIncoming, info.getIncomingSummary());
+    Assert.assertEquals(expectedOutgoing, info.getOutgoingSummary());
+  }
+
+  @Ignore
+  @Test
+  public void testSummarySpeed() {
+    List<String> fields = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      fields.add("f" + i);
+    }
+
+    // 5 sources, each goes through 10 stages of identity + all-to-all transforms, written to 2 destinations
+    List<Operation> operations = new ArrayList<>();
+    for (int s = 0; s < 5; s++) {
+      String origin = "read" + s;
+      operations.add(new ReadOperation(origin, "read", EndPoint.of("ns", "source" + s), fields));
+      for (int stage = 0; stage < 10; stage++) {
+        String transform = "alltoall" + s + "." + stage;
+        generateLineage(fields, operations, "identity" + s + "." + stage + ".", origin, transform);
+        origin = transform;
+      }
+      for (int d = 0; d < 2; d++) {
+        List<InputField> inputs = new ArrayList<>();
+        for (String field : fields) {
+          inputs.add(InputField.of(origin, field));
+        }
+        operations.add(new WriteOperation("write" + s + "." + d, "write", EndPoint.of("ns", "dest" + s + "." + d),
+                                          inputs));
+      }
+    }
+
+    // warm up
+    for (int i = 0; i < 5; i++) {
+      new FieldLineageInfo(operations);
+    }
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < 20; i++) {
+      new FieldLineageInfo(operations);
+    }
+    long endTime = System.nanoTime();
+    System.out.println("Time spent: " + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+  }
+
+  /**
+   * Generates a pipeline that reads fields f0 to f(numFields - 1) from each of the sources, passes each field through
+   * identity transforms for the given number of stages. Field fi of destination d is written from
+   * source (d + i) % numSources.
+   */
+  private List<Operation> generateWidePipeline(int numSources, int numFields, int numStages, int numDestinations) {
+    List<String> fields = new ArrayList<>();
+    for (int i = 0; i < numFields; i++) {
+      fields.add("f" + i);
+    }
+
+    List<Operation> operations = new ArrayList<>();
+    // the operation that emits each field of each source at the end of the stages
+    String[][] origins = new String[numSources][numFields];
+    for (int s = 0; s < numSources; s++) {
+      String read = "read" + s;
+      operations.add(new ReadOperation(read, "read", EndPoint.of("ns", "source" + s), fields));
+      Arrays.fill(origins[s], read);
+
+      for (int stage = 0; stage < numStages; stage++) {
+        for (int i = 0; i < numFields; i++) {
+          String name = "identity" + s + "." + stage + "." + i;
+          operations.add(new TransformOperation(name, "identity",
+                                                Collections.singletonList(InputField.of(origins[s][i], fields.get(i))),
+                                                fields.get(i)));
+          origins[s][i] = name;
+        }
+      }
+    }
+
+    for (int d = 0; d < numDestinations; d++) {
+      List<InputField> inputs = new ArrayList<>();
+      for (int i = 0; i < numFields; i++) {
+        inputs.add(InputField.of(origins[(d + i) % numSources][i], fields.get(i)));
+      }
+      operations.add(new WriteOperation("write" + d, "write", EndPoint.of("ns", "dest" + d), inputs));
+    }
+    return operations;
+  }
+
   private void generateLineage(List<String> inputs, List<Operation> operations, String identityNamePrefix,
                                String identityOrigin, String transform) {
     // emit identity transform for all fields
@@ -22,6 +22,10 @@ import io.cdap.cdap.api.data.schema.Schema;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
@@ -285,4 +289,54 @@ public class StructuredRecordBuilderTest {
     Schema schema = Schema.recordOf("test", Schema.Field.of("d", Schema.decimalOf(5, 2)));
     StructuredRecord.builder(schema).setDecimal("d", new BigDecimal(new BigInteger("12341324"), 2)).build();
   }
+
+  @Test
+  public void testIndexAccess() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+
+    StructuredRecord record = StructuredRecord.builder(schema).set(0, 1).set(schema.getFieldIndex("score"), 2.5d)
+      .build();
+    Assert.assertEquals(1, (int) record.get(0));
+    Assert.assertEquals(1, (int) record.get("id"));
+    Assert.assertNull(record.get(1));
+    Assert.assertNull(record.get("name"));
+    Assert.assertEquals(2.5d, record.<Double>get(2), 0.0d);
+    Assert.assertEquals(2.5d, record.<Double>get("score"), 0.0d);
+    Assert.assertEquals(-1, schema.getFieldIndex("nonexist"));
+
+    // Records built by name and by position are the same
+    Assert.assertEquals(StructuredRecord.builder(schema).set("score", 2.5d).set("id", 1).build(), record);
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testSetInvalidIndex() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    StructuredRecord.builder(schema).set(1, 1);
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testMissingValue() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    StructuredRecord.builder(schema).set("id", 1).build();
+  }
+
+  @Test
+  public void testJavaSerialization() throws Exception {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord record = StructuredRecord.builder(schema).set("id", 1).set("name", "test").build();
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      StructuredRecord actual = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(record, actual);
+      Assert.assertEquals("test", actual.get(1));
+    }
+  }
 }
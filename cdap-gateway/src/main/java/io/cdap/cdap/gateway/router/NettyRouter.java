@@ -18,20 +18,26 @@ package io.cdap.cdap.gateway.router;
 
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.ServiceBindException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.conf.SConfiguration;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import io.cdap.cdap.common.security.HttpsEnabler;
 import io.cdap.cdap.common.security.KeyStores;
 import io.cdap.cdap.gateway.router.handlers.AuditLogHandler;
 import io.cdap.cdap.gateway.router.handlers.AuthenticationHandler;
 import io.cdap.cdap.gateway.router.handlers.HttpRequestRouter;
 import io.cdap.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import io.cdap.cdap.gateway.router.handlers.UpstreamConnectionPool;
+import io.cdap.cdap.gateway.router.handlers.VerifiedTokenCache;
+import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.AccessTokenTransformer;
 import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.http.SSLConfig;
@@ -89,8 +95,11 @@ public class NettyRouter extends AbstractIdleService {
   private final AccessTokenTransformer accessTokenTransformer;
   private final boolean sslEnabled;
   private InetSocketAddress boundAddress;
+  private MetricsCollectionService metricsCollectionService;
 
   private DiscoveryServiceClient discoveryServiceClient;
+  private UpstreamConnectionPool connectionPool;
+  private VerifiedTokenCache tokenCache;
   private Cancellable serverCancellable;
 
   @Inject
@@ -113,6 +122,15 @@ public class NettyRouter extends AbstractIdleService {
     this.port = sslEnabled
       ? cConf.getInt(Constants.Router.ROUTER_SSL_PORT)
       : cConf.getInt(Constants.Router.ROUTER_PORT);
+    this.metricsCollectionService = new NoOpMetricsCollectionService();
+  }
+
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting metrics of connections to the CDAP services.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsCollectionService = metricsCollectionService;
   }
 
   /**
@@ -126,6 +144,10 @@ public class NettyRouter extends AbstractIdleService {
   @Override
   protected void startUp() throws Exception {
     tokenValidator.startAndWait();
+    tokenCache = new VerifiedTokenCache(cConf, tokenValidator, accessTokenTransformer);
+    connectionPool = new UpstreamConnectionPool(cConf, metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY)));
     ChannelGroup channelGroup = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
     serverCancellable = startServer(createServerBootstrap(channelGroup), channelGroup);
   }
@@ -135,7 +157,9 @@ public class NettyRouter extends AbstractIdleService {
     boundAddress = null;
     LOG.info("Stopping Netty Router...");
 
+    connectionPool.close();
     serverCancellable.cancel();
+    tokenCache.close();
     tokenValidator.stopAndWait();
 
     LOG.info("Stopped Netty Router.");
@@ -202,8 +226,7 @@ public class NettyRouter extends AbstractIdleService {
           pipeline.addLast("http-status-request-handler", new HttpStatusRequestHandler());
           if (securityEnabled) {
             pipeline.addLast("access-token-authenticator",
-                             new AuthenticationHandler(cConf, tokenValidator,
-                                                       discoveryServiceClient, accessTokenTransformer));
+                             new AuthenticationHandler(cConf, tokenCache, discoveryServiceClient));
           }
           if (cConf.getBoolean(Constants.Router.ROUTER_AUDIT_LOG_ENABLED)) {
             pipeline.addLast("audit-log", new AuditLogHandler());
@@ -211,7 +234,7 @@ public class NettyRouter extends AbstractIdleService {
           // Always let the client to continue sending the request body after the authentication passed
           pipeline.addLast("expect-continue", new HttpServerExpectContinueHandler());
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
-          pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup));
+          pipeline.addLast("http-request-handler", new HttpRequestRouter(serviceLookup, connectionPool));
         }
       });
   }
@@ -25,8 +25,8 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.logging.AuditLogEntry;
 import io.cdap.cdap.common.utils.Networks;
 import io.cdap.cdap.security.auth.AccessTokenTransformer;
+import io.cdap.cdap.security.auth.InvalidTokenException;
 import io.cdap.cdap.security.auth.TokenState;
-import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.cdap.security.server.GrantAccessToken;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -74,24 +74,21 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
 
   private final CConfiguration cConf;
   private final String realm;
-  private final TokenValidator tokenValidator;
+  private final VerifiedTokenCache tokenCache;
   private final Pattern bypassPattern;
   private final boolean auditLogEnabled;
   private final List<String> authServerURLs;
   private final DiscoveryServiceClient discoveryServiceClient;
-  private final AccessTokenTransformer tokenTransformer;
 
-  public AuthenticationHandler(CConfiguration cConf, TokenValidator tokenValidator,
-                               DiscoveryServiceClient discoveryServiceClient,
-                               AccessTokenTransformer tokenTransformer) {
+  public AuthenticationHandler(CConfiguration cConf, VerifiedTokenCache tokenCache,
+                               DiscoveryServiceClient discoveryServiceClient) {
     this.cConf = cConf;
     this.realm = cConf.get(Constants.Security.CFG_REALM);
-    this.tokenValidator = tokenValidator;
+    this.tokenCache = tokenCache;
     this.bypassPattern = createBypassPattern(cConf);
     this.auditLogEnabled = cConf.getBoolean(Constants.Router.ROUTER_AUDIT_LOG_ENABLED);
     this.authServerURLs = getConfiguredAuthServerURLs(cConf);
     this.discoveryServiceClient = discoveryServiceClient;
-    this.tokenTransformer = tokenTransformer;
   }
 
   @Override
@@ -180,28 +177,27 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
 
       accessToken = auth.substring(idx + 1).trim();
     }
-    TokenState state = tokenValidator.validate(accessToken);
-
-    if (state.isValid()) {
-      try {
-        AccessTokenTransformer.AccessTokenIdentifierPair tokenPair = tokenTransformer.transform(accessToken);
-        // Update message header
-        request.headers().set(HttpHeaderNames.AUTHORIZATION,
-                              "CDAP-verified " + tokenPair.getAccessTokenIdentifierStr());
-        request.headers().set(Constants.Security.Headers.USER_ID,
-                              tokenPair.getAccessTokenIdentifierObj().getUsername());
-        String clientIP = Networks.getIP(channel.remoteAddress());
-        if (clientIP != null) {
-          request.headers().set(Constants.Security.Headers.USER_IP, clientIP);
-        }
-      } catch (Exception e) {
-        // This shouldn't happen in normal case, since the token is already validated
-        LOG.debug("Exception raised when getting token information from a validate token", e);
-        return TokenState.INVALID;
+
+    AccessTokenTransformer.AccessTokenIdentifierPair tokenPair;
+    try {
+      tokenPair = tokenCache.validate(accessToken);
+    } catch (InvalidTokenException e) {
+      if (e.getCause() != null) {
+        LOG.debug("Exception raised when getting token information from a validate token", e.getCause());
       }
+      return e.getReason();
     }
 
-    return state;
+    // Update message header
+    request.headers().set(HttpHeaderNames.AUTHORIZATION,
+                          "CDAP-verified " + tokenPair.getAccessTokenIdentifierStr());
+    request.headers().set(Constants.Security.Headers.USER_ID,
+                          tokenPair.getAccessTokenIdentifierObj().getUsername());
+    String clientIP = Networks.getIP(channel.remoteAddress());
+    if (clientIP != null) {
+      request.headers().set(Constants.Security.Headers.USER_IP, clientIP);
+    }
+    return TokenState.VALID;
   }
 
   /**
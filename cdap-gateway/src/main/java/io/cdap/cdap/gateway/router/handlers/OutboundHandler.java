@@ -27,28 +27,56 @@ import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
  * A {@link ChannelDuplexHandler} for forwarding requests/responses between the router and the internal service.
  * It also handle idle state event for closing idled internal connections.
+ * <p>
+ * Internal connections are pooled by {@link UpstreamConnectionPool}, hence the inbound channel that this handler
+ * forwards to changes when the connection is reused, and it is {@code null} while the connection is idle in the pool.
  */
 public class OutboundHandler extends ChannelDuplexHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private Channel inboundChannel;
   private boolean requestInProgress;
+  private boolean requestCompleted;
+  private boolean requestKeepAlive;
   private boolean keepAlive;
 
-  public OutboundHandler(Channel inboundChannel) {
+  public OutboundHandler(@Nullable Channel inboundChannel) {
+    this.inboundChannel = inboundChannel;
+  }
+
+  /**
+   * Sets the inbound channel to forward responses to, or {@code null} if the connection is not used by any request.
+   */
+  void setInboundChannel(@Nullable Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Returns {@code true} if both the last request and its response are completed and both of them allow keep-alive,
+   * meaning that the connection can be used for another request.
+   */
+  boolean isReusable() {
+    return !requestInProgress && requestCompleted && requestKeepAlive && keepAlive;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    // One receiving messages from the internal service, forward it to the inbound channel
-    inboundChannel.write(msg);
+    if (inboundChannel == null) {
+      // Nothing is expected from the internal service while the connection is idle
+      LOG.trace("Closing idle channel '{}' on receiving unexpected message.", ctx.channel());
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+      return;
+    }
 
     if (msg instanceof HttpResponse) {
       keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
@@ -58,11 +86,17 @@ public class OutboundHandler extends ChannelDuplexHandler {
     if (msg instanceof LastHttpContent) {
       requestInProgress = false;
     }
+
+    // One receiving messages from the internal service, forward it to the inbound channel.
+    // This is done after updating the states, since writing the last http content may release the connection.
+    inboundChannel.write(msg);
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    inboundChannel.flush();
+    if (inboundChannel != null) {
+      inboundChannel.flush();
+    }
   }
 
   @Override
@@ -70,14 +104,21 @@ public class OutboundHandler extends ChannelDuplexHandler {
     // A request starts with a HttpRequest
     if (msg instanceof HttpRequest) {
       requestInProgress = true;
-      keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
+      requestCompleted = false;
+      requestKeepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
+      keepAlive = requestKeepAlive;
+    }
+    // A request is completely sent with the last http content
+    if (msg instanceof LastHttpContent) {
+      requestCompleted = true;
     }
     ctx.write(msg, promise);
   }
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-    if (requestInProgress) {
+    final Channel inboundChannel = this.inboundChannel;
+    if (requestInProgress && inboundChannel != null) {
       final Channel channel = ctx.channel();
       ctx.executor().execute(() -> {
         // If outboundChannel is not saturated anymore, continue accepting
@@ -98,7 +139,7 @@ public class OutboundHandler extends ChannelDuplexHandler {
   @Override
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
     // Close the inbound channel if there is request in progress, or the last request/response has keep-alive == false
-    if (requestInProgress || !keepAlive) {
+    if (inboundChannel != null && (requestInProgress || !keepAlive)) {
       Channels.closeOnFlush(inboundChannel);
     }
     ctx.fireChannelInactive();
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.discovery.URIScheme;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.apache.twill.discovery.Discoverable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+/**
+ * A pool of keep-alive connections from the router to the CDAP services, keyed by the {@link Discoverable} of the
+ * service endpoint. A connection is returned to the pool after a response is completed, so that later requests to
+ * the same endpoint, including requests from other client connections, don't need to open a new connection.
+ * <p>
+ * A connection is always created with the event loop of the inbound channel it is created for, so that callbacks of
+ * the inbound and outbound channels are called from the same thread. Hence idle connections are pooled separately
+ * for each event loop, and the {@link #acquire(Channel, Discoverable)} and {@link #release(Channel, Discoverable)}
+ * methods must be called from the event loop of the inbound channel.
+ * <p>
+ * Idle connections are checked to be active before reused, and they are closed by the idle state handler after
+ * {@link Constants.Router#CONNECTION_TIMEOUT_SECS}. At most {@link Constants.Router#UPSTREAM_POOL_MAX_IDLE_CONNECTIONS}
+ * idle connections are kept per event loop and endpoint; connections released beyond that are closed.
+ */
+public final class UpstreamConnectionPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpstreamConnectionPool.class);
+
+  private final int idleTimeoutSecs;
+  private final int maxIdleConnections;
+  private final MetricsContext metricsContext;
+  private final ConcurrentMap<EventLoop, Map<Discoverable, Deque<Channel>>> idleChannels;
+  private final ChannelGroup channels;
+  private final AtomicInteger idleCount;
+  private volatile SslContext sslContext;
+
+  public UpstreamConnectionPool(CConfiguration cConf, MetricsContext metricsContext) {
+    this.idleTimeoutSecs = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxIdleConnections = cConf.getInt(Constants.Router.UPSTREAM_POOL_MAX_IDLE_CONNECTIONS);
+    this.metricsContext = metricsContext;
+    this.idleChannels = new ConcurrentHashMap<>();
+    this.channels = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
+    this.idleCount = new AtomicInteger();
+  }
+
+  /**
+   * Acquires a connection to the given endpoint. An idle connection in the pool is reused if there is one,
+   * otherwise a new connection is made.
+   *
+   * @param inboundChannel the inbound channel that the responses are forwarded to
+   * @param discoverable the endpoint to connect to
+   * @return a {@link ChannelFuture} that completes when the connection is ready for use
+   */
+  public ChannelFuture acquire(Channel inboundChannel, Discoverable discoverable) {
+    Deque<Channel> idle = getIdleChannels(inboundChannel.eventLoop(), discoverable);
+
+    // Reuse the most recently used connection, so that the least used ones get closed by the idle timeout
+    Channel channel = idle.pollFirst();
+    while (channel != null) {
+      idleCount.decrementAndGet();
+      OutboundHandler forwarder = channel.pipeline().get(OutboundHandler.class);
+      if (channel.isActive() && forwarder != null) {
+        LOG.trace("Reuse connection {} for {}", channel, discoverable);
+        forwarder.setInboundChannel(inboundChannel);
+        metricsContext.increment("upstream.connections.reused", 1L);
+        emitGauges();
+        return channel.newSucceededFuture();
+      }
+      channel = idle.pollFirst();
+    }
+
+    LOG.trace("Create new connection for {}", discoverable);
+    return connect(inboundChannel, discoverable);
+  }
+
+  /**
+   * Releases a connection acquired by {@link #acquire(Channel, Discoverable)}. The connection is kept in the pool
+   * if the last request and response on it are completed and allow keep-alive, otherwise it is closed.
+   *
+   * @param channel the connection to release
+   * @param discoverable the endpoint the connection is connected to
+   */
+  public void release(Channel channel, Discoverable discoverable) {
+    Deque<Channel> idle = getIdleChannels(channel.eventLoop(), discoverable);
+    OutboundHandler forwarder = channel.pipeline().get(OutboundHandler.class);
+
+    if (channel.isActive() && forwarder != null && forwarder.isReusable() && idle.size() < maxIdleConnections) {
+      forwarder.setInboundChannel(null);
+      idle.addFirst(channel);
+      idleCount.incrementAndGet();
+      emitGauges();
+      return;
+    }
+    // Closing the connection without detaching the inbound channel, so that the inbound channel gets closed
+    // if the request or response asked for it.
+    channel.close();
+  }
+
+  @Override
+  public void close() {
+    channels.close().awaitUninterruptibly();
+  }
+
+  private Deque<Channel> getIdleChannels(EventLoop eventLoop, Discoverable discoverable) {
+    // The inner map is only accessed from the event loop, hence doesn't need to be thread safe
+    Map<Discoverable, Deque<Channel>> loopChannels = idleChannels.computeIfAbsent(eventLoop, k -> new HashMap<>());
+    return loopChannels.computeIfAbsent(discoverable, k -> new ArrayDeque<>());
+  }
+
+  private ChannelFuture connect(Channel inboundChannel, final Discoverable discoverable) {
+    final OutboundHandler forwarder = new OutboundHandler(inboundChannel);
+
+    // The connection must be created using the same event loop as the inbound channel
+    // to make sure thread safety between the inbound and outbound channels callbacks.
+    Bootstrap bootstrap = new Bootstrap()
+      .group(inboundChannel.eventLoop())
+      .channel(NioSocketChannel.class)
+      .option(ChannelOption.SO_KEEPALIVE, true)
+      .handler(new ChannelInitializer<SocketChannel>() {
+        @Override
+        protected void initChannel(SocketChannel ch) throws Exception {
+          ChannelPipeline pipeline = ch.pipeline();
+
+          SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
+          if (sslHandler != null) {
+            pipeline.addLast("ssl", sslHandler);
+          }
+          pipeline.addLast("idle-state-handler", new IdleStateHandler(0, 0, idleTimeoutSecs));
+          pipeline.addLast("codec", new HttpClientCodec());
+          pipeline.addLast("forwarder", forwarder);
+        }
+      });
+
+    final long startTime = System.nanoTime();
+    ChannelFuture connectFuture = bootstrap.connect(discoverable.getSocketAddress());
+    connectFuture.addListener((ChannelFutureListener) future -> {
+      if (!future.isSuccess()) {
+        metricsContext.increment("upstream.connect.failures", 1L);
+        return;
+      }
+      metricsContext.gauge("upstream.connect.latency.ms",
+                           TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      metricsContext.increment("upstream.connections.created", 1L);
+
+      final Channel channel = future.channel();
+      channels.add(channel);
+      channel.closeFuture().addListener((ChannelFutureListener) closeFuture -> {
+        if (getIdleChannels(channel.eventLoop(), discoverable).remove(channel)) {
+          idleCount.decrementAndGet();
+        }
+        emitGauges();
+      });
+      emitGauges();
+    });
+    return connectFuture;
+  }
+
+  private void emitGauges() {
+    // The channel group removes closed channels automatically
+    int open = channels.size();
+    int idle = idleCount.get();
+    metricsContext.gauge("upstream.connections.open", open);
+    metricsContext.gauge("upstream.connections.idle", idle);
+    metricsContext.gauge("upstream.connections.active", Math.max(0, open - idle));
+  }
+
+  /**
+   * Returns the {@link SslHandler} to be used for a given discoverable endpoint
+   *
+   * @param discoverable the endpoint to connect to
+   * @return the {@link SslHandler} or {@code null} if SSL is not needed
+   */
+  @Nullable
+  private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
+    if (!URIScheme.HTTPS.isMatch(discoverable)) {
+      return null;
+    }
+    SslContext context = sslContext;
+    if (context != null) {
+      return context.newHandler(alloc);
+    }
+    synchronized (this) {
+      context = sslContext;
+      if (context == null) {
+        sslContext = context = SslContextBuilder.forClient()
+                                                .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+      }
+      return context.newHandler(alloc);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.security.auth.AccessTokenTransformer;
+import io.cdap.cdap.security.auth.InvalidTokenException;
+import io.cdap.cdap.security.auth.TokenState;
+import io.cdap.cdap.security.auth.TokenValidator;
+import org.apache.twill.common.Cancellable;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Validates access tokens with a {@link TokenValidator} and caches the {@link AccessTokenTransformer} result of
+ * valid tokens, so that a token sent repeatedly is not decoded and verified again for every request.
+ * <p>
+ * Cache entries are keyed by a digest of the token, and they are used only until the token expires. The whole
+ * cache is invalidated when the {@link TokenValidator} signals that validation results may have changed, which
+ * happens when the secret keys are changed. Invalid tokens are never cached.
+ * <p>
+ * This class is thread safe and is shared by all the {@link AuthenticationHandler}s of the router.
+ */
+public final class VerifiedTokenCache implements Closeable {
+
+  private final TokenValidator tokenValidator;
+  private final AccessTokenTransformer tokenTransformer;
+  private final Cache<HashCode, AccessTokenTransformer.AccessTokenIdentifierPair> cache;
+  private final AtomicLong generation;
+  private final Cancellable invalidationCancellable;
+
+  public VerifiedTokenCache(CConfiguration cConf, TokenValidator tokenValidator,
+                            AccessTokenTransformer tokenTransformer) {
+    this.tokenValidator = tokenValidator;
+    this.tokenTransformer = tokenTransformer;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getInt(Constants.Router.VERIFIED_TOKEN_CACHE_SIZE))
+      .build();
+    this.generation = new AtomicLong();
+    this.invalidationCancellable = tokenValidator.addInvalidationListener(this::invalidateAll);
+  }
+
+  /**
+   * Validates the given access token.
+   *
+   * @param accessToken the base64 encoded access token, or {@code null} if the request has no token
+   * @return the {@link AccessTokenTransformer.AccessTokenIdentifierPair} of the token if it is valid
+   * @throws InvalidTokenException if the token is not valid, with the reason as the {@link TokenState}
+   */
+  public AccessTokenTransformer.AccessTokenIdentifierPair validate(@Nullable String accessToken)
+    throws InvalidTokenException {
+    if (accessToken == null) {
+      return validateAndTransform(null);
+    }
+
+    HashCode key = Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8);
+    AccessTokenTransformer.AccessTokenIdentifierPair tokenPair = cache.getIfPresent(key);
+    if (tokenPair != null) {
+      if (tokenPair.getAccessTokenIdentifierObj().getExpireTimestamp() >= System.currentTimeMillis()) {
+        return tokenPair;
+      }
+      cache.invalidate(key);
+    }
+
+    // Remember the generation before the validation, so that a result computed with the keys before
+    // an invalidation doesn't stay in the cache
+    long currentGeneration = generation.get();
+    tokenPair = validateAndTransform(accessToken);
+    cache.put(key, tokenPair);
+    if (generation.get() != currentGeneration) {
+      cache.invalidate(key);
+    }
+    return tokenPair;
+  }
+
+  /**
+   * Removes all the cached tokens.
+   */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  private AccessTokenTransformer.AccessTokenIdentifierPair validateAndTransform(@Nullable String accessToken)
+    throws InvalidTokenException {
+    TokenState state = tokenValidator.validate(accessToken);
+    if (!state.isValid()) {
+      throw new InvalidTokenException(state, state.getMsg());
+    }
+    try {
+      return tokenTransformer.transform(accessToken);
+    } catch (Exception e) {
+      // This shouldn't happen in normal case, since the token is already validated
+      throw new InvalidTokenException(TokenState.INVALID, "Failed to get token information from a valid token", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    invalidationCancellable.cancel();
+    cache.invalidateAll();
+  }
+}
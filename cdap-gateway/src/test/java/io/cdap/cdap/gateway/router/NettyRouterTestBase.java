@@ -32,6 +32,7 @@ import com.ning.http.client.Request;
 import com.ning.http.client.RequestBuilder;
 import com.ning.http.client.Response;
 import com.ning.http.client.providers.netty.NettyAsyncHttpProvider;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.RandomEndpointStrategy;
 import io.cdap.cdap.common.discovery.ResolvingDiscoverable;
@@ -424,6 +425,28 @@ public abstract class NettyRouterTestBase {
     urlConnection.disconnect();
   }
 
+  @Test
+  public void testConnectionReuse() throws Exception {
+    // Only use server1
+    defaultServer2.cancelRegistration();
+
+    URI uri = new URI(resolveURI("/v2/ping"));
+    int numRequests = 50;
+
+    // Make each request with a new client connection. Connections to the server are pooled per router
+    // worker thread, hence they are reused by requests from different client connections.
+    for (int i = 0; i < numRequests; i++) {
+      try (Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort())) {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        Assert.assertEquals("HTTP/1.1 200 OK", makeRequest(uri, out, socket.getInputStream()));
+      }
+    }
+
+    Assert.assertEquals(numRequests, defaultServer1.getNumRequests());
+    int workerThreads = CConfiguration.create().getInt(Constants.Router.SERVER_WORKER_THREADS);
+    Assert.assertTrue(defaultServer1.getNumConnectionsOpened() <= workerThreads);
+  }
+
   @Test (timeout = 5000L)
   public void testExpectContinue() throws Exception {
     URL url = new URL(resolveURI("/v2/upload"));
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.gateway.router.handlers.VerifiedTokenCache;
+import io.cdap.cdap.security.auth.AccessTokenIdentifier;
+import io.cdap.cdap.security.auth.AccessTokenTransformer;
+import io.cdap.cdap.security.auth.InvalidTokenException;
+import io.cdap.cdap.security.auth.TokenState;
+import io.cdap.cdap.security.auth.TokenValidator;
+import org.apache.twill.common.Cancellable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link VerifiedTokenCache}.
+ */
+public class VerifiedTokenCacheTest {
+
+  @Test
+  public void testCache() throws Exception {
+    CountingTokenValidator validator = new CountingTokenValidator();
+    VerifiedTokenCache cache = new VerifiedTokenCache(CConfiguration.create(), validator, new TestTokenTransformer());
+
+    // a valid token is only validated once
+    Assert.assertEquals("user", cache.validate("valid").getAccessTokenIdentifierObj().getUsername());
+    Assert.assertEquals("user", cache.validate("valid").getAccessTokenIdentifierObj().getUsername());
+    Assert.assertEquals(1, validator.getValidateCount());
+
+    // invalid tokens are not cached
+    assertInvalid(cache, "invalid", TokenState.INVALID);
+    assertInvalid(cache, "invalid", TokenState.INVALID);
+    assertInvalid(cache, null, TokenState.MISSING);
+    Assert.assertEquals(4, validator.getValidateCount());
+
+    // expired tokens are validated again
+    cache.validate("expired");
+    cache.validate("expired");
+    Assert.assertEquals(6, validator.getValidateCount());
+
+    // a key change invalidates the cache
+    validator.changeKeys();
+    cache.validate("valid");
+    cache.validate("valid");
+    Assert.assertEquals(7, validator.getValidateCount());
+
+    // no invalidation after the cache is closed
+    cache.close();
+    Assert.assertEquals(0, validator.getListenerCount());
+  }
+
+  private void assertInvalid(VerifiedTokenCache cache, String token, TokenState expected) {
+    try {
+      cache.validate(token);
+      Assert.fail("Expected token to be invalid: " + token);
+    } catch (InvalidTokenException e) {
+      Assert.assertEquals(expected, e.getReason());
+    }
+  }
+
+  /**
+   * A {@link TokenValidator} that counts the number of validations.
+   */
+  private static final class CountingTokenValidator extends AbstractIdleService implements TokenValidator {
+
+    private final AtomicInteger validateCount = new AtomicInteger();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected void startUp() {
+      // no-op
+    }
+
+    @Override
+    protected void shutDown() {
+      // no-op
+    }
+
+    @Override
+    public TokenState validate(String token) {
+      validateCount.incrementAndGet();
+      if (token == null) {
+        return TokenState.MISSING;
+      }
+      return "invalid".equals(token) ? TokenState.INVALID : TokenState.VALID;
+    }
+
+    @Override
+    public Cancellable addInvalidationListener(Runnable listener) {
+      listeners.add(listener);
+      return () -> listeners.remove(listener);
+    }
+
+    int getValidateCount() {
+      return validateCount.get();
+    }
+
+    int getListenerCount() {
+      return listeners.size();
+    }
+
+    void changeKeys() {
+      listeners.forEach(Runnable::run);
+    }
+  }
+
+  /**
+   * An {@link AccessTokenTransformer} that returns an expired identifier for the "expired" token.
+   */
+  private static final class TestTokenTransformer extends AccessTokenTransformer {
+
+    TestTokenTransformer() {
+      super(null, null);
+    }
+
+    @Override
+    public AccessTokenIdentifierPair transform(String accessToken) {
+      long now = System.currentTimeMillis();
+      long expireTime = "expired".equals(accessToken) ? now - 1000L : now + 100000L;
+      return new AccessTokenIdentifierPair(accessToken,
+                                           new AccessTokenIdentifier("user", Collections.emptyList(), now, expireTime));
+    }
+  }
+}
@@ -23,13 +23,16 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
@@ -53,6 +56,7 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
    */
   protected long keyExpirationPeriod = 0;
 
+  private final List<Runnable> keyChangeListeners = new CopyOnWriteArrayList<>();
 
   /**
    * An AbstractKeyManager that has common functionality of all keymanagers.
@@ -125,9 +129,30 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
     addKey(keyIdentifier);
     this.currentKey = keyIdentifier;
     LOG.info("Changed current key to {}", currentKey);
+    notifyKeyChange();
     return keyIdentifier;
   }
 
+  @Override
+  public final Cancellable addKeyChangeListener(Runnable listener) {
+    keyChangeListeners.add(listener);
+    return () -> keyChangeListeners.remove(listener);
+  }
+
+  /**
+   * Calls all the key change listeners. Extended classes must call this method when keys are added or removed
+   * other than through {@link #generateKey()}.
+   */
+  protected final void notifyKeyChange() {
+    for (Runnable listener : keyChangeListeners) {
+      try {
+        listener.run();
+      } catch (Throwable t) {
+        LOG.warn("Exception raised from key change listener {}", listener, t);
+      }
+    }
+  }
+
   @Override
   public final <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException {
@@ -18,6 +18,7 @@ package io.cdap.cdap.security.auth;
 
 import com.google.common.util.concurrent.Service;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 
 import java.security.InvalidKeyException;
 
@@ -64,4 +65,12 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Adds a listener to be called when secret keys are added or removed, after which the result of validating a
+   * digest may be different from before.
+   * @param listener The listener to be called.
+   * @return A {@link Cancellable} to remove the listener.
+   */
+  Cancellable addKeyChangeListener(Runnable listener);
+
 }
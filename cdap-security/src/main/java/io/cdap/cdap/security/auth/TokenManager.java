@@ -20,6 +20,7 @@ import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import io.cdap.cdap.common.io.Codec;
+import org.apache.twill.common.Cancellable;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
@@ -86,4 +87,13 @@ public class TokenManager extends AbstractIdleService {
       throw new InvalidTokenException(TokenState.INTERNAL, "Invalid key for token.", ike);
     }
   }
+
+  /**
+   * Adds a listener to be called when the secret keys used to validate tokens are changed.
+   * @param listener The listener to be called.
+   * @return A {@link Cancellable} to remove the listener.
+   */
+  public Cancellable addKeyChangeListener(Runnable listener) {
+    return keyManager.addKeyChangeListener(listener);
+  }
 }
@@ -17,6 +17,7 @@
 package io.cdap.cdap.security.auth;
 
 import com.google.common.util.concurrent.Service;
+import org.apache.twill.common.Cancellable;
 
 /**
  * Interface TokenValidator to validate the access token.
@@ -30,4 +31,16 @@ public interface TokenValidator extends Service {
    * @return The state after validation.
    */
   TokenState validate(String token);
+
+  /**
+   * Adds a listener to be called when tokens that were validated before may have a different validation result,
+   * for example because the secret keys for validating tokens are changed. The default implementation never calls
+   * the listener.
+   *
+   * @param listener The listener to be called.
+   * @return A {@link Cancellable} to remove the listener.
+   */
+  default Cancellable addInvalidationListener(Runnable listener) {
+    return () -> { };
+  }
 }
@@ -34,6 +34,7 @@ import io.cdap.cdap.security.guice.SecurityModules;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.zookeeper.MiniZooKeeperCluster;
+import org.apache.twill.common.Cancellable;
 import org.apache.twill.zookeeper.ZKClientService;
 import org.apache.zookeeper.ZooDefs;
 import org.junit.AfterClass;
@@ -46,6 +47,7 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 
@@ -115,6 +117,29 @@ public class DistributedKeyManagerTest extends TestTokenManager {
     tokenManager2.stopAndWait();
   }
 
+  @Test
+  public void testKeyChangeListener() throws Exception {
+    WaitableDistributedKeyManager manager1 = getKeyManager(injector1, true);
+    WaitableDistributedKeyManager manager2 = getKeyManager(injector2, false);
+
+    AtomicInteger changes = new AtomicInteger();
+    Cancellable cancellable = manager2.addKeyChangeListener(changes::incrementAndGet);
+
+    // a new key from one instance should be seen as a key change by the other
+    KeyIdentifier newKey = manager1.newKey();
+    Tasks.waitFor(true, () -> manager2.hasKey(newKey.getKeyId()) && changes.get() > 0, 5L, TimeUnit.SECONDS);
+
+    cancellable.cancel();
+    changes.set(0);
+    manager1.newKey();
+    manager1.newKey();
+    TimeUnit.MILLISECONDS.sleep(500);
+    Assert.assertEquals(0, changes.get());
+
+    manager1.stopAndWait();
+    manager2.stopAndWait();
+  }
+
   @Test
   public void testGetACLs() throws Exception {
     CConfiguration kerbConf = CConfiguration.create();
@@ -136,7 +161,7 @@ public class DistributedKeyManagerTest extends TestTokenManager {
     return new ImmutablePair<>(tokenManager, injector1.getInstance(AccessTokenCodec.class));
   }
 
-  private DistributedKeyManager getKeyManager(Injector injector, boolean expectLeader) throws Exception {
+  private WaitableDistributedKeyManager getKeyManager(Injector injector, boolean expectLeader) throws Exception {
     ZKClientService zk = injector.getInstance(ZKClientService.class);
     zk.startAndWait();
     WaitableDistributedKeyManager keyManager =
@@ -163,6 +188,10 @@ public class DistributedKeyManagerTest extends TestTokenManager {
     public boolean hasKey(int keyId) {
       return super.hasKey(keyId);
     }
+
+    KeyIdentifier newKey() {
+      return generateKey();
+    }
   }
 
   private static class TestingTokenManager extends TokenManager {
@@ -21,26 +21,147 @@ import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.SchemaHash;
+import io.cdap.cdap.api.spark.SparkConfigs;
+import org.apache.spark.SparkEnv;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * A Kryo {@link Serializer} for {@link Schema}.
+ * <p>
+ * A schema is serialized as a marker byte and its {@link SchemaHash}. Schemas listed in the
+ * {@link SparkConfigs#KRYO_SCHEMAS} property of the Spark configuration are known to all the Spark processes,
+ * hence only the hash is written for them. For other schemas, the schema JSON is written after the hash, and it is
+ * only parsed once per process.
+ * <p>
+ * A new instance is created for each {@link Kryo} instance, and it uses the schemas listed in the Spark
+ * configuration of the process at that time.
  */
 public class SchemaSerializer extends Serializer<Schema> {
 
+  private static final byte SCHEMA_REF = 0;
+  private static final byte SCHEMA_INLINE = 1;
+  private static final int HASH_SIZE = 16;
+  private static final Gson GSON = new Gson();
+  private static final Type SCHEMAS_TYPE = new TypeToken<List<String>>() { }.getType();
+
+  // schema cache so that we do not parse the schema string for each record
+  private static final ConcurrentMap<SchemaHash, Schema> schemaCache = new ConcurrentHashMap<>();
+  // the last parsed schemas property, so that it is only parsed once per process
+  private static volatile RegisteredSchemas lastRegisteredSchemas;
+
+  // schemas listed in the Spark configuration
+  private final Map<SchemaHash, Schema> registeredSchemas;
+
+  public SchemaSerializer() {
+    this(getSchemasProperty());
+  }
+
+  /**
+   * Creates an instance that serializes the given schemas by their hash only.
+   *
+   * @param schemas a JSON array of schemas, or {@code null} if there is no registered schema
+   */
+  SchemaSerializer(@Nullable String schemas) {
+    this.registeredSchemas = getRegisteredSchemas(schemas);
+  }
+
   @Override
   public void write(Kryo kryo, Output output, Schema schema) {
-    output.writeString(schema.toString());
+    SchemaHash schemaHash = schema.getSchemaHash();
+    if (registeredSchemas.containsKey(schemaHash)) {
+      output.writeByte(SCHEMA_REF);
+      output.writeBytes(schemaHash.toByteArray());
+    } else {
+      output.writeByte(SCHEMA_INLINE);
+      output.writeBytes(schemaHash.toByteArray());
+      output.writeString(schema.toString());
+    }
   }
 
   @Override
   public Schema read(Kryo kryo, Input input, Class<Schema> type) {
-    try {
-      return Schema.parseJson(input.readString());
-    } catch (IOException e) {
-      throw new KryoException("Fail to deserialize Schema", e);
+    byte marker = input.readByte();
+    SchemaHash schemaHash = new SchemaHash(ByteBuffer.wrap(input.readBytes(HASH_SIZE)));
+
+    if (marker == SCHEMA_REF) {
+      Schema schema = registeredSchemas.get(schemaHash);
+      if (schema == null) {
+        throw new KryoException("Schema with hash " + schemaHash + " is not registered in "
+                                  + SparkConfigs.KRYO_SCHEMAS);
+      }
+      return schema;
+    }
+
+    String schemaStr = input.readString();
+    Schema schema = schemaCache.get(schemaHash);
+    if (schema == null) {
+      try {
+        schema = Schema.parseJson(schemaStr);
+      } catch (IOException e) {
+        throw new KryoException("Fail to deserialize Schema", e);
+      }
+      schemaCache.put(schemaHash, schema);
+    }
+    return schema;
+  }
+
+  /**
+   * Returns the schemas property from the Spark configuration of the current process.
+   */
+  @Nullable
+  private static String getSchemasProperty() {
+    SparkEnv env = SparkEnv.get();
+    return env == null ? null : env.conf().get(SparkConfigs.KRYO_SCHEMAS, null);
+  }
+
+  /**
+   * Returns the schemas in the given schemas property, keyed by their hash.
+   */
+  private static Map<SchemaHash, Schema> getRegisteredSchemas(@Nullable String schemas) {
+    if (schemas == null) {
+      return Collections.emptyMap();
+    }
+    RegisteredSchemas registered = lastRegisteredSchemas;
+    if (registered != null && registered.property.equals(schemas)) {
+      return registered.schemas;
+    }
+    Map<SchemaHash, Schema> result = new HashMap<>();
+    for (String schemaStr : GSON.<List<String>>fromJson(schemas, SCHEMAS_TYPE)) {
+      try {
+        Schema schema = Schema.parseJson(schemaStr);
+        result.put(schema.getSchemaHash(), schema);
+      } catch (IOException e) {
+        throw new KryoException("Failed to parse schema in " + SparkConfigs.KRYO_SCHEMAS + ": " + schemaStr, e);
+      }
+    }
+    lastRegisteredSchemas = new RegisteredSchemas(schemas, result);
+    return result;
+  }
+
+  /**
+   * The schemas parsed from a schemas property.
+   */
+  private static final class RegisteredSchemas {
+    private final String property;
+    private final Map<SchemaHash, Schema> schemas;
+
+    RegisteredSchemas(String property, Map<SchemaHash, Schema> schemas) {
+      this.property = property;
+      this.schemas = schemas;
     }
   }
 }
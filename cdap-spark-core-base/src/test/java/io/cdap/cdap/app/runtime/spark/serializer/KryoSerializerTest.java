@@ -17,18 +17,23 @@
 package io.cdap.cdap.app.runtime.spark.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.format.StructuredRecordStringConverter;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unit tests for various Kryo serializers in CDAP.
@@ -87,6 +92,97 @@ public class KryoSerializerTest {
                         StructuredRecordStringConverter.toJsonString(newRecord));
   }
 
+  @Test
+  public void testRegisteredSchema() {
+    Schema schema = Schema.recordOf("registered", Schema.Field.of("x", Schema.of(Schema.Type.STRING)));
+    StructuredRecord record = StructuredRecord.builder(schema).set("x", "value").build();
+
+    Kryo kryo = new Kryo();
+    kryo.addDefaultSerializer(Schema.class, SchemaSerializer.class);
+    kryo.addDefaultSerializer(StructuredRecord.class, StructuredRecordSerializer.class);
+
+    Kryo registeredKryo = new Kryo();
+    registeredKryo.addDefaultSerializer(Schema.class, new SchemaSerializer(
+      new Gson().toJson(Collections.singletonList(schema.toString()))));
+    registeredKryo.addDefaultSerializer(StructuredRecord.class, StructuredRecordSerializer.class);
+
+    byte[] inlineBytes = serialize(kryo, record);
+    byte[] refBytes = serialize(registeredKryo, record);
+
+    // a registered schema is not written with the record
+    Assert.assertTrue(refBytes.length < inlineBytes.length);
+    Assert.assertEquals(record, registeredKryo.readObject(new Input(refBytes), StructuredRecord.class));
+    Assert.assertEquals(record, registeredKryo.readObject(new Input(inlineBytes), StructuredRecord.class));
+
+    // only the Kryo instance with the registered schema uses it
+    Assert.assertArrayEquals(inlineBytes, serialize(kryo, record));
+    Assert.assertEquals(record, kryo.readObject(new Input(inlineBytes), StructuredRecord.class));
+    try {
+      kryo.readObject(new Input(refBytes), StructuredRecord.class);
+      Assert.fail("Expected failure for a schema that is not registered");
+    } catch (KryoException e) {
+      // expected
+    }
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() {
+    Schema schema = createSchema();
+    StructuredRecord record = StructuredRecord.builder(schema)
+      .set("boolean", true)
+      .set("int", 10)
+      .set("long", 1L + Integer.MAX_VALUE)
+      .set("float", 1.5f)
+      .set("double", 2.25d)
+      .set("string", "Hello World")
+      .set("bytes", "Hello Bytes".getBytes(StandardCharsets.UTF_8))
+      .set("enum", "a")
+      .set("array", new int[]{1, 2, 3})
+      .set("map", ImmutableMap.of("1", 1, "2", 2, "3", 3))
+      .set("union", null).build();
+
+    Kryo kryo = new Kryo();
+    kryo.addDefaultSerializer(Schema.class, SchemaSerializer.class);
+    kryo.addDefaultSerializer(StructuredRecord.class, StructuredRecordSerializer.class);
+
+    Kryo registeredKryo = new Kryo();
+    registeredKryo.addDefaultSerializer(Schema.class, new SchemaSerializer(
+      new Gson().toJson(Collections.singletonList(schema.toString()))));
+    registeredKryo.addDefaultSerializer(StructuredRecord.class, StructuredRecordSerializer.class);
+
+    int count = 100000;
+    measureSpeed(kryo, record, count, "Inline schema");
+    measureSpeed(registeredKryo, record, count, "Registered schema");
+  }
+
+  private void measureSpeed(Kryo kryo, StructuredRecord record, int count, String name) {
+    long startTime = System.nanoTime();
+    byte[] bytes = null;
+    for (int i = 0; i < count; i++) {
+      bytes = serialize(kryo, record);
+    }
+    long writeTime = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      kryo.readObject(new Input(bytes), StructuredRecord.class);
+    }
+    long readTime = System.nanoTime() - startTime;
+
+    System.out.println(name + ": bytes per record: " + bytes.length
+                         + ", records written per second: " + count * TimeUnit.SECONDS.toNanos(1) / writeTime
+                         + ", records read per second: " + count * TimeUnit.SECONDS.toNanos(1) / readTime);
+  }
+
+  private byte[] serialize(Kryo kryo, Object obj) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (Output output = new Output(bos)) {
+      kryo.writeObject(output, obj);
+    }
+    return bos.toByteArray();
+  }
+
   private Schema createSchema() {
     return Schema.recordOf("record",
       Schema.Field.of("boolean", Schema.of(Schema.Type.BOOLEAN)),
@@ -173,6 +173,60 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(new HashSet<>(keys), result);
   }
 
+  @Test
+  public void testMultiReadExactKeys() throws Exception {
+    writeSimpleStructuredRows(2, "");
+
+    // Write rows with keys (0, 1L) and (1, 0L), which match the individual key values of the rows read below,
+    // but not any of the compound keys
+    TransactionRunners.run(getTransactionRunner(), context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.upsert(Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 1L),
+                                 Fields.stringField(STRING_COL, VAL)));
+      table.upsert(Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 0L),
+                                 Fields.stringField(STRING_COL, VAL)));
+    });
+
+    Collection<Collection<Field<?>>> keys = Arrays.asList(
+      Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L)),
+      Arrays.asList(Fields.intField(KEY, 1), Fields.longField(KEY2, 1L)));
+    Set<Collection<Field<?>>> result = TransactionRunners.run(getTransactionRunner(), context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      return new HashSet<>(convertRowsToFields(table.multiRead(keys).iterator(), Arrays.asList(KEY, KEY2)));
+    });
+
+    Assert.assertEquals(new HashSet<>(keys), result);
+  }
+
+  @Test
+  public void testUpsertAllDeleteAll() throws Exception {
+    int max = 10;
+
+    List<Collection<Field<?>>> expected = new ArrayList<>(max);
+    List<Collection<Field<?>>> keys = new ArrayList<>(max);
+    for (int i = 0; i < max; i++) {
+      expected.add(Arrays.asList(Fields.intField(KEY, i),
+                                 Fields.longField(KEY2, (long) i),
+                                 Fields.stringField(STRING_COL, VAL + i),
+                                 Fields.doubleField(DOUBLE_COL, (double) i),
+                                 Fields.floatField(FLOAT_COL, (float) i),
+                                 Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+      keys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i)));
+    }
+
+    // Write all rows in one call and read them back
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).upsertAll(expected));
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Delete half of the rows in one call
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).deleteAll(keys.subList(0, max / 2)));
+    Assert.assertEquals(expected.subList(max / 2, max), readSimpleStructuredRows(max));
+
+    // Delete the remaining rows
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).deleteAll(keys.subList(max / 2, max)));
+    Assert.assertEquals(Collections.emptyList(), readSimpleStructuredRows(max));
+  }
+
   @Test
   public void testSimpleScan() throws Exception {
     int max = 100;
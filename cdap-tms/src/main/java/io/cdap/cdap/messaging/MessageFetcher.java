@@ -22,6 +22,7 @@ import io.cdap.cdap.messaging.data.RawMessage;
 import org.apache.tephra.Transaction;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -35,6 +36,7 @@ public abstract class MessageFetcher {
   private boolean includeStart = true;
   private Long startTime;
   private Transaction transaction;
+  private long waitMillis;
 
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
@@ -96,6 +98,23 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the maximum amount of time to wait for new messages if there is no message available when fetching.
+   * The fetch returns as soon as new messages are published to the topic, or when the wait time has passed,
+   * in which case the fetch result can be empty. By default, this is set to {@code 0}, meaning no wait.
+   *
+   * @param waitTime the maximum amount of time to wait
+   * @param unit the {@link TimeUnit} of the wait time
+   * @return this instance
+   */
+  public MessageFetcher setWaitTime(long waitTime, TimeUnit unit) {
+    if (waitTime < 0) {
+      throw new IllegalArgumentException("Invalid message fetching wait time. Wait time must be >= 0");
+    }
+    this.waitMillis = unit.toMillis(waitTime);
+    return this;
+  }
+
   @Nullable
   protected byte[] getStartOffset() {
     return startOffset;
@@ -119,6 +138,10 @@ public abstract class MessageFetcher {
     return limit;
   }
 
+  protected long getWaitMillis() {
+    return waitMillis;
+  }
+
   /**
    * Returns a {@link CloseableIterator} that iterates over messages fetched from the messaging system.
    *
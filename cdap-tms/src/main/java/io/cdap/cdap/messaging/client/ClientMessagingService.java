@@ -41,6 +41,7 @@ import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.messaging.data.RawMessageCodec;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.common.http.HttpMethod;
@@ -61,7 +62,9 @@ import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
@@ -94,12 +97,26 @@ public final class ClientMessagingService implements MessagingService {
   private static final Type TOPIC_LIST_TYPE = new TypeToken<List<String>>() { }.getType();
 
   private final RemoteClient remoteClient;
+  private final boolean rawFetchEncoding;
 
   @VisibleForTesting
   @Inject
   public ClientMessagingService(DiscoveryServiceClient discoveryServiceClient) {
+    this(discoveryServiceClient, true);
+  }
+
+  /**
+   * Creates an instance of this client.
+   *
+   * @param discoveryServiceClient the {@link DiscoveryServiceClient} for discovering the messaging service
+   * @param rawFetchEncoding {@code true} to request fetch responses with the {@link RawMessageCodec} encoding;
+   *                         otherwise avro encoding will be used
+   */
+  @VisibleForTesting
+  public ClientMessagingService(DiscoveryServiceClient discoveryServiceClient, boolean rawFetchEncoding) {
     this.remoteClient = new RemoteClient(discoveryServiceClient, Constants.Service.MESSAGING_SERVICE,
                                          HTTP_REQUEST_CONFIG, "/v1/namespaces/");
+    this.rawFetchEncoding = rawFetchEncoding;
   }
 
   @Override
@@ -334,18 +351,24 @@ public final class ClientMessagingService implements MessagingService {
    * Verifies the content-type in the header matches with the required type.
    */
   private void verifyContentType(Map<String, ? extends Collection<String>> headers, String requiredContentType) {
+    if (!requiredContentType.equalsIgnoreCase(getContentType(headers))) {
+      throw new IllegalArgumentException("Only " + requiredContentType + " content type is support.");
+    }
+  }
+
+  /**
+   * Returns the content-type in the header or {@code null} if it is absent.
+   */
+  @Nullable
+  private String getContentType(Map<String, ? extends Collection<String>> headers) {
     // Netty 4.1 has all headers set with lower case name
     // However, the cdap-http library doesn't handle it well, hence we iterate all headers instead of lookup in here
-    boolean passed = false;
     for (Map.Entry<String, ? extends Collection<String>> entry : headers.entrySet()) {
       if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(entry.getKey())) {
-        passed = requiredContentType.equalsIgnoreCase(Iterables.getFirst(entry.getValue(), null));
-        break;
+        return Iterables.getFirst(entry.getValue(), null);
       }
     }
-    if (!passed) {
-      throw new IllegalArgumentException("Only " + requiredContentType + " content type is support.");
-    }
+    return null;
   }
 
   /**
@@ -397,8 +420,18 @@ public final class ClientMessagingService implements MessagingService {
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, createTopicPath(topicId) + "/poll");
+      // Let the server wait for new messages if the fetch has a wait time
+      long waitMillis = getWaitMillis();
+      String path = createTopicPath(topicId) + "/poll" + (waitMillis > 0 ? "?wait=" + waitMillis : "");
+      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, path);
+      if (waitMillis > 0 && urlConn.getReadTimeout() > 0) {
+        urlConn.setReadTimeout((int) Math.min(Integer.MAX_VALUE, urlConn.getReadTimeout() + waitMillis));
+      }
       urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
+      if (rawFetchEncoding) {
+        // Older server ignores the accept header and always responds with avro
+        urlConn.setRequestProperty(HttpHeaders.ACCEPT, RawMessageCodec.CONTENT_TYPE + ", avro/binary");
+      }
 
       // Send the request
       Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
@@ -423,6 +456,9 @@ public final class ClientMessagingService implements MessagingService {
           urlConn.disconnect();
         }
       }, "Failed to update topic " + topicId);
+      if (RawMessageCodec.CONTENT_TYPE.equalsIgnoreCase(getContentType(urlConn.getHeaderFields()))) {
+        return createRawMessageIterator(urlConn);
+      }
       verifyContentType(urlConn.getHeaderFields(), "avro/binary");
 
       // Decode the avro array manually instead of using DatumReader in order to support streaming decode.
@@ -469,5 +505,31 @@ public final class ClientMessagingService implements MessagingService {
         }
       };
     }
+
+    /**
+     * Creates a {@link CloseableIterator} that decodes messages encoded with {@link RawMessageCodec} from the
+     * response body.
+     */
+    private CloseableIterator<RawMessage> createRawMessageIterator(HttpURLConnection urlConn) throws IOException {
+      InputStream inputStream = urlConn.getInputStream();
+      DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+      return new AbstractCloseableIterator<RawMessage>() {
+        @Override
+        protected RawMessage computeNext() {
+          try {
+            RawMessage message = RawMessageCodec.decode(input);
+            return message == null ? endOfData() : message;
+          } catch (IOException e) {
+            throw Throwables.propagate(e);
+          }
+        }
+
+        @Override
+        public void close() {
+          Closeables.closeQuietly(inputStream);
+          urlConn.disconnect();
+        }
+      };
+    }
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.data;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Codec for the raw binary encoding of a stream of {@link RawMessage} used in fetch responses.
+ * Compare to the avro encoding, this encoding doesn't need any intermediate object and allows the message
+ * payloads to be sent without copying.
+ *
+ * Each message is encoded as:
+ *
+ * <pre>
+ *   [id length (int)][payload length (int)][id bytes][payload bytes]
+ * </pre>
+ *
+ * The end of the stream is marked by an id length of {@code -1}.
+ */
+public final class RawMessageCodec {
+
+  /**
+   * Content type for the raw message encoding.
+   */
+  public static final String CONTENT_TYPE = "application/x-cdap-tms-messages";
+
+  private static final int END_OF_STREAM = -1;
+  private static final int HEADER_SIZE = Bytes.SIZEOF_INT * 2;
+
+  private RawMessageCodec() {
+    // no-op
+  }
+
+  /**
+   * Encodes the given list of messages into a {@link CompositeByteBuf}. The message payloads are wrapped
+   * as components of the resulting buffer without copying.
+   *
+   * @param allocator the {@link ByteBufAllocator} for allocating buffers for the message headers
+   * @param messages list of messages to encode
+   * @param endOfStream {@code true} to append the end of stream marker
+   * @return a {@link ByteBuf} containing the encoded messages
+   */
+  public static ByteBuf encode(ByteBufAllocator allocator, List<RawMessage> messages, boolean endOfStream) {
+    int headersSize = endOfStream ? Bytes.SIZEOF_INT : 0;
+    for (RawMessage message : messages) {
+      headersSize += HEADER_SIZE + message.getId().length;
+    }
+
+    // All headers and ids are written to one buffer, which is then sliced and interleaved with the payloads
+    CompositeByteBuf composite = allocator.compositeBuffer(messages.size() * 2 + 1);
+    ByteBuf headers = allocator.buffer(headersSize);
+    try {
+      for (RawMessage message : messages) {
+        int start = headers.writerIndex();
+        byte[] payload = message.getPayload();
+        headers.writeInt(message.getId().length)
+          .writeInt(payload.length)
+          .writeBytes(message.getId());
+        composite.addComponent(true, headers.retainedSlice(start, headers.writerIndex() - start));
+        if (payload.length > 0) {
+          composite.addComponent(true, Unpooled.wrappedBuffer(payload));
+        }
+      }
+      if (endOfStream) {
+        int start = headers.writerIndex();
+        headers.writeInt(END_OF_STREAM);
+        composite.addComponent(true, headers.retainedSlice(start, Bytes.SIZEOF_INT));
+      }
+    } catch (Throwable t) {
+      composite.release();
+      throw t;
+    } finally {
+      headers.release();
+    }
+    return composite;
+  }
+
+  /**
+   * Decodes the next message from the given {@link DataInput}.
+   *
+   * @param input the {@link DataInput} to read from
+   * @return the next {@link RawMessage} or {@code null} if reached the end of stream
+   * @throws IOException if failed to read from the input
+   */
+  @Nullable
+  public static RawMessage decode(DataInput input) throws IOException {
+    int idLength = input.readInt();
+    if (idLength == END_OF_STREAM) {
+      return null;
+    }
+    int payloadLength = input.readInt();
+    if (idLength < 0 || payloadLength < 0) {
+      throw new IOException("Invalid message encoding with id length " + idLength
+                              + " and payload length " + payloadLength);
+    }
+    byte[] id = new byte[idLength];
+    byte[] payload = new byte[payloadLength];
+    input.readFully(id);
+    input.readFully(payload);
+    return new RawMessage(id, payload);
+  }
+}
@@ -31,12 +31,16 @@ import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.messaging.data.RawMessageCodec;
+import io.cdap.cdap.messaging.service.TopicMessageNotifier;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.http.AbstractHttpHandler;
 import io.cdap.http.BodyProducer;
+import io.cdap.http.HandlerContext;
 import io.cdap.http.HttpResponder;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
@@ -55,6 +59,8 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,13 +71,24 @@ import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message fetching REST API for the messaging system.
+ *
+ * A fetch request can optionally wait for new messages by setting the {@code wait} query parameter
+ * to the maximum number of milliseconds to wait. If there is no message available, the response is
+ * deferred until new messages are published to the topic or the wait time has passed, without blocking
+ * the handler thread.
  */
 @Path("/v1/namespaces/{namespace}/topics/{topic}")
 public final class FetchHandler extends AbstractHttpHandler {
@@ -86,19 +103,44 @@ public final class FetchHandler extends AbstractHttpHandler {
   );
 
   private final MessagingService messagingService;
-  private int messageChunkSize;
+  private final TopicMessageNotifier notifier;
+  private final int messageChunkSize;
+  private final long maxWaitMillis;
+  private final int waitThreads;
+  private ScheduledThreadPoolExecutor waitExecutor;
 
   @Inject
-  FetchHandler(CConfiguration cConf, MessagingService messagingService) {
+  FetchHandler(CConfiguration cConf, MessagingService messagingService, TopicMessageNotifier notifier) {
     this.messagingService = messagingService;
+    this.notifier = notifier;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxWaitMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_FETCH_MAX_WAIT_MS);
+    this.waitThreads = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_FETCH_WAIT_THREADS);
+  }
+
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+    waitExecutor = new ScheduledThreadPoolExecutor(waitThreads,
+                                                   Threads.createDaemonThreadFactory("tms-fetch-wait-%d"));
+    waitExecutor.setRemoveOnCancelPolicy(true);
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    try {
+      waitExecutor.shutdownNow();
+    } finally {
+      super.destroy(context);
+    }
   }
 
   @POST
   @Path("poll")
   public void poll(FullHttpRequest request, HttpResponder responder,
                    @PathParam("namespace") String namespace,
-                   @PathParam("topic") String topic) throws Exception {
+                   @PathParam("topic") String topic,
+                   @QueryParam("wait") @DefaultValue("0") long waitMillis) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
 
@@ -111,11 +153,35 @@ public final class FetchHandler extends AbstractHttpHandler {
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ByteBufInputStream(request.content()), null);
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
 
-    // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+    GenericRecord fetchRequest = datumReader.read(null, decoder);
+
+    // Use the raw encoding if the client accepts it, otherwise fallback to avro for older clients
+    String accept = request.headers().get(HttpHeaderNames.ACCEPT);
+    boolean rawEncoding = accept != null && accept.contains(RawMessageCodec.CONTENT_TYPE);
+
+    long wait = Math.min(waitMillis, maxWaitMillis);
+    if (wait > 0) {
+      new WaitingFetch(fetchRequest, topicId, responder, rawEncoding, System.currentTimeMillis() + wait).fetch();
+      return;
+    }
+
+    sendMessages(responder, fetchMessages(fetchRequest, topicId), rawEncoding);
+  }
+
+  /**
+   * Sends the messages from the given iterator as the response. The iterator will be closed when the
+   * response is completed.
+   */
+  private void sendMessages(HttpResponder responder, CloseableIterator<RawMessage> iterator, boolean rawEncoding) {
     try {
-      responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
-                            new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
+      if (rawEncoding) {
+        responder.sendContent(HttpResponseStatus.OK, new RawMessagesBodyProducer(iterator, messageChunkSize),
+                              new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE,
+                                                           RawMessageCodec.CONTENT_TYPE));
+      } else {
+        responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
+                              new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
+      }
     } catch (Throwable t) {
       iterator.close();
       throw t;
@@ -156,14 +222,213 @@ public final class FetchHandler extends AbstractHttpHandler {
     return fetcher.fetch();
   }
 
+  /**
+   * Performs a fetch that waits for new messages if there is no message available. Each attempt registers
+   * a listener to the {@link TopicMessageNotifier} before fetching. If the fetch is empty, the next attempt
+   * is triggered by either the listener or the timeout at the deadline, and is executed by the wait executor.
+   */
+  private final class WaitingFetch {
+
+    private final GenericRecord fetchRequest;
+    private final TopicId topicId;
+    private final HttpResponder responder;
+    private final boolean rawEncoding;
+    private final long deadline;
+
+    WaitingFetch(GenericRecord fetchRequest, TopicId topicId,
+                 HttpResponder responder, boolean rawEncoding, long deadline) {
+      this.fetchRequest = fetchRequest;
+      this.topicId = topicId;
+      this.responder = responder;
+      this.rawEncoding = rawEncoding;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Fetches messages and responds if there are messages or the deadline has passed. Otherwise, schedules
+     * another fetch when there are new messages published to the topic or when the deadline is reached.
+     */
+    void fetch() throws IOException, TopicNotFoundException {
+      // Register the listener before fetching so that messages published after the fetch won't be missed
+      Trigger trigger = new Trigger();
+      trigger.listenerCancellable = notifier.addListener(topicId, trigger);
+
+      CloseableIterator<RawMessage> iterator;
+      boolean respond;
+      try {
+        iterator = fetchMessages(fetchRequest, topicId);
+      } catch (Throwable t) {
+        // If the listener was triggered in the meantime, the triggered attempt will respond
+        if (trigger.claim()) {
+          throw t;
+        }
+        LOG.debug("Ignore exception raised when fetching messages from topic {} as the fetch is retried", topicId, t);
+        return;
+      }
+      try {
+        respond = iterator.hasNext() || deadline <= System.currentTimeMillis();
+      } catch (Throwable t) {
+        iterator.close();
+        if (trigger.claim()) {
+          throw t;
+        }
+        LOG.debug("Ignore exception raised when fetching messages from topic {} as the fetch is retried", topicId, t);
+        return;
+      }
+
+      if (respond) {
+        if (trigger.claim()) {
+          sendMessages(responder, iterator, rawEncoding);
+        } else {
+          iterator.close();
+        }
+        return;
+      }
+      iterator.close();
+
+      trigger.timeoutFuture = waitExecutor.schedule(trigger, deadline - System.currentTimeMillis(),
+                                                    TimeUnit.MILLISECONDS);
+      // The listener could have been triggered before the timeout is scheduled
+      if (trigger.triggered.get()) {
+        trigger.timeoutFuture.cancel(false);
+      }
+    }
+
+    /**
+     * Calls {@link #fetch()} and responds with an error if it fails.
+     */
+    private void fetchAndRespondError() {
+      try {
+        fetch();
+      } catch (TopicNotFoundException e) {
+        responder.sendString(HttpResponseStatus.NOT_FOUND, e.getMessage());
+      } catch (Throwable t) {
+        LOG.warn("Exception raised when fetching messages from topic {}", topicId, t);
+        responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, t.getMessage());
+      }
+    }
+
+    /**
+     * Triggers the next fetch attempt, either by new messages or by the timeout, whichever comes first.
+     */
+    private final class Trigger implements Runnable {
+
+      private final AtomicBoolean triggered = new AtomicBoolean();
+      private volatile Cancellable listenerCancellable;
+      private volatile Future<?> timeoutFuture;
+
+      @Override
+      public void run() {
+        if (claim()) {
+          waitExecutor.execute(WaitingFetch.this::fetchAndRespondError);
+        }
+      }
+
+      /**
+       * Claims the response of the current attempt, so that either the current attempt or the triggered attempt
+       * responds, but not both.
+       *
+       * @return {@code true} if the caller can respond; {@code false} if another attempt will respond
+       */
+      boolean claim() {
+        if (!triggered.compareAndSet(false, true)) {
+          return false;
+        }
+        cancel();
+        return true;
+      }
+
+      void cancel() {
+        Cancellable listenerCancellable = this.listenerCancellable;
+        if (listenerCancellable != null) {
+          listenerCancellable.cancel();
+        }
+        Future<?> timeoutFuture = this.timeoutFuture;
+        if (timeoutFuture != null) {
+          timeoutFuture.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Base {@link BodyProducer} for sending messages back to client, which handles closing of the message iterator
+   * and logging of errors.
+   */
+  private abstract static class AbstractMessagesBodyProducer extends BodyProducer {
+
+    protected final CloseableIterator<RawMessage> iterator;
+
+    AbstractMessagesBodyProducer(CloseableIterator<RawMessage> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public void finished() throws Exception {
+      iterator.close();
+    }
+
+    @Override
+    public void handleError(@Nullable Throwable cause) {
+      iterator.close();
+      // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
+      if (cause instanceof SocketException
+        || cause instanceof ClosedChannelException
+        || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(cause.getMessage()))) {
+        // This can easily caused by client close connection prematurely. Don't want to flood the log.
+        LOG.trace("Connection closed by client prematurely while sending messages back to client", cause);
+      } else {
+        // Use sampling logger to log to avoid flooding the log if there is any systematic failure
+        SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
+        // Also log a trace to provide a way to see every error if needed
+        LOG.trace("Exception raised when sending messages back to client", cause);
+      }
+    }
+  }
+
+  /**
+   * A {@link BodyProducer} to encode and send back messages using the {@link RawMessageCodec}.
+   * The message payloads are sent as part of composite buffers without copying.
+   */
+  private static final class RawMessagesBodyProducer extends AbstractMessagesBodyProducer {
+
+    private final List<RawMessage> messages;
+    private final int messageChunkSize;
+    private boolean ended;
+
+    RawMessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
+      super(iterator);
+      this.messages = new ArrayList<>();
+      this.messageChunkSize = messageChunkSize;
+    }
+
+    @Override
+    public ByteBuf nextChunk() {
+      // Already sent all messages, return empty to signal the end of response
+      if (ended) {
+        return Unpooled.EMPTY_BUFFER;
+      }
+
+      int size = 0;
+      messages.clear();
+      while (iterator.hasNext() && size < messageChunkSize) {
+        RawMessage message = iterator.next();
+        messages.add(message);
+        size += message.getId().length + message.getPayload().length;
+      }
+
+      ended = !iterator.hasNext();
+      return RawMessageCodec.encode(ByteBufAllocator.DEFAULT, messages, ended);
+    }
+  }
+
   /**
    * A {@link BodyProducer} to encode and send back messages.
    * Instead of using GenericDatumWriter, we perform the array encoding manually so that we don't have to buffer
    * all messages in memory before sending out.
    */
-  private static class MessagesBodyProducer extends BodyProducer {
+  private static final class MessagesBodyProducer extends AbstractMessagesBodyProducer {
 
-    private final CloseableIterator<RawMessage> iterator;
     private final List<RawMessage> messages;
     private final int messageChunkSize;
     private final ByteBuf chunk;
@@ -174,7 +439,7 @@ public final class FetchHandler extends AbstractHttpHandler {
     private boolean arrayEnded;
 
     MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
-      this.iterator = iterator;
+      super(iterator);
       this.messages = new ArrayList<>();
       this.messageChunkSize = messageChunkSize;
       this.chunk = Unpooled.buffer(messageChunkSize);
@@ -243,25 +508,8 @@ public final class FetchHandler extends AbstractHttpHandler {
 
     @Override
     public void finished() throws Exception {
-      iterator.close();
+      super.finished();
       chunk.release();
     }
-
-    @Override
-    public void handleError(@Nullable Throwable cause) {
-      iterator.close();
-      // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
-      if (cause instanceof SocketException
-        || cause instanceof ClosedChannelException
-        || (cause instanceof IOException && KNOWN_IO_EXCEPTION_MESSAGES.contains(cause.getMessage()))) {
-        // This can easily caused by client close connection prematurely. Don't want to flood the log.
-        LOG.trace("Connection closed by client prematurely while sending messages back to client", cause);
-      } else {
-        // Use sampling logger to log to avoid flooding the log if there is any systematic failure
-        SAMPLING_LOG.warn("Exception raised when sending messages back to client", cause);
-        // Also log a trace to provide a way to see every error if needed
-        LOG.trace("Exception raised when sending messages back to client", cause);
-      }
-    }
   }
 }
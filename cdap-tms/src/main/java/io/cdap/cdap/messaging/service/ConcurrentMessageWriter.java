@@ -23,15 +23,20 @@ import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.proto.id.TopicId;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -58,6 +63,11 @@ import javax.annotation.concurrent.ThreadSafe;
  *
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
+ *
+ * Optionally, a commit window can be provided for group commit. When there are concurrent requests, the writer will
+ * wait for a fraction of the recent commit latency, bounded by the commit window, before collecting the pending
+ * requests, so that more requests can be written in the same batch. When there is no concurrent request,
+ * the writer doesn't wait.
  */
 @ThreadSafe
 final class ConcurrentMessageWriter implements Closeable {
@@ -83,9 +93,22 @@ final class ConcurrentMessageWriter implements Closeable {
    * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
    */
   ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+    this(messagesWriter, metricsCollector, 0L);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
+   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
+   * @param maxCommitWindowNanos maximum time in nanoseconds to wait for more requests before writing
+   *                             when there are concurrent requests. Set it to {@code 0} to disable waiting.
+   */
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector,
+                          long maxCommitWindowNanos) {
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
-    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
+    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector, maxCommitWindowNanos);
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
   }
@@ -175,11 +198,17 @@ final class ConcurrentMessageWriter implements Closeable {
     private final MetricsCollector metricsCollector;
     private final Queue<PendingStoreRequest> writeQueue;
     private final List<PendingStoreRequest> inflightRequests;
+    private final Set<TopicId> inflightTopics;
+    private final long maxCommitWindowNanos;
+    private long avgCommitLatencyNanos;
+    private int lastBatchSize;
 
-    private PendingStoreQueue(MetricsCollector metricsCollector) {
+    private PendingStoreQueue(MetricsCollector metricsCollector, long maxCommitWindowNanos) {
       this.metricsCollector = metricsCollector;
       this.writeQueue = new ConcurrentLinkedQueue<>();
       this.inflightRequests = new ArrayList<>(100);
+      this.inflightTopics = new HashSet<>();
+      this.maxCommitWindowNanos = maxCommitWindowNanos;
     }
 
     /**
@@ -199,21 +228,47 @@ final class ConcurrentMessageWriter implements Closeable {
       // The number of requests in the queue is bounded by the number of threads that call this method.
       // Since this method is expected to be called (indirectly) from a http handler thread, that is bounded by
       // the thread pool size used by the http service.
+      long commitWindow = getCommitWindow();
+      if (commitWindow > 0) {
+        LockSupport.parkNanos(commitWindow);
+      }
+
       inflightRequests.clear();
+      inflightTopics.clear();
       PendingStoreRequest request = writeQueue.poll();
       while (request != null) {
         inflightRequests.add(request);
+        inflightTopics.add(request.getTopicId());
         request = writeQueue.poll();
       }
 
       metricsCollector.gauge("persist.queue.size", inflightRequests.size());
+      metricsCollector.gauge("persist.batch.topics", inflightTopics.size());
 
+      long startTime = System.nanoTime();
       try {
         writer.write(inflightRequests.iterator());
         completeAll(null);
       } catch (Throwable t) {
         completeAll(t);
       }
+
+      long latency = System.nanoTime() - startTime;
+      metricsCollector.gauge("persist.commit.latency.ms", TimeUnit.NANOSECONDS.toMillis(latency));
+      // Exponential moving average of the commit latency
+      avgCommitLatencyNanos = avgCommitLatencyNanos == 0L ? latency : (avgCommitLatencyNanos * 7 + latency) / 8;
+    }
+
+    /**
+     * Returns the time in nanoseconds to wait for more requests before writing. The wait only happens
+     * if the last batch had concurrent requests, which indicates there is load. The wait time is half of
+     * the average commit latency, bounded by the max commit window.
+     */
+    private long getCommitWindow() {
+      if (maxCommitWindowNanos <= 0L || lastBatchSize <= 1) {
+        return 0L;
+      }
+      return Math.min(maxCommitWindowNanos, avgCommitLatencyNanos / 2);
     }
 
     /**
@@ -221,6 +276,7 @@ final class ConcurrentMessageWriter implements Closeable {
      * This method must be called while holding the writer flag.
      */
     void completeAll(@Nullable Throwable failureCause) {
+      lastBatchSize = inflightRequests.size();
       Iterator<PendingStoreRequest> iterator = inflightRequests.iterator();
       while (iterator.hasNext()) {
         iterator.next().completed(failureCause);
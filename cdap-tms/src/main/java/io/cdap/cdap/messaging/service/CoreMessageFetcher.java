@@ -25,11 +25,13 @@ import io.cdap.cdap.messaging.data.RawMessage;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.messaging.store.PayloadTable;
 import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Cancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -44,17 +46,56 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicMessageNotifier notifier;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
                      TableProvider<MessageTable> messageTableProvider,
-                     TableProvider<PayloadTable> payloadTableProvider) {
+                     TableProvider<PayloadTable> payloadTableProvider,
+                     TopicMessageNotifier notifier) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.notifier = notifier;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long waitMillis = getWaitMillis();
+    if (waitMillis <= 0) {
+      return doFetch();
+    }
+
+    // Wait for new messages until there is some messages to return or the wait time has passed
+    long deadline = System.currentTimeMillis() + waitMillis;
+    while (true) {
+      // Register the listener before fetching so that messages published after the fetch won't be missed
+      CountDownLatch latch = new CountDownLatch(1);
+      Cancellable cancellable = notifier.addListener(topicMetadata.getTopicId(), latch::countDown);
+      try {
+        CloseableIterator<RawMessage> iterator = doFetch();
+        long remainingMillis = deadline - System.currentTimeMillis();
+        if (remainingMillis <= 0 || iterator.hasNext()) {
+          return iterator;
+        }
+        iterator.close();
+
+        if (!latch.await(remainingMillis, TimeUnit.MILLISECONDS)) {
+          // Timeout. Perform the last fetch, which may still have messages published right at the deadline.
+          return doFetch();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return doFetch();
+      } finally {
+        cancellable.cancel();
+      }
+    }
+  }
+
+  /**
+   * Fetches messages from the {@link MessageTable} and {@link PayloadTable} without waiting.
+   */
+  private CloseableIterator<RawMessage> doFetch() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
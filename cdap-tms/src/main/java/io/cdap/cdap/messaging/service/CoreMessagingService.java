@@ -19,6 +19,7 @@ package io.cdap.cdap.messaging.service;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -81,26 +82,48 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final CConfiguration cConf;
   private final TableFactory tableFactory;
   private final LoadingCache<TopicId, TopicMetadata> topicCache;
-  private final LoadingCache<TopicId, ConcurrentMessageWriter> messageTableWriterCache;
+  private final Cache<Object, ConcurrentMessageWriter> messageTableWriterCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
+  private final boolean groupCommit;
+  private final long groupCommitMaxWindowNanos;
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
+  private final TopicMessageNotifier notifier;
   private final long txMaxLifeTimeInMillis;
 
   @Inject
+  protected CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
+                                 MetricsCollectionService metricsCollectionService, TopicMessageNotifier notifier) {
+    this(cConf, tableFactory, TimeProvider.SYSTEM_TIME, metricsCollectionService, notifier);
+  }
+
   protected CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
                                  MetricsCollectionService metricsCollectionService) {
-    this(cConf, tableFactory, TimeProvider.SYSTEM_TIME, metricsCollectionService);
+    this(cConf, tableFactory, metricsCollectionService, new TopicMessageNotifier());
   }
 
   @VisibleForTesting
   CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
                        TimeProvider timeProvider, MetricsCollectionService metricsCollectionService) {
+    this(cConf, tableFactory, timeProvider, metricsCollectionService, new TopicMessageNotifier());
+  }
+
+  private CoreMessagingService(CConfiguration cConf, TableFactory tableFactory, TimeProvider timeProvider,
+                               MetricsCollectionService metricsCollectionService, TopicMessageNotifier notifier) {
     this.cConf = cConf;
     this.tableFactory = tableFactory;
     this.topicCache = createTopicCache();
-    this.messageTableWriterCache = createTableWriterCache(true, cConf);
-    this.payloadTableWriterCache = createTableWriterCache(false, cConf);
+    this.messageTableWriterCache = createTableWriterCacheBuilder(cConf).build();
+    this.payloadTableWriterCache = createTableWriterCacheBuilder(cConf).build(
+      new CacheLoader<TopicId, ConcurrentMessageWriter>() {
+        @Override
+        public ConcurrentMessageWriter load(TopicId topicId) throws Exception {
+          return createTableWriter(getTopic(topicId), false, topicId.getNamespace());
+        }
+      });
+    this.groupCommit = cConf.getBoolean(Constants.MessagingSystem.GROUP_COMMIT_ENABLED);
+    this.groupCommitMaxWindowNanos = TimeUnit.MICROSECONDS.toNanos(
+      cConf.getLong(Constants.MessagingSystem.GROUP_COMMIT_MAX_WINDOW_MICROS));
     this.timeProvider = timeProvider;
 
     // Due to circular dependency in our class hierarchy (which is bad), we cannot use metricsCollectionService
@@ -113,6 +136,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     //        messaging service ->
     //          "metrics collection"
     this.metricsCollectionService = metricsCollectionService;
+    this.notifier = notifier;
     this.txMaxLifeTimeInMillis = TimeUnit.SECONDS.toMillis(cConf.getLong(TxConstants.Manager.CFG_TX_MAX_LIFETIME,
                                                                          TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME));
   }
@@ -139,9 +163,14 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public void deleteTopic(TopicId topicId) throws TopicNotFoundException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
+      Object writerKey = getMessageTableWriterKey(metadataTable.getMetadata(topicId));
       metadataTable.deleteTopic(topicId);
       topicCache.invalidate(topicId);
-      messageTableWriterCache.invalidate(topicId);
+      // A writer shared with other topics is not specific to the deleted topic. Closing it would fail
+      // concurrent publishes to the other topics, hence only the writer owned by the topic is invalidated.
+      if (writerKey.equals(topicId)) {
+        messageTableWriterCache.invalidate(writerKey);
+      }
       payloadTableWriterCache.invalidate(topicId);
     }
   }
@@ -169,7 +198,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     final TopicMetadata metadata = getTopic(topicId);
     return new CoreMessageFetcher(metadata,
                                   () -> createMessageTable(metadata),
-                                  () -> createPayloadTable(metadata));
+                                  () -> createPayloadTable(metadata),
+                                  notifier);
   }
 
   @Nullable
@@ -180,7 +210,10 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      RollbackDetail rollbackDetail = getMessageTableWriter(metadata).persist(request, metadata);
+      // Wakes up fetches that are waiting for new messages
+      notifier.notifyMessages(request.getTopicId());
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -324,53 +357,81 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   }
 
   /**
-   * Creates a {@link LoadingCache} for {@link ConcurrentMessageWriter}
-   * for writing to {@link MessageTable} or {@link PayloadTable}.
+   * Returns the {@link ConcurrentMessageWriter} for writing to the {@link MessageTable} of the given topic.
+   * If group commit is enabled, topics that share the same underlying storage share the same writer,
+   * so that concurrent publishes to those topics are written in the same batch.
+   */
+  private ConcurrentMessageWriter getMessageTableWriter(TopicMetadata metadata) throws ExecutionException {
+    Object writerKey = getMessageTableWriterKey(metadata);
+    return messageTableWriterCache.get(writerKey, () -> {
+      // A writer shared by topics across namespaces emits metrics under the system namespace
+      String namespace = writerKey.equals(metadata.getTopicId())
+        ? metadata.getTopicId().getNamespace()
+        : NamespaceId.SYSTEM.getNamespace();
+      return createTableWriter(metadata, true, namespace);
+    });
+  }
+
+  /**
+   * Returns the key of the {@link ConcurrentMessageWriter} in the writer cache for the given topic. It is the
+   * storage key of the topic if group commit is enabled, otherwise it is the topic id.
+   */
+  private Object getMessageTableWriterKey(TopicMetadata metadata) {
+    return groupCommit ? tableFactory.getMessageTableStorageKey(metadata) : metadata.getTopicId();
+  }
+
+  /**
+   * Creates a {@link CacheBuilder} for caching {@link ConcurrentMessageWriter}, which closes the writer on removal.
    *
-   * @param messageTable {@code true} for building a cache for the {@link MessageTable};
-   *                     {@code false} for the {@link PayloadTable}
    * @param cConf the system configuration
-   * @return a {@link LoadingCache} for
+   * @return a {@link CacheBuilder}
    */
-  private LoadingCache<TopicId, ConcurrentMessageWriter> createTableWriterCache(final boolean messageTable,
-                                                                                final CConfiguration cConf) {
+  private CacheBuilder<Object, ConcurrentMessageWriter> createTableWriterCacheBuilder(CConfiguration cConf) {
     long expireSecs = cConf.getLong(Constants.MessagingSystem.TABLE_CACHE_EXPIRATION_SECONDS);
 
     return CacheBuilder.newBuilder()
       .expireAfterAccess(expireSecs, TimeUnit.SECONDS)
-      .removalListener(new RemovalListener<TopicId, ConcurrentMessageWriter>() {
+      .removalListener(new RemovalListener<Object, ConcurrentMessageWriter>() {
         @Override
-        public void onRemoval(RemovalNotification<TopicId, ConcurrentMessageWriter> notification) {
+        public void onRemoval(RemovalNotification<Object, ConcurrentMessageWriter> notification) {
           ConcurrentMessageWriter writer = notification.getValue();
           if (writer != null) {
             try {
               writer.close();
             } catch (IOException e) {
-              LOG.warn("Exception raised when closing message writer for topic {}", notification.getKey(), e);
+              LOG.warn("Exception raised when closing message writer for {}", notification.getKey(), e);
             }
           }
         }
-      })
-      .build(new CacheLoader<TopicId, ConcurrentMessageWriter>() {
-        @Override
-        public ConcurrentMessageWriter load(TopicId topicId) throws Exception {
-          TopicMetadata metadata = getTopic(topicId);
-          StoreRequestWriter<?> messagesWriter = messageTable
-            ? new MessageTableStoreRequestWriter(createMessageTable(metadata), timeProvider)
-            : new PayloadTableStoreRequestWriter(createPayloadTable(metadata), timeProvider);
-
-          MetricsContext metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
-            Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
-            Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.MessagingSystem.CONTAINER_INSTANCE_ID, "0"),
-            Constants.Metrics.Tag.NAMESPACE, topicId.getNamespace(),
-            Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
-          ));
-
-          return new ConcurrentMessageWriter(messagesWriter, metricsContext);
-        }
       });
   }
 
+  /**
+   * Creates a {@link ConcurrentMessageWriter} for writing to {@link MessageTable} or {@link PayloadTable}.
+   *
+   * @param metadata the {@link TopicMetadata} for creating the table
+   * @param messageTable {@code true} for writing to the {@link MessageTable};
+   *                     {@code false} for the {@link PayloadTable}
+   * @param namespace the namespace to use for the metrics emitted by the writer
+   * @return a new {@link ConcurrentMessageWriter}
+   */
+  private ConcurrentMessageWriter createTableWriter(TopicMetadata metadata, boolean messageTable,
+                                                    String namespace) throws IOException {
+    StoreRequestWriter<?> messagesWriter = messageTable
+      ? new MessageTableStoreRequestWriter(createMessageTable(metadata), timeProvider)
+      : new PayloadTableStoreRequestWriter(createPayloadTable(metadata), timeProvider);
+
+    MetricsContext metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
+      Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.MessagingSystem.CONTAINER_INSTANCE_ID, "0"),
+      Constants.Metrics.Tag.NAMESPACE, namespace,
+      Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
+    ));
+
+    return new ConcurrentMessageWriter(messagesWriter, metricsContext,
+                                       messageTable && groupCommit ? groupCommitMaxWindowNanos : 0L);
+  }
+
   /**
    * Creates a new instance of {@link MetadataTable}.
    */
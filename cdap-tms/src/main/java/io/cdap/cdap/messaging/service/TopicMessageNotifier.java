@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.inject.Singleton;
+import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Notifies listeners when new messages are persisted to a topic. It is used by fetch requests that
+ * wait for new messages, so that they don't need to repeatedly scan the message table.
+ *
+ * Listeners are one-shot. Each listener is removed when it is notified, and it has to be added again to
+ * receive the next notification. A listener should be added before fetching, so that messages
+ * published between the fetch and the wait are not missed.
+ */
+@Singleton
+public final class TopicMessageNotifier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TopicMessageNotifier.class);
+
+  private final ConcurrentMap<TopicId, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a listener to be called once when new messages are published to the given topic.
+   * The listener is called from the publishing thread, hence it shouldn't perform any blocking operation.
+   *
+   * @param topicId the topic to listen to
+   * @param listener the {@link Runnable} to call
+   * @return a {@link Cancellable} to remove the listener
+   */
+  public Cancellable addListener(TopicId topicId, Runnable listener) {
+    listeners.compute(topicId, (key, topicListeners) -> {
+      Set<Runnable> result = topicListeners == null ? ConcurrentHashMap.newKeySet() : topicListeners;
+      result.add(listener);
+      return result;
+    });
+
+    return () -> listeners.computeIfPresent(topicId, (key, topicListeners) -> {
+      topicListeners.remove(listener);
+      return topicListeners.isEmpty() ? null : topicListeners;
+    });
+  }
+
+  /**
+   * Notifies all listeners of the given topic that there are new messages.
+   *
+   * @param topicId the topic that messages were published to
+   */
+  public void notifyMessages(TopicId topicId) {
+    Set<Runnable> topicListeners = listeners.remove(topicId);
+    if (topicListeners == null) {
+      return;
+    }
+    for (Runnable listener : topicListeners) {
+      try {
+        listener.run();
+      } catch (Throwable t) {
+        LOG.warn("Exception raised when notifying listener {} for topic {}", listener, topicId, t);
+      }
+    }
+  }
+}
@@ -45,6 +45,11 @@ public abstract class ForwardingTableFactory implements TableFactory {
     return getDelegate().createPayloadTable(topicMetadata);
   }
 
+  @Override
+  public Object getMessageTableStorageKey(TopicMetadata topicMetadata) {
+    return getDelegate().getMessageTableStorageKey(topicMetadata);
+  }
+
   @Override
   public void close() throws IOException {
     getDelegate().close();
@@ -31,4 +31,17 @@ public interface TableFactory extends Closeable {
   MessageTable createMessageTable(TopicMetadata topicMetadata) throws IOException;
 
   PayloadTable createPayloadTable(TopicMetadata topicMetadata) throws IOException;
+
+  /**
+   * Returns a key that identifies the underlying storage of the {@link MessageTable} for the given topic.
+   * Topics with the same key are stored in the same physical table, hence entries of those topics can be
+   * written together in one batch through the same {@link MessageTable} instance.
+   * By default each topic has its own storage.
+   *
+   * @param topicMetadata the {@link TopicMetadata} of the topic
+   * @return an object that has proper {@link Object#equals(Object)} and {@link Object#hashCode()} implementation
+   */
+  default Object getMessageTableStorageKey(TopicMetadata topicMetadata) {
+    return topicMetadata.getTopicId();
+  }
 }
@@ -23,6 +23,7 @@ import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.messaging.MessagingServiceUtils;
+import io.cdap.cdap.messaging.cache.HeapMessageCache;
 import io.cdap.cdap.messaging.cache.MessageCache;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.proto.id.TopicId;
@@ -38,6 +39,11 @@ import javax.annotation.Nullable;
  */
 public class DefaultMessageTableCacheProvider implements MessageTableCacheProvider {
 
+  private static final String CACHE_TYPE_OFFHEAP = "offheap";
+  // Minimum number of segments for each off-heap cache, so that evicting a segment won't drop too much of the cache
+  private static final int MIN_OFFHEAP_SEGMENTS = 8;
+  private static final int MIN_OFFHEAP_SEGMENT_SIZE = 4096;
+
   private final CConfiguration cConf;
   private final MetricsCollectionService metricsCollectionService;
   private Map<TopicId, MessageCache<MessageTable.Entry>> topicMessageCaches;
@@ -60,7 +66,7 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
         if (!initialized) {
           Map<TopicId, MessageCache<MessageTable.Entry>> caches = new HashMap<>();
 
-          long cacheSize = cConf.getInt(Constants.MessagingSystem.CACHE_SIZE_MB) * 1024 * 1024;
+          long cacheSize = cConf.getLong(Constants.MessagingSystem.CACHE_SIZE_MB) * 1024L * 1024L;
           Set<TopicId> systemTopics = MessagingServiceUtils.getSystemTopics(cConf, true);
           if (cacheSize > 0 && !systemTopics.isEmpty()) {
             MessageTableEntryWeigher weigher = new MessageTableEntryWeigher();
@@ -75,9 +81,14 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
               // Have reduce trigger as 70% of the hard limit and min retain as 50% of the hard limit
               // In future, it can be adjusted dynamically based on metrics
               MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2, hardLimit * 7 / 10, hardLimit);
+              boolean offHeap = CACHE_TYPE_OFFHEAP.equalsIgnoreCase(cConf.get(Constants.MessagingSystem.CACHE_TYPE));
+              int segmentSize = getOffHeapSegmentSize(hardLimit);
+
               for (TopicId topic : systemTopics) {
-                caches.put(topic, new MessageCache<>(comparator, weigher, limits,
-                                                     createMetricsContext(cConf, topic, metricsCollectionService)));
+                MetricsContext metricsContext = createMetricsContext(cConf, topic, metricsCollectionService);
+                caches.put(topic, offHeap
+                  ? new OffHeapMessageCache(topic, segmentSize, limits, metricsContext)
+                  : new HeapMessageCache<>(comparator, weigher, limits, metricsContext));
               }
             }
           }
@@ -108,6 +119,16 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
     }
   }
 
+  /**
+   * Returns the segment size in bytes for the {@link OffHeapMessageCache} based on the configuration and the
+   * hard limit of the cache.
+   */
+  private int getOffHeapSegmentSize(long hardLimit) {
+    long segmentSize = cConf.getLong(Constants.MessagingSystem.CACHE_OFFHEAP_SEGMENT_SIZE_MB) * 1024L * 1024L;
+    segmentSize = Math.min(segmentSize, hardLimit / MIN_OFFHEAP_SEGMENTS);
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_OFFHEAP_SEGMENT_SIZE, segmentSize));
+  }
+
   /**
    * Creates a {@link MetricsContext} for {@link MessageCache} to use for the given topic.
    */
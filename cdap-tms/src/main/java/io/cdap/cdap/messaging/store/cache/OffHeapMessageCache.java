@@ -0,0 +1,704 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.proto.id.TopicId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageCache} for {@link MessageTable.Entry} that stores entries in direct memory instead of the Java heap.
+ *
+ * The cache memory is divided into a ring of fixed size segments. Entries are serialized and appended to the
+ * current segment, with the offset of each entry recorded in a small primitive index that is used for
+ * binary searching by message id. When the current segment is full, the writer moves to the next one, evicting the
+ * oldest segment if the ring is full. Eviction always happens on a whole segment.
+ *
+ * Fetchers don't acquire any lock in the common case. Each segment is guarded by a {@link StampedLock}, which is
+ * only write locked when the segment is being recycled or when entries in it are being updated. Fetchers read
+ * using optimistic stamps and only fall back to a read lock if the optimistic read was invalidated.
+ *
+ * The same {@link MessageCache.Limits} semantic applies, with weights being the number of bytes used by serialized
+ * entries. The hard limit determines the number of segments in the ring.
+ */
+public final class OffHeapMessageCache implements MessageCache<MessageTable.Entry> {
+
+  private static final String METRICS_WEIGHT = "cache.weight";
+  private static final String METRICS_ENTRIES_ADDED = "cache.entries.added";
+  private static final String METRICS_ENTRIES_REMOVED = "cache.entries.removed";
+  private static final String METRICS_ADD_REQUESTS = "cache.add.requests";
+  private static final String METRICS_ADD_REDUCE_WEIGHT = "cache.add.reduce.weight";
+  private static final String METRICS_SCAN_REQUESTS = "cache.scan.requests";
+  private static final String METRICS_SCAN_REDUCE_WEIGHT = "cache.scan.reduce.weight";
+
+  // Serialized entry layout:
+  // generation (int), publish timestamp (long), sequence id (short), flags (byte),
+  // transaction write pointer (long), payload length (int, -1 for null payload), payload
+  private static final int GENERATION_OFFSET = 0;
+  private static final int TIMESTAMP_OFFSET = 4;
+  private static final int SEQUENCE_ID_OFFSET = 12;
+  private static final int FLAGS_OFFSET = 14;
+  private static final int TX_WRITE_POINTER_OFFSET = 15;
+  private static final int PAYLOAD_LENGTH_OFFSET = 23;
+  private static final int HEADER_SIZE = 27;
+
+  private static final byte FLAG_TRANSACTIONAL = 0x01;
+  private static final byte FLAG_ROLLBACK = 0x02;
+
+  private static final int INITIAL_INDEX_SIZE = 1024;
+
+  private final TopicId topicId;
+  private final MessageTableEntryComparator comparator;
+  private final int segmentSize;
+  private final MetricsContext metricsContext;
+  private final AtomicLong currentWeight;
+  private final AtomicBoolean needReduceWeight;
+  private final AtomicBoolean adding;
+  private final Object evictLock;
+  // Set when the cache is cleared or resized, so that the writer thread resets the last key on the next add
+  private final AtomicBoolean resetLastKey;
+  private volatile Limits limits;
+  private volatile Ring ring;
+
+  // Key of the last entry added to the cache. Only accessed by the writer thread.
+  private boolean hasLastKey;
+  private int lastGeneration;
+  private long lastPublishTimestamp;
+  private int lastSequenceId;
+
+  /**
+   * Creates a new instance of the cache.
+   *
+   * @param topicId the topic that this cache is for
+   * @param segmentSize size in bytes of each off-heap segment
+   * @param limits the limits for maintaining cache weight
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache
+   */
+  public OffHeapMessageCache(TopicId topicId, int segmentSize, Limits limits, MetricsContext metricsContext) {
+    Preconditions.checkArgument(segmentSize > HEADER_SIZE, "Segment size must be larger than %s", HEADER_SIZE);
+    this.topicId = topicId;
+    this.comparator = new MessageTableEntryComparator();
+    this.segmentSize = segmentSize;
+    this.metricsContext = metricsContext;
+    this.currentWeight = new AtomicLong();
+    this.needReduceWeight = new AtomicBoolean();
+    this.adding = new AtomicBoolean();
+    this.evictLock = new Object();
+    this.resetLastKey = new AtomicBoolean();
+    this.limits = limits;
+    int segmentCount = getSegmentCount(limits);
+    this.ring = segmentCount == 0 ? null : new Ring(segmentCount);
+  }
+
+  @Override
+  public Comparator<MessageTable.Entry> getComparator() {
+    return comparator;
+  }
+
+  @Override
+  public void addAll(Iterator<MessageTable.Entry> entries) {
+    if (!adding.compareAndSet(false, true)) {
+      throw new ConcurrentModificationException(
+        "The OffHeapMessageCache.addAll method shouldn't be called concurrently by multiple threads.");
+    }
+
+    try {
+      Ring ring = this.ring;
+      int entriesAdded = 0;
+      boolean reduced = false;
+
+      while (entries.hasNext()) {
+        MessageTable.Entry entry = entries.next();
+        checkIncreasing(entry);
+
+        byte[] payload = entry.getPayload();
+        int size = HEADER_SIZE + (payload == null ? 0 : payload.length);
+
+        if (ring == null) {
+          continue;
+        }
+
+        // An entry that can't fit into a segment can't be cached. Since the cache must contain a contiguous range of
+        // entries, everything before it needs to be evicted as well.
+        if (size > segmentSize) {
+          reset(ring);
+          reduced = true;
+          continue;
+        }
+
+        Segment segment = ring.getSegment(ring.last);
+        if (segment.position + size > segmentSize) {
+          reduced |= advance(ring);
+          segment = ring.getSegment(ring.last);
+        }
+        segment.append(entry, payload, size);
+        entriesAdded++;
+        currentWeight.addAndGet(size);
+      }
+
+      long newWeight = currentWeight.get();
+      metricsContext.increment(METRICS_ADD_REQUESTS, 1L);
+      metricsContext.increment(METRICS_ENTRIES_ADDED, entriesAdded);
+      metricsContext.gauge(METRICS_WEIGHT, newWeight);
+      if (reduced) {
+        metricsContext.increment(METRICS_ADD_REDUCE_WEIGHT, 1L);
+      }
+
+      if (newWeight > limits.getReduceTrigger()) {
+        needReduceWeight.compareAndSet(false, true);
+      }
+    } finally {
+      adding.set(false);
+    }
+  }
+
+  @Override
+  public Scanner<MessageTable.Entry> scan(MessageTable.Entry startEntry, boolean includeStart, int limit,
+                                         MessageFilter<MessageTable.Entry> filter) {
+    Ring ring = this.ring;
+    List<MessageTable.Entry> entries = new ArrayList<>();
+    MessageTable.Entry firstInCache = null;
+
+    if (ring != null) {
+      long first = ring.first;
+      long last = ring.last;
+      boolean hold = false;
+
+      for (long id = first; id <= last && !hold && entries.size() < limit; id++) {
+        Segment segment = ring.getSegment(id);
+        List<MessageTable.Entry> segmentEntries = new ArrayList<>();
+
+        SegmentReadResult result = readSegment(segment, id, startEntry, includeStart,
+                                               limit - entries.size(), filter, segmentEntries);
+        if (result == null) {
+          // The segment was evicted. Since eviction happens in order, everything read so far has been evicted as well.
+          // Discard them to make sure the result always represents a contiguous range of cached entries.
+          entries.clear();
+          firstInCache = null;
+          continue;
+        }
+        if (firstInCache == null) {
+          firstInCache = result.firstInSegment;
+        }
+        entries.addAll(segmentEntries);
+        hold = result.hold;
+      }
+    }
+
+    metricsContext.increment(METRICS_SCAN_REQUESTS, 1L);
+
+    return new OffHeapScanner(entries.iterator(), firstInCache);
+  }
+
+  @Override
+  public void updateEntries(MessageTable.Entry startEntry, MessageTable.Entry endEntry,
+                            EntryUpdater<MessageTable.Entry> updater) {
+    Ring ring = this.ring;
+    if (ring == null) {
+      return;
+    }
+
+    RuntimeException failure = null;
+    boolean done = false;
+
+    for (long id = ring.first; id <= ring.last && !done && failure == null; id++) {
+      Segment segment = ring.getSegment(id);
+      // Acquiring the write lock invalidates optimistic reads, so that fetchers always see the updated entries
+      long stamp = segment.lock.writeLock();
+      try {
+        if (segment.id != id) {
+          continue;
+        }
+        int count = segment.count;
+        for (int i = segment.search(startEntry, true, count); i < count; i++) {
+          int offset = segment.offsets[i];
+          CachingMessageTable.CacheMessageTableEntry entry = segment.decode(segment.buffer, offset, topicId);
+          if (comparator.compare(entry, endEntry) > 0) {
+            done = true;
+            break;
+          }
+          try {
+            updater.updateEntry(entry);
+          } catch (RuntimeException e) {
+            failure = e;
+            break;
+          }
+          if (entry.isRollback()) {
+            byte flags = segment.buffer.get(offset + FLAGS_OFFSET);
+            segment.buffer.put(offset + FLAGS_OFFSET, (byte) (flags | FLAG_ROLLBACK));
+          }
+        }
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+
+    if (failure != null) {
+      clear();
+      throw failure;
+    }
+  }
+
+  /**
+   * Clears the cache. The caller is responsible to make sure there is no concurrent call to the
+   * {@link #addAll(Iterator)} method.
+   */
+  @Override
+  public void clear() {
+    Ring ring = this.ring;
+    if (ring != null) {
+      reset(ring);
+    }
+    resetLastKey.set(true);
+  }
+
+  /**
+   * Resize the cache limits. If the number of segments changed, a new ring will be used and all cached entries
+   * will be dropped. The caller is responsible to make sure there is no concurrent call to the
+   * {@link #addAll(Iterator)} method.
+   *
+   * @param limits the new limits for this cache.
+   */
+  @Override
+  public void resize(Limits limits) {
+    synchronized (evictLock) {
+      this.limits = limits;
+      int segmentCount = getSegmentCount(limits);
+      Ring ring = this.ring;
+      if (ring == null ? segmentCount != 0 : ring.segments.length != segmentCount) {
+        if (ring != null) {
+          reset(ring);
+        }
+        this.ring = segmentCount == 0 ? null : new Ring(segmentCount);
+        resetLastKey.set(true);
+      }
+    }
+    reduceWeight();
+  }
+
+  @Override
+  public Limits getLimits() {
+    return limits;
+  }
+
+  @VisibleForTesting
+  long getWeight() {
+    return currentWeight.get();
+  }
+
+  /**
+   * Returns the number of segments to use for the given limits.
+   */
+  private int getSegmentCount(Limits limits) {
+    long count = limits.getHardLimit() / segmentSize;
+    if (count <= 0) {
+      return 0;
+    }
+    // Always need at least two segments to avoid evicting everything when the current segment is full
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(2L, count));
+  }
+
+  /**
+   * Verifies the given entry is larger than the last entry added to the cache.
+   */
+  private void checkIncreasing(MessageTable.Entry entry) {
+    int sequenceId = entry.getSequenceId() & 0xFFFF;
+    if (resetLastKey.compareAndSet(true, false)) {
+      hasLastKey = false;
+    }
+    if (hasLastKey) {
+      int cmp = compareKey(lastGeneration, lastPublishTimestamp, lastSequenceId, entry);
+      if (cmp >= 0) {
+        clear();
+        throw new IllegalArgumentException("Cache entry must be in strictly increasing order. " +
+                                             "Entry " + entry + " is smaller than or equal to the last entry " +
+                                             "(generation=" + lastGeneration + ", timestamp=" + lastPublishTimestamp +
+                                             ", sequenceId=" + lastSequenceId + ")");
+      }
+    }
+    hasLastKey = true;
+    lastGeneration = entry.getGeneration();
+    lastPublishTimestamp = entry.getPublishTimestamp();
+    lastSequenceId = sequenceId;
+  }
+
+  /**
+   * Moves the writer to the next segment, evicting the oldest segment if the ring is full.
+   *
+   * @return {@code true} if a segment was evicted
+   */
+  private boolean advance(Ring ring) {
+    boolean evicted = false;
+    synchronized (evictLock) {
+      if (ring.last - ring.first + 1 >= ring.segments.length) {
+        evictOldest(ring);
+        evicted = true;
+      }
+    }
+    long nextId = ring.last + 1;
+    ring.getSegment(nextId).recycle(nextId);
+    ring.last = nextId;
+    return evicted;
+  }
+
+  /**
+   * Evicts all segments and starts over with an empty segment.
+   */
+  private void reset(Ring ring) {
+    synchronized (evictLock) {
+      long last = ring.last;
+      while (ring.first <= last) {
+        evictOldest(ring);
+      }
+      long nextId = last + 1;
+      ring.getSegment(nextId).recycle(nextId);
+      ring.last = nextId;
+      ring.first = nextId;
+    }
+  }
+
+  /**
+   * Evicts the oldest segment. Must be called while holding the {@link #evictLock}.
+   */
+  private void evictOldest(Ring ring) {
+    Segment segment = ring.getSegment(ring.first);
+    long stamp = segment.lock.writeLock();
+    try {
+      metricsContext.increment(METRICS_ENTRIES_REMOVED, segment.count);
+      currentWeight.addAndGet(-segment.position);
+      segment.id = -1L;
+      segment.count = 0;
+      segment.position = 0;
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+    ring.first++;
+  }
+
+  /**
+   * Evicts the oldest segments until the cache weight is close to the min retain weight.
+   * The segment being written to is never evicted.
+   */
+  private void reduceWeight() {
+    synchronized (evictLock) {
+      Ring ring = this.ring;
+      if (ring == null) {
+        return;
+      }
+      long minRetain = limits.getMinRetain();
+      while (ring.first < ring.last
+        && currentWeight.get() - ring.getSegment(ring.first).position >= minRetain) {
+        evictOldest(ring);
+      }
+    }
+  }
+
+  /**
+   * Reads entries from the given segment.
+   *
+   * @return a {@link SegmentReadResult} or {@code null} if the segment with the given id was evicted
+   */
+  @Nullable
+  private SegmentReadResult readSegment(Segment segment, long id, MessageTable.Entry startEntry, boolean includeStart,
+                                        int limit, MessageFilter<MessageTable.Entry> filter,
+                                        List<MessageTable.Entry> entries) {
+    long stamp = segment.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        SegmentReadResult result = doReadSegment(segment, id, startEntry, includeStart, limit, filter, entries);
+        if (segment.lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException e) {
+        // The segment might have been modified concurrently, which can result in decoding error.
+        // Only propagate the exception if the read was valid.
+        if (segment.lock.validate(stamp)) {
+          throw e;
+        }
+      }
+      entries.clear();
+    }
+
+    // Optimistic read failed. Fallback to use read lock.
+    stamp = segment.lock.readLock();
+    try {
+      return doReadSegment(segment, id, startEntry, includeStart, limit, filter, entries);
+    } finally {
+      segment.lock.unlockRead(stamp);
+    }
+  }
+
+  @Nullable
+  private SegmentReadResult doReadSegment(Segment segment, long id, MessageTable.Entry startEntry,
+                                          boolean includeStart, int limit, MessageFilter<MessageTable.Entry> filter,
+                                          List<MessageTable.Entry> entries) {
+    // Read the count before anything else, which gives the happens-before for the content of the segment
+    int count = segment.count;
+    if (segment.id != id) {
+      return null;
+    }
+    if (count == 0) {
+      return new SegmentReadResult(null, false);
+    }
+
+    ByteBuffer buffer = segment.buffer.duplicate();
+    MessageTable.Entry firstInSegment = segment.decode(buffer, segment.offsets[0], topicId);
+    for (int i = segment.search(startEntry, includeStart, count); i < count && entries.size() < limit; i++) {
+      MessageTable.Entry entry = segment.decode(buffer, segment.offsets[i], topicId);
+      MessageFilter.Result result = filter.apply(entry);
+      if (result == MessageFilter.Result.ACCEPT) {
+        entries.add(entry);
+      } else if (result == MessageFilter.Result.HOLD) {
+        return new SegmentReadResult(firstInSegment, true);
+      }
+    }
+    return new SegmentReadResult(firstInSegment, false);
+  }
+
+  /**
+   * Compares the given key with the key of the given entry, using the same ordering as
+   * {@link MessageTableEntryComparator}.
+   */
+  private static int compareKey(int generation, long publishTimestamp, int sequenceId, MessageTable.Entry entry) {
+    int cmp = Integer.compare(generation, entry.getGeneration());
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Long.compare(publishTimestamp, entry.getPublishTimestamp());
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Integer.compare(sequenceId, entry.getSequenceId() & 0xFFFF);
+  }
+
+  /**
+   * A ring of {@link Segment}s. Segments are identified by monotonically increasing ids, with the segment of
+   * a given id located at {@code id % segments.length}.
+   */
+  private final class Ring {
+    private final Segment[] segments;
+    // Id of the oldest segment. Only modified while holding the evictLock.
+    private volatile long first;
+    // Id of the segment being written to. Only modified by the writer thread.
+    private volatile long last;
+
+    Ring(int segmentCount) {
+      this.segments = new Segment[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        segments[i] = new Segment();
+      }
+      segments[0].id = 0L;
+    }
+
+    Segment getSegment(long id) {
+      return segments[(int) (id % segments.length)];
+    }
+  }
+
+  /**
+   * A fixed size off-heap buffer for storing serialized entries. There is only one writer appending to a segment.
+   * The content appended is published to readers through the volatile {@link #count} field.
+   */
+  private final class Segment {
+    private final StampedLock lock = new StampedLock();
+    private ByteBuffer buffer;
+    private int[] offsets;
+    private long id = -1L;
+    private int position;
+    private volatile int count;
+
+    /**
+     * Prepares this segment to be used for the given id. The buffer is allocated lazily on first use.
+     */
+    void recycle(long id) {
+      long stamp = lock.writeLock();
+      try {
+        if (buffer == null) {
+          buffer = ByteBuffer.allocateDirect(segmentSize);
+          offsets = new int[INITIAL_INDEX_SIZE];
+        }
+        this.id = id;
+        this.position = 0;
+        this.count = 0;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    /**
+     * Appends an entry to this segment. The caller must make sure there is enough space.
+     */
+    void append(MessageTable.Entry entry, @Nullable byte[] payload, int size) {
+      if (buffer == null) {
+        recycle(id);
+      }
+      int offset = position;
+      byte flags = entry.isTransactional() ? FLAG_TRANSACTIONAL : 0;
+      if (entry instanceof CachingMessageTable.CacheMessageTableEntry
+        && ((CachingMessageTable.CacheMessageTableEntry) entry).isRollback()) {
+        flags |= FLAG_ROLLBACK;
+      }
+
+      buffer.putInt(offset + GENERATION_OFFSET, entry.getGeneration());
+      buffer.putLong(offset + TIMESTAMP_OFFSET, entry.getPublishTimestamp());
+      buffer.putShort(offset + SEQUENCE_ID_OFFSET, entry.getSequenceId());
+      buffer.put(offset + FLAGS_OFFSET, flags);
+      buffer.putLong(offset + TX_WRITE_POINTER_OFFSET,
+                     entry.isTransactional() ? entry.getTransactionWritePointer() : -1L);
+      buffer.putInt(offset + PAYLOAD_LENGTH_OFFSET, payload == null ? -1 : payload.length);
+      if (payload != null) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset + HEADER_SIZE);
+        dup.put(payload);
+      }
+
+      int idx = count;
+      if (idx == offsets.length) {
+        // Readers may still be using the old array, which is fine since content is only appended.
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[idx] = offset;
+      position = offset + size;
+
+      // Publish the entry to readers
+      count = idx + 1;
+    }
+
+    /**
+     * Returns the index of the first entry that is larger than or equal to (or strictly larger if not inclusive)
+     * the given entry.
+     */
+    int search(MessageTable.Entry entry, boolean inclusive, int count) {
+      int low = 0;
+      int high = count;
+      int[] offsets = this.offsets;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int offset = offsets[mid];
+        int cmp = compareKey(buffer.getInt(offset + GENERATION_OFFSET),
+                             buffer.getLong(offset + TIMESTAMP_OFFSET),
+                             buffer.getShort(offset + SEQUENCE_ID_OFFSET) & 0xFFFF, entry);
+        if (cmp < 0 || (cmp == 0 && !inclusive)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Decodes the entry at the given offset into an on-heap entry.
+     */
+    CachingMessageTable.CacheMessageTableEntry decode(ByteBuffer buffer, int offset, TopicId topicId) {
+      byte flags = buffer.get(offset + FLAGS_OFFSET);
+      int payloadLength = buffer.getInt(offset + PAYLOAD_LENGTH_OFFSET);
+      if (payloadLength > segmentSize - offset - HEADER_SIZE) {
+        // This can only happen if the segment is being recycled while reading
+        throw new IllegalStateException("Invalid payload length " + payloadLength + " at offset " + offset);
+      }
+      byte[] payload = null;
+      if (payloadLength >= 0) {
+        payload = new byte[payloadLength];
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset + HEADER_SIZE);
+        dup.get(payload);
+      }
+      return new CachingMessageTable.CacheMessageTableEntry(topicId,
+                                                            buffer.getInt(offset + GENERATION_OFFSET),
+                                                            (flags & FLAG_TRANSACTIONAL) != 0,
+                                                            buffer.getLong(offset + TX_WRITE_POINTER_OFFSET),
+                                                            payload,
+                                                            buffer.getLong(offset + TIMESTAMP_OFFSET),
+                                                            buffer.getShort(offset + SEQUENCE_ID_OFFSET),
+                                                            (flags & FLAG_ROLLBACK) != 0);
+    }
+  }
+
+  /**
+   * Result of reading a {@link Segment}.
+   */
+  private static final class SegmentReadResult {
+    private final MessageTable.Entry firstInSegment;
+    private final boolean hold;
+
+    private SegmentReadResult(@Nullable MessageTable.Entry firstInSegment, boolean hold) {
+      this.firstInSegment = firstInSegment;
+      this.hold = hold;
+    }
+  }
+
+  /**
+   * The {@link Scanner} returned by this cache. Weight reduction is performed when the scanner is closed if needed.
+   */
+  private final class OffHeapScanner extends AbstractCloseableIterator<MessageTable.Entry>
+    implements Scanner<MessageTable.Entry> {
+
+    private final Iterator<MessageTable.Entry> iterator;
+    private final MessageTable.Entry firstInCache;
+    private boolean closed;
+
+    private OffHeapScanner(Iterator<MessageTable.Entry> iterator, @Nullable MessageTable.Entry firstInCache) {
+      this.iterator = iterator;
+      this.firstInCache = firstInCache;
+    }
+
+    @Override
+    protected MessageTable.Entry computeNext() {
+      if (!closed && iterator.hasNext()) {
+        return iterator.next();
+      }
+      close();
+      return endOfData();
+    }
+
+    @Nullable
+    @Override
+    public MessageTable.Entry getFirstInCache() {
+      return firstInCache;
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (needReduceWeight.compareAndSet(true, false)) {
+        reduceWeight();
+        metricsContext.increment(METRICS_SCAN_REDUCE_WEIGHT, 1L);
+      }
+    }
+  }
+}
@@ -169,6 +169,12 @@ public final class HBaseTableFactory implements TableFactory {
                                   createExceptionHandler(tableId));
   }
 
+  @Override
+  public Object getMessageTableStorageKey(TopicMetadata topicMetadata) {
+    // All topics are stored in the same HBase table
+    return messageTableName;
+  }
+
   @Override
   public MessageTable createMessageTable(TopicMetadata topicMetadata) throws IOException {
     TableId tableId = tableUtil.createHTableId(NamespaceId.SYSTEM, messageTableName);
@@ -59,6 +59,8 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +74,7 @@ public class MessagingHttpServiceTest {
   private static CConfiguration cConf;
   private static MessagingHttpService httpService;
   private static MessagingService client;
+  private static MessagingService avroClient;
 
   @BeforeClass
   public static void init() throws IOException {
@@ -98,6 +101,7 @@ public class MessagingHttpServiceTest {
     httpService.startAndWait();
 
     client = new ClientMessagingService(injector.getInstance(DiscoveryServiceClient.class));
+    avroClient = new ClientMessagingService(injector.getInstance(DiscoveryServiceClient.class), false);
   }
 
   @AfterClass
@@ -412,6 +416,45 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testFetchWait() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testFetchWait");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Fetch with a wait on an empty topic should return empty after the wait time
+    long startTime = System.currentTimeMillis();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setWaitTime(200, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 200L);
+
+    // Fetch with a long wait should return as soon as a message is published
+    CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
+      try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+        .setWaitTime(1, TimeUnit.MINUTES).fetch()) {
+        List<String> payloads = new ArrayList<>();
+        iterator.forEachRemaining(message -> payloads.add(Bytes.toString(message.getPayload())));
+        return payloads;
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    TimeUnit.MILLISECONDS.sleep(200);
+    client.publish(StoreRequestBuilder.of(topicId).addPayload("m1").build());
+    Assert.assertEquals(Arrays.asList("m1"), future.get(10, TimeUnit.SECONDS));
+
+    // Fetch with a wait should return existing messages without waiting
+    try (CloseableIterator<RawMessage> iterator = avroClient.prepareFetch(topicId)
+      .setWaitTime(1, TimeUnit.MINUTES).fetch()) {
+      Assert.assertEquals("m1", Bytes.toString(iterator.next().getPayload()));
+      Assert.assertFalse(iterator.hasNext());
+    }
+
+    client.deleteTopic(topicId);
+  }
+
   @Test
   public void testChunkConsume() throws Exception {
     // This test is to verify the message fetching body producer works correctly
@@ -442,6 +485,59 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testFetchEncodings() throws Exception {
+    // This test is to verify both the raw and avro fetch encodings return the same messages
+    TopicId topicId = new NamespaceId("ns1").topic("testFetchEncodings");
+
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Publish messages with different payload sizes, including empty payload and payloads larger than the chunk size
+    int chunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      payloads.add(Strings.repeat(Integer.toString(i % 10), i * chunkSize / 8));
+    }
+    for (String payload : payloads) {
+      client.publish(StoreRequestBuilder.of(topicId).addPayload(payload).build());
+    }
+
+    List<RawMessage> rawMessages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).fetch()) {
+      Iterators.addAll(rawMessages, iterator);
+    }
+    List<RawMessage> avroMessages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = avroClient.prepareFetch(topicId).fetch()) {
+      Iterators.addAll(avroMessages, iterator);
+    }
+
+    Assert.assertEquals(payloads.size(), rawMessages.size());
+    Assert.assertEquals(payloads.size(), avroMessages.size());
+    for (int i = 0; i < payloads.size(); i++) {
+      Assert.assertArrayEquals(avroMessages.get(i).getId(), rawMessages.get(i).getId());
+      Assert.assertEquals(payloads.get(i), Bytes.toString(rawMessages.get(i).getPayload()));
+      Assert.assertEquals(payloads.get(i), Bytes.toString(avroMessages.get(i).getPayload()));
+    }
+
+    // Fetch from a message id with limit using both encodings
+    byte[] startId = rawMessages.get(5).getId();
+    try (
+      CloseableIterator<RawMessage> rawIterator = client.prepareFetch(topicId)
+        .setStartMessage(startId, false).setLimit(3).fetch();
+      CloseableIterator<RawMessage> avroIterator = avroClient.prepareFetch(topicId)
+        .setStartMessage(startId, false).setLimit(3).fetch()
+    ) {
+      for (int i = 6; i < 9; i++) {
+        Assert.assertEquals(payloads.get(i), Bytes.toString(rawIterator.next().getPayload()));
+        Assert.assertEquals(payloads.get(i), Bytes.toString(avroIterator.next().getPayload()));
+      }
+      Assert.assertFalse(rawIterator.hasNext());
+      Assert.assertFalse(avroIterator.hasNext());
+    }
+
+    client.deleteTopic(topicId);
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
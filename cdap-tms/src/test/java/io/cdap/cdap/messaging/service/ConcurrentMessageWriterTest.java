@@ -22,6 +22,7 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -38,8 +39,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -268,12 +271,79 @@ public class ConcurrentMessageWriterTest {
     }
   }
 
+  @Test
+  public void testGroupCommit() throws InterruptedException, BrokenBarrierException {
+    int payloadsPerRequest = 20;
+    int threadCount = 10;
+    final int requestPerThread = 20;
+    long writeLatencyMillis = 5L;
+
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(),
+                                                                   writeLatencyMillis);
+    // Writer shared by multiple topics with a commit window enabled
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new NoopMetricsContext(),
+                                                                       TimeUnit.MILLISECONDS.toNanos(2));
+
+    final List<String> payload = new ArrayList<>(payloadsPerRequest);
+    for (int i = 0; i < payloadsPerRequest; i++) {
+      payload.add(Integer.toString(i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+    for (int i = 0; i < threadCount; i++) {
+      final TopicId topicId = NamespaceId.DEFAULT.topic("t" + i);
+      final TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+            for (int i = 0; i < requestPerThread; i++) {
+              writer.persist(new TestStoreRequest(topicId, payload), metadata);
+            }
+          } catch (Exception e) {
+            LOG.error("Exception raised when persisting.", e);
+          }
+        }
+      });
+    }
+
+    barrier.await();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    // Each topic should have all messages written, with message ids sorted
+    for (int i = 0; i < threadCount; i++) {
+      List<RawMessage> messages = testWriter.getMessages().get(NamespaceId.DEFAULT.topic("t" + i));
+      Assert.assertEquals(payloadsPerRequest * requestPerThread, messages.size());
+
+      RawMessage lastMessage = null;
+      for (RawMessage message : messages) {
+        if (lastMessage != null) {
+          Assert.assertTrue(Bytes.compareTo(lastMessage.getId(), message.getId()) < 0);
+        }
+        lastMessage = message;
+      }
+    }
+
+    // Requests of different topics should have been merged into fewer batches
+    List<Set<TopicId>> batchTopics = testWriter.getBatchTopics();
+    Assert.assertTrue(batchTopics.size() < threadCount * requestPerThread);
+    boolean merged = false;
+    for (Set<TopicId> topics : batchTopics) {
+      merged |= topics.size() > 1;
+    }
+    Assert.assertTrue(merged);
+  }
+
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
   private static final class TestStoreRequestWriter extends StoreRequestWriter<TestEntry> {
 
     private final ListMultimap<TopicId, RawMessage> messages = ArrayListMultimap.create();
+    private final List<Set<TopicId>> batchTopics = new ArrayList<>();
     private long writeDelayMillis;
 
     TestStoreRequestWriter(TimeProvider timeProvider) {
@@ -297,14 +367,17 @@ public class ConcurrentMessageWriterTest {
 
     @Override
     protected void doWrite(Iterator<TestEntry> entries) throws IOException {
+      Set<TopicId> topics = new HashSet<>();
       while (entries.hasNext()) {
         TestEntry entry = entries.next();
+        topics.add(entry.getTopicId());
         byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
         MessageId.putRawId(entry.getWriteTimestamp(), entry.getSequenceId(), 0L, (short) 0, rawId, 0);
         byte[] payload = entry.getPayload();
         messages.put(entry.getTopicId(),
                      new RawMessage(rawId, payload == null ? null : Arrays.copyOf(payload, payload.length)));
       }
+      batchTopics.add(topics);
 
       if (writeDelayMillis > 0) {
         Uninterruptibles.sleepUninterruptibly(writeDelayMillis, TimeUnit.MILLISECONDS);
@@ -315,6 +388,13 @@ public class ConcurrentMessageWriterTest {
       return messages;
     }
 
+    /**
+     * Returns the topics of the entries written in each batch.
+     */
+    List<Set<TopicId>> getBatchTopics() {
+      return batchTopics;
+    }
+
     @Override
     public void close() throws IOException {
       // No-op
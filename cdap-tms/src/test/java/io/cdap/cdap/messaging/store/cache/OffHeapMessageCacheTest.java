@@ -0,0 +1,280 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.store.cache;
+
+import com.google.common.collect.Lists;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import io.cdap.cdap.messaging.store.MessageTable;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.TopicId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unit test for {@link OffHeapMessageCache}.
+ */
+public class OffHeapMessageCacheTest {
+
+  private static final MetricsContext NOOP_METRICS = new NoopMetricsContext();
+  private static final TopicId TOPIC_ID = NamespaceId.SYSTEM.topic("test");
+  private static final TopicMetadata METADATA = new TopicMetadata(TOPIC_ID, TopicMetadata.GENERATION_KEY, 1,
+                                                                  TopicMetadata.TTL_KEY, 86400);
+  // Each entry created by this test has 8 bytes payload, which gives 35 bytes entry size
+  private static final int ENTRY_SIZE = 35;
+
+  @Test
+  public void testNoCache() {
+    OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, 1024, new MessageCache.Limits(0, 0, 0),
+                                                        NOOP_METRICS);
+    cache.addAll(createEntries(0, 10).iterator());
+    Assert.assertEquals(0L, cache.getWeight());
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 10,
+                                                                       MessageFilter.alwaysAccept())) {
+      Assert.assertNull(scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+  }
+
+  @Test
+  public void testBasic() {
+    OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, 1024, new MessageCache.Limits(2048, 3072, 4096),
+                                                        NOOP_METRICS);
+    cache.addAll(createEntries(0, 10).iterator());
+    cache.addAll(createEntries(20, 10).iterator());
+    Assert.assertEquals(20 * ENTRY_SIZE, cache.getWeight());
+
+    MessageFilter<MessageTable.Entry> filter = MessageFilter.alwaysAccept();
+
+    // Scan with a start key that is not in cache
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(-1), true, 100, filter)) {
+      Assert.assertEquals(0L, scanner.getFirstInCache().getPublishTimestamp());
+      List<MessageTable.Entry> entries = Lists.newArrayList(scanner);
+      Assert.assertEquals(20, entries.size());
+      for (int i = 0; i < 10; i++) {
+        assertEntry(i, entries.get(i));
+        assertEntry(i + 20, entries.get(i + 10));
+      }
+    }
+
+    // Scan with a start key that is in the cache, inclusive and exclusive, with limit
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(3), true, 5, filter)) {
+      Assert.assertEquals(0L, scanner.getFirstInCache().getPublishTimestamp());
+      Assert.assertEquals(5, assertEntries(3, scanner));
+    }
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(3), false, 5, filter)) {
+      Assert.assertEquals(5, assertEntries(4, scanner));
+    }
+
+    // Scan with a start key that is between keys in the cache
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(15), true, 5, filter)) {
+      Assert.assertEquals(5, assertEntries(20, scanner));
+    }
+
+    // Scan with filter that hold at timestamp 5
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+                                                                       new MessageFilter<MessageTable.Entry>() {
+      @Override
+      public Result apply(MessageTable.Entry input) {
+        return input.getPublishTimestamp() == 5 ? Result.HOLD : Result.ACCEPT;
+      }
+    })) {
+      Assert.assertEquals(5, assertEntries(0, scanner));
+    }
+  }
+
+  @Test
+  public void testSegmentEviction() {
+    // Each segment can hold 10 entries, and there are 4 segments
+    int segmentSize = ENTRY_SIZE * 10;
+    OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, segmentSize,
+                                                        new MessageCache.Limits(0, segmentSize * 4, segmentSize * 4),
+                                                        NOOP_METRICS);
+    // Add 45 entries, which needs 5 segments. The first segment should get evicted.
+    cache.addAll(createEntries(0, 45).iterator());
+    Assert.assertEquals(35 * ENTRY_SIZE, cache.getWeight());
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+                                                                       MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(10L, scanner.getFirstInCache().getPublishTimestamp());
+      Assert.assertEquals(35, assertEntries(10, scanner));
+    }
+
+    // Adding an entry that is larger than the segment size should clear the cache
+    byte[] largePayload = new byte[segmentSize];
+    cache.addAll(Collections.<MessageTable.Entry>singleton(createEntry(45, largePayload)).iterator());
+    Assert.assertEquals(0L, cache.getWeight());
+    cache.addAll(createEntries(46, 5).iterator());
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+                                                                       MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(46L, scanner.getFirstInCache().getPublishTimestamp());
+      Assert.assertEquals(5, assertEntries(46, scanner));
+    }
+
+    // Entries must be in increasing order
+    try {
+      cache.addAll(createEntries(50, 1).iterator());
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    Assert.assertEquals(0L, cache.getWeight());
+  }
+
+  @Test
+  public void testReduceWeight() {
+    int segmentSize = ENTRY_SIZE * 10;
+    OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, segmentSize,
+                                                        new MessageCache.Limits(segmentSize, segmentSize * 2,
+                                                                                segmentSize * 4),
+                                                        NOOP_METRICS);
+    cache.addAll(createEntries(0, 35).iterator());
+    Assert.assertEquals(35 * ENTRY_SIZE, cache.getWeight());
+
+    // Closing the scanner should reduce the weight down to min retain by evicting whole segments
+    cache.scan(lookup(0), true, 1, MessageFilter.alwaysAccept()).close();
+    Assert.assertEquals(15 * ENTRY_SIZE, cache.getWeight());
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+                                                                       MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(20L, scanner.getFirstInCache().getPublishTimestamp());
+      Assert.assertEquals(15, assertEntries(20, scanner));
+    }
+  }
+
+  @Test
+  public void testUpdate() {
+    OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, ENTRY_SIZE * 4,
+                                                        new MessageCache.Limits(0, 4096, 4096), NOOP_METRICS);
+    cache.addAll(createEntries(0, 10).iterator());
+
+    // Rollback entries 2 to 6, which span multiple segments
+    cache.updateEntries(lookup(2), lookup(6), new MessageCache.EntryUpdater<MessageTable.Entry>() {
+      @Override
+      public void updateEntry(MessageTable.Entry entry) {
+        ((CachingMessageTable.CacheMessageTableEntry) entry).rollback();
+      }
+    });
+
+    try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 100,
+                                                                       MessageFilter.alwaysAccept())) {
+      for (MessageTable.Entry entry : Lists.newArrayList(scanner)) {
+        long timestamp = entry.getPublishTimestamp();
+        Assert.assertEquals(timestamp >= 2 && timestamp <= 6,
+                            ((CachingMessageTable.CacheMessageTableEntry) entry).isRollback());
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentReadWrite() throws Exception {
+    int segmentSize = ENTRY_SIZE * 10;
+    final OffHeapMessageCache cache = new OffHeapMessageCache(TOPIC_ID, segmentSize,
+                                                              new MessageCache.Limits(segmentSize * 2,
+                                                                                      segmentSize * 3,
+                                                                                      segmentSize * 4),
+                                                              NOOP_METRICS);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        readers.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            while (!stopped.get()) {
+              try (MessageCache.Scanner<MessageTable.Entry> scanner = cache.scan(lookup(0), true, 1000,
+                                                                                 MessageFilter.alwaysAccept())) {
+                // Entries returned must always be contiguous, starting from the first entry in the cache
+                MessageTable.Entry first = scanner.getFirstInCache();
+                if (first != null) {
+                  assertEntries(first.getPublishTimestamp(), scanner);
+                }
+              }
+            }
+          }
+        }));
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        cache.addAll(createEntries(i * 10, 10).iterator());
+      }
+      stopped.set(true);
+
+      for (Future<?> future : readers) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Asserts the entries from the given scanner are contiguous, starting from the given timestamp.
+   *
+   * @return number of entries in the scanner
+   */
+  private static int assertEntries(long startTimestamp, MessageCache.Scanner<MessageTable.Entry> scanner) {
+    int count = 0;
+    while (scanner.hasNext()) {
+      assertEntry(startTimestamp + count, scanner.next());
+      count++;
+    }
+    return count;
+  }
+
+  private static void assertEntry(long expectedTimestamp, MessageTable.Entry entry) {
+    Assert.assertEquals(TOPIC_ID, entry.getTopicId());
+    Assert.assertEquals(1, entry.getGeneration());
+    Assert.assertEquals(expectedTimestamp, entry.getPublishTimestamp());
+    Assert.assertTrue(entry.isTransactional());
+    Assert.assertEquals(expectedTimestamp, entry.getTransactionWritePointer());
+    Assert.assertArrayEquals(Bytes.toBytes(expectedTimestamp), entry.getPayload());
+  }
+
+  private static MessageTable.Entry lookup(long timestamp) {
+    return new CachingMessageTable.CacheMessageTableEntry(METADATA, timestamp, (short) 0);
+  }
+
+  private static List<MessageTable.Entry> createEntries(long startTimestamp, int count) {
+    List<MessageTable.Entry> entries = new ArrayList<>();
+    for (long i = startTimestamp; i < startTimestamp + count; i++) {
+      entries.add(createEntry(i, Bytes.toBytes(i)));
+    }
+    return entries;
+  }
+
+  private static MessageTable.Entry createEntry(long timestamp, byte[] payload) {
+    return new CachingMessageTable.CacheMessageTableEntry(TOPIC_ID, 1, true, timestamp,
+                                                          payload, timestamp, (short) 0, false);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.metrics;
+
+/**
+ * A metric of a {@link MetricsContext} that is bound to a metric name. It can be used in place of
+ * {@link MetricsContext#increment(String, long)} and {@link MetricsContext#gauge(String, long)} to
+ * avoid looking up the metric on every update.
+ */
+public interface BoundMetric {
+
+  /**
+   * Increment the metric by the given value.
+   *
+   * @param value value to add
+   */
+  void increment(long value);
+
+  /**
+   * Set the metric to the given value.
+   *
+   * @param value value to set
+   */
+  void gauge(long value);
+}
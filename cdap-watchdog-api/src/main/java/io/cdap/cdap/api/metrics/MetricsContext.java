@@ -38,4 +38,26 @@ public interface MetricsContext extends MetricsCollector {
    * @return tags that identify the context.
    */
   Map<String, String> getTags();
+
+  /**
+   * Returns a {@link BoundMetric} for updating the given metric in this context. Implementations can
+   * override this method to resolve the metric once, so that updates through the returned instance are cheaper
+   * than calling {@link #increment(String, long)} or {@link #gauge(String, long)}.
+   *
+   * @param metricName name of the metric
+   * @return a {@link BoundMetric} bound to the given metric name
+   */
+  default BoundMetric bind(String metricName) {
+    return new BoundMetric() {
+      @Override
+      public void increment(long value) {
+        MetricsContext.this.increment(metricName, value);
+      }
+
+      @Override
+      public void gauge(long value) {
+        MetricsContext.this.gauge(metricName, value);
+      }
+    };
+  }
 }
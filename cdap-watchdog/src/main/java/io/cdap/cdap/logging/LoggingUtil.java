@@ -92,11 +92,26 @@ public final class LoggingUtil {
   public static Map<String, String> encodeMDC(Map<String, String> mdc) {
     Map<String, String> encodeMap = new HashMap<>(mdc.size());
     for (Map.Entry<String, String> entry : mdc.entrySet()) {
-      encodeMap.put(entry.getKey() == null ? MDC_NULL_KEY : entry.getKey(), entry.getValue());
+      encodeMap.put(encodeMDCKey(entry.getKey()), entry.getValue());
     }
     return encodeMap;
   }
 
+  /**
+   * Returns the given mdc key with {@code null} replaced by {@link #MDC_NULL_KEY}.
+   */
+  public static String encodeMDCKey(@Nullable String key) {
+    return key == null ? MDC_NULL_KEY : key;
+  }
+
+  /**
+   * Reverts the {@link #encodeMDCKey(String)} replacement.
+   */
+  @Nullable
+  public static String decodeMDCKey(String key) {
+    return MDC_NULL_KEY.equals(key) ? null : key;
+  }
+
   /**
    * Creates a new map from the given map by reverting the {@link #encodeMDC(Map)} replacement.
    */
@@ -22,6 +22,7 @@ import io.cdap.cdap.common.io.ByteBuffers;
 import io.cdap.cdap.common.io.Syncable;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
@@ -41,25 +42,35 @@ import java.nio.ByteBuffer;
  *
  * Since there is no way to check the state of the underlying file on an exception,
  * all methods of this class assume that the file state is bad on any exception and close the file.
+ *
+ * While writing, a {@link LogFileIndex} of the blocks in the file is collected, which is written next to the
+ * log file when the file is closed.
  */
 
 class LogFileOutputStream implements Closeable, Flushable, Syncable {
   private static final Logger LOG = LoggerFactory.getLogger(LogFileOutputStream.class);
 
   private final Location location;
+  private final String filePermissions;
+  private final int syncIntervalBytes;
   private final long createTime;
   private final Closeable closeable;
   private final LoggingEventSerializer serializer;
+  private final LogFileIndex.Builder indexBuilder;
 
   private OutputStream outputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
   private long fileSize;
+  private long blockBytes;
 
   LogFileOutputStream(Location location, String filePermissions,
                       int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
     this.location = location;
+    this.filePermissions = filePermissions;
+    this.syncIntervalBytes = syncIntervalBytes;
     this.closeable = closeable;
     this.serializer = new LoggingEventSerializer();
+    this.indexBuilder = new LogFileIndex.Builder();
 
     Schema schema = serializer.getAvroSchema();
     try {
@@ -70,6 +81,8 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
       this.createTime = createTime;
       this.fileSize = 0;
+      // the first block starts right after the header
+      this.indexBuilder.sync(dataFileWriter.sync());
     } catch (IOException e) {
       Closeables.closeQuietly(outputStream);
       Closeables.closeQuietly(dataFileWriter);
@@ -88,12 +101,22 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       if (encoded != null) {
         // TODO: CDAP-8735 Remove the copying after upgraded to Avro 1.7.4+
         dataFileWriter.appendEncoded(ByteBuffers.copy(encoded));
+        blockBytes += encoded.remaining();
       } else {
         dataFileWriter.append(((LoggingEvent) event).getRecord());
       }
-      return;
+    } else {
+      byte[] encoded = serializer.toBytes(event);
+      dataFileWriter.appendEncoded(ByteBuffer.wrap(encoded));
+      blockBytes += encoded.length;
+    }
+    indexBuilder.addEvent(event.getTimeStamp(), event.getLevel());
+
+    // End the block explicitly before Avro would do it on its own, so that the sync position of every block
+    // is known for the index
+    if (blockBytes >= syncIntervalBytes) {
+      flush();
     }
-    dataFileWriter.append(serializer.toGenericRecord(event));
   }
 
   /**
@@ -115,6 +138,8 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   @Override
   public void flush() throws IOException {
     fileSize = dataFileWriter.sync();
+    indexBuilder.sync(fileSize);
+    blockBytes = 0;
   }
 
   @Override
@@ -132,8 +157,22 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
     LOG.trace("Closing file {}", location);
     try {
       dataFileWriter.close();
+      writeIndex();
     } finally {
       closeable.close();
     }
   }
+
+  /**
+   * Writes the index of the file. Failure to write the index is not fatal, since readers fall back to scanning
+   * the log file if the index is missing.
+   */
+  private void writeIndex() {
+    LogFileIndex index = indexBuilder.build();
+    try {
+      index.write(LogFileIndex.getIndexLocation(location), filePermissions);
+    } catch (IOException e) {
+      LOG.warn("Failed to write index for log file {}. Reads of the file will not use an index.", location, e);
+    }
+  }
 }
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.logging.filter;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
 /**
@@ -24,6 +25,15 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 public interface Filter {
   boolean match(ILoggingEvent event);
 
+  /**
+   * Returns whether this filter can match any event with the given level. It is used to skip over parts of a log
+   * file that only contain events of other levels, hence it must only return {@code false} if no event of the given
+   * level can ever be matched.
+   */
+  default boolean mayMatchLevel(Level level) {
+    return true;
+  }
+
   Filter EMPTY_FILTER = new EmptyFilter();
 
   /**
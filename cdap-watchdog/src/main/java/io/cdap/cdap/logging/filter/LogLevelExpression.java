@@ -34,6 +34,11 @@ public class LogLevelExpression implements Filter {
     return event.getLevel().isGreaterOrEqual(getLevel());
   }
 
+  @Override
+  public boolean mayMatchLevel(Level level) {
+    return level.isGreaterOrEqual(getLevel());
+  }
+
   public Level getLevel() {
     return level;
   }
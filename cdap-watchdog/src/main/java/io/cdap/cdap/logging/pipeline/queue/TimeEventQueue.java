@@ -19,43 +19,51 @@ package io.cdap.cdap.logging.pipeline.queue;
 import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * A queue for storing time based events with offsets association.
  *
+ * Events of each partition are stored in arrays sorted by event time, then by offset. Since events of a partition
+ * mostly arrive in time order, adding an event is usually an append to the arrays, and removing events in time order
+ * only advances the start of the arrays. Iterating the queue merges the partitions through a min-heap of partitions,
+ * ordered by the time of the next event of each partition, then by partition.
+ *
  * @param <EVENT> Type of event stored in the queue.
  * @param <OFFSET> Type of event offset associated with the event.
  */
 @NotThreadSafe
 public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> implements Iterable<EVENT> {
 
-  private final SortedSet<TimeEvent<EVENT, OFFSET>> events;
-  private final Int2ObjectMap<SortedSet<OFFSET>> partitionOffsets;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Int2ObjectMap<PartitionEvents<EVENT, OFFSET>> partitionEvents;
+  // Events of all partitions, sorted by partition
+  private final PartitionEvents<EVENT, OFFSET>[] sortedPartitionEvents;
+  private int size;
   private long totalSize;
 
+  @SuppressWarnings("unchecked")
   public TimeEventQueue(Iterable<Integer> partitions) {
-    this.events = new TreeSet<>();
-    this.partitionOffsets = new Int2ObjectArrayMap<>();
-
+    this.partitionEvents = new Int2ObjectArrayMap<>();
     for (int partition : partitions) {
-      partitionOffsets.put(partition, new TreeSet<>());
+      partitionEvents.put(partition, new PartitionEvents<>(partition));
+    }
+
+    int[] sortedPartitions = partitionEvents.keySet().toIntArray();
+    Arrays.sort(sortedPartitions);
+    this.sortedPartitionEvents = new PartitionEvents[sortedPartitions.length];
+    for (int i = 0; i < sortedPartitions.length; i++) {
+      sortedPartitionEvents[i] = partitionEvents.get(sortedPartitions[i]);
     }
   }
 
   public void add(EVENT event, long eventTimestamp, int eventSize, int partition, OFFSET offset) {
-    SortedSet<OFFSET> offsets = getOffsets(partition);
-    TimeEvent<EVENT, OFFSET> timeEvent = new TimeEvent<>(eventTimestamp, partition, offset, event, eventSize);
-    if (events.add(timeEvent)) {
-      if (!offsets.add(offset)) {
-        events.remove(timeEvent);
-        throw new IllegalArgumentException("Adding different event with the same offset "
-                                             + offset + ", " + event);
-      }
-
+    if (getPartitionEvents(partition).add(event, eventTimestamp, eventSize, offset)) {
+      size++;
       totalSize += eventSize;
     }
   }
@@ -64,28 +72,37 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
    * Returns the event in the queue with the smallest timestamp.
    */
   public EVENT first() {
-    return events.first().getEvent();
+    PartitionEvents<EVENT, OFFSET> first = null;
+    for (PartitionEvents<EVENT, OFFSET> events : sortedPartitionEvents) {
+      if (!events.isEmpty() && (first == null || events.getTimestamp(0) < first.getTimestamp(0))) {
+        first = events;
+      }
+    }
+    if (first == null) {
+      throw new NoSuchElementException();
+    }
+    return first.getEvent(0);
   }
 
   /**
    * Returns {@code true} if there is no event in the queue.
    */
   public boolean isEmpty() {
-    return events.isEmpty();
+    return size == 0;
   }
 
   /**
    * Returns {@code true} if there is no event for the given partition in the queue.
    */
   public boolean isEmpty(int partition) {
-    return getOffsets(partition).isEmpty();
+    return getPartitionEvents(partition).isEmpty();
   }
 
   /**
    * Returns the number of events in the queue.
    */
   public int size() {
-    return events.size();
+    return size;
   }
 
   /**
@@ -99,67 +116,21 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
    * Returns the smallest offset stored for the given partition.
    */
   public OFFSET getSmallestOffset(int partition) {
-    SortedSet<OFFSET> offsets = getOffsets(partition);
-    if (offsets.isEmpty()) {
-      throw new IllegalStateException("Queue is empty");
-    }
-    return offsets.first();
+    return getPartitionEvents(partition).getSmallestOffset();
   }
 
   @Override
   public EventIterator<EVENT, OFFSET> iterator() {
-    final Iterator<TimeEvent<EVENT, OFFSET>> iterator = events.iterator();
-    return new EventIterator<EVENT, OFFSET>() {
-
-      private TimeEvent<EVENT, OFFSET> currentEvent;
-
-      @Override
-      public boolean hasNext() {
-        return iterator.hasNext();
-      }
-
-      @Override
-      public EVENT next() {
-        currentEvent = iterator.next();
-        return currentEvent.getEvent();
-      }
-
-      @Override
-      public void remove() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        iterator.remove();
-        partitionOffsets.get(currentEvent.getPartition()).remove(currentEvent.getOffset());
-        totalSize -= currentEvent.getEventSize();
-        currentEvent = null;
-      }
-
-      @Override
-      public OFFSET getOffset() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        return currentEvent.getOffset();
-      }
-
-      @Override
-      public int getPartition() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        return currentEvent.getPartition();
-      }
-    };
+    return new MergingEventIterator();
   }
 
-  private SortedSet<OFFSET> getOffsets(int partition) {
-    SortedSet<OFFSET> offsets = partitionOffsets.get(partition);
-    if (offsets == null) {
+  private PartitionEvents<EVENT, OFFSET> getPartitionEvents(int partition) {
+    PartitionEvents<EVENT, OFFSET> events = partitionEvents.get(partition);
+    if (events == null) {
       throw new IllegalArgumentException("Partition " + partition +
-                                           " is not in allowed partitions " + partitionOffsets.keySet());
+                                           " is not in allowed partitions " + partitionEvents.keySet());
     }
-    return offsets;
+    return events;
   }
 
   /**
@@ -182,58 +153,411 @@ public final class TimeEventQueue<EVENT, OFFSET extends Comparable<OFFSET>> impl
   }
 
   /**
-   * This class represent an event stored in the event set.
+   * An {@link EventIterator} that merges the events of all partitions in the order of event time, then partition,
+   * then offset.
    */
-  private static final class TimeEvent<EVENT, OFFSET extends Comparable<OFFSET>>
-                        implements Comparable<TimeEvent<EVENT, OFFSET>> {
-    private final long eventTime;
-    private final int partition;
-    private final OFFSET offset;
-    private final EVENT event;
-    private final int eventSize;
+  private final class MergingEventIterator implements EventIterator<EVENT, OFFSET> {
+
+    // Position of the next event of each partition
+    private final int[] positions;
+    // Min-heap of indices to sortedPartitionEvents for the partitions that have more events
+    private final int[] heap;
+    private int heapSize;
+    // Index of the partition of the last returned event, or -1 if there is none
+    private int current;
+
+    MergingEventIterator() {
+      this.positions = new int[sortedPartitionEvents.length];
+      this.heap = new int[sortedPartitionEvents.length];
+      for (int i = 0; i < sortedPartitionEvents.length; i++) {
+        if (!sortedPartitionEvents[i].isEmpty()) {
+          heap[heapSize++] = i;
+        }
+      }
+      for (int i = heapSize / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+      this.current = -1;
+    }
 
-    TimeEvent(long eventTime, int partition, OFFSET offset, EVENT event, int eventSize) {
-      this.eventTime = eventTime;
-      this.partition = partition;
-      this.offset = offset;
-      this.event = event;
-      this.eventSize = eventSize;
+    @Override
+    public boolean hasNext() {
+      return heapSize > 0;
     }
 
-    long getEventTime() {
-      return eventTime;
+    @Override
+    public EVENT next() {
+      if (heapSize == 0) {
+        throw new NoSuchElementException();
+      }
+      int idx = heap[0];
+      int position = positions[idx]++;
+      if (positions[idx] >= sortedPartitionEvents[idx].size()) {
+        heap[0] = heap[--heapSize];
+      }
+      if (heapSize > 0) {
+        siftDown(0);
+      }
+      current = idx;
+      return sortedPartitionEvents[idx].getEvent(position);
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException("The next() method must be called first.");
+      }
+      // Events after the removed one are shifted by one position, so the position of the next event
+      // of the partition is decremented, while its ordering in the heap stays the same.
+      PartitionEvents<EVENT, OFFSET> events = sortedPartitionEvents[current];
+      int position = --positions[current];
+      totalSize -= events.getEventSize(position);
+      size--;
+      events.remove(position);
+      current = -1;
+    }
+
+    @Override
+    public OFFSET getOffset() {
+      if (current < 0) {
+        throw new IllegalStateException("The next() method must be called first.");
+      }
+      return sortedPartitionEvents[current].getOffset(positions[current] - 1);
+    }
+
+    @Override
+    public int getPartition() {
+      if (current < 0) {
+        throw new IllegalStateException("The next() method must be called first.");
+      }
+      return sortedPartitionEvents[current].getPartition();
+    }
+
+    private void siftDown(int i) {
+      int idx = heap[i];
+      int child = 2 * i + 1;
+      while (child < heapSize) {
+        if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child])) {
+          child++;
+        }
+        if (!isBefore(heap[child], idx)) {
+          break;
+        }
+        heap[i] = heap[child];
+        i = child;
+        child = 2 * i + 1;
+      }
+      heap[i] = idx;
+    }
+
+    /**
+     * Returns {@code true} if the next event of the partition at index {@code a} comes before the next event
+     * of the partition at index {@code b}.
+     */
+    private boolean isBefore(int a, int b) {
+      long timestampA = sortedPartitionEvents[a].getTimestamp(positions[a]);
+      long timestampB = sortedPartitionEvents[b].getTimestamp(positions[b]);
+      // Partitions are sorted, hence comparing the indices is the same as comparing the partitions
+      return timestampA < timestampB || (timestampA == timestampB && a < b);
+    }
+  }
+
+  /**
+   * Holds the events of a partition in parallel arrays, sorted by event time, then by offset.
+   * Events are stored in the {@code [start, end)} range of the arrays, and positions of events used by the methods
+   * of this class are relative to {@code start}.
+   */
+  private static final class PartitionEvents<EVENT, OFFSET extends Comparable<OFFSET>> {
+
+    private final int partition;
+    private final PartitionOffsets<OFFSET> partitionOffsets;
+    private long[] timestamps;
+    private Object[] events;
+    private Object[] offsets;
+    private int[] eventSizes;
+    private int start;
+    private int end;
+
+    PartitionEvents(int partition) {
+      this.partition = partition;
+      this.partitionOffsets = new PartitionOffsets<>();
+      this.timestamps = new long[INITIAL_CAPACITY];
+      this.events = new Object[INITIAL_CAPACITY];
+      this.offsets = new Object[INITIAL_CAPACITY];
+      this.eventSizes = new int[INITIAL_CAPACITY];
     }
 
     int getPartition() {
       return partition;
     }
 
-    OFFSET getOffset() {
-      return offset;
+    int size() {
+      return end - start;
     }
 
-    EVENT getEvent() {
-      return event;
+    boolean isEmpty() {
+      return start == end;
     }
 
-    int getEventSize() {
-      return eventSize;
+    long getTimestamp(int position) {
+      return timestamps[start + position];
     }
 
-    @Override
-    public int compareTo(TimeEvent<EVENT, OFFSET> other) {
-      // Compare by event time, then by partition, then by offset
-      // Combination of them are guaranteed to be unique.
+    @SuppressWarnings("unchecked")
+    EVENT getEvent(int position) {
+      return (EVENT) events[start + position];
+    }
+
+    @SuppressWarnings("unchecked")
+    OFFSET getOffset(int position) {
+      return (OFFSET) offsets[start + position];
+    }
+
+    int getEventSize(int position) {
+      return eventSizes[start + position];
+    }
+
+    OFFSET getSmallestOffset() {
+      return partitionOffsets.first();
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @return {@code true} if the event was added, or {@code false} if the same event is already stored
+     */
+    boolean add(EVENT event, long timestamp, int eventSize, OFFSET offset) {
+      if (!partitionOffsets.add(offset, timestamp, event)) {
+        return false;
+      }
+
+      // Events mostly arrive in time order, so only search for the position if the event is not the last one.
+      // Offsets of the stored events are unique, hence no stored event compares equal to the new one.
+      int idx = end;
+      if (idx > start && compare(idx - 1, timestamp, offset) > 0) {
+        int low = start;
+        int high = end - 1;
+        while (low < high) {
+          int mid = (low + high) >>> 1;
+          if (compare(mid, timestamp, offset) > 0) {
+            high = mid;
+          } else {
+            low = mid + 1;
+          }
+        }
+        idx = low;
+      }
+
+      int position = idx - start;
+      ensureCapacity();
+      idx = start + position;
+      if (idx < end) {
+        System.arraycopy(timestamps, idx, timestamps, idx + 1, end - idx);
+        System.arraycopy(events, idx, events, idx + 1, end - idx);
+        System.arraycopy(offsets, idx, offsets, idx + 1, end - idx);
+        System.arraycopy(eventSizes, idx, eventSizes, idx + 1, end - idx);
+      }
+      timestamps[idx] = timestamp;
+      events[idx] = event;
+      offsets[idx] = offset;
+      eventSizes[idx] = eventSize;
+      end++;
+      return true;
+    }
+
+    /**
+     * Removes the event at the given position.
+     */
+    void remove(int position) {
+      int idx = start + position;
+      OFFSET offset = getOffset(position);
+      if (idx == start) {
+        events[idx] = null;
+        offsets[idx] = null;
+        start++;
+      } else {
+        System.arraycopy(timestamps, idx + 1, timestamps, idx, end - idx - 1);
+        System.arraycopy(events, idx + 1, events, idx, end - idx - 1);
+        System.arraycopy(offsets, idx + 1, offsets, idx, end - idx - 1);
+        System.arraycopy(eventSizes, idx + 1, eventSizes, idx, end - idx - 1);
+        end--;
+        events[end] = null;
+        offsets[end] = null;
+      }
+      if (start == end) {
+        start = 0;
+        end = 0;
+      }
+      partitionOffsets.remove(offset);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(int idx, long timestamp, OFFSET offset) {
+      int cmp = Long.compare(timestamps[idx], timestamp);
+      return cmp != 0 ? cmp : ((OFFSET) offsets[idx]).compareTo(offset);
+    }
+
+    /**
+     * Makes room for one more event at the end of the arrays, either by moving the events to the beginning of the
+     * arrays if at least half of the arrays is free, or by growing the arrays.
+     */
+    private void ensureCapacity() {
+      if (end < timestamps.length) {
+        return;
+      }
+      int size = end - start;
+      if (size * 2 <= timestamps.length) {
+        System.arraycopy(timestamps, start, timestamps, 0, size);
+        System.arraycopy(events, start, events, 0, size);
+        System.arraycopy(offsets, start, offsets, 0, size);
+        System.arraycopy(eventSizes, start, eventSizes, 0, size);
+        Arrays.fill(events, size, end, null);
+        Arrays.fill(offsets, size, end, null);
+      } else {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOfRange(timestamps, start, start + capacity);
+        events = Arrays.copyOfRange(events, start, start + capacity);
+        offsets = Arrays.copyOfRange(offsets, start, start + capacity);
+        eventSizes = Arrays.copyOfRange(eventSizes, start, start + capacity);
+      }
+      start = 0;
+      end = size;
+    }
+  }
+
+  /**
+   * Tracks the offsets of the events of a partition in parallel arrays sorted by offset, for finding the smallest
+   * offset and for detecting events with duplicated offsets. Offsets of a partition mostly arrive in increasing
+   * order and are mostly removed in increasing order, which makes both operations amortized constant time.
+   * Offsets removed out of order are only marked as removed, and are dropped when they become the smallest one.
+   * Offsets are stored in the {@code [start, end)} range of the arrays.
+   */
+  private static final class PartitionOffsets<OFFSET extends Comparable<OFFSET>> {
+
+    private Object[] offsets;
+    private long[] timestamps;
+    private boolean[] removed;
+    private int start;
+    private int end;
+
+    PartitionOffsets() {
+      this.offsets = new Object[INITIAL_CAPACITY];
+      this.timestamps = new long[INITIAL_CAPACITY];
+      this.removed = new boolean[INITIAL_CAPACITY];
+    }
+
+    @SuppressWarnings("unchecked")
+    OFFSET first() {
+      if (start == end) {
+        throw new IllegalStateException("Queue is empty");
+      }
+      return (OFFSET) offsets[start];
+    }
+
+    /**
+     * Adds an offset of an event.
+     *
+     * @return {@code true} if the offset was added, or {@code false} if the same offset is already stored for an
+     *         event with the same timestamp, which means it is the same event
+     * @throws IllegalArgumentException if the same offset is already stored for a different event
+     */
+    boolean add(OFFSET offset, long timestamp, Object event) {
+      int idx = end;
+      if (end > start && compare(end - 1, offset) >= 0) {
+        idx = binarySearch(offset);
+        if (idx >= 0) {
+          if (!removed[idx]) {
+            if (timestamps[idx] == timestamp) {
+              return false;
+            }
+            throw new IllegalArgumentException("Adding different event with the same offset " + offset + ", " + event);
+          }
+          removed[idx] = false;
+          timestamps[idx] = timestamp;
+          return true;
+        }
+        idx = -idx - 1;
+      }
+
+      int position = idx - start;
+      ensureCapacity();
+      idx = start + position;
+      if (idx < end) {
+        System.arraycopy(offsets, idx, offsets, idx + 1, end - idx);
+        System.arraycopy(timestamps, idx, timestamps, idx + 1, end - idx);
+        System.arraycopy(removed, idx, removed, idx + 1, end - idx);
+      }
+      offsets[idx] = offset;
+      timestamps[idx] = timestamp;
+      removed[idx] = false;
+      end++;
+      return true;
+    }
+
+    void remove(OFFSET offset) {
+      if (compare(start, offset) == 0) {
+        offsets[start++] = null;
+      } else {
+        removed[binarySearch(offset)] = true;
+      }
+      while (start < end && removed[start]) {
+        removed[start] = false;
+        offsets[start++] = null;
+      }
+      if (start == end) {
+        start = 0;
+        end = 0;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(int idx, OFFSET offset) {
+      return ((OFFSET) offsets[idx]).compareTo(offset);
+    }
 
-      int cmp = Long.compare(eventTime, other.getEventTime());
-      if (cmp != 0) {
-        return cmp;
+    /**
+     * Returns the index of the given offset, or {@code -(insertion point) - 1} if the offset is not stored.
+     */
+    private int binarySearch(OFFSET offset) {
+      int low = start;
+      int high = end - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compare(mid, offset);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    /**
+     * Makes room for one more offset at the end of the arrays, either by moving the offsets to the beginning of the
+     * arrays if at least half of the arrays is free, or by growing the arrays.
+     */
+    private void ensureCapacity() {
+      if (end < offsets.length) {
+        return;
       }
-      cmp = Integer.compare(partition, other.getPartition());
-      if (cmp != 0) {
-        return cmp;
+      int size = end - start;
+      if (size * 2 <= offsets.length) {
+        System.arraycopy(offsets, start, offsets, 0, size);
+        System.arraycopy(timestamps, start, timestamps, 0, size);
+        System.arraycopy(removed, start, removed, 0, size);
+        Arrays.fill(offsets, size, end, null);
+        Arrays.fill(removed, size, end, false);
+      } else {
+        int capacity = offsets.length * 2;
+        offsets = Arrays.copyOfRange(offsets, start, start + capacity);
+        timestamps = Arrays.copyOfRange(timestamps, start, start + capacity);
+        removed = Arrays.copyOfRange(removed, start, start + capacity);
       }
-      return offset.compareTo(other.getOffset());
+      start = 0;
+      end = size;
     }
   }
 }
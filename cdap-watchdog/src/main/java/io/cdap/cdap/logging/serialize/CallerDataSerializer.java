@@ -20,6 +20,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for CallerData.
@@ -40,6 +43,24 @@ final class CallerDataSerializer {
     return null;
   }
 
+  /**
+   * Writes the given caller data to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(StackTraceElement[] stackTraceElements, Encoder encoder) throws IOException {
+    if (stackTraceElements == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    encoder.writeArrayStart();
+    encoder.setItemCount(stackTraceElements.length);
+    for (StackTraceElement stackTraceElement : stackTraceElements) {
+      encoder.startItem();
+      StackTraceElementSerializer.write(stackTraceElement, encoder);
+    }
+    encoder.writeArrayEnd();
+  }
+
   static StackTraceElement[] decode(GenericArray<GenericRecord> datum) {
     if (datum != null) {
       StackTraceElement[] stackTraceElements = new StackTraceElement[datum.size()];
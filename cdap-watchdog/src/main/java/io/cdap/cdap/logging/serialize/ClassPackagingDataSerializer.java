@@ -21,6 +21,9 @@ import io.cdap.cdap.logging.LoggingUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for ClassPackagingData.
@@ -39,6 +42,20 @@ final class ClassPackagingDataSerializer {
     return null;
   }
 
+  /**
+   * Writes the given {@link ClassPackagingData} to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(ClassPackagingData classPackagingData, Encoder encoder) throws IOException {
+    if (classPackagingData == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    LoggingEventSerializer.writeString(classPackagingData.getCodeLocation(), encoder);
+    LoggingEventSerializer.writeString(classPackagingData.getVersion(), encoder);
+    encoder.writeBoolean(classPackagingData.isExact());
+  }
+
   static ClassPackagingData decode(GenericRecord datum) {
     if (datum != null) {
       String codeLocation =  LoggingUtil.stringOrNull(datum.get("codeLocation"));
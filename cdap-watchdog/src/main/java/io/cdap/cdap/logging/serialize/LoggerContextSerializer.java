@@ -21,7 +21,9 @@ import io.cdap.cdap.logging.LoggingUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -41,6 +43,20 @@ final class LoggerContextSerializer {
     return null;
   }
 
+  /**
+   * Writes the given {@link LoggerContextVO} to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(LoggerContextVO context, Encoder encoder) throws IOException {
+    if (context == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    LoggingEventSerializer.writeString(context.getName(), encoder);
+    LoggingEventSerializer.writeMap(context.getPropertyMap(), encoder);
+    encoder.writeLong(context.getBirthTime());
+  }
+
   static LoggerContextVO decode(GenericRecord datum) {
     if (datum != null) {
       long birthTime = (Long) datum.get("birthTime");
@@ -24,28 +24,36 @@ import io.cdap.cdap.logging.LoggingUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * Avro serializer for ILoggingEvent.
  * Method of this class is not thread safe, hence cannot be called from multiple threads concurrently.
+ *
+ * Events are encoded by writing the {@link ILoggingEvent} fields directly to an Avro {@link Encoder} in the order of
+ * the {@link LogSchema.LoggingEvent#SCHEMA}, which produces the same binary format as writing a {@link GenericRecord}
+ * of the event. On decoding, only the timestamp, level and MDC are decoded upfront, since those are the fields used
+ * for routing and filtering events. The rest of the event is decoded when it is first needed.
  */
 @NotThreadSafe
 public final class LoggingEventSerializer {
 
-  private final GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>(getAvroSchema());
   private BinaryDecoder decoder;
 
   /**
@@ -61,9 +69,8 @@ public final class LoggingEventSerializer {
   public byte[] toBytes(ILoggingEvent event) {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
-    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(getAvroSchema());
     try {
-      writer.write(toGenericRecord(event), encoder);
+      write(event, encoder);
     } catch (IOException e) {
       // This shouldn't happen since we are writing to byte array output stream.
       throw Throwables.propagate(e);
@@ -75,12 +82,25 @@ public final class LoggingEventSerializer {
    * Decodes the content of the given {@link ByteBuffer} into {@link ILoggingEvent}, based on the
    * schema returned by the {@link #getAvroSchema()} method.
    *
-   * @param buffer the buffer to decode
+   * @param buffer the buffer to decode. It must not be modified afterwards, since the returned event
+   *               is lazily decoded from it
    * @return a new instance of {@link ILoggingEvent} decoded from the buffer
    * @throws IOException if fail to decode
    */
   public ILoggingEvent fromBytes(ByteBuffer buffer) throws IOException {
-    return new LoggingEvent(toGenericRecord(buffer), buffer);
+    // The timestamp, level and mdc are the first three fields in the schema
+    BinaryDecoder decoder = getDecoder(buffer);
+    long timestamp = decoder.readLong();
+    int level = decoder.readInt();
+    Map<String, String> mdc = readMDC(decoder);
+
+    // Skip through the rest of the fields to validate the content without materializing it,
+    // so that invalid content is detected here instead of when the event is used
+    List<Schema.Field> fields = getAvroSchema().getFields();
+    for (int i = 3; i < fields.size(); i++) {
+      skip(fields.get(i).schema(), decoder);
+    }
+    return new LoggingEvent(buffer, timestamp, Level.toLevel(level), mdc);
   }
 
   /**
@@ -118,18 +138,6 @@ public final class LoggingEventSerializer {
     return decoder;
   }
 
-  /**
-   * Decodes the content of the given {@link ByteBuffer} into {@link GenericRecord}, based on the schema
-   * returned by the {@link #getAvroSchema()} method.
-   *
-   * @param buffer the buffer to decode
-   * @return a {@link GenericRecord} representing the decoded content.
-   * @throws IOException if fail to decode
-   */
-  private GenericRecord toGenericRecord(ByteBuffer buffer) throws IOException {
-    return datumReader.read(null, getDecoder(buffer));
-  }
-
   /**
    * Creates a new {@link GenericRecord} that represents the given {@link ILoggingEvent}.
    */
@@ -168,6 +176,110 @@ public final class LoggingEventSerializer {
     return datum;
   }
 
+  /**
+   * Writes the given {@link ILoggingEvent} to the {@link Encoder}, with the same format as writing the
+   * {@link GenericRecord} returned by {@link #toGenericRecord(ILoggingEvent)}.
+   */
+  private void write(ILoggingEvent event, Encoder encoder) throws IOException {
+    encoder.writeLong(event.getTimeStamp());
+    encoder.writeInt(event.getLevel() == null ? Level.ERROR_INT : event.getLevel().toInt());
+    writeMap(event.getMDCPropertyMap(), encoder);
+    // marker is not supported in serialization
+    writeNull(encoder);
+    writeString(event.getThreadName(), encoder);
+    writeString(event.getMessage(), encoder);
+
+    Object[] arguments = event.getArgumentArray();
+    if (arguments == null) {
+      writeNull(encoder);
+    } else {
+      encoder.writeIndex(1);
+      encoder.writeArrayStart();
+      encoder.setItemCount(arguments.length);
+      for (Object argument : arguments) {
+        encoder.startItem();
+        writeString(argument == null ? null : argument.toString(), encoder);
+      }
+      encoder.writeArrayEnd();
+    }
+
+    writeString(event.getFormattedMessage(), encoder);
+    writeString(event.getLoggerName(), encoder);
+    LoggerContextSerializer.write(event.getLoggerContextVO(), encoder);
+    ThrowableProxySerializer.write(event.getThrowableProxy(), encoder);
+    boolean hasCallerData = event.hasCallerData();
+    encoder.writeBoolean(hasCallerData);
+    CallerDataSerializer.write(hasCallerData ? event.getCallerData() : null, encoder);
+  }
+
+  /**
+   * Writes the null branch of a nullable union.
+   */
+  static void writeNull(Encoder encoder) throws IOException {
+    encoder.writeIndex(0);
+    encoder.writeNull();
+  }
+
+  /**
+   * Writes a nullable string.
+   */
+  static void writeString(@Nullable String str, Encoder encoder) throws IOException {
+    if (str == null) {
+      writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    encoder.writeString(str);
+  }
+
+  /**
+   * Writes a nullable map with nullable string values, with {@code null} keys encoded the same way as
+   * {@link LoggingUtil#encodeMDC(Map)}.
+   */
+  static void writeMap(@Nullable Map<String, String> map, Encoder encoder) throws IOException {
+    if (map == null) {
+      writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    encoder.writeMapStart();
+    encoder.setItemCount(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      encoder.startItem();
+      encoder.writeString(LoggingUtil.encodeMDCKey(entry.getKey()));
+      writeString(entry.getValue(), encoder);
+    }
+    encoder.writeMapEnd();
+  }
+
+  /**
+   * Reads the mdc map written by {@link #writeMap(Map, Encoder)}, with the same result as
+   * {@link LoggingUtil#decodeMDC(Map)}.
+   */
+  private Map<String, String> readMDC(Decoder decoder) throws IOException {
+    Map<String, String> mdc = new HashMap<>();
+    if (decoder.readIndex() == 0) {
+      decoder.readNull();
+      return mdc;
+    }
+    Utf8 utf8 = null;
+    for (long count = decoder.readMapStart(); count != 0; count = decoder.mapNext()) {
+      for (long i = 0; i < count; i++) {
+        utf8 = decoder.readString(utf8);
+        String key = LoggingUtil.decodeMDCKey(utf8.toString());
+        String value = null;
+        if (decoder.readIndex() == 0) {
+          decoder.readNull();
+        } else {
+          utf8 = decoder.readString(utf8);
+          value = utf8.toString();
+        }
+        mdc.put(key, value);
+      }
+    }
+    return mdc;
+  }
+
   /**
    * Skips data from the decoder based on the schema.
    */
@@ -197,7 +309,7 @@ public final class LoggingEventSerializer {
         }
         break;
       case UNION:
-        decoder.readIndex();
+        skip(schema.getTypes().get(decoder.readIndex()), decoder);
         break;
       case FIXED:
         decoder.skipFixed(schema.getFixedSize());
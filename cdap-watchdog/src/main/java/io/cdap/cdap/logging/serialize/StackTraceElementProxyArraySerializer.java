@@ -21,6 +21,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for an array of StackTraceElementProxies.
@@ -41,6 +44,25 @@ final class StackTraceElementProxyArraySerializer {
     return null;
   }
 
+  /**
+   * Writes the given array of {@link StackTraceElementProxy} to the {@link Encoder} with the same format as
+   * {@link #encode}.
+   */
+  static void write(StackTraceElementProxy[] stackTraceElementProxies, Encoder encoder) throws IOException {
+    if (stackTraceElementProxies == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    encoder.writeArrayStart();
+    encoder.setItemCount(stackTraceElementProxies.length);
+    for (StackTraceElementProxy ste : stackTraceElementProxies) {
+      encoder.startItem();
+      StackTraceElementProxySerializer.write(ste, encoder);
+    }
+    encoder.writeArrayEnd();
+  }
+
   static StackTraceElementProxy[] decode(GenericArray<GenericRecord> datum) {
     if (datum != null) {
       StackTraceElementProxy[] stackTraceElementProxies = new StackTraceElementProxy[datum.size()];
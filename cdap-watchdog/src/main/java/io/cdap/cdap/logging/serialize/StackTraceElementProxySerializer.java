@@ -21,6 +21,9 @@ import ch.qos.logback.classic.spi.StackTraceElementProxy;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for StackTraceElementProxy.
@@ -37,6 +40,14 @@ final class StackTraceElementProxySerializer {
     return datum;
   }
 
+  /**
+   * Writes the given {@link StackTraceElementProxy} to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(StackTraceElementProxy stackTraceElementProxy, Encoder encoder) throws IOException {
+    StackTraceElementSerializer.write(stackTraceElementProxy.getStackTraceElement(), encoder);
+    ClassPackagingDataSerializer.write(stackTraceElementProxy.getClassPackagingData(), encoder);
+  }
+
   static StackTraceElementProxy decode(GenericRecord datum) {
     StackTraceElement ste =
       StackTraceElementSerializer.decode((GenericRecord) datum.get("stackTraceElement"));
@@ -20,6 +20,9 @@ import io.cdap.cdap.logging.LoggingUtil;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for StackTraceElement.
@@ -40,6 +43,21 @@ class StackTraceElementSerializer {
     return null;
   }
 
+  /**
+   * Writes the given {@link StackTraceElement} to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(StackTraceElement stackTraceElement, Encoder encoder) throws IOException {
+    if (stackTraceElement == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    LoggingEventSerializer.writeString(stackTraceElement.getClassName(), encoder);
+    LoggingEventSerializer.writeString(stackTraceElement.getMethodName(), encoder);
+    LoggingEventSerializer.writeString(stackTraceElement.getFileName(), encoder);
+    encoder.writeInt(stackTraceElement.getLineNumber());
+  }
+
   static StackTraceElement decode(GenericRecord datum) {
     if (datum != null) {
       String declaringClass = LoggingUtil.stringOrNull(datum.get("declaringClass"));
@@ -21,6 +21,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for ThrowableProxyArray.
@@ -41,6 +44,25 @@ final class ThrowableProxyArraySerializer {
     return null;
   }
 
+  /**
+   * Writes the given array of {@link IThrowableProxy} to the {@link Encoder} with the same format as
+   * {@link #encode}.
+   */
+  static void write(IThrowableProxy[] throwableProxies, Encoder encoder) throws IOException {
+    if (throwableProxies == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    encoder.writeArrayStart();
+    encoder.setItemCount(throwableProxies.length);
+    for (IThrowableProxy tp : throwableProxies) {
+      encoder.startItem();
+      ThrowableProxySerializer.write(tp, encoder);
+    }
+    encoder.writeArrayEnd();
+  }
+
   static IThrowableProxy[] decode(GenericArray<GenericRecord> datum) {
     if (datum != null) {
       IThrowableProxy[] throwableProxies = new IThrowableProxy[datum.size()];
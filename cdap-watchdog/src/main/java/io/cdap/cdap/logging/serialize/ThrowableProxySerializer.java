@@ -23,6 +23,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
 
 /**
  * Serializer for IThrowableProxy.
@@ -49,6 +52,23 @@ final class ThrowableProxySerializer {
     return null;
   }
 
+  /**
+   * Writes the given {@link IThrowableProxy} to the {@link Encoder} with the same format as {@link #encode}.
+   */
+  static void write(IThrowableProxy throwableProxy, Encoder encoder) throws IOException {
+    if (throwableProxy == null) {
+      LoggingEventSerializer.writeNull(encoder);
+      return;
+    }
+    encoder.writeIndex(1);
+    LoggingEventSerializer.writeString(throwableProxy.getClassName(), encoder);
+    LoggingEventSerializer.writeString(throwableProxy.getMessage(), encoder);
+    encoder.writeInt(throwableProxy.getCommonFrames());
+    StackTraceElementProxyArraySerializer.write(throwableProxy.getStackTraceElementProxyArray(), encoder);
+    ThrowableProxySerializer.write(throwableProxy.getCause(), encoder);
+    ThrowableProxyArraySerializer.write(throwableProxy.getSuppressed(), encoder);
+  }
+
   static IThrowableProxy decode(GenericRecord datum) {
     if (datum != null) {
       String className = LoggingUtil.stringOrNull(datum.get("className"));
@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.logging.filter.Filter;
+import org.apache.twill.filesystem.Location;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sparse index of a log file, which is stored as a sidecar file next to the log file when the log file is closed.
+ * The log file is divided into blocks, each starting at an Avro sync position. For each block the index records
+ * the minimum and maximum event timestamps, as well as the set of log levels of the events in the block.
+ * Readers use the index to seek directly to the blocks covering a time range and to skip blocks that cannot
+ * match a {@link Filter}.
+ */
+public final class LogFileIndex {
+
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final int MAGIC = 0x4344494c;
+  private static final byte VERSION = 1;
+
+  private static final Level[] LEVELS = { Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR };
+
+  private final List<Block> blocks;
+
+  private LogFileIndex(List<Block> blocks) {
+    this.blocks = ImmutableList.copyOf(blocks);
+  }
+
+  /**
+   * Returns the {@link Location} of the index of the given log file.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    Location parent = Locations.getParent(logLocation);
+    if (parent == null) {
+      throw new IOException("Cannot determine the parent of log file location " + logLocation);
+    }
+    return parent.append(logLocation.getName() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Reads the index from the given location.
+   *
+   * @throws IOException if failed to read the index or if the content is not a valid index
+   */
+  public static LogFileIndex read(Location indexLocation) throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(indexLocation.getInputStream()))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("Invalid log file index " + indexLocation);
+      }
+      byte version = input.readByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version + " of log file index " + indexLocation);
+      }
+      int size = input.readInt();
+      List<Block> blocks = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        blocks.add(new Block(input.readLong(), input.readLong(), input.readLong(), input.readByte()));
+      }
+      return new LogFileIndex(blocks);
+    }
+  }
+
+  /**
+   * Writes this index to the given location.
+   *
+   * @param indexLocation location to write to
+   * @param filePermissions permissions of the index file, or an empty string to use the default permissions
+   */
+  public void write(Location indexLocation, String filePermissions) throws IOException {
+    OutputStream os = filePermissions.isEmpty()
+      ? indexLocation.getOutputStream() : indexLocation.getOutputStream(filePermissions);
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os))) {
+      output.writeInt(MAGIC);
+      output.writeByte(VERSION);
+      output.writeInt(blocks.size());
+      for (Block block : blocks) {
+        output.writeLong(block.getPosition());
+        output.writeLong(block.getMinTimeMs());
+        output.writeLong(block.getMaxTimeMs());
+        output.writeByte(block.levels);
+      }
+    }
+  }
+
+  /**
+   * Returns the blocks of the log file, ordered by position.
+   */
+  public List<Block> getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * Returns the end position of the block at the given index, or {@code -1} if it is the last block,
+   * which extends to the end of the file.
+   */
+  public long getEndPosition(int blockIdx) {
+    return blockIdx + 1 < blocks.size() ? blocks.get(blockIdx + 1).getPosition() : -1L;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("blocks", blocks)
+      .toString();
+  }
+
+  private static int levelBit(Level level) {
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (LEVELS[i].equals(level)) {
+        return 1 << i;
+      }
+    }
+    // Unknown levels are recorded as all levels, so that the block is never skipped
+    return (1 << LEVELS.length) - 1;
+  }
+
+  /**
+   * Builder for {@link LogFileIndex} that collects block information while a log file is being written.
+   */
+  public static final class Builder {
+
+    private final List<Block> blocks = new ArrayList<>();
+    private long position = -1L;
+    private long minTimeMs = Long.MAX_VALUE;
+    private long maxTimeMs = Long.MIN_VALUE;
+    private int levels;
+
+    /**
+     * Records an event in the current block.
+     */
+    public Builder addEvent(long timestamp, Level level) {
+      minTimeMs = Math.min(minTimeMs, timestamp);
+      maxTimeMs = Math.max(maxTimeMs, timestamp);
+      levels |= levelBit(level);
+      return this;
+    }
+
+    /**
+     * Ends the current block and starts a new one at the given sync position. Blocks without any event
+     * are not recorded.
+     */
+    public Builder sync(long syncPosition) {
+      if (position >= 0 && levels != 0) {
+        blocks.add(new Block(position, minTimeMs, maxTimeMs, levels));
+      }
+      position = syncPosition;
+      minTimeMs = Long.MAX_VALUE;
+      maxTimeMs = Long.MIN_VALUE;
+      levels = 0;
+      return this;
+    }
+
+    /**
+     * Ends the current block and builds the index.
+     */
+    public LogFileIndex build() {
+      sync(-1L);
+      return new LogFileIndex(blocks);
+    }
+  }
+
+  /**
+   * Information about a block of a log file.
+   */
+  public static final class Block {
+
+    private final long position;
+    private final long minTimeMs;
+    private final long maxTimeMs;
+    private final int levels;
+
+    private Block(long position, long minTimeMs, long maxTimeMs, int levels) {
+      this.position = position;
+      this.minTimeMs = minTimeMs;
+      this.maxTimeMs = maxTimeMs;
+      this.levels = levels;
+    }
+
+    /**
+     * Returns the sync position that the block starts at.
+     */
+    public long getPosition() {
+      return position;
+    }
+
+    public long getMinTimeMs() {
+      return minTimeMs;
+    }
+
+    public long getMaxTimeMs() {
+      return maxTimeMs;
+    }
+
+    /**
+     * Returns whether the given {@link Filter} may match any event in this block, based on the event levels.
+     */
+    public boolean mayMatch(Filter filter) {
+      for (int i = 0; i < LEVELS.length; i++) {
+        if ((levels & (1 << i)) != 0 && filter.mayMatchLevel(LEVELS[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+        .add("position", position)
+        .add("minTimeMs", minTimeMs)
+        .add("maxTimeMs", maxTimeMs)
+        .add("levels", Integer.toBinaryString(levels))
+        .toString();
+    }
+  }
+}
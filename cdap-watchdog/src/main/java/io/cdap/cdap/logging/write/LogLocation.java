@@ -50,9 +50,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
  * LogLocation representing a log file and methods to read the file's contents.
+ * If the log file has a {@link LogFileIndex}, reads seek directly to the blocks that can contain matching events,
+ * otherwise the file is scanned.
  */
 public class LogLocation {
   private static final Logger LOG = LoggerFactory.getLogger(LogLocation.class);
@@ -154,6 +157,10 @@ public class LogLocation {
     int count = 0;
     try {
       try (DataFileReader<GenericRecord> dataFileReader = createReader()) {
+        LogFileIndex index = readIndex();
+        if (index != null) {
+          return readLogPrev(dataFileReader, index, logFilter, fromTimeMs, maxEvents);
+        }
 
         if (!dataFileReader.hasNext()) {
           return ImmutableList.of();
@@ -206,6 +213,55 @@ public class LogLocation {
     return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
   }
 
+  /**
+   * Reads the previous log events by going through the blocks of the given {@link LogFileIndex} backwards,
+   * skipping blocks that start after fromTimeMs or cannot match the filter.
+   */
+  private Collection<LogEvent> readLogPrev(DataFileReader<GenericRecord> dataFileReader, LogFileIndex index,
+                                           Filter logFilter, long fromTimeMs, int maxEvents) throws IOException {
+    Deque<Collection<LogEvent>> logSegments = new LinkedList<>();
+    int count = 0;
+    List<LogFileIndex.Block> blocks = index.getBlocks();
+    for (int i = blocks.size() - 1; i >= 0 && count < maxEvents; i--) {
+      LogFileIndex.Block block = blocks.get(i);
+      if (block.getMinTimeMs() > fromTimeMs || !block.mayMatch(logFilter)) {
+        continue;
+      }
+      dataFileReader.seek(block.getPosition());
+      List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs,
+                                                        index.getEndPosition(i));
+      if (!logSegment.isEmpty()) {
+        logSegments.addFirst(logSegment);
+        count = count + logSegment.size();
+      }
+      LOG.trace("Read log events {} from indexed block {}", count, block);
+    }
+
+    int skip = count >= maxEvents ? count - maxEvents : 0;
+    return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
+  }
+
+  /**
+   * Returns the {@link LogFileIndex} of the log file, or {@code null} if the file has no index.
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // Files written by the old logging framework never have an index
+    if (VERSION_0.equals(frameworkVersion)) {
+      return null;
+    }
+    try {
+      Location indexLocation = LogFileIndex.getIndexLocation(location);
+      if (!indexLocation.exists()) {
+        return null;
+      }
+      return LogFileIndex.read(indexLocation);
+    } catch (Exception e) {
+      READ_FAILURE_LOG.warn("Failed to read index of log file {}. Scanning the file instead.", location, e);
+      return null;
+    }
+  }
+
   /**
    *  Read current block in Avro file from current block sync marker to next block sync marker
    */
@@ -259,6 +315,8 @@ public class LogLocation {
     private final long maxEvents;
 
     private DataFileReader<GenericRecord> dataFileReader;
+    private LogFileIndex index;
+    private int blockIdx = -1;
 
     private ILoggingEvent loggingEvent;
     private GenericRecord datum;
@@ -276,7 +334,14 @@ public class LogLocation {
 
       try {
         dataFileReader = createReader();
-        if (dataFileReader.hasNext()) {
+        index = readIndex();
+        if (index != null) {
+          // Seek to the first block that can contain matching events
+          if (!nextBlock()) {
+            LOG.trace("No block in log file {} can contain matching events", location);
+            return;
+          }
+        } else if (dataFileReader.hasNext()) {
           datum = dataFileReader.next();
           loggingEvent = new LoggingEvent(datum);
           loggingEvent.prepareForDeferredProcessing();
@@ -315,7 +380,7 @@ public class LogLocation {
     private void computeNext() {
       try {
         // read events from file
-        while (next == null && dataFileReader.hasNext()) {
+        while (next == null && hasMoreEvents()) {
           loggingEvent = new LoggingEvent(dataFileReader.next(datum));
           loggingEvent.prepareForDeferredProcessing();
 
@@ -338,6 +403,46 @@ public class LogLocation {
       }
     }
 
+    private boolean hasMoreEvents() throws IOException {
+      if (index != null) {
+        // No more blocks to read
+        if (blockIdx < 0) {
+          return false;
+        }
+        long endPosition = index.getEndPosition(blockIdx);
+        if (endPosition >= 0 && dataFileReader.previousSync() >= endPosition && !nextBlock()) {
+          return false;
+        }
+      }
+      return dataFileReader.hasNext();
+    }
+
+    /**
+     * Moves to the next block in the index that has events at or after fromTimeMs and that can match the filter.
+     * Blocks that cannot contain matching events are skipped.
+     *
+     * @return {@code true} if there is such a block, {@code false} otherwise, in which case the iteration is done
+     */
+    private boolean nextBlock() throws IOException {
+      List<LogFileIndex.Block> blocks = index.getBlocks();
+      int idx = blockIdx + 1;
+      while (idx < blocks.size()
+        && (blocks.get(idx).getMaxTimeMs() < fromTimeMs || !blocks.get(idx).mayMatch(logFilter))) {
+        idx++;
+      }
+      if (idx >= blocks.size()) {
+        blockIdx = -1;
+        return false;
+      }
+      // No need to seek if the reader is already at the start of the block
+      if (blockIdx < 0 || idx != blockIdx + 1) {
+        LOG.trace("Seeking to block {}", blocks.get(idx));
+        dataFileReader.seek(blocks.get(idx).getPosition());
+      }
+      blockIdx = idx;
+      return true;
+    }
+
     @Override
     public void close() {
       try {
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.Uninterruptibles;
+import io.cdap.cdap.api.metrics.BoundMetric;
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
@@ -36,6 +37,9 @@ import org.slf4j.LoggerFactory;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +47,11 @@ import java.util.concurrent.TimeUnit;
 /**
  * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
  * {@link AggregatedMetricsEmitter}.
+ *
+ * There is one {@link MetricsContext} per set of tags, which holds the emitters of its own metrics, so that
+ * updating a metric doesn't need to look up the context by tags. A context registers itself for publishing when it
+ * gets updated, and it is unregistered after it has been idle for a while with all values emitted. The context is
+ * then released once it is no longer referenced.
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractExecutionThreadService
                                                          implements MetricsCollectionService {
@@ -50,8 +59,10 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsCollectionService.class);
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
-  private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  // canonical context per tags, weakly referenced so that contexts not in use can be released
+  private final LoadingCache<Map<String, String>, MetricsContextImpl> collectors;
+  // contexts that have metrics updated since they were last idle
+  private final Set<MetricsContextImpl> activeContexts;
   // maximum number of milliseconds to sleep between each publish
   private final long publishIntervalInMillis;
   private final CountDownLatch shutdownLatch;
@@ -61,27 +72,10 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     this.publishIntervalInMillis = Math.min(publishIntervalInMillis, Constants.Metrics.PROCESS_INTERVAL_MILLIS);
     this.shutdownLatch = new CountDownLatch(1);
     this.collectors = CacheBuilder.newBuilder()
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .weakValues()
       .build(createCollectorLoader());
 
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this.activeContexts = ConcurrentHashMap.newKeySet();
   }
 
   /**
@@ -172,20 +166,18 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   }
 
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    final long idleSeconds = TimeUnit.MINUTES.toSeconds(CACHE_EXPIRE_MINUTES);
+    final Iterator<MetricsContextImpl> iterator = activeContexts.iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
+          MetricsContextImpl context = iterator.next();
+          Map<String, AggregatedMetricsEmitter> metricEmitters = context.emitters;
           // +1 because we add extra metric about how many metric values did we emit in this context (see below)
           List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
+          for (AggregatedMetricsEmitter emitter : metricEmitters.values()) {
+            MetricValue metricValue = emitter.emit();
             // skip increment by 0
             if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
               continue;
@@ -194,25 +186,29 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
           }
 
           if (metricValues.isEmpty()) {
-            // skip if there are no metric values to send
+            // skip if there are no metric values to send, and stop tracking the context if it has been idle
+            if (timestamp - context.lastEmitTime >= idleSeconds) {
+              context.deactivate();
+            }
             continue;
           }
+          context.lastEmitTime = timestamp;
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(context.tags, timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
-  private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
-    return new CacheLoader<Map<String, String>, MetricsContext>() {
+  private CacheLoader<Map<String, String>, MetricsContextImpl> createCollectorLoader() {
+    return new CacheLoader<Map<String, String>, MetricsContextImpl>() {
       @Override
-      public MetricsContext load(final Map<String, String> collectorKey) throws Exception {
+      public MetricsContextImpl load(final Map<String, String> collectorKey) throws Exception {
         return new MetricsContextImpl(collectorKey);
       }
     };
@@ -221,19 +217,31 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    private final Runnable activator;
+    private volatile boolean active;
+    // timestamp in seconds of the last emitted metrics, only accessed by the publishing thread
+    private long lastEmitTime;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.emitters = new ConcurrentHashMap<>();
+      this.activator = this::activate;
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
+    }
+
+    @Override
+    public BoundMetric bind(String metricName) {
+      return getEmitter(metricName);
     }
 
     @Override
@@ -259,5 +267,40 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       allTags.putAll(tags);
       return collectors.getUnchecked(allTags);
     }
+
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      // Try with get first since it doesn't lock
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      if (emitter != null) {
+        return emitter;
+      }
+      return emitters.computeIfAbsent(metricName, name -> new AggregatedMetricsEmitter(name, activator));
+    }
+
+    /**
+     * Registers this context for publishing. It is called on every metric update, hence it only
+     * reads a volatile field when the context is already registered.
+     */
+    private void activate() {
+      if (!active) {
+        active = true;
+        activeContexts.add(this);
+      }
+    }
+
+    /**
+     * Unregisters this context from publishing. Since metrics can be updated concurrently, after unregistering,
+     * the context has to be registered again if there is any value not yet emitted.
+     */
+    private void deactivate() {
+      active = false;
+      activeContexts.remove(this);
+      for (AggregatedMetricsEmitter emitter : emitters.values()) {
+        if (emitter.hasValue()) {
+          activate();
+          return;
+        }
+      }
+    }
   }
 }
@@ -15,52 +15,73 @@
  */
 package io.cdap.cdap.metrics.collect;
 
+import io.cdap.cdap.api.metrics.BoundMetric;
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
  * during collection and emit the aggregated value when emit.
+ *
+ * Counter updates go to a {@link LongAdder}, which spreads contended updates across cells, hence
+ * updates don't allocate or lock after the cells are created.
  */
-final class AggregatedMetricsEmitter implements MetricsEmitter {
+final class AggregatedMetricsEmitter implements MetricsEmitter, BoundMetric {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
   private final String name;
-  // metric value
-  private final AtomicLong value;
+  // called on every update to make sure the emitter will be emitted
+  private final Runnable updateListener;
+  // counter value, which is added on top of the gauge value if gauge is used
+  private final LongAdder value;
+  private volatile long gaugeValue;
   // specifies if the metric type is gauge or counter
-  private final AtomicBoolean gaugeUsed;
+  private volatile boolean gaugeUsed;
 
-  AggregatedMetricsEmitter(String name) {
+  AggregatedMetricsEmitter(String name, Runnable updateListener) {
     if (name == null || name.isEmpty()) {
       LOG.warn("Creating emmitter with " + (name == null ? "null" : "empty") + " name, ");
     }
 
     this.name = name;
-    this.value = new AtomicLong();
-    this.gaugeUsed = new AtomicBoolean(false);
+    this.updateListener = updateListener;
+    this.value = new LongAdder();
   }
 
-  void increment(long value) {
-    this.value.addAndGet(value);
+  @Override
+  public void increment(long value) {
+    this.value.add(value);
+    updateListener.run();
   }
 
-
   @Override
   public MetricValue emit() {
     // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    boolean gauge = gaugeUsed;
+    if (gauge) {
+      gaugeUsed = false;
+    }
+    long value = this.value.sumThenReset();
+    return gauge ? new MetricValue(name, MetricType.GAUGE, gaugeValue + value)
+                 : new MetricValue(name, MetricType.COUNTER, value);
   }
 
+  /**
+   * Returns {@code true} if there is value pending to be emitted.
+   */
+  boolean hasValue() {
+    return gaugeUsed || value.sum() != 0;
+  }
+
+  @Override
   public void gauge(long value) {
-    this.value.set(value);
-    this.gaugeUsed.set(true);
+    this.value.reset();
+    this.gaugeValue = value;
+    this.gaugeUsed = true;
+    updateListener.run();
   }
 }
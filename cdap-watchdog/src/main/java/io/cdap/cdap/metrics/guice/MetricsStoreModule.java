@@ -17,22 +17,58 @@
 package io.cdap.cdap.metrics.guice;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.Scopes;
+import com.google.inject.name.Names;
 import io.cdap.cdap.api.metrics.MetricStore;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.metrics.store.DefaultMetricDatasetFactory;
 import io.cdap.cdap.metrics.store.DefaultMetricStore;
 import io.cdap.cdap.metrics.store.MetricDatasetFactory;
 import io.cdap.cdap.metrics.store.MetricsCleanUpService;
+import org.apache.twill.common.Threads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Guice module for providing bindings for {@link MetricStore} and {@link MetricDatasetFactory}.
  */
 public final class MetricsStoreModule extends AbstractModule {
+  public static final String QUERY_EXECUTOR = "metricsQueryExecutor";
 
   @Override
   protected void configure() {
     bind(MetricDatasetFactory.class).to(DefaultMetricDatasetFactory.class).in(Scopes.SINGLETON);
     bind(MetricStore.class).to(DefaultMetricStore.class);
     bind(MetricsCleanUpService.class).in(Scopes.SINGLETON);
+    bind(ExecutorService.class).annotatedWith(Names.named(QUERY_EXECUTOR))
+      .toProvider(QueryExecutorProvider.class).in(Scopes.SINGLETON);
+  }
+
+  /**
+   * Provides the {@link ExecutorService} shared by all {@link MetricStore} for running queries in parallel.
+   */
+  private static final class QueryExecutorProvider implements Provider<ExecutorService> {
+    private final CConfiguration cConf;
+
+    @Inject
+    QueryExecutorProvider(CConfiguration cConf) {
+      this.cConf = cConf;
+    }
+
+    @Override
+    public ExecutorService get() {
+      int threads = Math.max(1, cConf.getInt(Constants.Metrics.QUERY_PARALLELISM));
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue<>(),
+                                                           Threads.createDaemonThreadFactory("metrics-query-%d"));
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
   }
 }
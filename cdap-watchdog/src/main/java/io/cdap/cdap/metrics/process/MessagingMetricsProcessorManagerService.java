@@ -19,6 +19,7 @@ package io.cdap.cdap.metrics.process;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
 import io.cdap.cdap.api.metrics.MetricStore;
 import io.cdap.cdap.api.metrics.MetricsContext;
@@ -31,11 +32,19 @@ import io.cdap.cdap.metrics.store.MetricDatasetFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
- * Manage MessagingMetricsProcessorServices with different MetricsWriters
+ * Manage MessagingMetricsProcessorServices with different MetricsWriters.
+ *
+ * The metrics topics can be split into multiple shards, with one MessagingMetricsProcessorService per shard.
+ * Since metrics are published to topics based on the hash of the metrics context tags, each shard processes
+ * a disjoint set of metrics contexts, with its own queue, {@link MetricStore} writer and topic offset checkpointing.
  */
 public class MessagingMetricsProcessorManagerService extends AbstractIdleService {
 
@@ -48,45 +57,68 @@ public class MessagingMetricsProcessorManagerService extends AbstractIdleService
                                           MessagingService messagingService,
                                           SchemaGenerator schemaGenerator,
                                           DatumReaderFactory readerFactory,
-                                          MetricStore metricStore,
+                                          Provider<MetricStore> metricStoreProvider,
                                           @Assisted Set<Integer> topicNumbers,
                                           @Assisted MetricsContext metricsContext,
                                           @Assisted Integer instanceId) {
+    // Each shard gets a new MetricStore instance, since MetricStore is not thread safe
     this(cConf, metricDatasetFactory, messagingService,
-         schemaGenerator, readerFactory, metricStore, topicNumbers, metricsContext,
+         schemaGenerator, readerFactory, metricStoreProvider::get, topicNumbers, metricsContext,
          TimeUnit.SECONDS.toMillis(cConf.getInt(Constants.Metrics.METRICS_MINIMUM_RESOLUTION_SECONDS)), instanceId);
   }
 
+  /**
+   * Creates an instance with the given {@link Supplier} of {@link MetricStore}, which must return a new
+   * {@link MetricStore} instance on each call, since each shard writes with its own {@link MetricStore}.
+   */
   @VisibleForTesting
   MessagingMetricsProcessorManagerService(CConfiguration cConf,
                                           MetricDatasetFactory metricDatasetFactory,
                                           MessagingService messagingService,
                                           SchemaGenerator schemaGenerator,
                                           DatumReaderFactory readerFactory,
-                                          MetricStore metricStore,
+                                          Supplier<MetricStore> metricStoreSupplier,
                                           Set<Integer> topicNumbers,
                                           MetricsContext metricsContext,
                                           long metricsProcessIntervalMillis,
                                           int instanceId) {
     this.metricsWriters = new ArrayList<>();
     this.metricsProcessorServices = new ArrayList<>();
-    MetricStoreMetricsWriter metricsWriter = new MetricStoreMetricsWriter(metricStore);
-    metricsWriter.initialize(metricsContext);
-    this.metricsWriters.add(metricsWriter);
 
-    for (MetricsWriter metricsExtension : this.metricsWriters) {
+    for (Map.Entry<Integer, Set<Integer>> shard : getShards(cConf, topicNumbers).entrySet()) {
+      MetricStoreMetricsWriter metricsWriter = new MetricStoreMetricsWriter(metricStoreSupplier.get());
+      metricsWriter.initialize(metricsContext);
+      this.metricsWriters.add(metricsWriter);
+
       metricsProcessorServices.add(new MessagingMetricsProcessorService(cConf,
                                                                         metricDatasetFactory,
                                                                         messagingService,
                                                                         schemaGenerator,
                                                                         readerFactory,
-                                                                        metricsExtension,
-                                                                        topicNumbers,
+                                                                        metricsWriter,
+                                                                        shard.getValue(),
                                                                         metricsContext,
                                                                         metricsProcessIntervalMillis,
-                                                                        instanceId));
+                                                                        instanceId,
+                                                                        shard.getKey()));
+    }
+  }
 
+  /**
+   * Splits the given topic numbers into shards based on the {@link Constants.Metrics#PROCESSOR_SHARDS} setting.
+   *
+   * @return a map from shard id to the set of topic numbers that belongs to the shard
+   */
+  @VisibleForTesting
+  static Map<Integer, Set<Integer>> getShards(CConfiguration cConf, Set<Integer> topicNumbers) {
+    int shards = Math.max(1, Math.min(topicNumbers.size(), cConf.getInt(Constants.Metrics.PROCESSOR_SHARDS, 1)));
+    // Assign the topics to shards in round robin, so that the shards are balanced
+    Map<Integer, Set<Integer>> result = new TreeMap<>();
+    int idx = 0;
+    for (int topicNumber : new TreeSet<>(topicNumbers)) {
+      result.computeIfAbsent(idx++ % shards, k -> new TreeSet<>()).add(topicNumber);
     }
+    return result;
   }
 
   @Override
@@ -95,6 +95,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final List<ProcessMetricsThread> processMetricsThreads;
   private final String processMetricName;
   private final String metricsPrefixForDelayMetrics;
+  private final String shardDelayMetricName;
   private long metricsProcessedCount;
 
   private MetricsConsumerMetaTable metaTable;
@@ -113,7 +114,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
                                    @Assisted Integer instanceId) {
     this(cConf, metricDatasetFactory, messagingService,
          schemaGenerator, readerFactory, metricsWriter, topicNumbers, metricsContext,
-         TimeUnit.SECONDS.toMillis(cConf.getInt(Constants.Metrics.METRICS_MINIMUM_RESOLUTION_SECONDS)), instanceId);
+         TimeUnit.SECONDS.toMillis(cConf.getInt(Constants.Metrics.METRICS_MINIMUM_RESOLUTION_SECONDS)), instanceId, 0);
   }
 
   @VisibleForTesting
@@ -126,9 +127,11 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
                                    Set<Integer> topicNumbers,
                                    MetricsContext metricsContext,
                                    long metricsProcessIntervalMillis,
-                                   int instanceId) {
+                                   int instanceId,
+                                   int shardId) {
     this.metricDatasetFactory = metricDatasetFactory;
     this.metricsPrefixForDelayMetrics = String.format("metrics.processor.%s", instanceId);
+    this.shardDelayMetricName = String.format("%s.shard.%s.delay.ms", metricsPrefixForDelayMetrics, shardId);
 
     String topicPrefix = cConf.get(Constants.Metrics.TOPIC_PREFIX);
     this.metricsTopics = topicNumbers.stream()
@@ -285,6 +288,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     }
     List<MetricValue> processorMetrics = new ArrayList<>(topicLevelDelays);
     processorMetrics.add(new MetricValue(processMetricName, MetricType.COUNTER, metricValues.size()));
+    // shard level delay, based on the last metric being persisted by this shard
+    processorMetrics.add(new MetricValue(shardDelayMetricName, MetricType.GAUGE,
+                                         now - TimeUnit.SECONDS.toMillis(lastMetricTime)));
 
     metricValues.add(new MetricValues(metricsContextMap, TimeUnit.MILLISECONDS.toSeconds(now), processorMetrics));
     metricsWriter.write(metricValues);
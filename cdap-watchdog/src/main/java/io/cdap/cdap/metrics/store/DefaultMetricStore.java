@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import io.cdap.cdap.api.dataset.lib.cube.Cube;
 import io.cdap.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import io.cdap.cdap.api.dataset.lib.cube.CubeExploreQuery;
@@ -53,6 +54,7 @@ import io.cdap.cdap.data2.dataset2.lib.cube.DefaultAggregation;
 import io.cdap.cdap.data2.dataset2.lib.cube.DefaultCube;
 import io.cdap.cdap.data2.dataset2.lib.cube.FactTableSupplier;
 import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.metrics.guice.MetricsStoreModule;
 import io.cdap.cdap.metrics.process.MetricsConsumerMetaTable;
 import io.cdap.cdap.metrics.process.TopicIdMetaKey;
 import io.cdap.cdap.metrics.process.TopicProcessMeta;
@@ -65,6 +67,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -197,7 +200,8 @@ public class DefaultMetricStore implements MetricStore {
   }
 
   @Inject
-  DefaultMetricStore(MetricDatasetFactory dsFactory, CConfiguration cConf) {
+  DefaultMetricStore(MetricDatasetFactory dsFactory, CConfiguration cConf,
+                     @Named(MetricsStoreModule.QUERY_EXECUTOR) ExecutorService queryExecutor) {
     int minimumResolution = cConf.getInt(Constants.Metrics.METRICS_MINIMUM_RESOLUTION_SECONDS);
     int[] resolutions = minimumResolution < 60 ?
       new int[] {minimumResolution, 60, 3600, TOTALS_RESOLUTION} : new int[] {60, 3600, TOTALS_RESOLUTION};
@@ -212,6 +216,9 @@ public class DefaultMetricStore implements MetricStore {
       builder.put(minimumResolution, cConf.getLong(Constants.Metrics.MINIMUM_RESOLUTION_RETENTION_SECONDS));
     }
     this.resolutionTTLMap = builder.build();
+    // the query executor is shared by all metric stores, hence is not shut down by the cube
+    ExecutorService cubeQueryExecutor = cConf.getInt(Constants.Metrics.QUERY_PARALLELISM) > 1 ? queryExecutor : null;
+    int queryCacheSize = cConf.getInt(Constants.Metrics.QUERY_CACHE_SIZE);
     FactTableSupplier factTableSupplier = (resolution, ignoredRollTime) -> {
       // roll time will be taken from configuration
       // TODO: remove roll time from the supplier api, https://issues.cask.co/browse/CDAP-14730
@@ -220,7 +227,8 @@ public class DefaultMetricStore implements MetricStore {
     this.cube = Suppliers.memoize(new Supplier<Cube>() {
       @Override
       public Cube get() {
-        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
+        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS,
+                                           cubeQueryExecutor, queryCacheSize);
         cube.setMetricsCollector(metricsContext);
         return cube;
       }
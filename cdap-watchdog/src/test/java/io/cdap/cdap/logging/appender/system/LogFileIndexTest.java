@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.appender.system;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.write.LogFileIndex;
+import io.cdap.cdap.logging.write.LogLocation;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for writing and reading log files with a {@link LogFileIndex}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testIndexedRead() throws Exception {
+    Location location = new LocalLocationFactory(TMP_FOLDER.newFolder()).create("1000.avro");
+
+    // a small sync interval to have multiple blocks in the file, with an ERROR event every 10 events
+    try (LogFileOutputStream outputStream = new LogFileOutputStream(location, "", 256, 1000L, () -> { })) {
+      Logger logger = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+      for (int i = 0; i < 100; i++) {
+        LoggingEvent event = new LoggingEvent("io.cdap.Test", logger, i % 10 == 0 ? Level.ERROR : Level.INFO,
+                                              "test message " + i, null, null);
+        event.setTimeStamp(1000L + i);
+        outputStream.append(event);
+      }
+    }
+
+    Location indexLocation = LogFileIndex.getIndexLocation(location);
+    Assert.assertTrue(indexLocation.exists());
+    List<LogFileIndex.Block> blocks = LogFileIndex.read(indexLocation).getBlocks();
+    Assert.assertTrue(blocks.size() > 1);
+    Assert.assertEquals(1000L, blocks.get(0).getMinTimeMs());
+    Assert.assertEquals(1099L, blocks.get(blocks.size() - 1).getMaxTimeMs());
+
+    // reads with the index should return the same events as reads that scan the file
+    LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, 1000L, 1000L, location, "default", null);
+    Filter errorFilter = new LogLevelExpression("ERROR");
+    List<Long> expected = Arrays.asList(1050L, 1060L, 1070L, 1080L, 1090L);
+    Assert.assertEquals(expected, readLog(logLocation, errorFilter, 1050L));
+    Assert.assertEquals(Arrays.asList(1045L, 1046L, 1047L, 1048L, 1049L),
+                        readLogPrev(logLocation, Filter.EMPTY_FILTER, 1049L, 5));
+    Assert.assertEquals(Arrays.asList(1030L, 1040L), readLogPrev(logLocation, errorFilter, 1049L, 2));
+
+    indexLocation.delete();
+    Assert.assertEquals(expected, readLog(logLocation, errorFilter, 1050L));
+    Assert.assertEquals(Arrays.asList(1045L, 1046L, 1047L, 1048L, 1049L),
+                        readLogPrev(logLocation, Filter.EMPTY_FILTER, 1049L, 5));
+    Assert.assertEquals(Arrays.asList(1030L, 1040L), readLogPrev(logLocation, errorFilter, 1049L, 2));
+  }
+
+  @Test
+  public void testMayMatch() {
+    LogFileIndex.Block block = new LogFileIndex.Builder()
+      .sync(10L)
+      .addEvent(1L, Level.DEBUG)
+      .addEvent(2L, Level.INFO)
+      .build()
+      .getBlocks().get(0);
+
+    Assert.assertTrue(block.mayMatch(Filter.EMPTY_FILTER));
+    Assert.assertTrue(block.mayMatch(new LogLevelExpression("INFO")));
+    Assert.assertFalse(block.mayMatch(new LogLevelExpression("WARN")));
+  }
+
+  private List<Long> readLog(LogLocation logLocation, Filter filter, long fromTimeMs) {
+    List<Long> timestamps = new ArrayList<>();
+    try (CloseableIterator<LogEvent> iterator = logLocation.readLog(filter, fromTimeMs, Long.MAX_VALUE, 100)) {
+      while (iterator.hasNext()) {
+        timestamps.add(iterator.next().getLoggingEvent().getTimeStamp());
+      }
+    }
+    return timestamps;
+  }
+
+  private List<Long> readLogPrev(LogLocation logLocation, Filter filter,
+                                 long fromTimeMs, int maxEvents) throws Exception {
+    List<Long> timestamps = new ArrayList<>();
+    for (LogEvent event : logLocation.readLogPrev(filter, fromTimeMs, maxEvents)) {
+      timestamps.add(event.getLoggingEvent().getTimeStamp());
+    }
+    return timestamps;
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 
 /**
  * Unit-test for {@link TimeEventQueue}.
@@ -143,6 +144,85 @@ public class TimeEventQueueTest {
     Assert.assertTrue(eventQueue.isEmpty());
   }
 
+  @Test
+  public void testDuplicateOffset() {
+    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1));
+    eventQueue.add("m1", 1L, 10, 1, 0);
+    eventQueue.add("m2", 2L, 10, 1, 1);
+
+    // The same event added again is ignored
+    eventQueue.add("m1", 1L, 10, 1, 0);
+    Assert.assertEquals(2, eventQueue.size());
+    Assert.assertEquals(20, eventQueue.getEventSize());
+
+    // A different event with the same offset is rejected
+    try {
+      eventQueue.add("m3", 3L, 10, 1, 0);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    Assert.assertEquals(2, eventQueue.size());
+    Assert.assertEquals(0, eventQueue.getSmallestOffset(1).intValue());
+  }
+
+  @Test
+  public void testRandomTraffic() {
+    Random random = new Random(0);
+    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(ImmutableSet.of(0, 1, 2));
+    List<long[]> expected = new ArrayList<>();
+
+    // Add events with timestamps that are mostly increasing but with some jitter, as seen in log pipelines
+    int[] offsets = new int[3];
+    for (int i = 0; i < 1000; i++) {
+      int partition = random.nextInt(3);
+      long timestamp = i + random.nextInt(20);
+      int offset = offsets[partition]++;
+      eventQueue.add(partition + ":" + offset, timestamp, 1, partition, offset);
+      expected.add(new long[] { timestamp, partition, offset });
+    }
+    expected.sort(Comparator.<long[]>comparingLong(e -> e[0])
+                    .thenComparingLong(e -> e[1])
+                    .thenComparingLong(e -> e[2]));
+
+    // Iterate in order and remove every other event
+    List<long[]> remaining = new ArrayList<>();
+    TimeEventQueue.EventIterator<String, Integer> iterator = eventQueue.iterator();
+    for (int i = 0; i < expected.size(); i++) {
+      long[] event = expected.get(i);
+      Assert.assertEquals(event[1] + ":" + event[2], iterator.next());
+      Assert.assertEquals(event[1], iterator.getPartition());
+      Assert.assertEquals(event[2], iterator.getOffset().longValue());
+      if (i % 2 == 0) {
+        iterator.remove();
+      } else {
+        remaining.add(event);
+      }
+    }
+    Assert.assertFalse(iterator.hasNext());
+    Assert.assertEquals(remaining.size(), eventQueue.size());
+    Assert.assertEquals(remaining.size(), eventQueue.getEventSize());
+
+    // The smallest offset of each partition is the smallest offset of the remaining events
+    for (int partition = 0; partition < 3; partition++) {
+      long smallest = Long.MAX_VALUE;
+      for (long[] event : remaining) {
+        if (event[1] == partition) {
+          smallest = Math.min(smallest, event[2]);
+        }
+      }
+      Assert.assertEquals(smallest, eventQueue.getSmallestOffset(partition).longValue());
+    }
+
+    // The remaining events are still in order
+    Iterator<long[]> expectedItor = remaining.iterator();
+    for (String event : eventQueue) {
+      long[] expectedEvent = expectedItor.next();
+      Assert.assertEquals(expectedEvent[1] + ":" + expectedEvent[2], event);
+    }
+    Assert.assertFalse(expectedItor.hasNext());
+  }
+
   @Test (expected = IllegalArgumentException.class)
   public void testInvalidPartition() {
     TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
@@ -29,12 +29,16 @@ import io.cdap.cdap.common.logging.ServiceLoggingContext;
 import io.cdap.cdap.common.logging.logback.TestLoggingContext;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
@@ -182,6 +186,44 @@ public class LoggingEventSerializerTest {
     Assert.assertEquals(timestamp, serializer.decodeEventTimestamp(ByteBuffer.wrap(bytes)));
   }
 
+  @Test
+  public void testGenericRecordCompatibility() throws IOException {
+    ch.qos.logback.classic.spi.LoggingEvent iLoggingEvent = new ch.qos.logback.classic.spi.LoggingEvent();
+    iLoggingEvent.setThreadName("thread");
+    iLoggingEvent.setLevel(Level.WARN);
+    iLoggingEvent.setMessage("Log {} {}");
+    iLoggingEvent.setArgumentArray(new Object[] { "arg1", null });
+    iLoggingEvent.setLoggerName("test.logger");
+    iLoggingEvent.setLoggerContextRemoteView(new LoggerContextVO("context", ImmutableMap.of("p1", "v1"), 1000L));
+    iLoggingEvent.setThrowableProxy(new ThrowableProxy(new Exception("error", new Exception("cause"))));
+    iLoggingEvent.setCallerData(new StackTraceElement[] {
+      new StackTraceElement("com.Class1", "methodName1", "fileName1", 10), null
+    });
+    // Only use single entry maps, since the entry order of HashMap is not guaranteed to be the same
+    iLoggingEvent.setMDCPropertyMap(ImmutableMap.of("mdc", "value"));
+    iLoggingEvent.setTimeStamp(1234567890L);
+    iLoggingEvent.prepareForDeferredProcessing();
+    ((ThrowableProxy) iLoggingEvent.getThrowableProxy()).calculatePackagingData();
+
+    // Bytes written directly from the event should be the same as writing the GenericRecord of the event
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema())
+      .write(serializer.toGenericRecord(iLoggingEvent), EncoderFactory.get().directBinaryEncoder(os, null));
+    byte[] bytes = serializer.toBytes(iLoggingEvent);
+    Assert.assertArrayEquals(os.toByteArray(), bytes);
+
+    // The timestamp, level and mdc are decoded upfront, the rest are decoded when needed
+    LoggingEvent event = (LoggingEvent) serializer.fromBytes(ByteBuffer.wrap(bytes));
+    Assert.assertEquals(1234567890L, event.getTimeStamp());
+    Assert.assertEquals(Level.WARN, event.getLevel());
+    Assert.assertEquals(ImmutableMap.of("mdc", "value"), event.getMDCPropertyMap());
+    Assert.assertEquals(iLoggingEvent.getFormattedMessage(), event.getFormattedMessage());
+    Assert.assertArrayEquals(iLoggingEvent.getCallerData(), event.getCallerData());
+    assertThrowableProxyEquals(iLoggingEvent.getThrowableProxy(), event.getThrowableProxy());
+    Assert.assertEquals("thread", event.getRecord().get("threadName").toString());
+  }
+
   static void assertLoggingEventEquals(ILoggingEvent expected, ILoggingEvent actual) {
     expected.getMDCPropertyMap().putAll(
       ImmutableMap.of(".namespaceId", "TEST_ACCT_ID1", ".applicationId", "TEST_APP_ID1", ".runId", "RUN1",
@@ -17,6 +17,7 @@ package io.cdap.cdap.metrics.collect;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import io.cdap.cdap.api.metrics.BoundMetric;
 import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsContext;
@@ -31,6 +32,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -139,6 +141,92 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testBoundMetric() throws Exception {
+    BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(EMPTY_TAGS);
+      BoundMetric metric = context.bind(METRIC);
+
+      // Concurrently increment through the bound metric and the context, while metrics are being published
+      int threads = 4;
+      int count = 10000;
+      CompletableFuture<?>[] futures = new CompletableFuture<?>[threads];
+      for (int i = 0; i < threads; i++) {
+        boolean useBound = i % 2 == 0;
+        futures[i] = CompletableFuture.runAsync(() -> {
+          for (int j = 0; j < count; j++) {
+            if (useBound) {
+              metric.increment(1);
+            } else {
+              context.increment(METRIC, 1);
+            }
+          }
+        });
+      }
+      CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+      verifyCounterMetricsValue(published, ImmutableMap.of(0, ImmutableMap.of(METRIC, (long) threads * count)));
+
+      // Gauge through the bound metric
+      metric.gauge(10);
+      verifyGaugeMetricsValue(published, ImmutableMap.of(0, 10L), METRIC);
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testSameTagsSameContext() throws Exception {
+    BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    try {
+      Map<String, String> tags = new HashMap<>();
+      tags.put(Constants.Metrics.Tag.NAMESPACE, NAMESPACE);
+      tags.put(Constants.Metrics.Tag.APP, APP);
+
+      // Contexts with the same tags, no matter how they are obtained, must be the same instance
+      MetricsContext context = service.getContext(tags);
+      MetricsContext childContext = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE))
+        .childContext(Constants.Metrics.Tag.APP, APP);
+      Assert.assertSame(context, childContext);
+      Assert.assertSame(context, service.getContext(ImmutableMap.copyOf(tags)));
+
+      // Updates through both of them are emitted as one value. Update before starting so that they are published
+      // together.
+      context.increment(METRIC, 3);
+      childContext.increment(METRIC, 4);
+      context.gauge(GAUGE_METRIC, 1);
+      childContext.gauge(GAUGE_METRIC, 2);
+      service.startAndWait();
+
+      MetricValues metricValues = published.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(metricValues);
+      Assert.assertEquals(tags, metricValues.getTags());
+      Assert.assertEquals(Long.valueOf(7L), getMetricValue(metricValues.getMetrics(), METRIC));
+      Assert.assertEquals(Long.valueOf(2L), getMetricValue(metricValues.getMetrics(), GAUGE_METRIC));
+      Assert.assertNull(published.poll(1, TimeUnit.SECONDS));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
   private void verifyCounterMetricsValue(BlockingQueue<MetricValues> published,
                                          Map<Integer, Map<String, Long>> expected) throws InterruptedException {
     Map<Integer, Map<String, Long>> received = new HashMap<>();
@@ -171,6 +259,11 @@ public class AggregatedMetricsCollectionServiceTest {
 
   private void verifyGaugeMetricsValue(BlockingQueue<MetricValues> published, Map<Integer, Long> expected)
     throws InterruptedException {
+    verifyGaugeMetricsValue(published, expected, GAUGE_METRIC);
+  }
+
+  private void verifyGaugeMetricsValue(BlockingQueue<MetricValues> published, Map<Integer, Long> expected,
+                                       String metricName) throws InterruptedException {
 
     Map<Integer, Long> seen = new HashMap<>();
     long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
@@ -184,7 +277,7 @@ public class AggregatedMetricsCollectionServiceTest {
       int tags = metricValues.getTags().size();
       Assert.assertNotNull("Unexpected number of tags while verifying gauge metrics value: " + tags,
                            expected.get(tags));
-      Long receivedValue = getMetricValue(metricValues.getMetrics(), GAUGE_METRIC);
+      Long receivedValue = getMetricValue(metricValues.getMetrics(), metricName);
       if (receivedValue != null) {
         seen.put(tags, receivedValue);
       }
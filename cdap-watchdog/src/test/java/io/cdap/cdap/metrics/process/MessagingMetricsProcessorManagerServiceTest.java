@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.metrics.process;
 
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.metrics.MetricDataQuery;
 import io.cdap.cdap.api.metrics.MetricDeleteQuery;
 import io.cdap.cdap.api.metrics.MetricSearchQuery;
@@ -28,6 +29,7 @@ import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.metrics.MetricsProcessorStatus;
 import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.api.metrics.TagValue;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.utils.Tasks;
 import io.cdap.cdap.data2.datafabric.dataset.service.DatasetService;
@@ -42,9 +44,11 @@ import org.apache.tephra.TransactionManager;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -58,13 +62,7 @@ public class MessagingMetricsProcessorManagerServiceTest extends MetricsProcesso
 
   @Test
   public void persistMetricsTests() throws Exception {
-
-    injector.getInstance(TransactionManager.class).startAndWait();
-    StructuredTableRegistry structuredTableRegistry = injector.getInstance(StructuredTableRegistry.class);
-    structuredTableRegistry.initialize();
-    StoreDefinition.createAllTables(injector.getInstance(StructuredTableAdmin.class), structuredTableRegistry);
-    injector.getInstance(DatasetOpExecutorService.class).startAndWait();
-    injector.getInstance(DatasetService.class).startAndWait();
+    startServices();
 
     Set<Integer> partitions = IntStream.range(0, cConf.getInt(Constants.Metrics.MESSAGING_TOPIC_NUM))
       .boxed().collect(Collectors.toSet());
@@ -85,6 +83,7 @@ public class MessagingMetricsProcessorManagerServiceTest extends MetricsProcesso
       }
 
       final MockMetricStore metricStore = new MockMetricStore();
+      List<MetricStore> metricStores = new ArrayList<>();
       // Create new MessagingMetricsProcessorManagerService instance every time because the same instance cannot be
       // started
       // again after it's stopped
@@ -92,8 +91,14 @@ public class MessagingMetricsProcessorManagerServiceTest extends MetricsProcesso
         new MessagingMetricsProcessorManagerService(cConf, injector.getInstance(MetricDatasetFactory.class),
                                                     messagingService,
                                                     injector.getInstance(SchemaGenerator.class),
-                                                    injector.getInstance(DatumReaderFactory.class), metricStore,
+                                                    injector.getInstance(DatumReaderFactory.class),
+                                                    () -> {
+                                                      metricStores.add(metricStore);
+                                                      return metricStore;
+                                                    },
                                                     partitions, new NoopMetricsContext(), 50, 0);
+      // There is only one shard by default
+      Assert.assertEquals(1, metricStores.size());
       messagingMetricsProcessorManagerService.startAndWait();
 
       // Wait for the 1 aggregated counter metric (with value 50) and 50 gauge metrics to be stored in the metricStore
@@ -128,6 +133,92 @@ public class MessagingMetricsProcessorManagerServiceTest extends MetricsProcesso
     }
   }
 
+  @Test
+  public void testShardedProcessing() throws Exception {
+    startServices();
+
+    int numTopics = cConf.getInt(Constants.Metrics.MESSAGING_TOPIC_NUM);
+    Set<Integer> partitions = IntStream.range(0, numTopics).boxed().collect(Collectors.toSet());
+    cConf.setInt(Constants.Metrics.PROCESSOR_SHARDS, 3);
+    Map<Integer, Set<Integer>> shards = MessagingMetricsProcessorManagerService.getShards(cConf, partitions);
+    Assert.assertEquals(3, shards.size());
+
+    // Publish gauges to all topics. Gauges with the same name are summed by the MockMetricStore,
+    // hence a topic partition processed more than once would result in a wrong value.
+    long startTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    for (int i = 1; i <= numTopics * 5; i++) {
+      publishMessagingMetrics(i, startTime, METRICS_CONTEXT, expected, "", MetricType.GAUGE);
+    }
+
+    // Each shard gets a new MetricStore, in the order of the shard ids
+    List<MockMetricStore> metricStores = new ArrayList<>();
+    MessagingMetricsProcessorManagerService messagingMetricsProcessorManagerService =
+      new MessagingMetricsProcessorManagerService(cConf, injector.getInstance(MetricDatasetFactory.class),
+                                                  messagingService,
+                                                  injector.getInstance(SchemaGenerator.class),
+                                                  injector.getInstance(DatumReaderFactory.class),
+                                                  () -> {
+                                                    MockMetricStore metricStore = new MockMetricStore();
+                                                    metricStores.add(metricStore);
+                                                    return metricStore;
+                                                  },
+                                                  partitions, new NoopMetricsContext(), 50, 0);
+    Assert.assertEquals(shards.size(), metricStores.size());
+    messagingMetricsProcessorManagerService.startAndWait();
+    try {
+      Tasks.waitFor(expected.size(),
+                    () -> metricStores.stream().mapToInt(store -> store.getAllMetrics().size()).sum(),
+                    15, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+    } finally {
+      messagingMetricsProcessorManagerService.stopAndWait();
+    }
+
+    // Each shard should only have the metrics published to the topics of the shard, with the correct values
+    Map<String, Long> actual = new HashMap<>();
+    for (int shard = 0; shard < metricStores.size(); shard++) {
+      Set<Integer> topics = shards.get(shard);
+      for (Map.Entry<String, Long> metric : metricStores.get(shard).getAllMetrics().entrySet()) {
+        int metricIndex = Integer.parseInt(metric.getKey().substring(GAUGE_METRIC_NAME_PREFIX.length()));
+        Assert.assertTrue("Metric " + metric.getKey() + " is processed by shard " + shard,
+                          topics.contains(metricIndex % numTopics));
+        Assert.assertNull(actual.put(metric.getKey(), metric.getValue()));
+      }
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testShards() {
+    CConfiguration conf = CConfiguration.create();
+    Set<Integer> topicNumbers = ImmutableSet.of(1, 3, 5, 7, 9);
+
+    // Default is one shard with all topics
+    Map<Integer, Set<Integer>> shards = MessagingMetricsProcessorManagerService.getShards(conf, topicNumbers);
+    Assert.assertEquals(Collections.singletonMap(0, topicNumbers), shards);
+
+    conf.setInt(Constants.Metrics.PROCESSOR_SHARDS, 2);
+    shards = MessagingMetricsProcessorManagerService.getShards(conf, topicNumbers);
+    Assert.assertEquals(ImmutableSet.of(1, 5, 9), shards.get(0));
+    Assert.assertEquals(ImmutableSet.of(3, 7), shards.get(1));
+
+    // Number of shards is bounded by the number of topics
+    conf.setInt(Constants.Metrics.PROCESSOR_SHARDS, 10);
+    shards = MessagingMetricsProcessorManagerService.getShards(conf, topicNumbers);
+    Assert.assertEquals(topicNumbers.size(), shards.size());
+    for (Set<Integer> shard : shards.values()) {
+      Assert.assertEquals(1, shard.size());
+    }
+  }
+
+  private void startServices() throws Exception {
+    injector.getInstance(TransactionManager.class).startAndWait();
+    StructuredTableRegistry structuredTableRegistry = injector.getInstance(StructuredTableRegistry.class);
+    structuredTableRegistry.initialize();
+    StoreDefinition.createAllTables(injector.getInstance(StructuredTableAdmin.class), structuredTableRegistry);
+    injector.getInstance(DatasetOpExecutorService.class).startAndWait();
+    injector.getInstance(DatasetService.class).startAndWait();
+  }
+
   private void assertMetricsResult(Map<String, Long> expected, Map<String, Long> actual) {
     for (Map.Entry<String, Long> metric : expected.entrySet()) {
       Long actualValue = actual.get(metric.getKey());
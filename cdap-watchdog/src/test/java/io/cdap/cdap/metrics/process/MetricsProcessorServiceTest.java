@@ -81,7 +81,8 @@ public class MetricsProcessorServiceTest extends MetricsProcessorServiceTestBase
     MessagingMetricsProcessorManagerService messagingMetricsProcessorManagerService =
       new MessagingMetricsProcessorManagerService(cConf, injector.getInstance(MetricDatasetFactory.class),
                                                   messagingService, injector.getInstance(SchemaGenerator.class),
-                                                  injector.getInstance(DatumReaderFactory.class), metricStore,
+                                                  injector.getInstance(DatumReaderFactory.class),
+                                                  () -> injector.getInstance(MetricStore.class),
                                                   partitions, new NoopMetricsContext(), 50, 0);
     messagingMetricsProcessorManagerService.startAndWait();
 
@@ -99,7 +100,8 @@ public class MetricsProcessorServiceTest extends MetricsProcessorServiceTestBase
     messagingMetricsProcessorManagerService =
       new MessagingMetricsProcessorManagerService(cConf, injector.getInstance(MetricDatasetFactory.class),
                                                   messagingService, injector.getInstance(SchemaGenerator.class),
-                                                  injector.getInstance(DatumReaderFactory.class), metricStore,
+                                                  injector.getInstance(DatumReaderFactory.class),
+                                                  () -> injector.getInstance(MetricStore.class),
                                                   partitions, new NoopMetricsContext(), 50, 0);
     messagingMetricsProcessorManagerService.startAndWait();
 